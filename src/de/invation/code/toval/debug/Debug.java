@@ -8,7 +8,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import de.invation.code.toval.file.FileWriter;
+import de.invation.code.toval.file.FlushPolicy;
 import de.invation.code.toval.validate.ParameterException;
+import de.invation.code.toval.validate.Validate;
 
 /**
  * Debugging class.
@@ -33,6 +35,8 @@ public class Debug {
 	
 	private static FileWriter fileWriter = null;
 	
+	private static FlushPolicy fileFlushPolicy = FlushPolicy.EVERY_LINE;
+	
 	private static OutputMode outputMode = OutputMode.SYSOUT;
 	
 	private static boolean includeHeader = true;
@@ -44,12 +48,31 @@ public class Debug {
 		if(outputMode == OutputMode.FILE && fileWriter == null){
 			try {
 				fileWriter = new FileWriter("debug");
+				fileWriter.setFlushPolicy(fileFlushPolicy);
 			} catch (ParameterException e) {
 				printStream.println("Cannot prepare file writer for output-mode FILE: Parameter Exception");
 			}
 		}
 	}
 	
+	/**
+	 * Sets the flush policy for debug messages in output mode {@link OutputMode#FILE}.<br>
+	 * By default, every message is flushed, so the file is complete in case of a crash.
+	 * @param policy The flush policy.
+	 * @throws ParameterException if the flush policy is <code>null</code>.
+	 * @see FlushPolicy
+	 */
+	public static synchronized void setFileFlushPolicy(FlushPolicy policy){
+		Validate.notNull(policy);
+		try {
+			if(fileWriter != null)
+				fileWriter.setFlushPolicy(policy);
+			fileFlushPolicy = policy;
+		} catch (ParameterException e) {
+			printStream.println("Cannot set flush policy: Parameter Exception");
+		}
+	}
+	
 	public static int newStoredDebuggingInfo(){
 		int i=0;
 		while(storedDebugInfo.containsKey(i)){
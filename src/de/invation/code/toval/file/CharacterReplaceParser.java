@@ -1,7 +1,7 @@
 package de.invation.code.toval.file;
 
 import java.nio.charset.Charset;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
 
 import de.invation.code.toval.validate.ParameterException;
@@ -35,13 +35,10 @@ public class CharacterReplaceParser extends LineBasedFileTransformer{
 
 	@Override
 	protected Set<String> transformLine(String line) {
-		Set<String> result = new HashSet<String>();
 		if(replaceString != null && replacementString != null){
-			result.add(line.replace(replaceString, replacementString));
-		} else {
-			result.add(line);
+			return Collections.singleton(line.replace(replaceString, replacementString));
 		}
-		return result;
+		return Collections.singleton(line);
 	}
 
 	public static void main(String[] args) throws Exception{
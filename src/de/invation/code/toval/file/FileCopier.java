@@ -0,0 +1,360 @@
+package de.invation.code.toval.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Copies files and directory trees via {@link FileChannel}s.<br>
+ * File contents are copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * which lets the operating system copy the data without passing it through
+ * the Java heap. Only when a checksum is requested
+ * ({@link #setChecksum(Supplier)}), the content is read into a buffer to
+ * compute the checksum on the fly.<br>
+ * <br>
+ * Options:
+ * <ul>
+ * <li>Preallocation ({@link #setPreallocate(boolean)}) sets the length of a
+ * target file before copying, which lets the file system reserve the space
+ * at once.</li>
+ * <li>Incremental mode ({@link #setIncremental(boolean)}) skips files whose
+ * target already exists with the same size and modification time. Copied
+ * files get the modification time of their source in this mode.</li>
+ * <li>Directory trees are copied by a bounded pool of
+ * {@link #setParallelism(int)} threads. If all threads are busy and the task
+ * queue is full, the walking thread copies files itself. Symbolic links
+ * within a directory tree are not followed.</li>
+ * </ul>
+ */
+public class FileCopier {
+
+	/**
+	 * Maximum number of bytes passed to a single transfer call.
+	 */
+	private static final long MAX_TRANSFER_SIZE = 64L << 20;
+	private static final int CHECKSUM_BUFFER_SIZE = 1 << 20;
+	private static final Supplier<Checksum> CRC32_CHECKSUM = CRC32::new;
+
+	private boolean preallocate = false;
+	private boolean incremental = false;
+	private boolean preserveLastModified = false;
+	private Supplier<? extends Checksum> checksum = null;
+	private int parallelism = 1;
+
+	//------- Getters and Setters ------------------------------------------------------------
+
+	public boolean preallocates(){
+		return preallocate;
+	}
+
+	public void setPreallocate(boolean preallocate){
+		this.preallocate = preallocate;
+	}
+
+	public boolean isIncremental(){
+		return incremental;
+	}
+
+	/**
+	 * Sets the incremental mode, in which files are skipped if the target file
+	 * has the same size and modification time as the source file.<br>
+	 * Enabling the incremental mode also enables preserving modification
+	 * times, so that unchanged files are skipped in subsequent runs.
+	 * @param incremental <code>true</code> to skip unchanged files.
+	 */
+	public void setIncremental(boolean incremental){
+		this.incremental = incremental;
+		if(incremental)
+			preserveLastModified = true;
+	}
+
+	public boolean preservesLastModified(){
+		return preserveLastModified;
+	}
+
+	public void setPreserveLastModified(boolean preserveLastModified){
+		this.preserveLastModified = preserveLastModified;
+	}
+
+	/**
+	 * Enables CRC32 checksums of copied files.
+	 * @param enabled <code>true</code> to compute checksums.
+	 */
+	public void setChecksumEnabled(boolean enabled){
+		setChecksum(enabled ? CRC32_CHECKSUM : null);
+	}
+
+	/**
+	 * Sets the checksum algorithm for copied files.<br>
+	 * Checksums are computed while copying, which requires reading the
+	 * content through a buffer instead of a kernel-side transfer.
+	 * @param checksum Factory for checksum instances, <code>null</code> to
+	 * disable checksums.
+	 */
+	public void setChecksum(Supplier<? extends Checksum> checksum){
+		this.checksum = checksum;
+	}
+
+	public int getParallelism(){
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads copying files of a directory tree.
+	 * @param parallelism Number of copying threads.
+	 */
+	public void setParallelism(int parallelism){
+		Validate.bigger(parallelism, 0);
+		this.parallelism = parallelism;
+	}
+
+	//------- Functionality ------------------------------------------------------------------
+
+	/**
+	 * Copies a single file.<br>
+	 * An existing target file is replaced.
+	 * @param source The file to copy.
+	 * @param target The target file.
+	 * @return The result of the copy operation.
+	 * @throws IOException if the source cannot be read or the target cannot
+	 * be written.
+	 */
+	public Result copy(File source, File target) throws IOException{
+		Validate.notNull(source);
+		Validate.notNull(target);
+		Result result = new Result();
+		copyFile(source.toPath(), target.toPath(), result);
+		return result;
+	}
+
+	/**
+	 * Copies a directory tree.<br>
+	 * Missing target directories are created, existing target files are
+	 * replaced unless they are skipped in incremental mode. Files of the
+	 * target tree which do not exist in the source tree are not removed.<br>
+	 * Symbolic links are not followed but recreated as links with the same
+	 * link target, which avoids cycles and keeps links to locations outside
+	 * the tree. Other special files like devices or pipes are skipped.
+	 * @param source The directory to copy.
+	 * @param target The target directory.
+	 * @return The result of the copy operation.
+	 * @throws IOException if a file cannot be copied.
+	 */
+	public Result copyDirectory(File source, File target) throws IOException{
+		Validate.notNull(source);
+		Validate.notNull(target);
+		if(!source.isDirectory())
+			throw new IOException("I/O Error on copying directory: Source is not a directory!");
+		final Path sourceRoot = source.toPath();
+		final Path targetRoot = target.toPath();
+		final Result result = new Result();
+		final AtomicReference<IOException> failure = new AtomicReference<>();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(parallelism * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+		try{
+			Files.walkFileTree(sourceRoot, new SimpleFileVisitor<Path>(){
+
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException{
+					Files.createDirectories(targetRoot.resolve(sourceRoot.relativize(dir)));
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs) throws IOException{
+					if(failure.get() != null)
+						return FileVisitResult.TERMINATE;
+					final Path targetFile = targetRoot.resolve(sourceRoot.relativize(file));
+					if(attrs.isSymbolicLink()){
+						copyLink(file, targetFile, result);
+						return FileVisitResult.CONTINUE;
+					}
+					if(!attrs.isRegularFile())
+						return FileVisitResult.CONTINUE;
+					executor.execute(() -> {
+						try{
+							copyFile(file, targetFile, result);
+						} catch(IOException e){
+							failure.compareAndSet(null, e);
+						}
+					});
+					return FileVisitResult.CONTINUE;
+				}
+
+			});
+		} finally {
+			executor.shutdown();
+			try{
+				while(!executor.awaitTermination(1, TimeUnit.SECONDS)){}
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				throw new IOException("Interrupted while copying directory", e);
+			}
+		}
+		if(failure.get() != null)
+			throw failure.get();
+		return result;
+	}
+
+	private void copyFile(Path source, Path target, Result result) throws IOException{
+		if(Files.isDirectory(target))
+			throw new IOException("I/O Error on copying file: Target is a directory!");
+		long sourceSize = Files.size(source);
+		long sourceModified = Files.getLastModifiedTime(source).toMillis();
+		if(incremental && Files.exists(target) && Files.size(target) == sourceSize && Files.getLastModifiedTime(target).toMillis() == sourceModified){
+			result.skippedFiles.incrementAndGet();
+			return;
+		}
+		long copied;
+		try(FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+			FileChannel output = openTarget(target, sourceSize)){
+			if(checksum == null){
+				copied = transfer(input, output);
+			} else {
+				Checksum sum = checksum.get();
+				copied = copy(input, output, sum);
+				result.checksums.put(source, sum.getValue());
+			}
+			if(output.size() > copied)
+				output.truncate(copied);
+		}
+		if(preserveLastModified)
+			Files.setLastModifiedTime(target, FileTime.fromMillis(sourceModified));
+		result.copiedFiles.incrementAndGet();
+		result.copiedBytes.addAndGet(copied);
+	}
+
+	private void copyLink(Path source, Path target, Result result) throws IOException{
+		Path linkTarget = Files.readSymbolicLink(source);
+		if(incremental && Files.isSymbolicLink(target) && Files.readSymbolicLink(target).equals(linkTarget)){
+			result.skippedFiles.incrementAndGet();
+			return;
+		}
+		Files.deleteIfExists(target);
+		Files.createSymbolicLink(target, linkTarget);
+		result.copiedFiles.incrementAndGet();
+	}
+
+	@SuppressWarnings("resource")
+	private FileChannel openTarget(Path target, long size) throws IOException{
+		if(!preallocate)
+			return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw");
+		try{
+			file.setLength(size);
+		} catch(IOException e){
+			file.close();
+			throw e;
+		}
+		return file.getChannel();
+	}
+
+	/**
+	 * Copies the content with kernel-side transfers.
+	 */
+	private static long transfer(FileChannel input, FileChannel output) throws IOException{
+		long position = 0;
+		long size = input.size();
+		while(position < size){
+			long transferred = input.transferTo(position, Math.min(size - position, MAX_TRANSFER_SIZE), output);
+			if(transferred <= 0){
+				// The source has been truncated meanwhile
+				if(position >= input.size())
+					break;
+				continue;
+			}
+			position += transferred;
+		}
+		return position;
+	}
+
+	/**
+	 * Copies the content through a buffer and updates the checksum.
+	 */
+	private static long copy(FileChannel input, FileChannel output, Checksum checksum) throws IOException{
+		ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE);
+		long copied = 0;
+		while(input.read(buffer) > 0){
+			buffer.flip();
+			checksum.update(buffer.array(), 0, buffer.limit());
+			while(buffer.hasRemaining())
+				copied += output.write(buffer);
+			buffer.clear();
+		}
+		return copied;
+	}
+
+	/**
+	 * Statistics of a copy operation.
+	 */
+	public static class Result {
+
+		private final AtomicLong copiedFiles = new AtomicLong();
+		private final AtomicLong skippedFiles = new AtomicLong();
+		private final AtomicLong copiedBytes = new AtomicLong();
+		private final Map<Path, Long> checksums = new ConcurrentHashMap<>();
+
+		public long getCopiedFiles(){
+			return copiedFiles.get();
+		}
+
+		/**
+		 * Returns the number of files skipped in incremental mode.
+		 */
+		public long getSkippedFiles(){
+			return skippedFiles.get();
+		}
+
+		public long getCopiedBytes(){
+			return copiedBytes.get();
+		}
+
+		/**
+		 * Returns the checksums of the copied files by source path.
+		 * @return The checksums, empty if checksums are disabled.
+		 */
+		public Map<Path, Long> getChecksums(){
+			return Collections.unmodifiableMap(checksums);
+		}
+
+		/**
+		 * Returns the checksum of a copied file.
+		 * @param source The source file.
+		 * @return The checksum;<br>
+		 * <code>null</code> if the file has not been copied with checksum.
+		 */
+		public Long getChecksum(File source){
+			return checksums.get(source.toPath());
+		}
+
+		@Override
+		public String toString(){
+			return String.format("copied files: %s, skipped files: %s, copied bytes: %s", getCopiedFiles(), getSkippedFiles(), getCopiedBytes());
+		}
+
+	}
+
+}
@@ -13,6 +13,12 @@ public class FileReader {
 	protected BufferedReader input = null;
 	protected File inputFile = null;
 	protected String systemLineSeparatorBackup = null;
+	protected EOLType eolType = null;
+	
+	/**
+	 * Maximum number of characters read for detecting the line separator.
+	 */
+	private static final int EOL_DETECTION_LIMIT = 8192;
 	
 	//------- Constructors --------------------------------------------------------------------
 	
@@ -39,6 +45,17 @@ public class FileReader {
 		return inputFile;
 	}
 	
+	/**
+	 * Returns the line separator used in the file.
+	 * 
+	 * @return The type of the first line separator;<br>
+	 *         <code>null</code> if no line separator has been found.
+	 * @see MappedFileReader
+	 */
+	public EOLType getEOLType(){
+		return eolType;
+	}
+	
 	
 	//------- Methods for setting up the file reader -----------------------------------------
 	
@@ -59,36 +76,50 @@ public class FileReader {
 	
 	protected void prepareReader() throws IOException{
 		input = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), charset));
-		adjustSystemProperties();
+		detectEOLType();
 	}
 	
-	protected void adjustSystemProperties() throws IOException{
-		systemLineSeparatorBackup = System.getProperty("line.separator");
-		@SuppressWarnings("resource")
-		InputStreamReader reader = new InputStreamReader(new FileInputStream(inputFile), charset);
-		String lineSeparator = null;
+	/**
+	 * Determines the line separator from the first characters of the file.<br>
+	 * The characters are read from the input reader, which is reset
+	 * afterwards, so the file is only opened once.
+	 */
+	protected void detectEOLType() throws IOException{
+		input.mark(EOL_DETECTION_LIMIT);
 		int next;
-		while(lineSeparator == null && (next = reader.read()) != -1){
-			char nextChar = (char) next;
-			if(nextChar == '\n'){
-				lineSeparator = "\n";
+		int readChars = 0;
+		while(readChars++ < EOL_DETECTION_LIMIT - 1 && (next = input.read()) != -1){
+			if(next == '\n'){
+				eolType = EOLType.LF;
 				break;
-			} else if(nextChar == '\r'){
-				lineSeparator = "\r";
-				next = reader.read();
-				if(next != -1 && ((char) next) == '\n'){
-					lineSeparator += "\n";
-				}
+			} else if(next == '\r'){
+				eolType = input.read() == '\n' ? EOLType.CRLF : EOLType.CR;
 				break;
 			}
 		}
-		if(lineSeparator != null){
-			System.setProperty("line.separator", lineSeparator);
+		input.reset();
+	}
+	
+	/**
+	 * Sets the system property <code>line.separator</code> to the line
+	 * separator of the file.<br>
+	 * The property is global for the whole VM and thus affects concurrent
+	 * readers and writers, use {@link #getEOLType()} instead.
+	 */
+	@Deprecated
+	protected void adjustSystemProperties() throws IOException{
+		systemLineSeparatorBackup = System.getProperty("line.separator");
+		if(eolType != null){
+			System.setProperty("line.separator", eolType.toString());
 		}
 	}
 	
+	@Deprecated
 	protected void restoreSystemProperties(){
-		System.setProperty("line.separator", systemLineSeparatorBackup);
+		if(systemLineSeparatorBackup != null){
+			System.setProperty("line.separator", systemLineSeparatorBackup);
+			systemLineSeparatorBackup = null;
+		}
 	}
 	
 	
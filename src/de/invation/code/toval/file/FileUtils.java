@@ -1,12 +1,8 @@
 package de.invation.code.toval.file;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,9 +11,6 @@ import de.invation.code.toval.os.OSUtils;
 import de.invation.code.toval.validate.ParameterException;
 import de.invation.code.toval.validate.ParameterException.ErrorCode;
 import de.invation.code.toval.validate.Validate;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -307,25 +300,56 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Copies a file by a kernel-side channel transfer.<br>
+     * An existing target file is replaced.
+     *
+     * @param source The file to copy.
+     * @param dest The target file.
+     * @throws IOException if the source cannot be read or the target cannot
+     * be written.
+     * @see FileCopier
+     */
     public static void copy(File source, File dest) throws IOException {
-        InputStream is = null;
-        OutputStream os = null;
-        try {
-            is = new FileInputStream(source);
-            os = new FileOutputStream(dest);
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = is.read(buffer)) > 0) {
-                os.write(buffer, 0, length);
-            }
-        } finally {
-            if (is != null) {
-                is.close();
-            }
-            if (os != null) {
-                os.close();
-            }
-        }
+        new FileCopier().copy(source, dest);
+    }
+
+    /**
+     * Copies a directory tree with one copying thread per available
+     * processor.<br>
+     * Symbolic links are recreated as links instead of copying their targets,
+     * other special files are skipped.
+     *
+     * @param source The directory to copy.
+     * @param dest The target directory.
+     * @return Statistics of the copy operation.
+     * @throws IOException if a file cannot be copied.
+     * @see FileCopier
+     */
+    public static FileCopier.Result copyDirectory(File source, File dest) throws IOException {
+        FileCopier copier = new FileCopier();
+        copier.setParallelism(Runtime.getRuntime().availableProcessors());
+        return copier.copyDirectory(source, dest);
+    }
+
+    /**
+     * Synchronizes a target directory tree with a source directory tree.<br>
+     * Only files whose size or modification time differ from the target file
+     * are copied. Files of the target tree which do not exist in the source
+     * tree are kept. Symbolic links are recreated as links instead of copying
+     * their targets, other special files are skipped.
+     *
+     * @param source The source directory.
+     * @param dest The target directory.
+     * @return Statistics of the copy operation.
+     * @throws IOException if a file cannot be copied.
+     * @see FileCopier#setIncremental(boolean)
+     */
+    public static FileCopier.Result syncDirectory(File source, File dest) throws IOException {
+        FileCopier copier = new FileCopier();
+        copier.setIncremental(true);
+        copier.setParallelism(Runtime.getRuntime().availableProcessors());
+        return copier.copyDirectory(source, dest);
     }
 
     public static File writeFile(String path, String fileName, String content) throws IOException {
@@ -357,57 +381,21 @@ public class FileUtils {
         return lines;
     }
 
+    /**
+     * Counts the lines of a file, i.e. the number of lines
+     * {@link java.io.BufferedReader#readLine()} would return.<br>
+     * Line breaks of charsets encoding CR and LF as single bytes are counted
+     * on the mapped bytes without decoding (see {@link LineCounter}).
+     */
     public static long getLineCount(String fileName, String encodingName) throws IOException {
-        long linesCount = 0;
-        File file = new File(fileName);
-        FileInputStream fileIn = null;
-        try {
-            fileIn = new FileInputStream(file);
-            Charset encoding = Charset.forName(encodingName);
-            Reader fileReader = new InputStreamReader(fileIn, encoding);
-            int bufferSize = 4096;
-            Reader reader = new BufferedReader(fileReader, bufferSize);
-            char[] buffer = new char[bufferSize];
-            int prevChar = -1;
-            int readCount = reader.read(buffer);
-            while (readCount != -1) {
-                for (int i = 0; i < readCount; i++) {
-                    int nextChar = buffer[i];
-                    switch (nextChar) {
-                        case '\r': {
-                            linesCount++;
-                            break;
-                        }
-                        case '\n': {
-                            if (prevChar == '\r') {
-                            } else {
-                                linesCount++;
-                            }
-                            break;
-                        }
-                    }
-                    prevChar = nextChar;
-                }
-                readCount = reader.read(buffer);
-            }
-            if (prevChar != -1) {
-                switch (prevChar) {
-                    case '\r':
-                    case '\n': {
-                        break;
-                    }
-                    default: {
-                        linesCount++;
-                    }
-                }
-            }
-        } catch (IOException e) {
-            throw e;
-        } finally {
-            if (fileIn != null) {
-                fileIn.close();
-            }
-        }
-        return linesCount;
+        return LineCounter.count(new File(fileName), Charset.forName(encodingName));
+    }
+
+    /**
+     * Counts the lines of a file with up to the given number of threads, each
+     * counting a byte range of the file.
+     */
+    public static long getLineCount(String fileName, String encodingName, int threads) throws IOException {
+        return LineCounter.count(new File(fileName), Charset.forName(encodingName), threads);
     }
 }
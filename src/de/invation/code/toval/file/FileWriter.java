@@ -27,6 +27,9 @@ public class FileWriter {
 	protected BufferedWriter output = null;
 	protected File outputFile = null;
 	protected String fileExtension = DEFAULT_FILE_EXTENSION;
+	protected FlushPolicy flushPolicy = FlushPolicy.EVERY_LINE;
+	private int pendingLines = 0;
+	private long lastFlush = System.nanoTime();
 	
 	//------- Constructors -------------------------------------------------------------------
 	
@@ -274,6 +277,22 @@ public class FileWriter {
 		return outputFile;
 	}
 	
+	public FlushPolicy getFlushPolicy(){
+		return flushPolicy;
+	}
+	
+	/**
+	 * Sets the policy which determines when written lines are flushed.<br>
+	 * The default policy flushes every line.
+	 * @param flushPolicy The flush policy.
+	 * @throws ParameterException if the flush policy is <code>null</code>.
+	 * @see FlushPolicy
+	 */
+	public synchronized void setFlushPolicy(FlushPolicy flushPolicy) throws ParameterException{
+		Validate.notNull(flushPolicy);
+		this.flushPolicy = flushPolicy;
+	}
+	
 	//------- Methods for setting up the file writer -----------------------------------------
 	
 	/**
@@ -368,13 +387,32 @@ public class FileWriter {
 		prepare();
 		output.write(obj.toString());
 		output.write(eolString);
-		output.flush();
+		lineWritten();
 	}
 	
 	public synchronized void newLine() throws IOException{
 		prepare();
 		output.newLine();
-		output.flush();
+		lineWritten();
+	}
+	
+	/**
+	 * Flushes all written content to the file.
+	 * @throws IOException if flushing fails.
+	 */
+	public synchronized void flush() throws IOException{
+		if(output != null){
+			output.flush();
+		}
+		pendingLines = 0;
+		lastFlush = System.nanoTime();
+	}
+	
+	private void lineWritten() throws IOException{
+		pendingLines++;
+		if(flushPolicy.isFlushRequired(pendingLines, lastFlush, flushPolicy.isTimeBased() ? System.nanoTime() : 0)){
+			flush();
+		}
 	}
 	
 	public synchronized void closeFile() throws IOException {
@@ -0,0 +1,98 @@
+package de.invation.code.toval.file;
+
+import java.util.concurrent.TimeUnit;
+
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Durability policy of a writer, which determines when written lines are
+ * flushed to the file.<br>
+ * Flushing every line ({@link #EVERY_LINE}) ensures that the file is
+ * complete at any time, but bounds the throughput by the rate of system
+ * calls. The other policies trade durability for throughput: lines are
+ * flushed every n lines ({@link #everyLines(int)}), when the last flush is
+ * older than a time interval ({@link #interval(long, TimeUnit)}) or only when
+ * the writer is closed or flushed explicitly ({@link #ON_CLOSE}).<br>
+ * The policy is checked whenever a line is written, there is no background
+ * thread flushing idle writers.
+ */
+public final class FlushPolicy {
+
+	/**
+	 * Flushes after every line.
+	 */
+	public static final FlushPolicy EVERY_LINE = new FlushPolicy(1, 0);
+	/**
+	 * Flushes only on close or explicit flushes.
+	 */
+	public static final FlushPolicy ON_CLOSE = new FlushPolicy(0, 0);
+
+	private final int lines;
+	private final long intervalNanos;
+
+	private FlushPolicy(int lines, long intervalNanos){
+		this.lines = lines;
+		this.intervalNanos = intervalNanos;
+	}
+
+	/**
+	 * Creates a policy which flushes after the given number of lines.
+	 *
+	 * @param lines Number of lines between two flushes.
+	 * @return The flush policy.
+	 */
+	public static FlushPolicy everyLines(int lines){
+		Validate.bigger(lines, 0);
+		return lines == 1 ? EVERY_LINE : new FlushPolicy(lines, 0);
+	}
+
+	/**
+	 * Creates a policy which flushes a written line if the last flush is
+	 * older than the given interval.
+	 *
+	 * @param interval Minimum time between two flushes.
+	 * @param unit Time unit of the interval.
+	 * @return The flush policy.
+	 */
+	public static FlushPolicy interval(long interval, TimeUnit unit){
+		Validate.bigger(interval, 0L);
+		Validate.notNull(unit);
+		return new FlushPolicy(0, unit.toNanos(interval));
+	}
+
+	/**
+	 * Checks if pending lines have to be flushed.
+	 *
+	 * @param pendingLines Number of lines written since the last flush.
+	 * @param lastFlush Time of the last flush in nanoseconds (see {@link System#nanoTime()}).
+	 * @param now Current time in nanoseconds.
+	 * @return <code>true</code> if the pending lines have to be flushed;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isFlushRequired(int pendingLines, long lastFlush, long now){
+		if(pendingLines <= 0)
+			return false;
+		if(lines > 0)
+			return pendingLines >= lines;
+		if(intervalNanos > 0)
+			return now - lastFlush >= intervalNanos;
+		return false;
+	}
+
+	/**
+	 * Checks if the policy depends on the time of the last flush.
+	 */
+	public boolean isTimeBased(){
+		return intervalNanos > 0;
+	}
+
+	@Override
+	public String toString(){
+		if(lines > 0)
+			return "FlushPolicy[every " + lines + " line(s)]";
+		if(intervalNanos > 0)
+			return "FlushPolicy[every " + TimeUnit.NANOSECONDS.toMillis(intervalNanos) + " ms]";
+		return "FlushPolicy[on close]";
+	}
+
+}
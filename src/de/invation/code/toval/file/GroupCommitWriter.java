@@ -0,0 +1,321 @@
+package de.invation.code.toval.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import de.invation.code.toval.validate.ParameterException;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Line writer for many concurrent producers.<br>
+ * Lines are appended to a lock-free queue without blocking the writing
+ * thread. Whenever the {@link FlushPolicy} requires a flush, the writing
+ * thread tries to become the committer: it drains all queued lines - also
+ * those of other threads - encodes them into a large buffer and writes the
+ * buffer with few calls to a {@link FileChannel}. Threads which find another
+ * committer at work simply return, their lines are committed with the
+ * current group.<br>
+ * <br>
+ * Lines of a single thread are written in the order they are passed to
+ * {@link #writeLine(Object)}. To bound the memory, producers help draining
+ * if more than {@link #getMaxPendingLines()} lines are queued, regardless of
+ * the flush policy.<br>
+ * {@link #flush()} commits all lines queued before the call, {@link #sync()}
+ * additionally forces the file content to the storage device.
+ */
+public class GroupCommitWriter implements Closeable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+	public static final int DEFAULT_MAX_PENDING_LINES = 1 << 16;
+
+	private final FileChannel channel;
+	private final File file;
+	private final CharsetEncoder encoder;
+	private final String eolString;
+	private final ByteBuffer buffer;
+	private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingLines = new AtomicInteger();
+	private final ReentrantLock commitLock = new ReentrantLock();
+	/**
+	 * Shared by producers while queuing a line, exclusively held for closing,
+	 * so that no line is queued after the final commit.
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	private volatile FlushPolicy flushPolicy = FlushPolicy.ON_CLOSE;
+	private volatile long lastCommit = System.nanoTime();
+	private volatile boolean closed = false;
+	private int maxPendingLines = DEFAULT_MAX_PENDING_LINES;
+	private long writtenBytes = 0;
+	private long commits = 0;
+
+	//------- Constructors -------------------------------------------------------------------
+
+	/**
+	 * Creates a new group commit writer which replaces the content of the
+	 * given file and uses the default charset and line separator of
+	 * {@link FileWriter}.
+	 * @param file The output file.
+	 * @throws IOException if the file cannot be opened for writing.
+	 */
+	public GroupCommitWriter(File file) throws IOException{
+		this(file, FileWriter.DEFAULT_CHARSET, FileWriter.DEFAULT_EOL_STRING, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a new group commit writer which replaces the content of the
+	 * given file.
+	 * @param file The output file.
+	 * @param charset Charset to use for output file.
+	 * @param eolType The eol property.
+	 * @throws IOException if the file cannot be opened for writing.
+	 */
+	public GroupCommitWriter(File file, Charset charset, EOLType eolType) throws IOException{
+		this(file, charset, eolType.toString(), DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a new group commit writer which replaces the content of the
+	 * given file.
+	 * @param file The output file.
+	 * @param charset Charset to use for output file.
+	 * @param eolString The line separator.
+	 * @param bufferSize Size of the byte buffer for encoded lines.
+	 * @throws IOException if the file cannot be opened for writing.
+	 */
+	public GroupCommitWriter(File file, Charset charset, String eolString, int bufferSize) throws IOException{
+		Validate.notNull(file);
+		Validate.notNull(charset);
+		Validate.notNull(eolString);
+		Validate.bigger(bufferSize, 0);
+		if(file.isDirectory())
+			throw new IOException("I/O Error on creating file: File is a directory!");
+		this.file = file;
+		this.eolString = eolString;
+		encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, (int) Math.ceil(encoder.maxBytesPerChar() * 16)));
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	//------- Getters and Setters ------------------------------------------------------------
+
+	public File getFile(){
+		return file;
+	}
+
+	public FlushPolicy getFlushPolicy(){
+		return flushPolicy;
+	}
+
+	/**
+	 * Sets the policy which determines when queued lines are committed.<br>
+	 * The default policy is {@link FlushPolicy#ON_CLOSE}, which commits
+	 * lines only on {@link #flush()}, {@link #sync()}, {@link #close()} or
+	 * when the number of queued lines reaches {@link #getMaxPendingLines()}.
+	 * @param flushPolicy The flush policy.
+	 * @throws ParameterException if the flush policy is <code>null</code>.
+	 */
+	public void setFlushPolicy(FlushPolicy flushPolicy) throws ParameterException{
+		Validate.notNull(flushPolicy);
+		this.flushPolicy = flushPolicy;
+	}
+
+	public int getMaxPendingLines(){
+		return maxPendingLines;
+	}
+
+	/**
+	 * Sets the number of queued lines from which on producers commit lines
+	 * regardless of the flush policy.
+	 * @param maxPendingLines Maximum number of queued lines.
+	 */
+	public void setMaxPendingLines(int maxPendingLines){
+		Validate.bigger(maxPendingLines, 0);
+		this.maxPendingLines = maxPendingLines;
+	}
+
+	/**
+	 * Returns the number of lines which have been queued but not yet
+	 * committed.
+	 */
+	public int getPendingLines(){
+		return pendingLines.get();
+	}
+
+	/**
+	 * Returns the number of bytes written to the file so far.
+	 */
+	public long getWrittenBytes(){
+		commitLock.lock();
+		try{
+			return writtenBytes;
+		} finally {
+			commitLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of commits, i.e. drains of the queue which wrote at
+	 * least one line.
+	 */
+	public long getCommitCount(){
+		commitLock.lock();
+		try{
+			return commits;
+		} finally {
+			commitLock.unlock();
+		}
+	}
+
+	//------- Functionality ------------------------------------------------------------------
+
+	/**
+	 * Queues a line for writing.<br>
+	 * If the flush policy requires a commit and no other thread is
+	 * committing, the calling thread commits all queued lines.
+	 * @param obj The line content.
+	 * @throws IOException if the writer is closed or the commit fails.
+	 */
+	public void writeLine(Object obj) throws IOException{
+		String line = obj.toString();
+		int pending;
+		closeLock.readLock().lock();
+		try{
+			if(closed)
+				throw new IOException("Writer is closed");
+			queue.add(line);
+			pending = pendingLines.incrementAndGet();
+		} finally {
+			closeLock.readLock().unlock();
+		}
+		if(pending >= maxPendingLines){
+			// Back pressure: wait for the current committer and help draining
+			commitLock.lock();
+			try{
+				commit();
+			} finally {
+				commitLock.unlock();
+			}
+		} else if(flushPolicy.isFlushRequired(pending, lastCommit, flushPolicy.isTimeBased() ? System.nanoTime() : 0) && commitLock.tryLock()){
+			try{
+				commit();
+			} finally {
+				commitLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes all lines queued before this call into the file.
+	 * @throws IOException if writing fails.
+	 */
+	public void flush() throws IOException{
+		commitLock.lock();
+		try{
+			commit();
+		} finally {
+			commitLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes all queued lines and forces the file content to the storage
+	 * device.
+	 * @throws IOException if writing fails.
+	 */
+	public void sync() throws IOException{
+		commitLock.lock();
+		try{
+			commit();
+			channel.force(false);
+		} finally {
+			commitLock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException{
+		closeLock.writeLock().lock();
+		try{
+			if(closed)
+				return;
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		commitLock.lock();
+		try{
+			commit();
+		} finally {
+			channel.close();
+			commitLock.unlock();
+		}
+	}
+
+	public void closeFile() throws IOException{
+		close();
+	}
+
+	/**
+	 * Drains the lines queued so far into the file.<br>
+	 * Lines queued by producers during the commit are left for the next
+	 * commit, so a committer does not loop while producers keep writing.
+	 * Lines drained by a failed commit are lost.<br>
+	 * Must only be called while holding the commit lock.
+	 */
+	private void commit() throws IOException{
+		int limit = pendingLines.get();
+		int drained = 0;
+		try{
+			String line;
+			while(drained < limit && (line = queue.poll()) != null){
+				drained++;
+				encode(line);
+				encode(eolString);
+			}
+			if(drained == 0)
+				return;
+			writeBuffer();
+			lastCommit = System.nanoTime();
+			commits++;
+		} finally {
+			pendingLines.addAndGet(-drained);
+		}
+	}
+
+	private void encode(String content) throws IOException{
+		CharBuffer chars = CharBuffer.wrap(content);
+		encoder.reset();
+		while(encoder.encode(chars, buffer, true).isOverflow())
+			writeBuffer();
+		while(encoder.flush(buffer).isOverflow())
+			writeBuffer();
+	}
+
+	private void writeBuffer() throws IOException{
+		buffer.flip();
+		try{
+			while(buffer.hasRemaining())
+				writtenBytes += channel.write(buffer);
+		} finally {
+			buffer.clear();
+		}
+	}
+
+}
@@ -1,7 +1,7 @@
 package de.invation.code.toval.file;
 
 import java.nio.charset.Charset;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
 
 import de.invation.code.toval.validate.ParameterException;
@@ -19,9 +19,7 @@ public class HMDFileParser extends LineBasedFileTransformer {
 
 	@Override
 	protected Set<String> transformLine(String line) {
-		Set<String> result = new HashSet<String>();
-		result.add(line.substring(1, line.length()));
-		return result;
+		return Collections.singleton(line.substring(1, line.length()));
 	}
 
 	public static void main(String[] args) throws Exception{
@@ -2,16 +2,50 @@ package de.invation.code.toval.file;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import de.invation.code.toval.validate.ParameterException;
 import de.invation.code.toval.validate.Validate;
 
-
+/**
+ * Transforms a file line by line and writes the transformed lines into an
+ * output file.<br>
+ * Subclasses define the transformation by overriding
+ * {@link #transformLine(String)}.<br>
+ * <br>
+ * By default, lines are read, transformed and written one after another by
+ * the calling thread. With a parallelism greater than 1 (see
+ * {@link #setParallelism(int)}), the file is processed in a pipeline: the
+ * calling thread reads batches of lines into a bounded queue, a pool of
+ * workers transforms the batches and a writer thread writes the results.
+ * Output lines are written in input order unless ordering is relaxed with
+ * {@link #setPreserveOrder(boolean)}. In this mode,
+ * {@link #transformLine(String)} is called concurrently and must be thread
+ * safe.<br>
+ * <br>
+ * The progress can be monitored while parsing with
+ * {@link #getReadLineCount()}, {@link #getWrittenLineCount()} and
+ * {@link #getThroughput()}.
+ */
 public class LineBasedFileTransformer {
 	
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	public static final int DEFAULT_QUEUE_CAPACITY = 16;
+	
 	protected Charset inputCharset = Charset.forName("UTF-8");
 	protected Charset outputCharset = Charset.forName("UTF-8");
 
@@ -25,6 +59,16 @@ public class LineBasedFileTransformer {
 	private int inputLines = 0;
 	private int outputLines = 0;
 	
+	private int parallelism = 1;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private boolean preserveOrder = true;
+	
+	private final AtomicLong readLineCount = new AtomicLong();
+	private final AtomicLong writtenLineCount = new AtomicLong();
+	private volatile long startTime = 0;
+	private volatile long endTime = 0;
+	
 	
 	//------- Constructors -------------------------------------------------------------------
 	
@@ -80,6 +124,97 @@ public class LineBasedFileTransformer {
 		return outputLines;
 	}
 	
+	public int getParallelism(){
+		return parallelism;
+	}
+	
+	/**
+	 * Sets the number of worker threads which transform lines.<br>
+	 * With a value of 1, the file is processed sequentially by the calling
+	 * thread.
+	 * 
+	 * @param parallelism Number of transformer threads.
+	 */
+	public void setParallelism(int parallelism){
+		Validate.bigger(parallelism, 0);
+		this.parallelism = parallelism;
+	}
+	
+	public int getBatchSize(){
+		return batchSize;
+	}
+	
+	/**
+	 * Sets the number of lines which are passed to a worker at once.
+	 * 
+	 * @param batchSize Number of lines per batch.
+	 */
+	public void setBatchSize(int batchSize){
+		Validate.bigger(batchSize, 0);
+		this.batchSize = batchSize;
+	}
+	
+	public int getQueueCapacity(){
+		return queueCapacity;
+	}
+	
+	/**
+	 * Sets the maximum number of batches waiting for transformation and
+	 * waiting for writing, which bounds the memory used by the pipeline.<br>
+	 * If the line order is preserved, at most
+	 * <code>2 * queueCapacity + parallelism</code> batches are in the pipeline
+	 * at once, including batches which wait for the completion of preceding
+	 * batches.
+	 * 
+	 * @param queueCapacity Number of batches per queue.
+	 */
+	public void setQueueCapacity(int queueCapacity){
+		Validate.bigger(queueCapacity, 0);
+		this.queueCapacity = queueCapacity;
+	}
+	
+	public boolean preservesOrder(){
+		return preserveOrder;
+	}
+	
+	/**
+	 * Defines if output lines are written in input order when lines are
+	 * transformed in parallel.<br>
+	 * Relaxing the order lets the writer write batches as soon as they are
+	 * transformed, so a slow batch does not delay the following ones.
+	 * 
+	 * @param preserveOrder <code>true</code> to write lines in input order.
+	 */
+	public void setPreserveOrder(boolean preserveOrder){
+		this.preserveOrder = preserveOrder;
+	}
+	
+	/**
+	 * Returns the number of lines read so far, also while parsing.
+	 */
+	public long getReadLineCount(){
+		return readLineCount.get();
+	}
+	
+	/**
+	 * Returns the number of lines written so far, also while parsing.
+	 */
+	public long getWrittenLineCount(){
+		return writtenLineCount.get();
+	}
+	
+	/**
+	 * Returns the average number of input lines processed per second by the
+	 * current or the last run.
+	 */
+	public double getThroughput(){
+		if(startTime == 0)
+			return 0;
+		long end = endTime == 0 ? System.nanoTime() : endTime;
+		double seconds = Math.max(1, end - startTime) / 1e9;
+		return readLineCount.get() / seconds;
+	}
+	
 	//------- Methods for setting up the parser ----------------------------------------------
 
 	protected synchronized void initialize(String fileName) throws IOException, ParameterException {
@@ -88,6 +223,8 @@ public class LineBasedFileTransformer {
 		String inputName = input.getFile().getAbsolutePath();
 		String outputFileName = inputName.substring(0, inputName.indexOf('.'))+"_output";
 		output = new FileWriter(outputFileName, outputCharset);
+		// The output file is only complete after parsing, so flushing single lines is not necessary
+		output.setFlushPolicy(FlushPolicy.ON_CLOSE);
 		if(fileExtension != null){
 			output.setFileExtension(getFileExtension());
 		}
@@ -96,14 +233,34 @@ public class LineBasedFileTransformer {
 	
 	public void parseFile(String fileName) throws IOException, ParameterException{
 		initialize(fileName);
+		readLineCount.set(0);
+		writtenLineCount.set(0);
+		outputLines = 0;
+		endTime = 0;
+		startTime = System.nanoTime();
 		
 		String headerLine = getHeaderLine();
 		if(headerLine != null)
 			output.writeLine(headerLine);
 		
+		try{
+			if(parallelism > 1){
+				parseParallel();
+			} else {
+				parseSequential();
+			}
+		} finally {
+			endTime = System.nanoTime();
+			input.closeFile();
+			output.closeFile();
+		}
+	}
+	
+	private void parseSequential() throws IOException{
 		String line = null;
 		int lineCount = 0;
 		while ((line = input.readLine()) != null) {
+			readLineCount.incrementAndGet();
 			if(lineCount == 0 && omitFirstLine){
 				lineCount++;
 				continue;
@@ -115,27 +272,231 @@ public class LineBasedFileTransformer {
 				break;
 		}
 		inputLines = lineCount;
-		input.closeFile();
-		output.closeFile();
+	}
+	
+	/**
+	 * Runs the reader stage in the calling thread, the transformer stage in
+	 * <code>parallelism</code> workers and the writer stage in an own
+	 * thread.<br>
+	 * After a failure in any stage, the remaining batches are drained without
+	 * processing them, so no stage blocks on a full queue.
+	 */
+	private void parseParallel() throws IOException{
+		BlockingQueue<Batch> transformQueue = new ArrayBlockingQueue<>(queueCapacity);
+		BlockingQueue<Batch> writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicInteger activeWorkers = new AtomicInteger(parallelism);
+		// Bounds the batches buffered by the writer for restoring the line order
+		Semaphore window = preserveOrder ? new Semaphore(2 * queueCapacity + parallelism) : null;
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism + 1);
+		try{
+			for(int i = 0; i < parallelism; i++){
+				executor.execute(() -> transformBatches(transformQueue, writeQueue, failure, activeWorkers, window));
+			}
+			executor.execute(() -> writeBatches(writeQueue, failure, window));
+			try{
+				readBatches(transformQueue, failure, window);
+			} catch(IOException | RuntimeException e){
+				failure.compareAndSet(null, e);
+			} finally {
+				for(int i = 0; i < parallelism; i++)
+					putUninterruptibly(transformQueue, Batch.END);
+			}
+			executor.shutdown();
+			while(!executor.awaitTermination(1, TimeUnit.SECONDS)){}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+			throw new IOException("Interrupted while transforming file", e);
+		}
+		Throwable cause = failure.get();
+		if(cause instanceof IOException)
+			throw (IOException) cause;
+		if(cause instanceof RuntimeException)
+			throw (RuntimeException) cause;
+		if(cause instanceof Error)
+			throw (Error) cause;
+	}
+	
+	private void readBatches(BlockingQueue<Batch> transformQueue, AtomicReference<Throwable> failure, Semaphore window) throws IOException{
+		String line = null;
+		int lineCount = 0;
+		long sequence = 0;
+		Batch batch = new Batch(sequence++, batchSize);
+		while (failure.get() == null && (line = input.readLine()) != null) {
+			readLineCount.incrementAndGet();
+			if(lineCount == 0 && omitFirstLine){
+				lineCount++;
+				continue;
+			}
+			batch.lines.add(line);
+			lineCount++;
+			if(batch.lines.size() == batchSize){
+				acquire(window);
+				putUninterruptibly(transformQueue, batch);
+				batch = new Batch(sequence++, batchSize);
+			}
+			if(!continueParsing(lineCount))
+				break;
+		}
+		if(!batch.lines.isEmpty()){
+			acquire(window);
+			putUninterruptibly(transformQueue, batch);
+		}
+		inputLines = lineCount;
+	}
+	
+	private void transformBatches(BlockingQueue<Batch> transformQueue, BlockingQueue<Batch> writeQueue, AtomicReference<Throwable> failure, AtomicInteger activeWorkers, Semaphore window){
+		try{
+			Batch batch;
+			while((batch = takeUninterruptibly(transformQueue)) != Batch.END){
+				if(failure.get() != null){
+					release(window, 1);
+					continue;
+				}
+				try{
+					List<String> transformedLines = new ArrayList<>(batch.lines.size());
+					for(String line: batch.lines){
+						Set<String> lines = transformLine(line);
+						if(lines != null)
+							transformedLines.addAll(lines);
+					}
+					batch.lines = transformedLines;
+					putUninterruptibly(writeQueue, batch);
+				} catch(RuntimeException | Error e){
+					failure.compareAndSet(null, e);
+					release(window, 1);
+				}
+			}
+		} finally {
+			if(activeWorkers.decrementAndGet() == 0)
+				putUninterruptibly(writeQueue, Batch.END);
+		}
+	}
+	
+	private void writeBatches(BlockingQueue<Batch> writeQueue, AtomicReference<Throwable> failure, Semaphore window){
+		Map<Long, Batch> pendingBatches = new HashMap<>();
+		long nextSequence = 0;
+		Batch batch;
+		while((batch = takeUninterruptibly(writeQueue)) != Batch.END){
+			if(failure.get() != null){
+				// Discarded batches leave the pipeline, so the reader must not wait for them
+				release(window, 1 + pendingBatches.size());
+				pendingBatches.clear();
+				continue;
+			}
+			try{
+				if(!preserveOrder){
+					writeBatch(batch);
+					continue;
+				}
+				pendingBatches.put(batch.sequence, batch);
+				while((batch = pendingBatches.remove(nextSequence)) != null){
+					nextSequence++;
+					try{
+						writeBatch(batch);
+					} finally {
+						window.release();
+					}
+				}
+			} catch(IOException | RuntimeException | Error e){
+				failure.compareAndSet(null, e);
+				release(window, pendingBatches.size());
+				pendingBatches.clear();
+			}
+		}
+	}
+	
+	private void writeBatch(Batch batch) throws IOException{
+		for(String line: batch.lines){
+			output.writeLine(line);
+			outputLines++;
+			writtenLineCount.incrementAndGet();
+		}
+	}
+	
+	private static void acquire(Semaphore window){
+		if(window != null)
+			window.acquireUninterruptibly();
+	}
+	
+	private static void release(Semaphore window, int batches){
+		if(window != null && batches > 0)
+			window.release(batches);
+	}
+	
+	private static <E> void putUninterruptibly(BlockingQueue<E> queue, E element){
+		boolean interrupted = false;
+		while(true){
+			try{
+				queue.put(element);
+				break;
+			} catch(InterruptedException e){
+				interrupted = true;
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+	
+	private static <E> E takeUninterruptibly(BlockingQueue<E> queue){
+		boolean interrupted = false;
+		try{
+			while(true){
+				try{
+					return queue.take();
+				} catch(InterruptedException e){
+					interrupted = true;
+				}
+			}
+		} finally {
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
 	}
 
 	protected boolean continueParsing(int lineCount){
 		return true;
 	}
 	
-	private synchronized void writeOutputLine(String outputLine) throws IOException{
+	private void writeOutputLine(String outputLine) throws IOException{
 		Set<String> lines = transformLine(outputLine);
 		if(lines == null || lines.isEmpty())
 			return;
 		for(String line: lines){
 			output.writeLine(line);
 			outputLines++;
+			writtenLineCount.incrementAndGet();
 		}
 		
 	}
 	
-	protected synchronized Set<String> transformLine(String line){
-		return new HashSet<String>(Arrays.asList(line));
+	/**
+	 * Transforms a single input line into a set of output lines.<br>
+	 * In parallel mode this method is called concurrently by several workers.
+	 * 
+	 * @param line Input line.
+	 * @return The output lines for the input line.
+	 */
+	protected Set<String> transformLine(String line){
+		return Collections.singleton(line);
+	}
+	
+	/**
+	 * Lines of the input file which are processed together.
+	 */
+	private static final class Batch {
+		
+		private static final Batch END = new Batch(-1, 0);
+		
+		private final long sequence;
+		private List<String> lines;
+		
+		private Batch(long sequence, int capacity){
+			this.sequence = sequence;
+			this.lines = new ArrayList<>(capacity);
+		}
+		
 	}
 
 }
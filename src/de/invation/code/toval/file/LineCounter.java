@@ -0,0 +1,266 @@
+package de.invation.code.toval.file;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Counts the lines of a file.<br>
+ * Lines are terminated by CR, LF or CRLF, a last line without line separator
+ * is counted as well, so the count equals the number of lines returned by
+ * {@link java.io.BufferedReader#readLine()}.<br>
+ * <br>
+ * For charsets which encode CR and LF as single bytes (e.g. UTF-8 or
+ * ISO-8859-x), line breaks are counted directly on the memory-mapped bytes
+ * without decoding them. Eight bytes are examined at once by SWAR (SIMD
+ * within a register) operations on <code>long</code> words. Other charsets
+ * like UTF-16 are decoded before counting.<br>
+ * <br>
+ * The multi-threaded variant splits the file into byte ranges which are
+ * counted independently; CRLF pairs crossing range borders are corrected
+ * when combining the ranges.
+ */
+public class LineCounter {
+
+	/**
+	 * Maximum size of a single mapped range.
+	 */
+	private static final long MAX_RANGE_SIZE = 1L << 30;
+	/**
+	 * Minimum size of a range counted by an own thread.
+	 */
+	private static final long MIN_PARALLEL_RANGE_SIZE = 1L << 22;
+
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long CR_PATTERN = 0x0D0D0D0D0D0D0D0DL;
+	private static final long LF_PATTERN = 0x0A0A0A0A0A0A0A0AL;
+	private static final long FIRST_BYTE_FLAG = 0x80L;
+	private static final long LAST_BYTE_FLAG = 0x8000000000000000L;
+	private static final int DECODING_BUFFER_SIZE = 1 << 16;
+
+	private LineCounter(){}
+
+	/**
+	 * Counts the lines of the given file using the calling thread only.
+	 *
+	 * @param file The file.
+	 * @param charset Charset of the file.
+	 * @return The number of lines.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static long count(File file, Charset charset) throws IOException{
+		return count(file, charset, 1);
+	}
+
+	/**
+	 * Counts the lines of the given file with up to the given number of
+	 * threads.
+	 *
+	 * @param file The file.
+	 * @param charset Charset of the file.
+	 * @param threads Maximum number of counting threads.
+	 * @return The number of lines.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static long count(File file, Charset charset, int threads) throws IOException{
+		Validate.notNull(file);
+		Validate.notNull(charset);
+		Validate.bigger(threads, 0);
+		if(!isByteCountable(charset))
+			return countDecoded(file, charset);
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			long size = channel.size();
+			long rangeCount = Math.max((size + MAX_RANGE_SIZE - 1) / MAX_RANGE_SIZE, Math.min(threads, size / MIN_PARALLEL_RANGE_SIZE));
+			if(rangeCount <= 1)
+				return scan(channel.map(MapMode.READ_ONLY, 0, size)).getLineCount();
+			long rangeSize = (size + rangeCount - 1) / rangeCount;
+			if(threads == 1){
+				RangeCount result = new RangeCount();
+				for(long start = 0; start < size; start += rangeSize)
+					result = result.append(scan(channel.map(MapMode.READ_ONLY, start, Math.min(rangeSize, size - start))));
+				return result.getLineCount();
+			}
+			return countParallel(channel, size, rangeSize, threads);
+		}
+	}
+
+	/**
+	 * Counts the lines within the remaining bytes of the given buffer.<br>
+	 * The bytes have to be encoded with a charset which encodes CR and LF as
+	 * single bytes. The position of the buffer is not changed.
+	 *
+	 * @param bytes The bytes, e.g. a mapped file or a direct buffer.
+	 * @return The number of lines.
+	 */
+	public static long count(ByteBuffer bytes){
+		Validate.notNull(bytes);
+		return scan(bytes).getLineCount();
+	}
+
+	/**
+	 * Checks if line breaks of the given charset can be counted on byte
+	 * level, i.e. if CR and LF are encoded as single bytes.
+	 *
+	 * @param charset The charset.
+	 * @return <code>true</code> if line breaks can be counted without
+	 * decoding;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public static boolean isByteCountable(Charset charset){
+		return charset.canEncode() && Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'});
+	}
+
+	private static long countParallel(FileChannel channel, long size, long rangeSize, int threads) throws IOException{
+		List<Future<RangeCount>> ranges = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try{
+			for(long start = 0; start < size; start += rangeSize){
+				final long rangeStart = start;
+				final long length = Math.min(rangeSize, size - start);
+				ranges.add(executor.submit(() -> scan(channel.map(MapMode.READ_ONLY, rangeStart, length))));
+			}
+			RangeCount result = new RangeCount();
+			for(Future<RangeCount> range: ranges)
+				result = result.append(range.get());
+			return result.getLineCount();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while counting lines", e);
+		} catch(ExecutionException e){
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns a mask with the highest bit set in every byte of the given word
+	 * which is zero.<br>
+	 * In contrast to the common approximation, the result is exact, since
+	 * carries cannot propagate between bytes.
+	 */
+	private static long zeroBytes(long word){
+		long sum = (word & LOW_BITS) + LOW_BITS;
+		return ~(sum | word | LOW_BITS);
+	}
+
+	private static RangeCount scan(ByteBuffer buffer){
+		ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int position = bytes.position();
+		int limit = bytes.limit();
+		RangeCount result = new RangeCount();
+		if(position == limit)
+			return result;
+		result.first = bytes.get(position) & 0xFF;
+		result.last = bytes.get(limit - 1) & 0xFF;
+		long carriageReturns = 0;
+		long lineFeeds = 0;
+		long pairs = 0;
+		boolean previousCR = false;
+		// Little endian: byte i of the word is stored in bits 8i..8i+7
+		for(; position + Long.BYTES <= limit; position += Long.BYTES){
+			long word = bytes.getLong(position);
+			long crMask = zeroBytes(word ^ CR_PATTERN);
+			long lfMask = zeroBytes(word ^ LF_PATTERN);
+			carriageReturns += Long.bitCount(crMask);
+			lineFeeds += Long.bitCount(lfMask);
+			pairs += Long.bitCount(crMask & (lfMask >>> 8));
+			if(previousCR && (lfMask & FIRST_BYTE_FLAG) != 0)
+				pairs++;
+			previousCR = (crMask & LAST_BYTE_FLAG) != 0;
+		}
+		for(; position < limit; position++){
+			byte next = bytes.get(position);
+			if(next == '\r'){
+				carriageReturns++;
+			} else if(next == '\n'){
+				lineFeeds++;
+				if(previousCR)
+					pairs++;
+			}
+			previousCR = next == '\r';
+		}
+		result.lineBreaks = carriageReturns + lineFeeds - pairs;
+		return result;
+	}
+
+	/**
+	 * Counts lines on decoded characters, for charsets which do not encode
+	 * line breaks as single bytes.
+	 */
+	private static long countDecoded(File file, Charset charset) throws IOException{
+		long linesCount = 0;
+		try(Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset), DECODING_BUFFER_SIZE)){
+			char[] buffer = new char[DECODING_BUFFER_SIZE];
+			int prevChar = -1;
+			int readCount;
+			while((readCount = reader.read(buffer)) != -1){
+				for(int i = 0; i < readCount; i++){
+					int nextChar = buffer[i];
+					if(nextChar == '\r' || (nextChar == '\n' && prevChar != '\r'))
+						linesCount++;
+					prevChar = nextChar;
+				}
+			}
+			if(prevChar != -1 && prevChar != '\r' && prevChar != '\n')
+				linesCount++;
+		}
+		return linesCount;
+	}
+
+	/**
+	 * Line breaks of a byte range together with its first and last byte.
+	 */
+	private static class RangeCount {
+
+		private long lineBreaks = 0;
+		private int first = -1;
+		private int last = -1;
+
+		/**
+		 * Combines this range with the directly following range.
+		 */
+		private RangeCount append(RangeCount next){
+			if(first == -1)
+				return next;
+			if(next.first == -1)
+				return this;
+			RangeCount result = new RangeCount();
+			result.first = first;
+			result.last = next.last;
+			result.lineBreaks = lineBreaks + next.lineBreaks;
+			// CRLF split between the ranges was counted twice
+			if(last == '\r' && next.first == '\n')
+				result.lineBreaks--;
+			return result;
+		}
+
+		private long getLineCount(){
+			if(last == -1)
+				return 0;
+			return last == '\r' || last == '\n' ? lineBreaks : lineBreaks + 1;
+		}
+
+	}
+
+}
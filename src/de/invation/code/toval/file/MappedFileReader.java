@@ -0,0 +1,396 @@
+package de.invation.code.toval.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Line reader which memory-maps the input file instead of streaming it
+ * through a {@link java.io.BufferedReader}.<br>
+ * Lines are terminated by LF, CR or CRLF and are returned as
+ * {@link CharSequence}s decoded from the mapped bytes. To avoid allocations,
+ * a line is only valid until the next line of the same chunk is read; use
+ * {@link CharSequence#toString()} to keep it.<br>
+ * <br>
+ * The file can be split into chunks which start and end at line boundaries
+ * ({@link #split(int)}). Every chunk maps and decodes its own byte range, so
+ * several threads can read different chunks concurrently
+ * ({@link #parallelLines()}). In contrast to {@link FileReader}, no system
+ * properties are changed; the line separator of the file is available via
+ * {@link #getEOLType()}.<br>
+ * <br>
+ * Line breaks are searched on byte level, so only charsets that encode CR
+ * and LF as single bytes which do not occur within other characters (e.g.
+ * UTF-8 or ISO-8859-x) are supported.
+ */
+public class MappedFileReader implements Closeable {
+
+	/**
+	 * Maximum number of bytes of a single mapping.
+	 */
+	public static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+	/**
+	 * Minimum number of bytes of a chunk created for parallel reading.
+	 */
+	public static final long MIN_PARALLEL_CHUNK_SIZE = 1 << 20;
+	private static final int SCAN_BUFFER_SIZE = 8192;
+
+	protected Charset charset = Charset.forName("UTF-8");
+	protected File inputFile = null;
+	protected FileChannel channel = null;
+	protected long fileSize = 0;
+	protected EOLType eolType = null;
+
+	private Iterator<Chunk> sequentialChunks = null;
+	private LineIterator sequentialLines = null;
+
+	//------- Constructors --------------------------------------------------------------------
+
+	public MappedFileReader(String fileName) throws IOException{
+		this(new File(fileName));
+	}
+
+	public MappedFileReader(String fileName, Charset charset) throws IOException{
+		this(new File(fileName), charset);
+	}
+
+	public MappedFileReader(File file) throws IOException{
+		initialize(file);
+	}
+
+	public MappedFileReader(File file, Charset charset) throws IOException{
+		setCharset(charset);
+		initialize(file);
+	}
+
+	//------- Getters and Setters -------------------------------------------------------------
+
+	public Charset getCharset(){
+		return charset;
+	}
+
+	private void setCharset(Charset charset){
+		if(!Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'}))
+			throw new IllegalArgumentException("Charset does not encode line breaks as single bytes: " + charset);
+		this.charset = charset;
+	}
+
+	public File getFile(){
+		return inputFile;
+	}
+
+	public long getFileSize(){
+		return fileSize;
+	}
+
+	/**
+	 * Returns the line separator used in the file, i.e. the first line
+	 * separator found.
+	 *
+	 * @return The line separator type;<br>
+	 *         <code>null</code> if the file does not contain line breaks.
+	 */
+	public EOLType getEOLType(){
+		return eolType;
+	}
+
+	//------- Methods for setting up the file reader -----------------------------------------
+
+	private void initialize(File file) throws IOException{
+		prepareFile(file);
+		channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+		fileSize = channel.size();
+		eolType = detectEOLType(map(0, Math.min(fileSize, MAX_CHUNK_SIZE)));
+	}
+
+	protected void prepareFile(File file) throws IOException{
+		inputFile = file;
+		if(inputFile.isDirectory())
+			throw new IOException("I/O Error on opening file: File is a directory!");
+		if(!inputFile.exists())
+			throw new IOException("I/O Error on opening file: File does not exist!");
+		if(!inputFile.canRead())
+			throw new IOException("I/O Error on opening file: Unable to read file!");
+	}
+
+	private MappedByteBuffer map(long start, long size) throws IOException{
+		return channel.map(MapMode.READ_ONLY, start, size);
+	}
+
+	//------- Functionality ------------------------------------------------------------------
+
+	/**
+	 * Returns the next line of the file.<br>
+	 * The returned sequence is only valid until the next call of this method.
+	 *
+	 * @return The next line without line separator;<br>
+	 *         <code>null</code> if the end of the file has been reached.
+	 * @throws IOException
+	 *             if the file cannot be mapped
+	 */
+	public CharSequence readLine() throws IOException{
+		if(sequentialChunks == null)
+			sequentialChunks = split(1).iterator();
+		while(sequentialLines == null || !sequentialLines.hasNext()){
+			if(!sequentialChunks.hasNext())
+				return null;
+			sequentialLines = sequentialChunks.next().lineIterator();
+		}
+		return sequentialLines.next();
+	}
+
+	/**
+	 * Splits the file into chunks of about equal size, which start and end at
+	 * line boundaries.<br>
+	 * Chunks are never larger than {@link #MAX_CHUNK_SIZE}, so more chunks
+	 * than requested may be returned. Fewer chunks are returned if the file
+	 * does not contain enough lines.
+	 *
+	 * @param chunkCount
+	 *            Requested number of chunks
+	 * @return The chunks in file order
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public List<Chunk> split(int chunkCount) throws IOException{
+		if(chunkCount < 1)
+			throw new IllegalArgumentException("Chunk count must be positive");
+		long count = Math.max(chunkCount, (fileSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+		List<Chunk> chunks = new ArrayList<>();
+		long start = 0;
+		for(long i = 1; i <= count && start < fileSize; i++){
+			long end = i == count ? fileSize : Math.max(start, nextLineStart(fileSize / count * i));
+			if(end - start > MAX_CHUNK_SIZE)
+				throw new IOException("Line exceeds maximum chunk size at position " + start);
+			if(end > start){
+				chunks.add(new Chunk(start, end));
+				start = end;
+			}
+		}
+		return chunks;
+	}
+
+	/**
+	 * Returns a sequential stream over all lines of the file.
+	 *
+	 * @return A stream over all lines
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public Stream<CharSequence> lines() throws IOException{
+		return split(1).stream().flatMap(Chunk::lines);
+	}
+
+	/**
+	 * Returns a parallel stream over all lines of the file.<br>
+	 * The file is split into chunks of at least
+	 * {@link #MIN_PARALLEL_CHUNK_SIZE} bytes, each chunk is read by a single
+	 * thread. The stream is ordered, so collecting it preserves the line
+	 * order.
+	 *
+	 * @return A parallel stream over all lines
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public Stream<CharSequence> parallelLines() throws IOException{
+		int chunkCount = (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4L, fileSize / MIN_PARALLEL_CHUNK_SIZE));
+		return split(chunkCount).parallelStream().flatMap(Chunk::lines);
+	}
+
+	public void closeFile() throws IOException{
+		channel.close();
+	}
+
+	@Override
+	public void close() throws IOException{
+		closeFile();
+	}
+
+	/**
+	 * Returns the start of the first line which starts at or after the given
+	 * position.
+	 */
+	private long nextLineStart(long position) throws IOException{
+		if(position <= 0)
+			return 0;
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		// Also read the previous byte to check if position already is a line start
+		long offset = position - 1;
+		boolean carriageReturn = false;
+		while(offset < fileSize){
+			buffer.clear();
+			int read = channel.read(buffer, offset);
+			if(read <= 0)
+				break;
+			for(int i = 0; i < read; i++){
+				byte next = buffer.get(i);
+				if(carriageReturn)
+					return next == '\n' ? offset + i + 1 : offset + i;
+				if(next == '\n')
+					return offset + i + 1;
+				carriageReturn = next == '\r';
+			}
+			offset += read;
+		}
+		return fileSize;
+	}
+
+	/**
+	 * Determines the first line separator within the given bytes.
+	 *
+	 * @param bytes
+	 *            Bytes to search, the position of the buffer is not changed
+	 * @return The line separator type;<br>
+	 *         <code>null</code> if the bytes do not contain line breaks.
+	 */
+	public static EOLType detectEOLType(ByteBuffer bytes){
+		for(int i = bytes.position(); i < bytes.limit(); i++){
+			byte next = bytes.get(i);
+			if(next == '\n')
+				return EOLType.LF;
+			if(next == '\r')
+				return i + 1 < bytes.limit() && bytes.get(i + 1) == '\n' ? EOLType.CRLF : EOLType.CR;
+		}
+		return null;
+	}
+
+	/**
+	 * Range of the file which starts and ends at line boundaries.
+	 */
+	public class Chunk {
+
+		private final long start;
+		private final long end;
+
+		private Chunk(long start, long end){
+			this.start = start;
+			this.end = end;
+		}
+
+		public long getStart(){
+			return start;
+		}
+
+		public long getEnd(){
+			return end;
+		}
+
+		/**
+		 * Maps the chunk and returns an iterator over its lines.<br>
+		 * A returned line is only valid until the next call of
+		 * {@link Iterator#next()}.
+		 *
+		 * @return An iterator over the lines of the chunk
+		 * @throws IOException
+		 *             if the chunk cannot be mapped
+		 */
+		public Iterator<CharSequence> iterator() throws IOException{
+			return lineIterator();
+		}
+
+		private LineIterator lineIterator() throws IOException{
+			return new LineIterator(map(start, end - start), charset.newDecoder());
+		}
+
+		/**
+		 * Returns a sequential stream over the lines of the chunk.<br>
+		 * The chunk is mapped when the stream is consumed, so streams of
+		 * different chunks can be consumed by different threads.
+		 *
+		 * @return A stream over the lines of the chunk
+		 */
+		public Stream<CharSequence> lines(){
+			return StreamSupport.stream(() -> {
+				try{
+					return Spliterators.spliteratorUnknownSize(lineIterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+				} catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+			}, Spliterator.ORDERED | Spliterator.NONNULL, false);
+		}
+
+		@Override
+		public String toString(){
+			return "[" + start + ", " + end + ")";
+		}
+
+	}
+
+	/**
+	 * Splits mapped bytes into lines and decodes them into a reused buffer.
+	 */
+	private static class LineIterator implements Iterator<CharSequence> {
+
+		private final MappedByteBuffer bytes;
+		private final CharsetDecoder decoder;
+		private CharBuffer line = CharBuffer.allocate(256);
+		private int position = 0;
+
+		private LineIterator(MappedByteBuffer bytes, CharsetDecoder decoder){
+			this.bytes = bytes;
+			this.decoder = decoder;
+			decoder.onMalformedInput(CodingErrorAction.REPLACE);
+			decoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+
+		@Override
+		public boolean hasNext(){
+			return position < bytes.limit();
+		}
+
+		@Override
+		public CharSequence next(){
+			if(!hasNext())
+				throw new NoSuchElementException();
+			int limit = bytes.limit();
+			int end = position;
+			byte next = 0;
+			while(end < limit && (next = bytes.get(end)) != '\n' && next != '\r')
+				end++;
+			decode(position, end);
+			if(end == limit){
+				position = limit;
+			} else if(next == '\r' && end + 1 < limit && bytes.get(end + 1) == '\n'){
+				position = end + 2;
+			} else {
+				position = end + 1;
+			}
+			return line;
+		}
+
+		private void decode(int from, int to){
+			ByteBuffer input = bytes.duplicate();
+			input.limit(to);
+			input.position(from);
+			int capacity = (int) Math.ceil((to - from) * (double) decoder.maxCharsPerByte());
+			if(line.capacity() < capacity)
+				line = CharBuffer.allocate(Math.max(capacity, line.capacity() * 2));
+			line.clear();
+			decoder.reset();
+			decoder.decode(input, line, true);
+			decoder.flush(line);
+			line.flip();
+		}
+
+	}
+
+}
@@ -1,41 +1,75 @@
 package de.invation.code.toval.math;
 
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
 
-import de.invation.code.toval.misc.ArrayUtils;
 import de.invation.code.toval.validate.Validate;
 
+/**
+ * Iterator over all combinations (k-element subsets) of an array in lexicographic order of their indexes.<br>
+ * <br>
+ * Combinations are identified by their rank within this order (combinatorial number system),
+ * see {@link #rank(int[], int)} and {@link #unrank(BigInteger, int, int)}.
+ * Ranks and the number of combinations are given as {@link BigInteger}s, since they easily exceed the range of long values.<br>
+ * <br>
+ * Besides iterating over element arrays, combinations can be visited as index arrays
+ * (see {@link #visit(Consumer)} and {@link #visitParallel(Consumer)}).
+ * Visitors get the same buffer on every call, so no arrays are allocated during the scan.
+ * Spliterators split the remaining rank range by unranking the middle combination,
+ * so parallel processing starts at arbitrary offsets without iterating to them.
+ *
+ * @param <T> Type of elements
+ */
 public class CombinationsCalculator<T> implements Iterator<T[]>{
-	
+
 	private Object[] originalArray = null;
 	private int combinationLength = 0;
-	private long numCombinations = 0;
-	private long calculatedCombinations = 0;
-	
+	private BigInteger numCombinations = null;
+
+	/**
+	 * Indexes of the next combination (<code>null</code> if there is no further combination).
+	 */
 	private int[] lastIndexCombination = null;
-	
+
 	@SuppressWarnings("unchecked")
 	public CombinationsCalculator(List<T> originalList, int combinationLength){
 		this((T[]) originalList.toArray(), combinationLength);
 	}
-	
+
 	public CombinationsCalculator(T[] originalArray, int combinationLength){
 		Validate.notNull(originalArray);
 		Validate.bigger(originalArray.length, 0);
 		Validate.bigger(combinationLength, 0);
 		Validate.isTrue(combinationLength <= originalArray.length);
-		
+
 		this.originalArray = originalArray;
 		this.combinationLength = combinationLength;
-		numCombinations = MathUtils.binCoeff(originalArray.length, combinationLength);
-		lastIndexCombination = ArrayUtils.createAndInitializeArray(combinationLength, 0);
+		numCombinations = MathUtils.getBinomialCoefficient(originalArray.length, combinationLength);
+		lastIndexCombination = firstCombination(combinationLength);
+	}
+
+	/**
+	 * Returns the number of combinations.
+	 * @return The binomial coefficient of the array length and the combination length
+	 */
+	public BigInteger getCombinationCount() {
+		return numCombinations;
+	}
+
+	public int getCombinationLength() {
+		return combinationLength;
 	}
 
 	@Override
 	public boolean hasNext() {
-		return calculatedCombinations < numCombinations;
+		return lastIndexCombination != null;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -44,29 +78,223 @@ public class CombinationsCalculator<T> implements Iterator<T[]>{
 		if (!hasNext()) {
             throw new NoSuchElementException();
         }
-		
-        Object[] result = new Object[combinationLength];
-        for (int i = 0; i < combinationLength; i++) {
-            result[i] = originalArray[lastIndexCombination[i]];
-        }
 
-        for (int i = combinationLength - 1; i >= 0; i--) {
-            if (lastIndexCombination[i] < originalArray.length - combinationLength + i) {
-                lastIndexCombination[i]++;
-                for (int j = i + 1; j < combinationLength; j++) {
-                    lastIndexCombination[j] = lastIndexCombination[i] - i + j;
-                }
-                break;
-            }
+        T[] result = (T[]) toElements(lastIndexCombination);
+        if (!successor(lastIndexCombination, originalArray.length)) {
+            lastIndexCombination = null;
         }
-        
-        calculatedCombinations++;
-        return (T[]) result;
+        return result;
 	}
 
 	@Override
 	public void remove() {}
 
+	/**
+	 * Moves the iterator to the combination with the given rank.<br>
+	 * The next call of {@link #next()} returns this combination.
+	 * @param rank Rank of the combination
+	 */
+	public void skipTo(BigInteger rank) {
+		lastIndexCombination = unrank(rank, originalArray.length, combinationLength);
+	}
+
+	/**
+	 * Returns the combination with the given rank.
+	 * @param rank Rank of the combination
+	 * @return The elements of the combination
+	 */
+	@SuppressWarnings("unchecked")
+	public T[] get(BigInteger rank) {
+		return (T[]) toElements(unrank(rank, originalArray.length, combinationLength));
+	}
+
+	/**
+	 * Visits all combinations in lexicographic order.<br>
+	 * The visitor gets the indexes of the combination elements within the original array.
+	 * The same buffer is passed on every call, so visitors must not keep or modify it.
+	 * @param visitor The visitor
+	 */
+	public void visit(Consumer<? super int[]> visitor) {
+		indexSpliterator().forEachRemaining(visitor);
+	}
+
+	/**
+	 * Visits all combinations in parallel on the common fork/join pool.<br>
+	 * The visitor gets the indexes of the combination elements within the original array.
+	 * Every thread uses its own buffer for all calls, so visitors must not keep or modify it.
+	 * @param visitor The (thread-safe) visitor
+	 */
+	public void visitParallel(Consumer<? super int[]> visitor) {
+		StreamSupport.stream(indexSpliterator(), true).forEach(visitor);
+	}
+
+	/**
+	 * Returns a spliterator over the element arrays of all combinations in lexicographic order.
+	 * This spliterator is independent of the iterator state.
+	 * @return A spliterator over all combinations
+	 */
+	public Spliterator<T[]> spliterator() {
+		return new ElementSpliterator(indexSpliterator());
+	}
+
+	/**
+	 * Returns a spliterator over the index arrays of all combinations in lexicographic order.<br>
+	 * Every split owns one index buffer which is updated in place, so actions must not keep or modify the arrays.
+	 * This spliterator is independent of the iterator state.
+	 * @return A spliterator over all combinations
+	 */
+	public Spliterator<int[]> indexSpliterator() {
+		int n = originalArray.length;
+		return RankRangeSpliterator.of(rank -> unrank(rank, n, combinationLength), combination -> successor(combination, n), numCombinations, BigInteger.ZERO, numCombinations);
+	}
+
+	private Object[] toElements(int[] indexes) {
+		Object[] result = (Object[]) Array.newInstance(originalArray.getClass().getComponentType(), indexes.length);
+		for (int i = 0; i < indexes.length; i++) {
+			result[i] = originalArray[indexes[i]];
+		}
+		return result;
+	}
+
+	//-----RANKING--------------------------------------------------------------------------
+
+	/**
+	 * Returns the rank of the given combination within the lexicographic order of all combinations
+	 * of <code>combination.length</code> out of <code>n</code> indexes.
+	 * @param combination Strictly increasing indexes in [0,n)
+	 * @param n Number of indexes
+	 * @return The rank of the combination (starting at 0)
+	 */
+	public static BigInteger rank(int[] combination, int n) {
+		Validate.notNull(combination);
+		int k = combination.length;
+		for (int i = 0; i < k; i++) {
+			if (combination[i] < 0 || combination[i] >= n || (i > 0 && combination[i] <= combination[i - 1]))
+				throw new IllegalArgumentException("Invalid combination: " + Arrays.toString(combination));
+		}
+		// Lexicographic rank is the reversed colexicographic rank of the mirrored combination.
+		BigInteger colexRank = BigInteger.ZERO;
+		for (int j = 0; j < k; j++) {
+			colexRank = colexRank.add(MathUtils.getBinomialCoefficient(n - 1 - combination[k - 1 - j], j + 1));
+		}
+		return MathUtils.getBinomialCoefficient(n, k).subtract(BigInteger.ONE).subtract(colexRank);
+	}
+
+	/**
+	 * Returns the combination with the given rank within the lexicographic order of all combinations
+	 * of <code>k</code> out of <code>n</code> indexes.
+	 * @param rank Rank of the combination (starting at 0)
+	 * @param n Number of indexes
+	 * @param k Combination length
+	 * @return Strictly increasing indexes of the combination
+	 */
+	public static int[] unrank(BigInteger rank, int n, int k) {
+		Validate.notNull(rank);
+		Validate.notNegative(k);
+		Validate.isTrue(k <= n);
+		BigInteger count = MathUtils.getBinomialCoefficient(n, k);
+		if (rank.signum() < 0 || rank.compareTo(count) >= 0)
+			throw new IndexOutOfBoundsException("Rank: " + rank + ", Count: " + count);
+		int[] result = new int[k];
+		if (k == 0)
+			return result;
+		BigInteger remaining = count.subtract(BigInteger.ONE).subtract(rank);
+		// Greedy decoding of the colexicographic rank, c == C(upper, i)
+		int upper = n - 1;
+		BigInteger c = MathUtils.getBinomialCoefficient(upper, k);
+		for (int i = k; i >= 1; i--) {
+			while (c.compareTo(remaining) > 0) {
+				c = c.multiply(BigInteger.valueOf(upper - i)).divide(BigInteger.valueOf(upper));
+				upper--;
+			}
+			result[i - 1] = n - 1 - upper;
+			remaining = remaining.subtract(c);
+			if (i > 1) {
+				c = c.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(upper));
+				upper--;
+			}
+		}
+		// Mirrored combination is decreasing
+		for (int i = 0; i < k / 2; i++) {
+			int swap = result[i];
+			result[i] = result[k - 1 - i];
+			result[k - 1 - i] = swap;
+		}
+		return result;
+	}
+
+	private static int[] firstCombination(int k) {
+		int[] result = new int[k];
+		for (int i = 0; i < k; i++) {
+			result[i] = i;
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces the given combination by its lexicographic successor.
+	 * @param combination Strictly increasing indexes in [0,n)
+	 * @param n Number of indexes
+	 * @return <code>false</code> if the combination is the last one (it is not changed then);<br>
+	 * <code>true</code> otherwise.
+	 */
+	private static boolean successor(int[] combination, int n) {
+		int k = combination.length;
+		for (int i = k - 1; i >= 0; i--) {
+			if (combination[i] < n - k + i) {
+				combination[i]++;
+				for (int j = i + 1; j < k; j++) {
+					combination[j] = combination[i] - i + j;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//-----SPLITERATORS--------------------------------------------------------------------------
+
+	/**
+	 * Spliterator over element arrays, creating a new array per combination.
+	 */
+	private class ElementSpliterator implements Spliterator<T[]> {
+
+		private final Spliterator<int[]> indexes;
+
+		private ElementSpliterator(Spliterator<int[]> indexes) {
+			this.indexes = indexes;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public boolean tryAdvance(final Consumer<? super T[]> action) {
+			return indexes.tryAdvance(combination -> action.accept((T[]) toElements(combination)));
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void forEachRemaining(final Consumer<? super T[]> action) {
+			indexes.forEachRemaining(combination -> action.accept((T[]) toElements(combination)));
+		}
+
+		@Override
+		public Spliterator<T[]> trySplit() {
+			Spliterator<int[]> prefix = indexes.trySplit();
+			return prefix == null ? null : new ElementSpliterator(prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return indexes.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return indexes.characteristics();
+		}
+
+	}
+
 //	public static void main(String[] args) {
 //		List<Integer> arr = ListUtils.createAndInitializeList(100, new Integer(1));
 //		System.out.println(arr);
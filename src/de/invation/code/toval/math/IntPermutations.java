@@ -0,0 +1,366 @@
+package de.invation.code.toval.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Permutations of the indexes <code>0..n-1</code> as primitive <code>int[]</code> arrays.<br>
+ * <br>
+ * Permutations are identified by their rank within the lexicographic order (Lehmer code),
+ * see {@link #rank(int[])} and {@link #unrank(BigInteger, int)}.
+ * Streams and spliterators split the remaining rank range by unranking the middle permutation,
+ * so any range of the n! permutations is processed without iterating to it.
+ * Spliterators pass one buffer per split, which is updated in place by {@link #next(int[])}.<br>
+ * <br>
+ * For incremental evaluation, {@link #heapCursor(int)} and {@link #adjacentTranspositionCursor(int)}
+ * enumerate all permutations such that consecutive permutations differ in a single swap
+ * (Heap's algorithm and Steinhaus-Johnson-Trotter algorithm).
+ *
+ * @author Thomas Stocker
+ */
+public class IntPermutations {
+
+	/**
+	 * Maximum number of elements whose permutation count fits into a long value.
+	 */
+	public static final int MAX_LONG_ELEMENTS = 20;
+
+	private IntPermutations() {}
+
+	/**
+	 * Returns the identity permutation.
+	 * @param n Number of elements
+	 * @return The array <code>0..n-1</code>
+	 */
+	public static int[] identity(int n) {
+		Validate.notNegative(n);
+		int[] result = new int[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = i;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of permutations of <code>n</code> elements.
+	 * @param n Number of elements
+	 * @return <code>n!</code>
+	 */
+	public static BigInteger count(int n) {
+		return MathUtils.getFactorial(n);
+	}
+
+	/**
+	 * Replaces the given permutation by its lexicographic successor (algorithm from Rosen p. 284).
+	 * @param permutation The permutation
+	 * @return <code>false</code> if the permutation is the last one (it is not changed then);<br>
+	 * <code>true</code> otherwise.
+	 */
+	public static boolean next(int[] permutation) {
+		// Find largest index j with a[j] < a[j+1]
+		int j = permutation.length - 2;
+		while (j >= 0 && permutation[j] > permutation[j + 1]) {
+			j--;
+		}
+		if (j < 0) {
+			return false;
+		}
+		// Find index k such that a[k] is the smallest value greater than a[j] to the right of a[j]
+		int k = permutation.length - 1;
+		while (permutation[j] > permutation[k]) {
+			k--;
+		}
+		swap(permutation, j, k);
+		// Put tail end of permutation after j-th position in increasing order
+		for (int r = permutation.length - 1, s = j + 1; r > s; r--, s++) {
+			swap(permutation, r, s);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the rank of the given permutation within the lexicographic order.
+	 * @param permutation A permutation of <code>0..n-1</code>
+	 * @return The rank (starting at 0)
+	 */
+	public static BigInteger rank(int[] permutation) {
+		Validate.notNull(permutation);
+		int n = permutation.length;
+		boolean[] seen = new boolean[n];
+		for (int value : permutation) {
+			if (value < 0 || value >= n || seen[value])
+				throw new IllegalArgumentException("Invalid permutation: " + Arrays.toString(permutation));
+			seen[value] = true;
+		}
+		// Horner evaluation of the Lehmer code in the factorial number system
+		if (n <= MAX_LONG_ELEMENTS) {
+			long rank = 0;
+			for (int i = 0; i < n; i++) {
+				rank = rank * (n - i) + lehmerDigit(permutation, i);
+			}
+			return BigInteger.valueOf(rank);
+		}
+		BigInteger rank = BigInteger.ZERO;
+		for (int i = 0; i < n; i++) {
+			rank = rank.multiply(BigInteger.valueOf(n - i)).add(BigInteger.valueOf(lehmerDigit(permutation, i)));
+		}
+		return rank;
+	}
+
+	/**
+	 * Returns the number of values after position i which are smaller than the value at position i.
+	 */
+	private static int lehmerDigit(int[] permutation, int i) {
+		int digit = 0;
+		for (int j = i + 1; j < permutation.length; j++) {
+			if (permutation[j] < permutation[i])
+				digit++;
+		}
+		return digit;
+	}
+
+	/**
+	 * Returns the permutation with the given rank within the lexicographic order.
+	 * @param rank The rank (starting at 0)
+	 * @param n Number of elements
+	 * @return The permutation of <code>0..n-1</code>
+	 */
+	public static int[] unrank(BigInteger rank, int n) {
+		Validate.notNull(rank);
+		Validate.notNegative(n);
+		if (rank.signum() < 0 || rank.compareTo(count(n)) >= 0)
+			throw new IndexOutOfBoundsException("Rank: " + rank + ", Elements: " + n);
+		int[] digits = new int[n];
+		if (rank.bitLength() < 64) {
+			long remaining = rank.longValue();
+			for (int i = n - 1; i >= 0 && remaining > 0; i--) {
+				digits[i] = (int) (remaining % (n - i));
+				remaining /= n - i;
+			}
+		} else {
+			BigInteger remaining = rank;
+			for (int i = n - 1; i >= 0 && remaining.signum() > 0; i--) {
+				BigInteger[] division = remaining.divideAndRemainder(BigInteger.valueOf(n - i));
+				digits[i] = division[1].intValue();
+				remaining = division[0];
+			}
+		}
+		// Digit i selects the digit-th smallest unused value
+		int[] unused = identity(n);
+		int[] result = new int[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = unused[digits[i]];
+			System.arraycopy(unused, digits[i] + 1, unused, digits[i], n - i - digits[i] - 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a spliterator over all permutations of <code>n</code> elements in lexicographic order.<br>
+	 * Each spliterator passes its own buffer on every call, so actions must not keep or modify it.
+	 * @param n Number of elements
+	 * @return A spliterator over all permutations
+	 */
+	public static Spliterator<int[]> spliterator(int n) {
+		return spliterator(n, BigInteger.ZERO, count(n));
+	}
+
+	/**
+	 * Returns a spliterator over the permutations with ranks in <code>[start,end)</code>.<br>
+	 * Each spliterator passes its own buffer on every call, so actions must not keep or modify it.
+	 * @param n Number of elements
+	 * @param start Rank of the first permutation
+	 * @param end Rank after the last permutation
+	 * @return A spliterator over the permutations of the range
+	 */
+	public static Spliterator<int[]> spliterator(int n, BigInteger start, BigInteger end) {
+		Validate.notNegative(n);
+		Validate.notNull(start);
+		Validate.notNull(end);
+		return RankRangeSpliterator.of(rank -> unrank(rank, n), IntPermutations::next, count(n), start, end);
+	}
+
+	/**
+	 * Returns a stream over all permutations of <code>n</code> elements.<br>
+	 * Permutations are passed in reused buffers, so they must be copied before being kept or modified.
+	 * @param n Number of elements
+	 * @param parallel <code>true</code> for a parallel stream
+	 * @return A stream over all permutations
+	 */
+	public static Stream<int[]> stream(int n, boolean parallel) {
+		return StreamSupport.stream(spliterator(n), parallel);
+	}
+
+	/**
+	 * Visits all permutations of <code>n</code> elements in parallel on the common fork/join pool.<br>
+	 * Every thread uses its own buffer for all calls, so visitors must not keep or modify it.
+	 * @param n Number of elements
+	 * @param visitor The (thread-safe) visitor
+	 */
+	public static void visitParallel(int n, Consumer<? super int[]> visitor) {
+		stream(n, true).forEach(visitor);
+	}
+
+	/**
+	 * Returns a cursor over all permutations of <code>n</code> elements following Heap's algorithm.
+	 * @param n Number of elements
+	 * @return A cursor starting at the identity permutation
+	 */
+	public static SwapCursor heapCursor(int n) {
+		return new HeapCursor(n);
+	}
+
+	/**
+	 * Returns a cursor over all permutations of <code>n</code> elements following the
+	 * Steinhaus-Johnson-Trotter algorithm, where each step swaps two adjacent positions.
+	 * @param n Number of elements
+	 * @return A cursor starting at the identity permutation
+	 */
+	public static SwapCursor adjacentTranspositionCursor(int n) {
+		return new AdjacentTranspositionCursor(n);
+	}
+
+	private static void swap(int[] array, int i, int j) {
+		int temp = array[i];
+		array[i] = array[j];
+		array[j] = temp;
+	}
+
+	/**
+	 * Cursor over all permutations where consecutive permutations differ in exactly one swap of two positions.<br>
+	 * The cursor starts at the identity permutation, every call of {@link #advance()}
+	 * moves to the next permutation and reports the swapped positions.
+	 */
+	public static abstract class SwapCursor {
+
+		protected final int[] permutation;
+		private int swappedFirst = -1;
+		private int swappedSecond = -1;
+
+		protected SwapCursor(int n) {
+			Validate.bigger(n, 0);
+			permutation = identity(n);
+		}
+
+		/**
+		 * Returns the current permutation.<br>
+		 * The array is updated in place by {@link #advance()} and must not be modified.
+		 * @return The current permutation
+		 */
+		public int[] getPermutation() {
+			return permutation;
+		}
+
+		/**
+		 * Returns the first position swapped by the last call of {@link #advance()}.
+		 * @return The smaller swapped position;<br>
+		 * <code>-1</code> if the cursor has not been advanced.
+		 */
+		public int getSwappedFirst() {
+			return swappedFirst;
+		}
+
+		/**
+		 * Returns the second position swapped by the last call of {@link #advance()}.
+		 * @return The larger swapped position;<br>
+		 * <code>-1</code> if the cursor has not been advanced.
+		 */
+		public int getSwappedSecond() {
+			return swappedSecond;
+		}
+
+		/**
+		 * Moves to the next permutation.
+		 * @return <code>false</code> if all permutations have been enumerated;<br>
+		 * <code>true</code> otherwise.
+		 */
+		public abstract boolean advance();
+
+		protected void swapPositions(int i, int j) {
+			swap(permutation, i, j);
+			swappedFirst = Math.min(i, j);
+			swappedSecond = Math.max(i, j);
+		}
+
+	}
+
+	/**
+	 * Heap's algorithm (iterative form).
+	 */
+	private static class HeapCursor extends SwapCursor {
+
+		private final int[] counters;
+		private int index = 1;
+
+		private HeapCursor(int n) {
+			super(n);
+			counters = new int[n];
+		}
+
+		@Override
+		public boolean advance() {
+			while (index < permutation.length) {
+				if (counters[index] < index) {
+					swapPositions(index % 2 == 0 ? 0 : counters[index], index);
+					counters[index]++;
+					index = 1;
+					return true;
+				}
+				counters[index] = 0;
+				index++;
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Steinhaus-Johnson-Trotter algorithm with directed elements (Even's variant).
+	 */
+	private static class AdjacentTranspositionCursor extends SwapCursor {
+
+		/**
+		 * Position per element.
+		 */
+		private final int[] positions;
+		/**
+		 * Direction per element (-1 left, +1 right).
+		 */
+		private final int[] directions;
+
+		private AdjacentTranspositionCursor(int n) {
+			super(n);
+			positions = identity(n);
+			directions = new int[n];
+			Arrays.fill(directions, -1);
+		}
+
+		@Override
+		public boolean advance() {
+			// Move the largest mobile element, i.e. the largest element pointing to a smaller neighbour
+			for (int element = permutation.length - 1; element > 0; element--) {
+				int position = positions[element];
+				int target = position + directions[element];
+				if (target < 0 || target >= permutation.length || permutation[target] > element)
+					continue;
+				int neighbour = permutation[target];
+				swapPositions(position, target);
+				positions[element] = target;
+				positions[neighbour] = position;
+				for (int larger = element + 1; larger < permutation.length; larger++) {
+					directions[larger] = -directions[larger];
+				}
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+}
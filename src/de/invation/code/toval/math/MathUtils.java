@@ -26,21 +26,53 @@ public class MathUtils {
          * @param n Set size
          * @param k Subset size
          * @return The binomial coefficient of <code>n</code> and <code>k</code>
+         * @throws ArithmeticException if the result does not fit into a long
+         * value (see {@link #getBinomialCoefficient(int, int)}).
          */
         public static long binCoeff(int n, int k) {
-                if (k > n) {
+                if (k < 0 || k > n) {
                         return 0;
                 }
-                if (k == 0 || k == n) {
-                        return 1;
-                }
+                k = Math.min(k, n - k);
                 long result = 1;
                 for (int i = 1; i <= k; i++) {
-                        result *= (n - i + 1) / i;
+                        // result * (n-k+i) is divisible by i
+                        long divisor = gcd(result, i);
+                        result = Math.multiplyExact(result / divisor, (n - k + i) / (i / divisor));
+                }
+                return result;
+        }
+
+        /**
+         * Returns the binomial coefficient without overflow.<br>
+         * For any set containing n elements, this is the number of distinct
+         * k-element subsets of it.
+         *
+         * @param n Set size
+         * @param k Subset size
+         * @return The binomial coefficient of <code>n</code> and <code>k</code>
+         */
+        public static BigInteger getBinomialCoefficient(int n, int k) {
+                if (k < 0 || k > n) {
+                        return BigInteger.ZERO;
+                }
+                k = Math.min(k, n - k);
+                BigInteger result = BigInteger.ONE;
+                for (int i = 1; i <= k; i++) {
+                        result = result.multiply(BigInteger.valueOf(n - k + i)).divide(BigInteger.valueOf(i));
                 }
                 return result;
         }
 
+        private static long gcd(long a, long b) {
+                while (b != 0) {
+                        long r = a % b;
+                        a = b;
+                        b = r;
+                }
+                return a;
+        }
+
         /**
          * Constucts a truth-table for the given column-number. <br>
          * The number of table rows is 2^columnCount.<br>
@@ -58,6 +90,8 @@ public class MathUtils {
          * <li>1 1 1</li>
          * </ul>
          * <br>
+         * For counting models or comparing formulas over more than a few variables,
+         * use {@link de.invation.code.toval.math.logic.BDDManager} instead.
          *
          * @param colCount The number of columns.
          * @return The constructed truth-table
@@ -2,27 +2,42 @@ package de.invation.code.toval.math;
 
 import java.math.BigInteger;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * Permutation Generator. Generates all permutations of an array with a
- * specified length.
+ * specified length in lexicographic order.<br>
+ * For parallel or minimal-change enumeration, see {@link IntPermutations}.
  *
  * @param <T> Type of the array.
  */
 public abstract class Permutations<T> implements Iterator<T> {
 
         /**
-         * Array holding different permutations.
+         * Current permutation of element indexes.
          */
-        private Integer[] position;
+        private final int[] position;
         /**
-         * Number of permutations left (not yet generated).
+         * Boxed copy of the current permutation returned by
+         * {@link #nextPermutation()}.
          */
-        private BigInteger permLeft;
+        private final Integer[] boxedPosition;
+        /**
+         * Number of permutations generated since the last reset.
+         */
+        private long generated;
+        /**
+         * Rank of the first permutation after the last reset.
+         */
+        private BigInteger startRank;
+        /**
+         * Indicates that the current permutation has not been returned yet.
+         */
+        private boolean pending;
         /**
          * Total number of permutations.
          */
-        private BigInteger permTotal;
+        private final BigInteger permTotal;
 
         /**
          * Initializes the permutation generation mechanism using the specified
@@ -35,8 +50,9 @@ public abstract class Permutations<T> implements Iterator<T> {
                 if (elementNumber < 1) {
                         throw new IllegalArgumentException("Illegal length: " + elementNumber);
                 }
-                position = new Integer[elementNumber];
-                permTotal = getFactorial(elementNumber);
+                position = new int[elementNumber];
+                boxedPosition = new Integer[elementNumber];
+                permTotal = MathUtils.getFactorial(elementNumber);
                 reset();
         }
 
@@ -47,7 +63,23 @@ public abstract class Permutations<T> implements Iterator<T> {
                 for (int i = 0; i < position.length; i++) {
                         position[i] = i;
                 }
-                permLeft = new BigInteger(permTotal.toString());
+                startRank = BigInteger.ZERO;
+                generated = 0;
+                pending = true;
+        }
+
+        /**
+         * Moves the generator to the permutation with the given rank within
+         * the lexicographic order (see {@link IntPermutations#unrank(BigInteger, int)}).<br>
+         * The next permutation returned is the one with the given rank.
+         *
+         * @param rank Rank of the next permutation
+         */
+        public void skipTo(BigInteger rank) {
+                System.arraycopy(IntPermutations.unrank(rank, position.length), 0, position, 0, position.length);
+                startRank = rank;
+                generated = 0;
+                pending = true;
         }
 
         /**
@@ -56,7 +88,7 @@ public abstract class Permutations<T> implements Iterator<T> {
          * @return Residual number of permutations
          */
         public BigInteger getNumLeft() {
-                return permLeft;
+                return permTotal.subtract(startRank).subtract(BigInteger.valueOf(generated));
         }
 
         /**
@@ -76,65 +108,48 @@ public abstract class Permutations<T> implements Iterator<T> {
          */
         @Override
         public boolean hasNext() {
-                return permLeft.compareTo(BigInteger.ZERO) == 1;
+                return pending || hasSuccessor();
         }
 
-        /**
-         * Computes the factorial of the given number
-         *
-         * @param number jBasic number for factorial computation
-         * @return The factorial of <code>number</code>
-         */
-        private static BigInteger getFactorial(int number) {
-                BigInteger factorial = BigInteger.ONE;
-                for (int i = number; i > 1; i--) {
-                        factorial = factorial.multiply(new BigInteger(Integer.toString(i)));
+        private boolean hasSuccessor() {
+                for (int j = position.length - 2; j >= 0; j--) {
+                        if (position[j] < position[j + 1]) {
+                                return true;
+                        }
                 }
-                return factorial;
+                return false;
         }
 
         /**
-         * Generates the next permutation (algorithm from Rosen p. 284)
+         * Generates the next permutation.<br>
+         * The returned array is reused by the next call.
          *
          * @return an array containing the next permutation
+         * @see #nextIndexes()
          */
         public Integer[] nextPermutation() {
-                if (permLeft.equals(permTotal)) {
-                        permLeft = permLeft.subtract(BigInteger.ONE);
-                        return position;
-                }
-
-                // Find largest index j with a[j] < a[j+1]
-                int j = position.length - 2;
-                while (position[j] > position[j + 1]) {
-                        j--;
+                int[] next = nextIndexes();
+                for (int i = 0; i < next.length; i++) {
+                        boxedPosition[i] = next[i];
                 }
+                return boxedPosition;
+        }
 
-                // Find index k such that a[k] is smallest integer
-                // greater than a[j] to the right of a[j]
-                int k = position.length - 1;
-                while (position[j] > position[k]) {
-                        k--;
-                }
-
-                // Interchange a[j] and a[k]
-                int temp;
-                temp = position[k];
-                position[k] = position[j];
-                position[j] = temp;
-
-                // Put tail end of permutation after j-th position in increasing order
-                int r = position.length - 1;
-                int s = j + 1;
-                while (r > s) {
-                        temp = position[s];
-                        position[s] = position[r];
-                        position[r] = temp;
-                        r--;
-                        s++;
+        /**
+         * Generates the next permutation without boxing (lexicographic order,
+         * see {@link IntPermutations#next(int[])}).<br>
+         * The returned array is updated in place by the next call and must not
+         * be modified.
+         *
+         * @return an array containing the next permutation
+         */
+        public int[] nextIndexes() {
+                if (pending) {
+                        pending = false;
+                } else if (!IntPermutations.next(position)) {
+                        throw new NoSuchElementException();
                 }
-
-                permLeft = permLeft.subtract(BigInteger.ONE);
+                generated++;
                 return position;
         }
 
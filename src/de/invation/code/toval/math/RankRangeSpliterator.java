@@ -0,0 +1,121 @@
+package de.invation.code.toval.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Spliterator over the rank range <code>[start,end)</code> of a lexicographic order of <code>int[]</code> arrays,
+ * e.g. combinations or permutations.<br>
+ * <br>
+ * The order is given by an unranking function and a successor function which advances an array in place.
+ * A spliterator walks its range by calling the successor function on a single buffer, which is passed to the action on every call.
+ * Splitting unranks the middle of the remaining range, so the suffix starts with its own buffer without iterating to it.
+ */
+class RankRangeSpliterator implements Spliterator<int[]> {
+
+	private final Function<BigInteger, int[]> unrank;
+	private final Predicate<int[]> successor;
+	private final boolean sized;
+	/**
+	 * Rank of the buffer content, if nothing has been consumed since it was set.
+	 */
+	private BigInteger start;
+	private long consumed = 0;
+	private final BigInteger end;
+	/**
+	 * Buffer holding the next array (<code>null</code> if the range is exhausted).
+	 */
+	private int[] next;
+	/**
+	 * First array after the range (<code>null</code> if the range ends with the last array of the order).
+	 */
+	private final int[] endArray;
+
+	private RankRangeSpliterator(Function<BigInteger, int[]> unrank, Predicate<int[]> successor, boolean sized,
+			BigInteger start, int[] next, BigInteger end, int[] endArray) {
+		this.unrank = unrank;
+		this.successor = successor;
+		this.sized = sized;
+		this.start = start;
+		this.next = start.compareTo(end) < 0 ? next : null;
+		this.end = end;
+		this.endArray = endArray;
+	}
+
+	/**
+	 * Creates a spliterator over the given rank range.
+	 * @param unrank Function returning a new array for a rank
+	 * @param successor Function replacing an array by its successor, returning <code>false</code> for the last array
+	 * @param count Number of arrays within the order
+	 * @param start Rank of the first array
+	 * @param end Rank after the last array
+	 * @return A spliterator over the range
+	 */
+	static RankRangeSpliterator of(Function<BigInteger, int[]> unrank, Predicate<int[]> successor, BigInteger count, BigInteger start, BigInteger end) {
+		if (start.signum() < 0 || end.compareTo(count) > 0 || start.compareTo(end) > 0)
+			throw new IndexOutOfBoundsException("Range: [" + start + "," + end + "), Count: " + count);
+		int[] first = start.compareTo(end) < 0 ? unrank.apply(start) : null;
+		int[] last = end.compareTo(count) < 0 ? unrank.apply(end) : null;
+		return new RankRangeSpliterator(unrank, successor, end.subtract(start).bitLength() < 64, start, first, end, last);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super int[]> action) {
+		if (next == null)
+			return false;
+		action.accept(next);
+		advance();
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super int[]> action) {
+		while (next != null) {
+			action.accept(next);
+			advance();
+		}
+	}
+
+	private void advance() {
+		consumed++;
+		if (!successor.test(next) || (endArray != null && Arrays.equals(next, endArray)))
+			next = null;
+	}
+
+	private BigInteger remaining() {
+		if (next == null)
+			return BigInteger.ZERO;
+		return end.subtract(start).subtract(BigInteger.valueOf(consumed));
+	}
+
+	@Override
+	public Spliterator<int[]> trySplit() {
+		BigInteger remaining = remaining();
+		if (remaining.compareTo(BigInteger.valueOf(2)) < 0)
+			return null;
+		BigInteger position = start.add(BigInteger.valueOf(consumed));
+		BigInteger middle = position.add(remaining.shiftRight(1));
+		int[] middleArray = unrank.apply(middle);
+		RankRangeSpliterator prefix = new RankRangeSpliterator(unrank, successor, sized, position, next, middle, middleArray);
+		start = middle;
+		consumed = 0;
+		next = middleArray.clone();
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		BigInteger remaining = remaining();
+		return remaining.bitLength() < 64 ? remaining.longValue() : Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return sized ? ORDERED | NONNULL | SIZED | SUBSIZED : ORDERED | NONNULL;
+	}
+
+}
@@ -0,0 +1,839 @@
+package de.invation.code.toval.math.logic;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.invation.code.toval.types.ObjectIntMap;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Manager for reduced ordered binary decision diagrams (BDDs).<br>
+ * BDD nodes are referenced by integer handles, {@link #FALSE} and {@link #TRUE} are the terminal nodes.
+ * Variables are numbered from 1 (like DIMACS variables) and ordered by their number,
+ * i.e. by the order of their creation.
+ * Since all diagrams of a manager are reduced and share one unique table,
+ * two formulas are equivalent iff their handles are equal.<br>
+ * <br>
+ * Results of operations are memorized in a fixed-size operation cache.
+ * Nodes which are not reachable from a referenced node (see {@link #ref(int)}) are reclaimed
+ * by garbage collection, which only runs at the start of an operation and keeps the operands of this operation.
+ * Handles of intermediate results which are used across several operations therefore have to be referenced.<br>
+ * <br>
+ * Formulas in the object model of {@link ClauseSet}, {@link Clause} and {@link Literal}
+ * are converted with items interned to variables (see {@link #variableOf(Object)}).
+ * In contrast to {@link de.invation.code.toval.math.MathUtils#getTruthTable(int)},
+ * models are counted without enumerating assignments.
+ *
+ * @author Thomas Stocker
+ */
+public class BDDManager {
+
+	public static final int FALSE = 0;
+	public static final int TRUE = 1;
+
+	private static final int DEFAULT_CAPACITY = 1 << 14;
+	/**
+	 * Level of the terminal nodes (below all variables).
+	 */
+	private static final int TERMINAL = Integer.MAX_VALUE;
+	/**
+	 * Level of unused nodes.
+	 */
+	private static final int FREE = -1;
+
+	private static final int OP_AND = 0;
+	private static final int OP_OR = 1;
+	private static final int OP_XOR = 2;
+	private static final int OP_NOT = 3;
+	private static final int OP_ITE = 4;
+	private static final int OP_EXISTS = 5;
+	private static final int OP_FORALL = 6;
+	private static final int OP_RESTRICT = 7;
+
+	/**
+	 * Variable per node (TERMINAL for terminal nodes, FREE for unused nodes).
+	 */
+	private int[] levels;
+	private int[] lows;
+	private int[] highs;
+	/**
+	 * Next node within the same bucket of the unique table, or next unused node.
+	 */
+	private int[] nexts;
+	private int[] refCounts;
+	private boolean[] marks;
+	/**
+	 * First node per bucket of the unique table (0 for empty buckets).
+	 */
+	private int[] buckets;
+	private int freeList = 0;
+	private int nodeCount = 2;
+	/**
+	 * Number of nodes at which garbage collection is performed before the next operation.
+	 */
+	private int gcThreshold;
+	private int gcCount = 0;
+
+	private int[] cacheOps;
+	private int[] cacheFirst;
+	private int[] cacheSecond;
+	private int[] cacheThird;
+	private int[] cacheResults;
+
+	private int variableCount = 0;
+	/**
+	 * Mapping from items to variables.
+	 */
+	private final ObjectIntMap<Object> variables = new ObjectIntMap<Object>();
+	/**
+	 * Items, indexed by variable-1 (<code>null</code> for variables without item).
+	 */
+	private final List<Object> items = new ArrayList<Object>();
+
+	/**
+	 * Creates a new manager with default capacity.
+	 */
+	public BDDManager() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new manager.
+	 * @param nodeCapacity Initial number of nodes (the node table grows on demand)
+	 */
+	public BDDManager(int nodeCapacity) {
+		Validate.bigger(nodeCapacity, 0);
+		int capacity = Math.max(Integer.highestOneBit(nodeCapacity - 1) << 1, 16);
+		levels = new int[0];
+		lows = new int[0];
+		highs = new int[0];
+		nexts = new int[0];
+		refCounts = new int[0];
+		marks = new boolean[0];
+		resize(capacity);
+		levels[FALSE] = TERMINAL;
+		levels[TRUE] = TERMINAL;
+		gcThreshold = capacity;
+	}
+
+	//-----VARIABLES--------------------------------------------------------------------------
+
+	public int getVariableCount() {
+		return variableCount;
+	}
+
+	/**
+	 * Adds a new variable below all existing variables.
+	 * @return The number of the new variable
+	 */
+	public int newVariable() {
+		ensureVariables(variableCount + 1);
+		return variableCount;
+	}
+
+	/**
+	 * Makes sure that the manager has at least the given number of variables.
+	 * @param count Number of variables
+	 */
+	public void ensureVariables(int count) {
+		while(variableCount < count) {
+			variableCount++;
+			items.add(null);
+		}
+	}
+
+	/**
+	 * Returns the variable of the given item. Unknown items get a new variable.
+	 * @param item The item
+	 * @return The variable number (&gt;0)
+	 */
+	public int variableOf(Object item) {
+		Validate.notNull(item);
+		int variable = variables.get(item);
+		if(variable == 0) {
+			variable = newVariable();
+			items.set(variable - 1, item);
+			variables.put(item, variable);
+		}
+		return variable;
+	}
+
+	/**
+	 * Returns the item of the given variable.
+	 * @param variable The variable number
+	 * @return The item of the variable;<br>
+	 * <code>null</code> if the variable has no item.
+	 */
+	public Object itemOf(int variable) {
+		return items.get(variable - 1);
+	}
+
+	//-----NODES--------------------------------------------------------------------------
+
+	/**
+	 * Returns the number of nodes in use, including terminal nodes and nodes not yet reclaimed.
+	 * @return The number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the number of garbage collections performed so far.
+	 * @return The number of garbage collections
+	 */
+	public int getGCCount() {
+		return gcCount;
+	}
+
+	/**
+	 * Returns the variable tested by the given node.
+	 * @param node The node
+	 * @return The variable number;<br>
+	 * <code>0</code> for terminal nodes.
+	 */
+	public int getVariable(int node) {
+		checkNode(node);
+		return node < 2 ? 0 : levels[node];
+	}
+
+	/**
+	 * Returns the successor of the given node if its variable is false.
+	 * @param node A non-terminal node
+	 * @return The low successor
+	 */
+	public int getLow(int node) {
+		checkInnerNode(node);
+		return lows[node];
+	}
+
+	/**
+	 * Returns the successor of the given node if its variable is true.
+	 * @param node A non-terminal node
+	 * @return The high successor
+	 */
+	public int getHigh(int node) {
+		checkInnerNode(node);
+		return highs[node];
+	}
+
+	/**
+	 * Returns the number of non-terminal nodes of the given BDD.
+	 * @param f The BDD
+	 * @return The number of nodes reachable from <code>f</code>
+	 */
+	public int getSize(int f) {
+		checkNode(f);
+		int size = mark(f);
+		unmark(f);
+		return size;
+	}
+
+	/**
+	 * Protects the given node and its successors from garbage collection.
+	 * @param f The node
+	 * @return The node
+	 */
+	public int ref(int f) {
+		checkNode(f);
+		if(f > TRUE)
+			refCounts[f]++;
+		return f;
+	}
+
+	/**
+	 * Releases a reference obtained by {@link #ref(int)}.
+	 * @param f The node
+	 * @throws IllegalStateException if the node is not referenced
+	 */
+	public void deref(int f) {
+		checkNode(f);
+		if(f <= TRUE)
+			return;
+		if(refCounts[f] == 0)
+			throw new IllegalStateException("Node is not referenced: " + f);
+		refCounts[f]--;
+	}
+
+	/**
+	 * Reclaims all nodes which are not reachable from referenced nodes.
+	 */
+	public void collectGarbage() {
+		collectGarbage(new int[0]);
+	}
+
+	//-----CONSTRUCTION--------------------------------------------------------------------------
+
+	/**
+	 * Returns the BDD of a single literal.
+	 * @param literal DIMACS literal (<code>v</code> or <code>-v</code> for variable v)
+	 * @return The BDD of the literal
+	 */
+	public int fromLiteral(int literal) {
+		if(literal == 0)
+			throw new IllegalArgumentException("0 is not a valid literal");
+		beforeOperation();
+		ensureVariables(Math.abs(literal));
+		return literal > 0 ? mk(literal, FALSE, TRUE) : mk(-literal, TRUE, FALSE);
+	}
+
+	/**
+	 * Returns the BDD of the given literal.
+	 * @param literal The literal
+	 * @return The BDD of the literal
+	 */
+	public int fromLiteral(Literal literal) {
+		Validate.notNull(literal);
+		int variable = variableOf(literal.getItem());
+		return fromLiteral(literal.isNegated() ? -variable : variable);
+	}
+
+	/**
+	 * Returns the BDD of a clause (disjunction of literals).<br>
+	 * The empty clause yields {@link #FALSE}.
+	 * @param literals DIMACS literals of the clause
+	 * @return The BDD of the clause
+	 */
+	public int fromClause(int... literals) {
+		beforeOperation();
+		int[] sorted = literals.clone();
+		int maxVariable = 0;
+		for(int i = 0; i < sorted.length; i++) {
+			if(sorted[i] == 0)
+				throw new IllegalArgumentException("0 is not a valid literal");
+			maxVariable = Math.max(maxVariable, Math.abs(sorted[i]));
+			// Order by variable, descending
+			sorted[i] = -(2 * Math.abs(sorted[i]) + (sorted[i] < 0 ? 1 : 0));
+		}
+		ensureVariables(maxVariable);
+		Arrays.sort(sorted);
+		int result = FALSE;
+		for(int i = 0; i < sorted.length; i++) {
+			int variable = -sorted[i] >> 1;
+			boolean negated = (-sorted[i] & 1) == 1;
+			if(i > 0 && sorted[i] == sorted[i - 1])
+				continue;
+			if(i > 0 && (-sorted[i - 1] >> 1) == variable)
+				return TRUE;
+			result = negated ? mk(variable, TRUE, result) : mk(variable, result, TRUE);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the BDD of the given clause (disjunction of literals).
+	 * @param clause The clause
+	 * @return The BDD of the clause
+	 */
+	public int fromClause(Clause clause) {
+		Validate.notNull(clause);
+		int[] literals = new int[clause.size()];
+		for(int i = 0; i < literals.length; i++) {
+			int variable = variableOf(clause.get(i).getItem());
+			literals[i] = clause.get(i).isNegated() ? -variable : variable;
+		}
+		return fromClause(literals);
+	}
+
+	/**
+	 * Returns the BDD of the given clause set (conjunction of clauses).
+	 * @param clauseSet The clause set
+	 * @return The BDD of the clause set
+	 */
+	public int fromClauseSet(ClauseSet clauseSet) {
+		Validate.notNull(clauseSet);
+		int result = TRUE;
+		for(Clause clause: clauseSet) {
+			ref(result);
+			int next = and(result, fromClause(clause));
+			deref(result);
+			result = next;
+			if(result == FALSE)
+				break;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the BDD of all clauses of the given database (conjunction of clauses).
+	 * @param database The clause database
+	 * @return The BDD of the clauses
+	 */
+	public int fromClauseDatabase(ClauseDatabase database) {
+		Validate.notNull(database);
+		int result = TRUE;
+		for(int clause = 0; clause < database.size() && result != FALSE; clause++) {
+			ref(result);
+			int next = and(result, fromClause(database.getClause(clause)));
+			deref(result);
+			result = next;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the BDD of the conjunction of all given variables.
+	 * @param variables The variables
+	 * @return The BDD of the cube
+	 */
+	public int cube(int... variables) {
+		beforeOperation();
+		return buildCube(variables);
+	}
+
+	//-----OPERATIONS--------------------------------------------------------------------------
+
+	public int and(int f, int g) {
+		beforeOperation(f, g);
+		return apply(OP_AND, f, g);
+	}
+
+	public int or(int f, int g) {
+		beforeOperation(f, g);
+		return apply(OP_OR, f, g);
+	}
+
+	public int xor(int f, int g) {
+		beforeOperation(f, g);
+		return apply(OP_XOR, f, g);
+	}
+
+	public int not(int f) {
+		beforeOperation(f);
+		return not0(f);
+	}
+
+	/**
+	 * Returns the BDD of the implication <code>f &rarr; g</code>.
+	 * @param f The premise
+	 * @param g The conclusion
+	 * @return The BDD of the implication
+	 */
+	public int implies(int f, int g) {
+		beforeOperation(f, g);
+		return ite0(f, g, TRUE);
+	}
+
+	/**
+	 * Returns the BDD of the equivalence <code>f &harr; g</code>.
+	 * @param f The first operand
+	 * @param g The second operand
+	 * @return The BDD of the equivalence
+	 */
+	public int iff(int f, int g) {
+		beforeOperation(f, g);
+		return not0(apply(OP_XOR, f, g));
+	}
+
+	/**
+	 * Returns the BDD of <code>if f then g else h</code>.
+	 * @param f The condition
+	 * @param g The BDD if the condition holds
+	 * @param h The BDD if the condition does not hold
+	 * @return The BDD of the if-then-else
+	 */
+	public int ite(int f, int g, int h) {
+		beforeOperation(f, g, h);
+		return ite0(f, g, h);
+	}
+
+	/**
+	 * Existentially quantifies the given variables.
+	 * @param f The BDD
+	 * @param variables The variables to quantify
+	 * @return The BDD of <code>&exist;variables: f</code>
+	 */
+	public int exists(int f, int... variables) {
+		beforeOperation(f);
+		return quantify(OP_EXISTS, f, buildCube(variables));
+	}
+
+	/**
+	 * Universally quantifies the given variables.
+	 * @param f The BDD
+	 * @param variables The variables to quantify
+	 * @return The BDD of <code>&forall;variables: f</code>
+	 */
+	public int forall(int f, int... variables) {
+		beforeOperation(f);
+		return quantify(OP_FORALL, f, buildCube(variables));
+	}
+
+	/**
+	 * Replaces the given variable by a constant.
+	 * @param f The BDD
+	 * @param variable The variable
+	 * @param value The value of the variable
+	 * @return The BDD of <code>f</code> with <code>variable</code> set to <code>value</code>
+	 */
+	public int restrict(int f, int variable, boolean value) {
+		beforeOperation(f);
+		if(variable < 1 || variable > variableCount)
+			throw new IllegalArgumentException("Unknown variable: " + variable);
+		return restrict0(f, variable, value ? 1 : 0);
+	}
+
+	//-----QUERIES--------------------------------------------------------------------------
+
+	/**
+	 * Checks if the given BDDs represent equivalent formulas.
+	 * @param f The first BDD
+	 * @param g The second BDD
+	 * @return <code>true</code> if both BDDs have the same models;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isEquivalent(int f, int g) {
+		checkNode(f);
+		checkNode(g);
+		return f == g;
+	}
+
+	/**
+	 * Checks if every model of <code>f</code> is a model of <code>g</code>.
+	 * @param f The first BDD
+	 * @param g The second BDD
+	 * @return <code>true</code> if <code>f</code> entails <code>g</code>;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean entails(int f, int g) {
+		return implies(f, g) == TRUE;
+	}
+
+	/**
+	 * Returns the number of satisfying assignments of all variables of this manager.
+	 * @param f The BDD
+	 * @return The number of models of <code>f</code>
+	 */
+	public BigInteger countModels(int f) {
+		checkNode(f);
+		BigInteger[] counts = new BigInteger[levels.length];
+		return count(f, counts).shiftLeft(levelOf(f) - 1);
+	}
+
+	/**
+	 * Returns a satisfying assignment of the given BDD.<br>
+	 * Variables not tested on the chosen path are set to false.
+	 * @param f The BDD
+	 * @return The model as DIMACS literals (index i contains the literal of variable i+1);<br>
+	 * <code>null</code> if the BDD is unsatisfiable.
+	 */
+	public int[] getModel(int f) {
+		checkNode(f);
+		if(f == FALSE)
+			return null;
+		int[] model = new int[variableCount];
+		for(int variable = 1; variable <= variableCount; variable++)
+			model[variable - 1] = -variable;
+		while(f > TRUE) {
+			if(lows[f] != FALSE) {
+				f = lows[f];
+			} else {
+				model[levels[f] - 1] = levels[f];
+				f = highs[f];
+			}
+		}
+		return model;
+	}
+
+	//-----IMPLEMENTATION--------------------------------------------------------------------------
+
+	private int apply(int op, int f, int g) {
+		switch(op) {
+		case OP_AND:
+			if(f == FALSE || g == FALSE)
+				return FALSE;
+			if(f == TRUE || f == g)
+				return g;
+			if(g == TRUE)
+				return f;
+			break;
+		case OP_OR:
+			if(f == TRUE || g == TRUE)
+				return TRUE;
+			if(f == FALSE || f == g)
+				return g;
+			if(g == FALSE)
+				return f;
+			break;
+		default:
+			if(f == g)
+				return FALSE;
+			if(f == FALSE)
+				return g;
+			if(g == FALSE)
+				return f;
+			if(f == TRUE)
+				return not0(g);
+			if(g == TRUE)
+				return not0(f);
+		}
+		if(f > g) {
+			int swap = f;
+			f = g;
+			g = swap;
+		}
+		int cached = cacheLookup(op, f, g, 0);
+		if(cached >= 0)
+			return cached;
+		int level = Math.min(levels[f], levels[g]);
+		int low = apply(op, levels[f] == level ? lows[f] : f, levels[g] == level ? lows[g] : g);
+		int high = apply(op, levels[f] == level ? highs[f] : f, levels[g] == level ? highs[g] : g);
+		int result = mk(level, low, high);
+		cacheStore(op, f, g, 0, result);
+		return result;
+	}
+
+	private int not0(int f) {
+		if(f <= TRUE)
+			return f ^ 1;
+		int cached = cacheLookup(OP_NOT, f, 0, 0);
+		if(cached >= 0)
+			return cached;
+		int low = not0(lows[f]);
+		int result = mk(levels[f], low, not0(highs[f]));
+		cacheStore(OP_NOT, f, 0, 0, result);
+		return result;
+	}
+
+	private int ite0(int f, int g, int h) {
+		if(f == TRUE || g == h)
+			return g;
+		if(f == FALSE)
+			return h;
+		if(g == TRUE && h == FALSE)
+			return f;
+		if(g == FALSE && h == TRUE)
+			return not0(f);
+		if(g == TRUE)
+			return apply(OP_OR, f, h);
+		if(h == FALSE)
+			return apply(OP_AND, f, g);
+		int cached = cacheLookup(OP_ITE, f, g, h);
+		if(cached >= 0)
+			return cached;
+		int level = Math.min(levels[f], Math.min(levels[g], levels[h]));
+		int low = ite0(levels[f] == level ? lows[f] : f, levels[g] == level ? lows[g] : g, levels[h] == level ? lows[h] : h);
+		int high = ite0(levels[f] == level ? highs[f] : f, levels[g] == level ? highs[g] : g, levels[h] == level ? highs[h] : h);
+		int result = mk(level, low, high);
+		cacheStore(OP_ITE, f, g, h, result);
+		return result;
+	}
+
+	private int quantify(int op, int f, int cube) {
+		while(cube > TRUE && levels[cube] < levels[f])
+			cube = highs[cube];
+		if(f <= TRUE || cube <= TRUE)
+			return f;
+		int cached = cacheLookup(op, f, cube, 0);
+		if(cached >= 0)
+			return cached;
+		int result;
+		if(levels[cube] == levels[f]) {
+			int low = quantify(op, lows[f], highs[cube]);
+			int high = quantify(op, highs[f], highs[cube]);
+			result = apply(op == OP_EXISTS ? OP_OR : OP_AND, low, high);
+		} else {
+			int low = quantify(op, lows[f], cube);
+			result = mk(levels[f], low, quantify(op, highs[f], cube));
+		}
+		cacheStore(op, f, cube, 0, result);
+		return result;
+	}
+
+	private int restrict0(int f, int variable, int value) {
+		if(levels[f] > variable)
+			return f;
+		if(levels[f] == variable)
+			return value == 1 ? highs[f] : lows[f];
+		int cached = cacheLookup(OP_RESTRICT, f, variable, value);
+		if(cached >= 0)
+			return cached;
+		int low = restrict0(lows[f], variable, value);
+		int result = mk(levels[f], low, restrict0(highs[f], variable, value));
+		cacheStore(OP_RESTRICT, f, variable, value, result);
+		return result;
+	}
+
+	private int buildCube(int[] variables) {
+		int[] sorted = variables.clone();
+		Arrays.sort(sorted);
+		int result = TRUE;
+		for(int i = sorted.length - 1; i >= 0; i--) {
+			if(sorted[i] < 1 || sorted[i] > variableCount)
+				throw new IllegalArgumentException("Unknown variable: " + sorted[i]);
+			result = mk(sorted[i], FALSE, result);
+		}
+		return result;
+	}
+
+	private BigInteger count(int f, BigInteger[] counts) {
+		if(f <= TRUE)
+			return f == TRUE ? BigInteger.ONE : BigInteger.ZERO;
+		if(counts[f] == null) {
+			int low = lows[f];
+			int high = highs[f];
+			counts[f] = count(low, counts).shiftLeft(levelOf(low) - levels[f] - 1)
+					.add(count(high, counts).shiftLeft(levelOf(high) - levels[f] - 1));
+		}
+		return counts[f];
+	}
+
+	private int levelOf(int f) {
+		return f <= TRUE ? variableCount + 1 : levels[f];
+	}
+
+	/**
+	 * Returns the node with the given variable and successors, creating it if necessary.
+	 */
+	private int mk(int level, int low, int high) {
+		if(low == high)
+			return low;
+		int bucket = hash(level, low, high) & (buckets.length - 1);
+		for(int node = buckets[bucket]; node != 0; node = nexts[node])
+			if(levels[node] == level && lows[node] == low && highs[node] == high)
+				return node;
+		if(freeList == 0) {
+			resize(2 * levels.length);
+			bucket = hash(level, low, high) & (buckets.length - 1);
+		}
+		int node = freeList;
+		freeList = nexts[node];
+		levels[node] = level;
+		lows[node] = low;
+		highs[node] = high;
+		refCounts[node] = 0;
+		nexts[node] = buckets[bucket];
+		buckets[bucket] = node;
+		nodeCount++;
+		return node;
+	}
+
+	private static int hash(int a, int b, int c) {
+		int h = a * 0x9E3779B1 ^ b * 0x85EBCA77 ^ c * 0xC2B2AE3D;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Grows the node table to the given capacity, rebuilds the unique table and clears the operation cache.
+	 */
+	private void resize(int capacity) {
+		int oldCapacity = levels.length;
+		levels = Arrays.copyOf(levels, capacity);
+		lows = Arrays.copyOf(lows, capacity);
+		highs = Arrays.copyOf(highs, capacity);
+		nexts = Arrays.copyOf(nexts, capacity);
+		refCounts = Arrays.copyOf(refCounts, capacity);
+		marks = Arrays.copyOf(marks, capacity);
+		for(int node = capacity - 1; node >= Math.max(oldCapacity, TRUE + 1); node--) {
+			levels[node] = FREE;
+			nexts[node] = freeList;
+			freeList = node;
+		}
+		buckets = new int[capacity];
+		for(int node = TRUE + 1; node < oldCapacity; node++) {
+			if(levels[node] == FREE)
+				continue;
+			int bucket = hash(levels[node], lows[node], highs[node]) & (capacity - 1);
+			nexts[node] = buckets[bucket];
+			buckets[bucket] = node;
+		}
+		int cacheSize = capacity / 2;
+		cacheOps = new int[cacheSize];
+		cacheFirst = new int[cacheSize];
+		cacheSecond = new int[cacheSize];
+		cacheThird = new int[cacheSize];
+		cacheResults = new int[cacheSize];
+	}
+
+	/**
+	 * Checks the operands and collects garbage if the node table is filled up to the threshold.
+	 */
+	private void beforeOperation(int... operands) {
+		for(int operand: operands)
+			checkNode(operand);
+		if(nodeCount < gcThreshold)
+			return;
+		collectGarbage(operands);
+		// Avoid collecting again soon if most nodes are alive.
+		gcThreshold = Math.max(gcThreshold, 2 * nodeCount);
+	}
+
+	private void collectGarbage(int[] roots) {
+		for(int node = TRUE + 1; node < levels.length; node++)
+			if(levels[node] != FREE && refCounts[node] > 0)
+				mark(node);
+		for(int root: roots)
+			mark(root);
+		Arrays.fill(buckets, 0);
+		freeList = 0;
+		nodeCount = 2;
+		for(int node = levels.length - 1; node > TRUE; node--) {
+			if(marks[node]) {
+				marks[node] = false;
+				int bucket = hash(levels[node], lows[node], highs[node]) & (buckets.length - 1);
+				nexts[node] = buckets[bucket];
+				buckets[bucket] = node;
+				nodeCount++;
+			} else {
+				levels[node] = FREE;
+				nexts[node] = freeList;
+				freeList = node;
+			}
+		}
+		Arrays.fill(cacheOps, 0);
+		gcCount++;
+	}
+
+	/**
+	 * Marks all non-terminal nodes reachable from the given node.
+	 * @return The number of newly marked nodes
+	 */
+	private int mark(int f) {
+		if(f <= TRUE || marks[f])
+			return 0;
+		marks[f] = true;
+		return 1 + mark(lows[f]) + mark(highs[f]);
+	}
+
+	private void unmark(int f) {
+		if(f <= TRUE || !marks[f])
+			return;
+		marks[f] = false;
+		unmark(lows[f]);
+		unmark(highs[f]);
+	}
+
+	private int cacheIndex(int op, int a, int b, int c) {
+		return (hash(a, b, c) ^ op * 0x27D4EB2F) & (cacheOps.length - 1);
+	}
+
+	private int cacheLookup(int op, int a, int b, int c) {
+		int index = cacheIndex(op, a, b, c);
+		if(cacheOps[index] == op + 1 && cacheFirst[index] == a && cacheSecond[index] == b && cacheThird[index] == c)
+			return cacheResults[index];
+		return -1;
+	}
+
+	private void cacheStore(int op, int a, int b, int c, int result) {
+		int index = cacheIndex(op, a, b, c);
+		cacheOps[index] = op + 1;
+		cacheFirst[index] = a;
+		cacheSecond[index] = b;
+		cacheThird[index] = c;
+		cacheResults[index] = result;
+	}
+
+	private void checkNode(int f) {
+		if(f < 0 || f >= levels.length || levels[f] == FREE)
+			throw new IllegalArgumentException("Invalid node: " + f);
+	}
+
+	private void checkInnerNode(int f) {
+		checkNode(f);
+		if(f <= TRUE)
+			throw new IllegalArgumentException("Terminal node: " + f);
+	}
+
+}
@@ -0,0 +1,996 @@
+package de.invation.code.toval.math.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Conflict-driven clause learning (CDCL) satisfiability solver over integer literals.<br>
+ * Variables are numbered from 1, literals are given in DIMACS notation
+ * (<code>v</code> for the positive and <code>-v</code> for the negative literal of variable v).<br>
+ * <br>
+ * The solver uses
+ * <ul>
+ * <li>two watched literals per clause for unit propagation,</li>
+ * <li>VSIDS branching (variable activities with exponential decay) and phase saving,</li>
+ * <li>first-UIP conflict analysis with clause minimization and non-chronological backtracking,</li>
+ * <li>activity-based deletion of learned clauses,</li>
+ * <li>restarts following the Luby sequence.</li>
+ * </ul>
+ * Running searches can be stopped from other threads with {@link #interrupt()}.<br>
+ * <br>
+ * The solver is incremental: clauses can be added between calls and learned clauses are kept.
+ * Solving under assumptions (see {@link #solve(int[])}) checks satisfiability with some literals fixed
+ * without adding them to the formula; in case of unsatisfiability, the responsible assumptions
+ * are available via {@link #getFailedAssumptions()}.
+ * For solving formulas over arbitrary items, see {@link SatSolver}.
+ *
+ * @author Thomas Stocker
+ */
+public class CDCLSolver {
+
+	private static final int UNDEFINED = 0;
+	private static final int TRUE = 1;
+	private static final int FALSE = -1;
+	private static final int[] NO_ASSUMPTIONS = new int[0];
+
+	/**
+	 * Factor by which variable activities decay after every conflict.
+	 */
+	private double variableDecay = 0.95;
+	/**
+	 * Factor by which activities of learned clauses decay after every conflict.
+	 */
+	private double clauseDecay = 0.999;
+	/**
+	 * Number of conflicts of the first restart interval (multiplied by the Luby sequence).
+	 */
+	private int restartBase = 100;
+	/**
+	 * Probability of choosing a random decision variable instead of the most active one.
+	 */
+	private double randomDecisionFrequency = 0.0;
+	private Random random = new Random(91648253);
+	/**
+	 * Polarity of the first decision on a variable (before phase saving applies).
+	 */
+	private boolean initialPhase = false;
+
+	private int variableCount = 0;
+	/**
+	 * Assignment per variable (index 0 is unused).
+	 */
+	private int[] values = new int[1];
+	private int[] levels = new int[1];
+	private SolverClause[] reasons = new SolverClause[1];
+	/**
+	 * Last assigned polarity per variable (phase saving).
+	 */
+	private boolean[] phases = new boolean[1];
+	private double[] activities = new double[1];
+	private boolean[] seen = new boolean[1];
+	/**
+	 * Literals of the last analyzed conflict before minimization.
+	 */
+	private int[] analyzed = new int[0];
+	/**
+	 * Watch lists per literal code; a clause is contained in the lists of its first two literals.
+	 */
+	private WatchList[] watches = new WatchList[2];
+
+	private int[] trail = new int[1];
+	private int trailSize = 0;
+	private int propagationHead = 0;
+	/**
+	 * Trail positions at which the decision levels start.
+	 */
+	private int[] trailLimits = new int[1];
+	private int decisionLevel = 0;
+
+	/**
+	 * Binary max-heap of unassigned variables ordered by activity.
+	 */
+	private int[] heap = new int[1];
+	private int heapSize = 0;
+	/**
+	 * Positions of variables within the heap (-1 if not contained).
+	 */
+	private int[] heapIndexes = new int[1];
+
+	private final List<SolverClause> clauses = new ArrayList<SolverClause>();
+	private final List<SolverClause> learnts = new ArrayList<SolverClause>();
+	private double maxLearnts = 0;
+	private double variableIncrement = 1.0;
+	private double clauseIncrement = 1.0;
+	/**
+	 * Indicates that the empty clause has been derived.
+	 */
+	private boolean inconsistent = false;
+	private boolean[] model = null;
+	/**
+	 * Literal codes of the assumptions of the running search, assumption i is decided on level i+1.
+	 */
+	private int[] assumptions = NO_ASSUMPTIONS;
+	/**
+	 * Assumptions (DIMACS literals) responsible for the last unsatisfiable result.
+	 */
+	private int[] failedAssumptions = NO_ASSUMPTIONS;
+	/**
+	 * Set by {@link #interrupt()}, reset when a search stops due to the interruption.
+	 */
+	private volatile boolean interrupted = false;
+	/**
+	 * Exchange of short learned clauses with other solvers on the same formula.
+	 */
+	private ClauseExchange exchange = null;
+	private int exchangeMaxLength = 0;
+
+	private long conflicts = 0;
+	private long decisions = 0;
+	private long propagations = 0;
+
+	/**
+	 * Creates a new solver without variables and clauses.
+	 */
+	public CDCLSolver() {
+		heapIndexes[0] = -1;
+	}
+
+	//-----CONFIGURATION--------------------------------------------------------------------------
+
+	public void setVariableDecay(double variableDecay) {
+		if(variableDecay <= 0 || variableDecay >= 1)
+			throw new IllegalArgumentException("Decay must be in (0,1)");
+		this.variableDecay = variableDecay;
+	}
+
+	public void setClauseDecay(double clauseDecay) {
+		if(clauseDecay <= 0 || clauseDecay >= 1)
+			throw new IllegalArgumentException("Decay must be in (0,1)");
+		this.clauseDecay = clauseDecay;
+	}
+
+	public void setRestartBase(int restartBase) {
+		if(restartBase < 1)
+			throw new IllegalArgumentException("Restart base must be positive");
+		this.restartBase = restartBase;
+	}
+
+	public void setRandomDecisionFrequency(double randomDecisionFrequency) {
+		if(randomDecisionFrequency < 0 || randomDecisionFrequency > 1)
+			throw new IllegalArgumentException("Frequency must be in [0,1]");
+		this.randomDecisionFrequency = randomDecisionFrequency;
+	}
+
+	public void setSeed(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Sets the polarity which is chosen on the first decision on a variable.<br>
+	 * Only affects variables which are created afterwards.
+	 * @param initialPhase <code>true</code> for deciding on positive literals first
+	 */
+	public void setInitialPhase(boolean initialPhase) {
+		this.initialPhase = initialPhase;
+	}
+
+	/**
+	 * Sets the exchange for short learned clauses.<br>
+	 * Learned clauses with at most <code>maxLength</code> literals are exported,
+	 * clauses of the exchange are imported on every restart.
+	 * All solvers using the same exchange must work on equivalent formulas.
+	 * @param exchange The clause exchange (<code>null</code> to disable exchange)
+	 * @param maxLength Maximum length of exported clauses
+	 */
+	void setClauseExchange(ClauseExchange exchange, int maxLength) {
+		this.exchange = exchange;
+		this.exchangeMaxLength = maxLength;
+	}
+
+	//-----VARIABLES AND CLAUSES--------------------------------------------------------------------------
+
+	public int getVariableCount() {
+		return variableCount;
+	}
+
+	public int getClauseCount() {
+		return clauses.size();
+	}
+
+	public int getLearntCount() {
+		return learnts.size();
+	}
+
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	public long getDecisions() {
+		return decisions;
+	}
+
+	public long getPropagations() {
+		return propagations;
+	}
+
+	/**
+	 * Adds a new variable.
+	 * @return The number of the new variable
+	 */
+	public int newVariable() {
+		ensureVariables(variableCount + 1);
+		return variableCount;
+	}
+
+	/**
+	 * Makes sure that the solver has at least the given number of variables.
+	 * @param count Number of variables
+	 */
+	public void ensureVariables(int count) {
+		if(count <= variableCount)
+			return;
+		if(count >= values.length) {
+			int capacity = Math.max(count + 1, values.length * 2);
+			values = Arrays.copyOf(values, capacity);
+			levels = Arrays.copyOf(levels, capacity);
+			reasons = Arrays.copyOf(reasons, capacity);
+			phases = Arrays.copyOf(phases, capacity);
+			activities = Arrays.copyOf(activities, capacity);
+			seen = Arrays.copyOf(seen, capacity);
+			watches = Arrays.copyOf(watches, 2 * capacity);
+			trail = Arrays.copyOf(trail, capacity);
+			trailLimits = Arrays.copyOf(trailLimits, Math.max(capacity, trailLimits.length));
+			heap = Arrays.copyOf(heap, capacity);
+			int oldLength = heapIndexes.length;
+			heapIndexes = Arrays.copyOf(heapIndexes, capacity);
+			Arrays.fill(heapIndexes, oldLength, capacity, -1);
+		}
+		while(variableCount < count) {
+			variableCount++;
+			phases[variableCount] = initialPhase;
+			watches[2 * variableCount] = new WatchList();
+			watches[2 * variableCount + 1] = new WatchList();
+			heapInsert(variableCount);
+		}
+	}
+
+	/**
+	 * Adds a clause given as DIMACS literals.<br>
+	 * Missing variables are created. Duplicate literals are removed, tautologies are ignored.
+	 * @param literals Literals of the clause
+	 * @return <code>false</code> if the formula is known to be unsatisfiable after adding the clause;<br>
+	 * <code>true</code> otherwise.
+	 */
+	public boolean addClause(int... literals) {
+		return addClause(literals, 0, literals.length);
+	}
+
+	/**
+	 * Adds a clause consisting of a range of the given DIMACS literals.<br>
+	 * Missing variables are created. Duplicate literals are removed, tautologies are ignored.
+	 * @param literals Array containing the literals of the clause
+	 * @param offset Start position of the clause within the array
+	 * @param length Number of literals
+	 * @return <code>false</code> if the formula is known to be unsatisfiable after adding the clause;<br>
+	 * <code>true</code> otherwise.
+	 */
+	public boolean addClause(int[] literals, int offset, int length) {
+		return addClause(literals, offset, length, false);
+	}
+
+	private boolean addClause(int[] literals, int offset, int length, boolean learnt) {
+		cancelUntil(0);
+		if(inconsistent)
+			return false;
+		int[] codes = new int[length];
+		int maxVariable = 0;
+		for(int i = 0; i < length; i++) {
+			int literal = literals[offset + i];
+			if(literal == 0)
+				throw new IllegalArgumentException("0 is not a valid literal");
+			codes[i] = code(literal);
+			maxVariable = Math.max(maxVariable, Math.abs(literal));
+		}
+		ensureVariables(maxVariable);
+		Arrays.sort(codes);
+		int size = 0;
+		int previous = -1;
+		for(int code: codes) {
+			int value = literalValue(code);
+			if(value == TRUE || code == (previous ^ 1))
+				return true;
+			if(value == FALSE || code == previous)
+				continue;
+			codes[size++] = code;
+			previous = code;
+		}
+		if(size == 0) {
+			inconsistent = true;
+			return false;
+		}
+		if(size == 1) {
+			enqueue(codes[0], null);
+			if(propagate() != null)
+				inconsistent = true;
+			return !inconsistent;
+		}
+		SolverClause clause = new SolverClause(Arrays.copyOf(codes, size), learnt);
+		attach(clause);
+		if(learnt) {
+			learnts.add(clause);
+			bumpClause(clause);
+		} else {
+			clauses.add(clause);
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the empty clause has been derived, i.e. the formula is unsatisfiable regardless of further clauses.
+	 * @return <code>true</code> if the formula is unsatisfiable;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isInconsistent() {
+		return inconsistent;
+	}
+
+	//-----SOLVING--------------------------------------------------------------------------
+
+	/**
+	 * Checks if the conjunction of all added clauses is satisfiable.<br>
+	 * If so, the satisfying assignment is available via {@link #getModel()}.
+	 * @return <code>true</code> if the formula is satisfiable;<br>
+	 * <code>false</code> otherwise.
+	 * @throws CancellationException if the search has been interrupted
+	 */
+	public boolean solve() {
+		Boolean result = solve(Long.MAX_VALUE);
+		if(result == null)
+			throw new CancellationException("Solver interrupted");
+		return result;
+	}
+
+	/**
+	 * Checks if the conjunction of all added clauses is satisfiable,
+	 * giving up after the given number of conflicts or on {@link #interrupt()}.<br>
+	 * If the formula is satisfiable, the satisfying assignment is available via {@link #getModel()}.
+	 * Learned clauses are kept, so the search can be continued with another call.
+	 * @param conflictLimit Maximum number of conflicts
+	 * @return <code>true</code> if the formula is satisfiable;<br>
+	 * <code>false</code> if it is unsatisfiable;<br>
+	 * <code>null</code> if the conflict limit has been reached or the search has been interrupted.
+	 */
+	public Boolean solve(long conflictLimit) {
+		return solve(NO_ASSUMPTIONS, conflictLimit);
+	}
+
+	/**
+	 * Checks if the conjunction of all added clauses is satisfiable when all given literals are true.<br>
+	 * The assumptions are not added to the formula, learned clauses are kept for later calls.
+	 * If the formula is satisfiable, the satisfying assignment is available via {@link #getModel()},
+	 * otherwise the responsible assumptions are available via {@link #getFailedAssumptions()}.
+	 * @param assumptions DIMACS literals which are assumed to be true
+	 * @return <code>true</code> if the formula is satisfiable under the assumptions;<br>
+	 * <code>false</code> otherwise.
+	 * @throws CancellationException if the search has been interrupted
+	 */
+	public boolean solve(int[] assumptions) {
+		Boolean result = solve(assumptions, Long.MAX_VALUE);
+		if(result == null)
+			throw new CancellationException("Solver interrupted");
+		return result;
+	}
+
+	/**
+	 * Checks if the conjunction of all added clauses is satisfiable when all given literals are true,
+	 * giving up after the given number of conflicts or on {@link #interrupt()}.
+	 * @param assumptions DIMACS literals which are assumed to be true
+	 * @param conflictLimit Maximum number of conflicts
+	 * @return <code>true</code> if the formula is satisfiable under the assumptions;<br>
+	 * <code>false</code> if it is unsatisfiable under the assumptions;<br>
+	 * <code>null</code> if the conflict limit has been reached or the search has been interrupted.
+	 * @see #solve(int[])
+	 */
+	public Boolean solve(int[] assumptions, long conflictLimit) {
+		model = null;
+		failedAssumptions = NO_ASSUMPTIONS;
+		cancelUntil(0);
+		if(inconsistent)
+			return false;
+		int[] codes = new int[assumptions.length];
+		int maxVariable = 0;
+		for(int i = 0; i < assumptions.length; i++) {
+			if(assumptions[i] == 0)
+				throw new IllegalArgumentException("0 is not a valid literal");
+			codes[i] = code(assumptions[i]);
+			maxVariable = Math.max(maxVariable, Math.abs(assumptions[i]));
+		}
+		ensureVariables(maxVariable);
+		// Assumptions which are already satisfied occupy empty decision levels.
+		if(trailLimits.length < values.length + codes.length)
+			trailLimits = Arrays.copyOf(trailLimits, values.length + codes.length);
+		this.assumptions = codes;
+		try {
+			return solveLimited(conflictLimit);
+		} finally {
+			this.assumptions = NO_ASSUMPTIONS;
+		}
+	}
+
+	private Boolean solveLimited(long conflictLimit) {
+		if(propagate() != null) {
+			inconsistent = true;
+			return false;
+		}
+		maxLearnts = Math.max(clauses.size() / 3.0, 1000);
+		long conflictStart = conflicts;
+		for(int restarts = 0;; restarts++) {
+			if(interrupted) {
+				interrupted = false;
+				return null;
+			}
+			if(exchange != null && !importClauses())
+				return false;
+			long remaining = conflictLimit - (conflicts - conflictStart);
+			if(remaining <= 0)
+				return null;
+			int result = search(Math.min(luby(restarts) * restartBase, remaining));
+			if(result != UNDEFINED)
+				return result == TRUE;
+		}
+	}
+
+	/**
+	 * Stops a running search as soon as possible.<br>
+	 * Can be called from any thread. If no search is running, the next search stops immediately.
+	 */
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	/**
+	 * Returns the assumptions which caused the last call of {@link #solve(int[])} to fail.<br>
+	 * The formula is unsatisfiable when all returned literals are true.
+	 * @return A subset of the assumptions of the last call (DIMACS literals);<br>
+	 * an empty array if the last call succeeded or the formula is unsatisfiable without assumptions.
+	 */
+	public int[] getFailedAssumptions() {
+		return failedAssumptions.clone();
+	}
+
+	/**
+	 * Returns the satisfying assignment found by the last call of {@link #solve()}.
+	 * @return The model as DIMACS literals (index i contains the literal of variable i+1);<br>
+	 * <code>null</code> if no model is available.
+	 */
+	public int[] getModel() {
+		if(model == null)
+			return null;
+		int[] result = new int[model.length - 1];
+		for(int variable = 1; variable < model.length; variable++)
+			result[variable - 1] = model[variable] ? variable : -variable;
+		return result;
+	}
+
+	/**
+	 * Returns the value of the given variable within the model found by the last call of {@link #solve()}.
+	 * @param variable The variable
+	 * @return The value of the variable
+	 * @throws IllegalStateException if no model is available
+	 */
+	public boolean getModelValue(int variable) {
+		if(model == null)
+			throw new IllegalStateException("No model available");
+		if(variable < 1 || variable >= model.length)
+			throw new IllegalArgumentException("Unknown variable: " + variable);
+		return model[variable];
+	}
+
+	/**
+	 * Searches for a model until the given number of conflicts occurred.
+	 * @param conflictBudget Maximum number of conflicts
+	 * @return {@link #TRUE} if a model was found, {@link #FALSE} if the formula is unsatisfiable,
+	 * {@link #UNDEFINED} if the budget is exceeded.
+	 */
+	private int search(long conflictBudget) {
+		long conflictCount = 0;
+		int[] learnt = new int[variableCount + 1];
+		while(true) {
+			SolverClause conflict = propagate();
+			if(conflict != null) {
+				conflicts++;
+				conflictCount++;
+				if(decisionLevel == 0) {
+					inconsistent = true;
+					return FALSE;
+				}
+				int size = analyze(conflict, learnt);
+				int backtrackLevel = size == 1 ? 0 : levels[learnt[1] >> 1];
+				cancelUntil(backtrackLevel);
+				if(size == 1) {
+					enqueue(learnt[0], null);
+				} else {
+					SolverClause clause = new SolverClause(Arrays.copyOf(learnt, size), true);
+					attach(clause);
+					learnts.add(clause);
+					bumpClause(clause);
+					enqueue(learnt[0], clause);
+				}
+				if(exchange != null && size <= exchangeMaxLength)
+					exportClause(learnt, size);
+				variableIncrement /= variableDecay;
+				clauseIncrement /= clauseDecay;
+			} else {
+				if(conflictCount >= conflictBudget || interrupted) {
+					cancelUntil(0);
+					return UNDEFINED;
+				}
+				if(learnts.size() - trailSize >= maxLearnts)
+					reduceLearnts();
+				int next = -1;
+				while(decisionLevel < assumptions.length) {
+					int assumption = assumptions[decisionLevel];
+					int value = literalValue(assumption);
+					if(value == TRUE) {
+						trailLimits[decisionLevel++] = trailSize;
+					} else if(value == FALSE) {
+						analyzeFinal(assumption);
+						cancelUntil(0);
+						return FALSE;
+					} else {
+						next = assumption;
+						break;
+					}
+				}
+				if(next < 0)
+					next = pickBranchLiteral();
+				if(next < 0) {
+					model = new boolean[variableCount + 1];
+					for(int variable = 1; variable <= variableCount; variable++)
+						model[variable] = values[variable] == TRUE;
+					cancelUntil(0);
+					return TRUE;
+				}
+				decisions++;
+				trailLimits[decisionLevel++] = trailSize;
+				enqueue(next, null);
+			}
+		}
+	}
+
+	private void exportClause(int[] codes, int size) {
+		int[] clause = new int[size];
+		for(int i = 0; i < size; i++)
+			clause[i] = literal(codes[i]);
+		exchange.export(clause);
+	}
+
+	/**
+	 * Adds all clauses received from the clause exchange as learned clauses.
+	 * @return <code>false</code> if the formula turned out to be unsatisfiable;<br>
+	 * <code>true</code> otherwise.
+	 */
+	private boolean importClauses() {
+		for(int[] clause: exchange.collect())
+			if(!addClause(clause, 0, clause.length, true))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Performs unit propagation of all enqueued assignments.
+	 * @return The conflicting clause;<br>
+	 * <code>null</code> if there is no conflict.
+	 */
+	private SolverClause propagate() {
+		SolverClause conflict = null;
+		while(propagationHead < trailSize) {
+			int falseLiteral = trail[propagationHead++] ^ 1;
+			WatchList watchList = watches[falseLiteral];
+			SolverClause[] list = watchList.clauses;
+			int size = watchList.size;
+			int i = 0;
+			int j = 0;
+			propagations++;
+			while(i < size) {
+				SolverClause clause = list[i++];
+				if(clause.deleted)
+					continue;
+				int[] literals = clause.literals;
+				if(literals[0] == falseLiteral) {
+					literals[0] = literals[1];
+					literals[1] = falseLiteral;
+				}
+				int first = literals[0];
+				if(literalValue(first) == TRUE) {
+					list[j++] = clause;
+					continue;
+				}
+				boolean foundWatch = false;
+				for(int k = 2; k < literals.length; k++) {
+					if(literalValue(literals[k]) != FALSE) {
+						literals[1] = literals[k];
+						literals[k] = falseLiteral;
+						watches[literals[1]].add(clause);
+						foundWatch = true;
+						break;
+					}
+				}
+				if(foundWatch)
+					continue;
+				list[j++] = clause;
+				if(literalValue(first) == FALSE) {
+					conflict = clause;
+					propagationHead = trailSize;
+					while(i < size)
+						list[j++] = list[i++];
+				} else {
+					enqueue(first, clause);
+				}
+			}
+			watchList.size = j;
+		}
+		return conflict;
+	}
+
+	/**
+	 * Analyzes the given conflict and determines a first-UIP clause.<br>
+	 * The asserting literal is placed at position 0, a literal of the backtrack level at position 1.
+	 * @param conflict The conflicting clause
+	 * @param learnt Target array for the learned clause
+	 * @return The size of the learned clause
+	 */
+	private int analyze(SolverClause conflict, int[] learnt) {
+		int size = 1;
+		int pathCount = 0;
+		int literal = -1;
+		int index = trailSize - 1;
+		SolverClause clause = conflict;
+		do {
+			if(clause.learnt)
+				bumpClause(clause);
+			int[] literals = clause.literals;
+			for(int k = literal < 0 ? 0 : 1; k < literals.length; k++) {
+				int q = literals[k];
+				int variable = q >> 1;
+				if(!seen[variable] && levels[variable] > 0) {
+					bumpVariable(variable);
+					seen[variable] = true;
+					if(levels[variable] >= decisionLevel) {
+						pathCount++;
+					} else {
+						learnt[size++] = q;
+					}
+				}
+			}
+			while(!seen[trail[index] >> 1])
+				index--;
+			literal = trail[index--];
+			clause = reasons[literal >> 1];
+			seen[literal >> 1] = false;
+			pathCount--;
+		} while(pathCount > 0);
+		learnt[0] = literal ^ 1;
+
+		// Remove literals whose reasons only contain literals of the clause (local minimization)
+		int analyzedSize = size;
+		if(analyzed.length < size)
+			analyzed = new int[learnt.length];
+		System.arraycopy(learnt, 0, analyzed, 0, size);
+		int newSize = 1;
+		for(int k = 1; k < size; k++) {
+			SolverClause reason = reasons[learnt[k] >> 1];
+			boolean redundant = reason != null;
+			if(redundant) {
+				for(int r = 1; r < reason.literals.length; r++) {
+					int variable = reason.literals[r] >> 1;
+					if(!seen[variable] && levels[variable] > 0) {
+						redundant = false;
+						break;
+					}
+				}
+			}
+			if(!redundant)
+				learnt[newSize++] = learnt[k];
+		}
+		for(int k = 1; k < analyzedSize; k++)
+			seen[analyzed[k] >> 1] = false;
+		size = newSize;
+
+		if(size > 1) {
+			int maxIndex = 1;
+			for(int k = 2; k < size; k++)
+				if(levels[learnt[k] >> 1] > levels[learnt[maxIndex] >> 1])
+					maxIndex = k;
+			int swap = learnt[1];
+			learnt[1] = learnt[maxIndex];
+			learnt[maxIndex] = swap;
+		}
+		return size;
+	}
+
+	/**
+	 * Determines the assumptions which imply the negation of the given falsified assumption.
+	 * @param assumption Code of the falsified assumption
+	 */
+	private void analyzeFinal(int assumption) {
+		int[] failed = new int[assumptions.length + 1];
+		int size = 0;
+		failed[size++] = literal(assumption);
+		int variable = assumption >> 1;
+		if(levels[variable] > 0) {
+			seen[variable] = true;
+			for(int i = trailSize - 1; i >= trailLimits[0]; i--) {
+				int current = trail[i] >> 1;
+				if(!seen[current])
+					continue;
+				SolverClause reason = reasons[current];
+				if(reason == null) {
+					failed[size++] = literal(trail[i]);
+				} else {
+					for(int k = 1; k < reason.literals.length; k++)
+						if(levels[reason.literals[k] >> 1] > 0)
+							seen[reason.literals[k] >> 1] = true;
+				}
+				seen[current] = false;
+			}
+		}
+		failedAssumptions = Arrays.copyOf(failed, size);
+	}
+
+	private int pickBranchLiteral() {
+		int variable = 0;
+		if(randomDecisionFrequency > 0 && heapSize > 0 && random.nextDouble() < randomDecisionFrequency) {
+			int candidate = heap[random.nextInt(heapSize)];
+			if(values[candidate] == UNDEFINED)
+				variable = candidate;
+		}
+		while(variable == 0) {
+			if(heapSize == 0)
+				return -1;
+			int candidate = heapRemoveMax();
+			if(values[candidate] == UNDEFINED)
+				variable = candidate;
+		}
+		return phases[variable] ? 2 * variable : 2 * variable + 1;
+	}
+
+	/**
+	 * Removes the less active half of all learned clauses which are not reasons for current assignments.
+	 */
+	private void reduceLearnts() {
+		final double limit = clauseIncrement / learnts.size();
+		Collections.sort(learnts, new Comparator<SolverClause>() {
+			@Override
+			public int compare(SolverClause c1, SolverClause c2) {
+				if(c1.literals.length == 2 && c2.literals.length > 2)
+					return 1;
+				if(c2.literals.length == 2 && c1.literals.length > 2)
+					return -1;
+				return Double.compare(c1.activity, c2.activity);
+			}
+		});
+		int kept = 0;
+		for(int i = 0; i < learnts.size(); i++) {
+			SolverClause clause = learnts.get(i);
+			if(clause.literals.length > 2 && !isLocked(clause) && (i < learnts.size() / 2 || clause.activity < limit)) {
+				clause.deleted = true;
+			} else {
+				learnts.set(kept++, clause);
+			}
+		}
+		learnts.subList(kept, learnts.size()).clear();
+		for(int code = 2; code < 2 * (variableCount + 1); code++)
+			watches[code].removeDeleted();
+		maxLearnts *= 1.1;
+	}
+
+	private boolean isLocked(SolverClause clause) {
+		int first = clause.literals[0];
+		return reasons[first >> 1] == clause && literalValue(first) == TRUE;
+	}
+
+	//-----ASSIGNMENTS--------------------------------------------------------------------------
+
+	private static int code(int literal) {
+		return literal > 0 ? 2 * literal : -2 * literal + 1;
+	}
+
+	private static int literal(int code) {
+		return (code & 1) == 0 ? code >> 1 : -(code >> 1);
+	}
+
+	private int literalValue(int code) {
+		int value = values[code >> 1];
+		return (code & 1) == 0 ? value : -value;
+	}
+
+	private void enqueue(int code, SolverClause reason) {
+		int variable = code >> 1;
+		values[variable] = (code & 1) == 0 ? TRUE : FALSE;
+		levels[variable] = decisionLevel;
+		reasons[variable] = reason;
+		trail[trailSize++] = code;
+	}
+
+	private void cancelUntil(int level) {
+		if(decisionLevel <= level)
+			return;
+		for(int i = trailSize - 1; i >= trailLimits[level]; i--) {
+			int variable = trail[i] >> 1;
+			phases[variable] = values[variable] == TRUE;
+			values[variable] = UNDEFINED;
+			reasons[variable] = null;
+			if(heapIndexes[variable] < 0)
+				heapInsert(variable);
+		}
+		trailSize = trailLimits[level];
+		propagationHead = trailSize;
+		decisionLevel = level;
+	}
+
+	private void attach(SolverClause clause) {
+		watches[clause.literals[0]].add(clause);
+		watches[clause.literals[1]].add(clause);
+	}
+
+	//-----ACTIVITIES--------------------------------------------------------------------------
+
+	private void bumpVariable(int variable) {
+		activities[variable] += variableIncrement;
+		if(activities[variable] > 1e100) {
+			for(int v = 1; v <= variableCount; v++)
+				activities[v] *= 1e-100;
+			variableIncrement *= 1e-100;
+		}
+		if(heapIndexes[variable] >= 0)
+			heapUp(heapIndexes[variable]);
+	}
+
+	private void bumpClause(SolverClause clause) {
+		clause.activity += clauseIncrement;
+		if(clause.activity > 1e20) {
+			for(SolverClause learnt: learnts)
+				learnt.activity *= 1e-20;
+			clauseIncrement *= 1e-20;
+		}
+	}
+
+	private void heapInsert(int variable) {
+		heapIndexes[variable] = heapSize;
+		heap[heapSize++] = variable;
+		heapUp(heapSize - 1);
+	}
+
+	private int heapRemoveMax() {
+		int max = heap[0];
+		heapIndexes[max] = -1;
+		heapSize--;
+		if(heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndexes[heap[0]] = 0;
+			heapDown(0);
+		}
+		return max;
+	}
+
+	private void heapUp(int position) {
+		int variable = heap[position];
+		while(position > 0) {
+			int parent = (position - 1) >> 1;
+			if(activities[heap[parent]] >= activities[variable])
+				break;
+			heap[position] = heap[parent];
+			heapIndexes[heap[position]] = position;
+			position = parent;
+		}
+		heap[position] = variable;
+		heapIndexes[variable] = position;
+	}
+
+	private void heapDown(int position) {
+		int variable = heap[position];
+		while(true) {
+			int child = 2 * position + 1;
+			if(child >= heapSize)
+				break;
+			if(child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]])
+				child++;
+			if(activities[heap[child]] <= activities[variable])
+				break;
+			heap[position] = heap[child];
+			heapIndexes[heap[position]] = position;
+			position = child;
+		}
+		heap[position] = variable;
+		heapIndexes[variable] = position;
+	}
+
+	/**
+	 * Returns the i-th element of the Luby sequence (1,1,2,1,1,2,4,1,...).
+	 * @param i Index within the sequence (starting at 0)
+	 * @return The i-th element of the Luby sequence
+	 */
+	static long luby(int i) {
+		int size = 1;
+		int sequence = 0;
+		while(size < i + 1) {
+			sequence++;
+			size = 2 * size + 1;
+		}
+		while(size - 1 != i) {
+			size = (size - 1) >> 1;
+			sequence--;
+			i = i % size;
+		}
+		return 1L << sequence;
+	}
+
+	/**
+	 * Exchange of learned clauses between solvers working on equivalent formulas.<br>
+	 * Clauses are given as DIMACS literals.
+	 */
+	interface ClauseExchange {
+
+		/**
+		 * Publishes a learned clause.
+		 * @param clause DIMACS literals of the clause (not changed afterwards)
+		 */
+		void export(int[] clause);
+
+		/**
+		 * Returns all clauses published by other solvers since the last call.
+		 * @return The new clauses
+		 */
+		List<int[]> collect();
+
+	}
+
+	/**
+	 * Clause within the solver, literals are encoded as 2*variable (+1 if negated).
+	 */
+	private static class SolverClause {
+
+		private final int[] literals;
+		private final boolean learnt;
+		private double activity = 0;
+		private boolean deleted = false;
+
+		private SolverClause(int[] literals, boolean learnt) {
+			this.literals = literals;
+			this.learnt = learnt;
+		}
+
+	}
+
+	/**
+	 * Growable array of clauses watching a literal.
+	 */
+	private static class WatchList {
+
+		private SolverClause[] clauses = new SolverClause[4];
+		private int size = 0;
+
+		private void add(SolverClause clause) {
+			if(size == clauses.length)
+				clauses = Arrays.copyOf(clauses, size * 2);
+			clauses[size++] = clause;
+		}
+
+		private void removeDeleted() {
+			int j = 0;
+			for(int i = 0; i < size; i++)
+				if(!clauses[i].deleted)
+					clauses[j++] = clauses[i];
+			Arrays.fill(clauses, j, size, null);
+			size = j;
+		}
+
+	}
+
+}
@@ -92,6 +92,18 @@ public class Clause extends HashList<Literal> implements Comparator<Clause>{
 		return true;
 	}
 	
+	/**
+	 * Returns a hash code which is consistent with {@link #equals(Object)},
+	 * i.e. independent of the element order.
+	 */
+	@Override
+	public int hashCode() {
+		int h = 0;
+		for(int i=0; i<size(); i++)
+			h += get(i).hashCode();
+		return h;
+	}
+	
 	public String toString(){
 		if(isEmpty()){
 			return "{}";
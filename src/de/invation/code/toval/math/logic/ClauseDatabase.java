@@ -0,0 +1,387 @@
+package de.invation.code.toval.math.logic;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.invation.code.toval.types.ObjectIntMap;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Compact clause storage based on DIMACS literals.<br>
+ * Literals are stored as signed integers (negative for negated variables) in one flat arena,
+ * the clauses are delimited by an offset table.
+ * In contrast to {@link ClauseSet}, no objects are created per clause or literal,
+ * so memory consumption is about 4 bytes per literal and 4 bytes per clause.<br>
+ * <br>
+ * Clauses are stored as given, i.e. neither duplicate literals nor duplicate clauses are removed.
+ * They can either be added as a whole ({@link #addClause(int...)})
+ * or literal by literal ({@link #addLiteral(int)}, {@link #endClause()}).
+ * Methods operating on complete clauses discard the literals of a clause which has not been ended.
+ *
+ * @author Thomas Stocker
+ */
+public class ClauseDatabase {
+
+	private static final int DEFAULT_CLAUSE_CAPACITY = 16;
+	private static final int DEFAULT_LITERAL_CAPACITY = 64;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Literals of all clauses, including the literals of the currently open clause.
+	 */
+	private int[] literals;
+	/**
+	 * Start positions of the clauses within the literal arena.<br>
+	 * The end position of clause <code>i</code> is <code>offsets[i+1]</code>.
+	 */
+	private int[] offsets;
+	private int clauseCount = 0;
+	private int literalCount = 0;
+	private int variableCount = 0;
+
+	/**
+	 * Creates a new empty clause database.
+	 */
+	public ClauseDatabase() {
+		this(DEFAULT_CLAUSE_CAPACITY, DEFAULT_LITERAL_CAPACITY);
+	}
+
+	/**
+	 * Creates a new empty clause database with the given initial capacities.
+	 * @param clauseCapacity Expected number of clauses
+	 * @param literalCapacity Expected total number of literals
+	 */
+	public ClauseDatabase(int clauseCapacity, int literalCapacity) {
+		Validate.notNegative(clauseCapacity);
+		Validate.notNegative(literalCapacity);
+		literals = new int[literalCapacity];
+		offsets = new int[clauseCapacity + 1];
+	}
+
+	//-----GETTER--------------------------------------------------------------------------
+
+	/**
+	 * Returns the number of (completed) clauses.
+	 * @return The number of clauses
+	 */
+	public int size() {
+		return clauseCount;
+	}
+
+	public boolean isEmpty() {
+		return clauseCount == 0;
+	}
+
+	/**
+	 * Returns the total number of literals of all (completed) clauses.
+	 * @return The number of literals
+	 */
+	public int getLiteralCount() {
+		return offsets[clauseCount];
+	}
+
+	/**
+	 * Returns the highest variable occurring in any clause.
+	 * @return The number of variables
+	 */
+	public int getVariableCount() {
+		return variableCount;
+	}
+
+	/**
+	 * Returns the number of literals of the given clause.
+	 * @param clause Index of the clause
+	 * @return The length of the clause
+	 */
+	public int getClauseLength(int clause) {
+		checkClauseIndex(clause);
+		return offsets[clause + 1] - offsets[clause];
+	}
+
+	/**
+	 * Returns a literal of the given clause.
+	 * @param clause Index of the clause
+	 * @param position Position of the literal within the clause
+	 * @return The DIMACS literal
+	 */
+	public int getLiteral(int clause, int position) {
+		checkClauseIndex(clause);
+		if(position < 0 || position >= offsets[clause + 1] - offsets[clause])
+			throw new IndexOutOfBoundsException("Position: " + position + ", Length: " + (offsets[clause + 1] - offsets[clause]));
+		return literals[offsets[clause] + position];
+	}
+
+	/**
+	 * Returns the literals of the given clause.
+	 * @param clause Index of the clause
+	 * @return A new array containing the DIMACS literals of the clause
+	 */
+	public int[] getClause(int clause) {
+		checkClauseIndex(clause);
+		return Arrays.copyOfRange(literals, offsets[clause], offsets[clause + 1]);
+	}
+
+	/**
+	 * Copies the literals of the given clause into the given array.
+	 * @param clause Index of the clause
+	 * @param destination Array to copy the literals to
+	 * @param offset Start position within the destination array
+	 * @return The length of the clause
+	 */
+	public int copyClause(int clause, int[] destination, int offset) {
+		checkClauseIndex(clause);
+		int length = offsets[clause + 1] - offsets[clause];
+		System.arraycopy(literals, offsets[clause], destination, offset, length);
+		return length;
+	}
+
+	/**
+	 * Returns the start position of the given clause within the literal arena (see {@link #getLiterals()}).
+	 * @param clause Index of the clause (<code>size()</code> denotes the end of the last clause)
+	 * @return The start position of the clause
+	 */
+	public int getOffset(int clause) {
+		if(clause < 0 || clause > clauseCount)
+			throw new IndexOutOfBoundsException("Index: " + clause + ", Size: " + clauseCount);
+		return offsets[clause];
+	}
+
+	/**
+	 * Returns the literal arena without copying.<br>
+	 * Only the positions below {@link #getLiteralCount()} are valid,
+	 * the array must not be changed and is replaced when the database grows.
+	 * @return The literal arena
+	 */
+	public int[] getLiterals() {
+		return literals;
+	}
+
+	private void checkClauseIndex(int clause) {
+		if(clause < 0 || clause >= clauseCount)
+			throw new IndexOutOfBoundsException("Index: " + clause + ", Size: " + clauseCount);
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds a literal to the currently open clause.
+	 * @param literal DIMACS literal (must not be 0)
+	 */
+	public void addLiteral(int literal) {
+		if(literal == 0 || literal == Integer.MIN_VALUE)
+			throw new IllegalArgumentException("Invalid literal: " + literal);
+		ensureLiteralCapacity(literalCount + 1);
+		literals[literalCount++] = literal;
+		int variable = Math.abs(literal);
+		if(variable > variableCount)
+			variableCount = variable;
+	}
+
+	/**
+	 * Completes the currently open clause.
+	 * @return The index of the completed clause
+	 */
+	public int endClause() {
+		if(clauseCount + 2 > offsets.length)
+			offsets = Arrays.copyOf(offsets, grow(offsets.length, clauseCount + 2));
+		offsets[++clauseCount] = literalCount;
+		return clauseCount - 1;
+	}
+
+	/**
+	 * Removes the literals of the currently open clause.
+	 */
+	public void discardClause() {
+		literalCount = offsets[clauseCount];
+	}
+
+	/**
+	 * Adds a clause.
+	 * @param clause DIMACS literals of the clause
+	 * @return The index of the added clause
+	 */
+	public int addClause(int... clause) {
+		return addClause(clause, 0, clause.length);
+	}
+
+	/**
+	 * Adds a clause consisting of a range of the given array.
+	 * @param clause Array containing the DIMACS literals of the clause
+	 * @param offset Start position of the clause within the array
+	 * @param length Number of literals
+	 * @return The index of the added clause
+	 */
+	public int addClause(int[] clause, int offset, int length) {
+		discardClause();
+		ensureLiteralCapacity(literalCount + length);
+		for(int i = offset; i < offset + length; i++)
+			addLiteral(clause[i]);
+		return endClause();
+	}
+
+	/**
+	 * Adds all clauses of the given database.
+	 * @param database The clauses to add
+	 */
+	public void addAll(ClauseDatabase database) {
+		discardClause();
+		int count = database.getLiteralCount();
+		ensureLiteralCapacity(literalCount + count);
+		System.arraycopy(database.literals, 0, literals, literalCount, count);
+		if(clauseCount + database.clauseCount + 1 > offsets.length)
+			offsets = Arrays.copyOf(offsets, grow(offsets.length, clauseCount + database.clauseCount + 1));
+		for(int i = 1; i <= database.clauseCount; i++)
+			offsets[clauseCount + i] = literalCount + database.offsets[i];
+		clauseCount += database.clauseCount;
+		literalCount += count;
+		variableCount = Math.max(variableCount, database.variableCount);
+	}
+
+	/**
+	 * Removes all clauses.
+	 */
+	public void clear() {
+		clauseCount = 0;
+		literalCount = 0;
+		variableCount = 0;
+	}
+
+	/**
+	 * Increases the capacity of the internal arrays, if necessary.
+	 * @param clauseCapacity Minimum number of clauses which can be stored without growing
+	 * @param literalCapacity Minimum number of literals which can be stored without growing
+	 */
+	public void ensureCapacity(int clauseCapacity, int literalCapacity) {
+		if(clauseCapacity + 1 > offsets.length)
+			offsets = Arrays.copyOf(offsets, grow(offsets.length, clauseCapacity + 1));
+		ensureLiteralCapacity(literalCapacity);
+	}
+
+	/**
+	 * Reduces the capacity of the internal arrays to the current size.
+	 */
+	public void trimToSize() {
+		discardClause();
+		literals = Arrays.copyOf(literals, literalCount);
+		offsets = Arrays.copyOf(offsets, clauseCount + 1);
+	}
+
+	private void ensureLiteralCapacity(int capacity) {
+		if(capacity > literals.length)
+			literals = Arrays.copyOf(literals, grow(literals.length, capacity));
+	}
+
+	private static int grow(int length, int minCapacity) {
+		if(minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE)
+			throw new OutOfMemoryError("Clause database exceeds the maximum array size");
+		long capacity = Math.max(minCapacity, length + (length >> 1) + 1L);
+		return (int) Math.min(capacity, MAX_ARRAY_SIZE);
+	}
+
+	//-----CONVERSION--------------------------------------------------------------------------
+
+	/**
+	 * Adds all clauses to the given solver.
+	 * @param solver The solver to add the clauses to
+	 * @return <code>false</code> if the formula is known to be unsatisfiable after adding the clauses;<br>
+	 * <code>true</code> otherwise.
+	 */
+	public boolean addTo(CDCLSolver solver) {
+		Validate.notNull(solver);
+		solver.ensureVariables(variableCount);
+		boolean result = true;
+		for(int i = 0; i < clauseCount; i++)
+			result &= solver.addClause(literals, offsets[i], offsets[i + 1] - offsets[i]);
+		return result;
+	}
+
+	/**
+	 * Creates a clause database for the given clause set.<br>
+	 * The items of the clause set are interned to variables with the given item list:
+	 * Item <code>items.get(v-1)</code> corresponds to variable <code>v</code>,
+	 * items which are not contained in the list are appended.
+	 * @param clauseSet The clause set to convert
+	 * @param items The item list (modified)
+	 * @return A clause database containing all clauses of the clause set
+	 */
+	public static ClauseDatabase fromClauseSet(ClauseSet clauseSet, List<Object> items) {
+		Validate.notNull(clauseSet);
+		Validate.notNull(items);
+		ObjectIntMap<Object> variables = new ObjectIntMap<Object>(items.size());
+		for(int i = 0; i < items.size(); i++)
+			variables.put(items.get(i), i + 1);
+		int literalCount = 0;
+		for(Clause clause: clauseSet)
+			literalCount += clause.size();
+		ClauseDatabase result = new ClauseDatabase(clauseSet.size(), literalCount);
+		for(Clause clause: clauseSet) {
+			for(Literal literal: clause) {
+				int variable = variables.get(literal.getItem());
+				if(variable == 0) {
+					items.add(literal.getItem());
+					variable = items.size();
+					variables.put(literal.getItem(), variable);
+				}
+				result.addLiteral(literal.isNegated() ? -variable : variable);
+			}
+			result.endClause();
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a clause set containing all clauses of this database.<br>
+	 * Variable <code>v</code> is represented by the item <code>items.get(v-1)</code>.
+	 * @param items Items of the variables
+	 * @return A clause set containing all clauses
+	 */
+	public ClauseSet toClauseSet(List<?> items) {
+		Validate.notNull(items);
+		if(items.size() < variableCount)
+			throw new IllegalArgumentException("Missing items for variables " + (items.size() + 1) + " to " + variableCount);
+		ClauseSet result = new ClauseSet();
+		for(int i = 0; i < clauseCount; i++) {
+			Clause clause = new Clause();
+			for(int j = offsets[i]; j < offsets[i + 1]; j++)
+				clause.add(new Literal(items.get(Math.abs(literals[j]) - 1), literals[j] > 0));
+			result.add(clause);
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a clause set containing all clauses of this database.<br>
+	 * Variables are represented by their (Integer) variable number.
+	 * @return A clause set containing all clauses
+	 */
+	public ClauseSet toClauseSet() {
+		ClauseSet result = new ClauseSet();
+		for(int i = 0; i < clauseCount; i++) {
+			Clause clause = new Clause();
+			for(int j = offsets[i]; j < offsets[i + 1]; j++)
+				clause.add(new Literal(Math.abs(literals[j]), literals[j] > 0));
+			result.add(clause);
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append('{');
+		for(int i = 0; i < clauseCount; i++) {
+			if(i > 0)
+				builder.append(',');
+			builder.append('{');
+			for(int j = offsets[i]; j < offsets[i + 1]; j++) {
+				if(j > offsets[i])
+					builder.append(',');
+				builder.append(literals[j]);
+			}
+			builder.append('}');
+		}
+		builder.append('}');
+		return builder.toString();
+	}
+
+}
@@ -9,7 +9,12 @@ import de.invation.code.toval.types.HashList;
 
 
 
-
+/**
+ * Set of clauses, indexed by their hash codes.<br>
+ * The hash code of a clause depends on its literals,
+ * so a clause must not be changed while it is contained in a clause set.
+ * Complete a clause before adding it, or remove it before changing it and add it again afterwards.
+ */
 public class ClauseSet extends HashList<Clause> implements Comparator<ClauseSet>{
 	
 	private static final long serialVersionUID = 1L;
@@ -55,6 +60,18 @@ public class ClauseSet extends HashList<Clause> implements Comparator<ClauseSet>
 		return true;
 	}
 	
+	/**
+	 * Returns a hash code which is consistent with {@link #equals(Object)},
+	 * i.e. independent of the element order.
+	 */
+	@Override
+	public int hashCode() {
+		int h = 0;
+		for(int i=0; i<size(); i++)
+			h += get(i).hashCode();
+		return h;
+	}
+	
 	public String toString(){
 		if(isEmpty()){
 			return "{}";
@@ -1,59 +1,52 @@
 package de.invation.code.toval.math.logic;
 
-import java.util.Iterator;
-
-import de.invation.code.toval.types.HashList;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 
+/**
+ * Entry point for satisfiability checks of clause sets.<br>
+ * Clause sets are solved by a {@link CDCLSolver} (see {@link SatSolver}) or by a {@link PortfolioSolver} running several solvers in parallel.
+ * The given clause sets are not changed.<br>
+ * For many related checks, use one {@link SatSolver} session with assumptions and push/pop scopes instead.
+ *
+ * @author Thomas Stocker
+ */
 public class DavisPutnamProcedure {
-	
+
+	/**
+	 * Checks if the given clause set (conjunction of clauses) is satisfiable.
+	 * @param clauseSet The clause set to check
+	 * @return <code>true</code> if there is an assignment which satisfies all clauses;<br>
+	 * <code>false</code> otherwise.
+	 */
 	public static boolean isSatisfiable(ClauseSet clauseSet){
-		return !execute(clauseSet).isEmpty();
+		return new SatSolver(clauseSet).isSatisfiable();
 	}
-	
-	private static ClauseSet execute(ClauseSet clauseSet){
-		HashList<Clause> tempClauses = new HashList<Clause>();
-		HashList<Object> varSet = clauseSet.getItems();
-		int count = 1;
-		while(count < varSet.size()+1){
-			if(clauseSet.isEmpty() || clauseSet.get(0).isEmpty())
-				break;
-			//Debug.message("variable: "+varSet.get(count-1));
-			//Step 1: Remove all clauses from ClauseSet, that contain a literal l and its inverse dl
-			tempClauses.clear();
-			for(Clause c1: clauseSet)
-				if(c1.hasTwinLiterals())
-					tempClauses.add(c1);
-			clauseSet.removeAll(tempClauses);
-			//Debug.message("(A"+count+") "+clauseSet);
-			
-			//Step 2: Add all possible resolvents for variable varSet.get(count)
-			tempClauses.clear();
-			for(int i=0; i<clauseSet.size()-1; i++){
-				for(int j=i; j<clauseSet.size(); j++){
-					ResolveResult r = clauseSet.get(i).resolve(clauseSet.get(j), varSet.get(count-1));
-					if(r!=null){
-						tempClauses.add(r.getClause());
-					}
-				}
-			}
-			clauseSet.addAll(tempClauses);
-			//Debug.message("(B"+count+") "+clauseSet);
-			
-			//Step 3: Remove all clauses, that contain the variable varSet.get(count)
-			tempClauses.clear();
-			for(Iterator<Clause> iter=clauseSet.iterator(); iter.hasNext();){
-				Clause nextClause = iter.next();
-				if(nextClause.containsItem(varSet.get(count-1)))
-					tempClauses.add(nextClause);
-			}
-			clauseSet.removeAll(tempClauses);
-			//Debug.message("(C"+count+") "+clauseSet);
-			
-			count++;
-		}
-		return clauseSet;
+
+	/**
+	 * Returns an assignment which satisfies all clauses of the given clause set.
+	 * @param clauseSet The clause set to check
+	 * @return A map containing the truth value of every item;<br>
+	 * <code>null</code> if the clause set is unsatisfiable.
+	 */
+	public static Map<Object, Boolean> getModel(ClauseSet clauseSet){
+		return new SatSolver(clauseSet).getModel();
+	}
+
+	/**
+	 * Checks if the given clause set (conjunction of clauses) is satisfiable
+	 * using a portfolio of differently configured solvers running in parallel.
+	 * @param clauseSet The clause set to check
+	 * @param threads Number of concurrently running solvers
+	 * @return <code>true</code> if there is an assignment which satisfies all clauses;<br>
+	 * <code>false</code> otherwise.
+	 * @see PortfolioSolver
+	 */
+	public static boolean isSatisfiable(ClauseSet clauseSet, int threads){
+		List<Object> items = new ArrayList<Object>();
+		return new PortfolioSolver(ClauseDatabase.fromClauseSet(clauseSet, items), threads).solve();
 	}
 
 }
@@ -0,0 +1,366 @@
+package de.invation.code.toval.math.logic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import de.invation.code.toval.parser.ParserException;
+import de.invation.code.toval.parser.ParserException.ErrorCode;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Streaming reader and writer for formulas in DIMACS CNF format.<br>
+ * Input and output are processed byte-wise on a fixed-size buffer,
+ * clauses are read into a {@link ClauseDatabase} without creating objects per clause or literal.
+ * Large instances are therefore limited by the size of the literal arena only.<br>
+ * <br>
+ * The reader accepts comment lines (<code>c ...</code>), an optional problem line (<code>p cnf &lt;variables&gt; &lt;clauses&gt;</code>),
+ * clauses spanning several lines and the <code>%</code> end marker used by some benchmark libraries.
+ * The numbers of the problem line are used as capacity hints only.
+ * Files with the extension <code>.gz</code> are (de)compressed transparently.
+ *
+ * @author Thomas Stocker
+ */
+public class DimacsCNF {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String GZIP_EXTENSION = ".gz";
+	/**
+	 * Upper bound for the clause capacity derived from the problem line.
+	 */
+	private static final int MAX_CLAUSE_HINT = 1 << 24;
+
+	private DimacsCNF() {}
+
+	//-----READING--------------------------------------------------------------------------
+
+	/**
+	 * Reads a formula from the given file.
+	 * @param fileName Name of the DIMACS CNF file
+	 * @return A clause database containing all clauses of the file
+	 * @throws IOException if the file cannot be read
+	 * @throws ParserException if the file is not a valid DIMACS CNF file
+	 */
+	public static ClauseDatabase read(String fileName) throws IOException, ParserException {
+		Validate.notNull(fileName);
+		return read(new File(fileName));
+	}
+
+	/**
+	 * Reads a formula from the given file.
+	 * @param file The DIMACS CNF file
+	 * @return A clause database containing all clauses of the file
+	 * @throws IOException if the file cannot be read
+	 * @throws ParserException if the file is not a valid DIMACS CNF file
+	 */
+	public static ClauseDatabase read(File file) throws IOException, ParserException {
+		Validate.notNull(file);
+		InputStream input = new FileInputStream(file);
+		try {
+			if(file.getName().endsWith(GZIP_EXTENSION))
+				input = new GZIPInputStream(input, BUFFER_SIZE);
+			return read(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Reads a formula from the given stream.<br>
+	 * The stream is not closed.
+	 * @param input Stream containing the formula in DIMACS CNF format
+	 * @return A clause database containing all clauses of the stream
+	 * @throws IOException if the stream cannot be read
+	 * @throws ParserException if the stream content is not valid DIMACS CNF
+	 */
+	public static ClauseDatabase read(InputStream input) throws IOException, ParserException {
+		ClauseDatabase database = new ClauseDatabase();
+		read(input, database);
+		return database;
+	}
+
+	/**
+	 * Reads a formula from the given stream and adds its clauses to the given database.<br>
+	 * The stream is not closed.
+	 * @param input Stream containing the formula in DIMACS CNF format
+	 * @param database Database to add the clauses to
+	 * @return The number of read clauses
+	 * @throws IOException if the stream cannot be read
+	 * @throws ParserException if the stream content is not valid DIMACS CNF
+	 */
+	public static int read(InputStream input, ClauseDatabase database) throws IOException, ParserException {
+		Validate.notNull(input);
+		Validate.notNull(database);
+		return new Reader(input, database).read();
+	}
+
+	/**
+	 * Byte-level DIMACS parser.
+	 */
+	private static class Reader {
+
+		private final InputStream input;
+		private final ClauseDatabase database;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int position = 0;
+		private int limit = 0;
+		private long line = 1;
+
+		private Reader(InputStream input, ClauseDatabase database) {
+			this.input = input;
+			this.database = database;
+		}
+
+		private int read() throws IOException, ParserException {
+			database.discardClause();
+			int initialSize = database.size();
+			boolean openClause = false;
+			boolean lineStart = true;
+			int next;
+			while((next = peek()) >= 0) {
+				if(next == '\n') {
+					position++;
+					line++;
+					lineStart = true;
+					continue;
+				}
+				if(next == ' ' || next == '\t' || next == '\r') {
+					position++;
+					continue;
+				}
+				if(lineStart && next == 'c') {
+					skipLine();
+					continue;
+				}
+				if(lineStart && next == 'p') {
+					if(openClause || database.size() > initialSize)
+						throw new ParserException(ErrorCode.UNSUPPORTED_FORMAT, "Line " + line + ": Problem line after clauses");
+					readProblemLine();
+					continue;
+				}
+				if(next == '%')
+					break;
+				lineStart = false;
+				int literal = readInteger();
+				if(literal == 0) {
+					database.endClause();
+					openClause = false;
+				} else {
+					database.addLiteral(literal);
+					openClause = true;
+				}
+			}
+			if(openClause)
+				database.endClause();
+			return database.size() - initialSize;
+		}
+
+		private void readProblemLine() throws IOException, ParserException {
+			position++;
+			skipBlanks();
+			if(!(next() == 'c' && next() == 'n' && next() == 'f'))
+				throw new ParserException(ErrorCode.UNSUPPORTED_FORMAT, "Line " + line + ": Unsupported problem type, expected \"p cnf\"");
+			skipBlanks();
+			int variables = readInteger();
+			skipBlanks();
+			int clauses = readInteger();
+			if(variables < 0 || clauses < 0)
+				throw new ParserException(ErrorCode.UNSUPPORTED_FORMAT, "Line " + line + ": Negative number in problem line");
+			skipLine();
+			int clauseHint = Math.min(clauses, MAX_CLAUSE_HINT);
+			database.ensureCapacity(database.size() + clauseHint, database.getLiteralCount() + 3 * clauseHint);
+		}
+
+		private int readInteger() throws IOException, ParserException {
+			boolean negative = false;
+			int next = peek();
+			if(next == '-') {
+				negative = true;
+				position++;
+				next = peek();
+			}
+			if(next < '0' || next > '9')
+				throw new ParserException(ErrorCode.UNSUPPORTED_FORMAT, "Line " + line + ": Unexpected character '" + (next < 0 ? "EOF" : String.valueOf((char) next)) + "'");
+			long value = 0;
+			while(next >= '0' && next <= '9') {
+				value = 10 * value + (next - '0');
+				if(value > Integer.MAX_VALUE)
+					throw new ParserException(ErrorCode.UNSUPPORTED_FORMAT, "Line " + line + ": Number exceeds the integer range");
+				position++;
+				next = peek();
+			}
+			if(next >= 0 && next != ' ' && next != '\t' && next != '\r' && next != '\n')
+				throw new ParserException(ErrorCode.UNSUPPORTED_FORMAT, "Line " + line + ": Unexpected character '" + (char) next + "'");
+			return (int) (negative ? -value : value);
+		}
+
+		private void skipBlanks() throws IOException {
+			int next;
+			while((next = peek()) == ' ' || next == '\t')
+				position++;
+		}
+
+		private void skipLine() throws IOException {
+			while(true) {
+				if(position == limit && !fill())
+					return;
+				while(position < limit) {
+					if(buffer[position++] == '\n') {
+						line++;
+						return;
+					}
+				}
+			}
+		}
+
+		private int next() throws IOException {
+			int next = peek();
+			if(next >= 0)
+				position++;
+			return next;
+		}
+
+		private int peek() throws IOException {
+			if(position == limit && !fill())
+				return -1;
+			return buffer[position];
+		}
+
+		private boolean fill() throws IOException {
+			int read;
+			do {
+				read = input.read(buffer, 0, buffer.length);
+			} while(read == 0);
+			if(read < 0)
+				return false;
+			position = 0;
+			limit = read;
+			return true;
+		}
+
+	}
+
+	//-----WRITING--------------------------------------------------------------------------
+
+	/**
+	 * Writes the given formula to the given file.
+	 * @param database The formula to write
+	 * @param fileName Name of the output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(ClauseDatabase database, String fileName) throws IOException {
+		Validate.notNull(fileName);
+		write(database, new File(fileName));
+	}
+
+	/**
+	 * Writes the given formula to the given file.
+	 * @param database The formula to write
+	 * @param file The output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(ClauseDatabase database, File file) throws IOException {
+		Validate.notNull(file);
+		OutputStream output = new FileOutputStream(file);
+		try {
+			if(file.getName().endsWith(GZIP_EXTENSION))
+				output = new GZIPOutputStream(output, BUFFER_SIZE);
+			write(database, output);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Writes the given formula to the given stream.<br>
+	 * The stream is flushed, but not closed.
+	 * @param database The formula to write
+	 * @param output The output stream
+	 * @throws IOException if the stream cannot be written
+	 */
+	public static void write(ClauseDatabase database, OutputStream output) throws IOException {
+		Validate.notNull(database);
+		Validate.notNull(output);
+		Writer writer = new Writer(output);
+		writer.write("p cnf ");
+		writer.write(database.getVariableCount());
+		writer.write(' ');
+		writer.write(database.size());
+		writer.write('\n');
+		int[] literals = database.getLiterals();
+		for(int i = 0; i < database.size(); i++) {
+			int end = database.getOffset(i + 1);
+			for(int j = database.getOffset(i); j < end; j++) {
+				writer.write(literals[j]);
+				writer.write(' ');
+			}
+			writer.write('0');
+			writer.write('\n');
+		}
+		writer.flush();
+		output.flush();
+	}
+
+	/**
+	 * Byte-level DIMACS writer.
+	 */
+	private static class Writer {
+
+		private final OutputStream output;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int position = 0;
+
+		private Writer(OutputStream output) {
+			this.output = output;
+		}
+
+		private void write(char character) throws IOException {
+			if(position == buffer.length)
+				flush();
+			buffer[position++] = (byte) character;
+		}
+
+		private void write(String string) throws IOException {
+			for(int i = 0; i < string.length(); i++)
+				write(string.charAt(i));
+		}
+
+		private void write(int number) throws IOException {
+			// Sign and at most 10 digits.
+			if(position + 11 > buffer.length)
+				flush();
+			long value = number;
+			if(value < 0) {
+				buffer[position++] = '-';
+				value = -value;
+			}
+			int end = position + digits(value);
+			for(int i = end - 1; i >= position; i--) {
+				buffer[i] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			position = end;
+		}
+
+		private static int digits(long value) {
+			int digits = 1;
+			while(value >= 10) {
+				value /= 10;
+				digits++;
+			}
+			return digits;
+		}
+
+		private void flush() throws IOException {
+			output.write(buffer, 0, position);
+			position = 0;
+		}
+
+	}
+
+}
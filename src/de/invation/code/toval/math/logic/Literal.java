@@ -70,4 +70,9 @@ public class Literal implements Comparator<Literal>{
 
 	}
 	
+	@Override
+	public int hashCode() {
+		return 31 * item.hashCode() + (negated ? 1 : 0);
+	}
+	
 }
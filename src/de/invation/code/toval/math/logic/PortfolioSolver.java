@@ -0,0 +1,293 @@
+package de.invation.code.toval.math.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Parallel satisfiability solver running a portfolio of differently configured {@link CDCLSolver}s on the same formula.<br>
+ * All solvers run concurrently on a fork/join pool, the first solver to finish determines the result
+ * and all other solvers are interrupted.
+ * The solvers differ in random seed, initial polarity, activity decay, restart interval and random decision frequency
+ * (see {@link #configure(CDCLSolver, int)}).<br>
+ * <br>
+ * Optionally, learned clauses up to a given length are shared between the solvers.
+ * Clauses are exported on learning and imported by the other solvers on their next restart.
+ *
+ * @author Thomas Stocker
+ */
+public class PortfolioSolver {
+
+	/**
+	 * Maximum number of shared clauses per solve call, further clauses are not exported.
+	 */
+	private static final int MAX_SHARED_CLAUSES = 1 << 20;
+
+	private static final double[] VARIABLE_DECAYS = {0.95, 0.85, 0.99, 0.9, 0.8};
+	private static final int[] RESTART_BASES = {100, 50, 300, 1000};
+
+	private final ClauseDatabase database;
+	private final int solverCount;
+	/**
+	 * Maximum length of shared learned clauses (0 disables clause sharing).
+	 */
+	private int maxSharedClauseLength = 0;
+	/**
+	 * Pool to run the solvers on (<code>null</code> for a dedicated pool per solve call).
+	 */
+	private ForkJoinPool pool = null;
+
+	private volatile CDCLSolver[] solvers = null;
+	private int[] model = null;
+	private int winner = -1;
+
+	/**
+	 * Creates a new portfolio solver with one solver per available processor.
+	 * @param database The formula to solve (must not be changed while solving)
+	 */
+	public PortfolioSolver(ClauseDatabase database) {
+		this(database, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new portfolio solver.
+	 * @param database The formula to solve (must not be changed while solving)
+	 * @param solverCount Number of concurrently running solvers
+	 */
+	public PortfolioSolver(ClauseDatabase database, int solverCount) {
+		Validate.notNull(database);
+		Validate.bigger(solverCount, 0);
+		this.database = database;
+		this.solverCount = solverCount;
+	}
+
+	//-----GETTER + SETTER--------------------------------------------------------------------------
+
+	public int getSolverCount() {
+		return solverCount;
+	}
+
+	public int getMaxSharedClauseLength() {
+		return maxSharedClauseLength;
+	}
+
+	/**
+	 * Sets the maximum length of learned clauses which are shared between the solvers.
+	 * @param maxSharedClauseLength Maximum clause length (0 disables clause sharing)
+	 */
+	public void setMaxSharedClauseLength(int maxSharedClauseLength) {
+		Validate.notNegative(maxSharedClauseLength);
+		this.maxSharedClauseLength = maxSharedClauseLength;
+	}
+
+	/**
+	 * Sets the pool the solvers are executed on.<br>
+	 * The pool should provide one thread per solver, otherwise solvers wait for earlier ones to finish.
+	 * @param pool The pool (<code>null</code> for a dedicated pool per solve call)
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns the index of the solver which determined the result of the last solve call.
+	 * @return The index of the winning solver;<br>
+	 * <code>-1</code> if no result is available.
+	 */
+	public int getWinner() {
+		return winner;
+	}
+
+	/**
+	 * Returns the satisfying assignment found by the last solve call.
+	 * @return The model as DIMACS literals (index i contains the literal of variable i+1);<br>
+	 * <code>null</code> if no model is available.
+	 */
+	public int[] getModel() {
+		return model == null ? null : model.clone();
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Checks if the formula is satisfiable.<br>
+	 * The result of the first finishing solver is returned, all other solvers are interrupted.
+	 * If the formula is satisfiable, the satisfying assignment is available via {@link #getModel()}.
+	 * @return <code>true</code> if the formula is satisfiable;<br>
+	 * <code>false</code> otherwise.
+	 * @throws CancellationException if solving has been interrupted
+	 */
+	public boolean solve() {
+		model = null;
+		winner = -1;
+		final CDCLSolver[] solvers = new CDCLSolver[solverCount];
+		SharedClauses sharedClauses = maxSharedClauseLength > 0 ? new SharedClauses() : null;
+		for(int i = 0; i < solverCount; i++) {
+			solvers[i] = new CDCLSolver();
+			configure(solvers[i], i);
+			if(sharedClauses != null)
+				solvers[i].setClauseExchange(sharedClauses.new Endpoint(i), maxSharedClauseLength);
+		}
+		final AtomicInteger winnerIndex = new AtomicInteger(-1);
+		final Boolean[] results = new Boolean[solverCount];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(solverCount);
+		for(int i = 0; i < solverCount; i++) {
+			final int index = i;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					CDCLSolver solver = solvers[index];
+					Boolean result;
+					try {
+						if(winnerIndex.get() < 0)
+							database.addTo(solver);
+						result = solver.solve(Long.MAX_VALUE);
+					} catch(RuntimeException | Error e) {
+						// Do not let the other solvers run on without a chance to report a result.
+						for(CDCLSolver other: solvers)
+							other.interrupt();
+						throw e;
+					}
+					if(result != null && winnerIndex.compareAndSet(-1, index)) {
+						results[index] = result;
+						for(CDCLSolver other: solvers)
+							if(other != solver)
+								other.interrupt();
+					}
+					return null;
+				}
+			});
+		}
+
+		this.solvers = solvers;
+		ForkJoinPool executionPool = pool != null ? pool : new ForkJoinPool(solverCount);
+		List<Future<Void>> futures;
+		try {
+			futures = executionPool.invokeAll(tasks);
+		} finally {
+			this.solvers = null;
+			if(executionPool != pool)
+				executionPool.shutdown();
+		}
+
+		if(winnerIndex.get() < 0) {
+			for(Future<Void> future: futures) {
+				try {
+					future.get();
+				} catch(ExecutionException e) {
+					if(e.getCause() instanceof RuntimeException)
+						throw (RuntimeException) e.getCause();
+					if(e.getCause() instanceof Error)
+						throw (Error) e.getCause();
+					throw new IllegalStateException(e.getCause());
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			throw new CancellationException("Portfolio solver interrupted");
+		}
+		winner = winnerIndex.get();
+		if(results[winner])
+			model = solvers[winner].getModel();
+		return results[winner];
+	}
+
+	/**
+	 * Interrupts all running solvers.<br>
+	 * A running solve call then throws a {@link CancellationException}.
+	 */
+	public void interrupt() {
+		CDCLSolver[] running = solvers;
+		if(running != null)
+			for(CDCLSolver solver: running)
+				solver.interrupt();
+	}
+
+	/**
+	 * Configures a solver of the portfolio.<br>
+	 * Solver 0 uses the default configuration, the others vary
+	 * random seed, initial polarity, variable activity decay, restart interval and random decision frequency.
+	 * Subclasses can override this method to use other portfolios.
+	 * @param solver The solver to configure
+	 * @param index Index of the solver within the portfolio
+	 */
+	protected void configure(CDCLSolver solver, int index) {
+		if(index == 0)
+			return;
+		solver.setSeed(index);
+		solver.setInitialPhase(index % 2 == 1);
+		solver.setVariableDecay(VARIABLE_DECAYS[index % VARIABLE_DECAYS.length]);
+		solver.setRestartBase(RESTART_BASES[(index / 2) % RESTART_BASES.length]);
+		if(index % 3 == 2)
+			solver.setRandomDecisionFrequency(0.02);
+	}
+
+	/**
+	 * Log of shared clauses, each solver reads the clauses of the others from its own position.
+	 */
+	private static class SharedClauses {
+
+		private final List<int[]> clauses = new ArrayList<int[]>();
+		private final List<Integer> sources = new ArrayList<Integer>();
+
+		private synchronized void add(int source, int[] clause) {
+			if(clauses.size() >= MAX_SHARED_CLAUSES)
+				return;
+			clauses.add(clause);
+			sources.add(source);
+		}
+
+		private synchronized List<int[]> collect(int target, int from) {
+			if(from == clauses.size())
+				return Collections.emptyList();
+			List<int[]> result = new ArrayList<int[]>();
+			for(int i = from; i < clauses.size(); i++)
+				if(sources.get(i) != target)
+					result.add(clauses.get(i));
+			return result;
+		}
+
+		private synchronized int size() {
+			return clauses.size();
+		}
+
+		/**
+		 * Access of one solver to the shared clauses.
+		 */
+		private class Endpoint implements CDCLSolver.ClauseExchange {
+
+			private final int index;
+			private int position = 0;
+
+			private Endpoint(int index) {
+				this.index = index;
+			}
+
+			@Override
+			public void export(int[] clause) {
+				add(index, clause);
+			}
+
+			@Override
+			public List<int[]> collect() {
+				synchronized(SharedClauses.this) {
+					List<int[]> result = SharedClauses.this.collect(index, position);
+					position = size();
+					return result;
+				}
+			}
+
+		}
+
+	}
+
+}
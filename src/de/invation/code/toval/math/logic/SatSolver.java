@@ -0,0 +1,297 @@
+package de.invation.code.toval.math.logic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.invation.code.toval.types.ObjectIntMap;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Satisfiability solver for formulas in the object model of {@link ClauseSet}, {@link Clause} and {@link Literal}.<br>
+ * Items of literals are interned to integer variables, clauses are passed to a {@link CDCLSolver}.
+ * The input clauses are not changed.<br>
+ * <br>
+ * The solver can be used as an incremental session for many related checks:
+ * Clauses can be added after solving, learned clauses are kept in this case.
+ * Satisfiability can be checked under assumptions (see {@link #isSatisfiable(Collection)})
+ * without changing the formula.<br>
+ * Clauses added after {@link #push()} are removed again by the matching {@link #pop()}.
+ * Each scope is guarded by a selector variable which is assumed to be true while the scope is open
+ * and fixed to false when the scope is closed, so learned clauses stay valid across scopes.
+ *
+ * @author Thomas Stocker
+ */
+public class SatSolver {
+
+	private final CDCLSolver solver;
+	/**
+	 * Mapping from items to variables.
+	 */
+	private final ObjectIntMap<Object> variables = new ObjectIntMap<Object>();
+	/**
+	 * Items, indexed by variable-1 (<code>null</code> for selector variables of scopes).
+	 */
+	private final List<Object> items = new ArrayList<Object>();
+	/**
+	 * Selector variables of the open scopes, innermost scope last.
+	 */
+	private final List<Integer> scopes = new ArrayList<Integer>();
+	/**
+	 * Result of the last solver call (<code>null</code> if the solver has not been called since the last change).
+	 */
+	private Boolean satisfiable = null;
+	/**
+	 * Assumptions of the last solver call (empty if the call was made without assumptions).
+	 */
+	private List<Literal> assumptions = new ArrayList<Literal>();
+	private List<Literal> failedAssumptions = new ArrayList<Literal>();
+
+	/**
+	 * Creates a new solver without clauses.
+	 */
+	public SatSolver() {
+		this(new CDCLSolver());
+	}
+
+	/**
+	 * Creates a new solver for the given clause set.
+	 * @param clauseSet The clause set to solve
+	 */
+	public SatSolver(ClauseSet clauseSet) {
+		this();
+		addClauses(clauseSet);
+	}
+
+	/**
+	 * Creates a new solver using the given (configured) CDCL solver.<br>
+	 * The CDCL solver must not have variables yet, since variables are numbered by the order of their items.
+	 * @param solver The underlying CDCL solver
+	 */
+	public SatSolver(CDCLSolver solver) {
+		Validate.notNull(solver);
+		Validate.isTrue(solver.getVariableCount() == 0, "solver has no variables");
+		this.solver = solver;
+	}
+
+	/**
+	 * Returns the underlying CDCL solver.
+	 * @return The CDCL solver
+	 */
+	public CDCLSolver getSolver() {
+		return solver;
+	}
+
+	/**
+	 * Returns the variable of the given item. Unknown items get a new variable.
+	 * @param item The item
+	 * @return The variable number (&gt;0)
+	 */
+	public int variableOf(Object item) {
+		Validate.notNull(item);
+		int variable = variables.get(item);
+		if(variable == 0) {
+			items.add(item);
+			variable = items.size();
+			variables.put(item, variable);
+			solver.ensureVariables(variable);
+			satisfiable = null;
+		}
+		return variable;
+	}
+
+	/**
+	 * Returns the item of the given variable.
+	 * @param variable The variable number
+	 * @return The item of the variable;<br>
+	 * <code>null</code> for selector variables of scopes.
+	 */
+	public Object itemOf(int variable) {
+		return items.get(variable - 1);
+	}
+
+	/**
+	 * Returns the DIMACS literal of the given literal.
+	 * @param literal The literal
+	 * @return The DIMACS literal (negative for negated literals)
+	 */
+	public int literalOf(Literal literal) {
+		int variable = variableOf(literal.getItem());
+		return literal.isNegated() ? -variable : variable;
+	}
+
+	/**
+	 * Adds the given clause.<br>
+	 * If a scope is open, the clause is removed again when the scope is closed.
+	 * @param clause The clause to add
+	 * @return <code>false</code> if the formula is known to be unsatisfiable after adding the clause;<br>
+	 * <code>true</code> otherwise.
+	 */
+	public boolean addClause(Clause clause) {
+		Validate.notNull(clause);
+		int[] literals = new int[clause.size() + (scopes.isEmpty() ? 0 : 1)];
+		for(int i = 0; i < clause.size(); i++)
+			literals[i] = literalOf(clause.get(i));
+		if(!scopes.isEmpty())
+			literals[literals.length - 1] = -scopes.get(scopes.size() - 1);
+		satisfiable = null;
+		return solver.addClause(literals);
+	}
+
+	/**
+	 * Adds all clauses of the given clause set.
+	 * @param clauseSet The clauses to add
+	 * @return <code>false</code> if the formula is known to be unsatisfiable after adding the clauses;<br>
+	 * <code>true</code> otherwise.
+	 */
+	public boolean addClauses(ClauseSet clauseSet) {
+		Validate.notNull(clauseSet);
+		boolean result = true;
+		for(Clause clause: clauseSet)
+			result &= addClause(clause);
+		return result;
+	}
+
+	/**
+	 * Opens a new scope.<br>
+	 * All clauses added until the matching call of {@link #pop()} are removed again by this call.
+	 */
+	public void push() {
+		int selector = solver.newVariable();
+		items.add(null);
+		scopes.add(selector);
+		satisfiable = null;
+	}
+
+	/**
+	 * Closes the innermost scope and removes all clauses added since the matching call of {@link #push()}.
+	 * @throws IllegalStateException if there is no open scope
+	 */
+	public void pop() {
+		if(scopes.isEmpty())
+			throw new IllegalStateException("No open scope");
+		int selector = scopes.remove(scopes.size() - 1);
+		solver.addClause(-selector);
+		satisfiable = null;
+	}
+
+	/**
+	 * Returns the number of open scopes.
+	 * @return The number of calls of {@link #push()} without matching call of {@link #pop()}
+	 */
+	public int getScopeDepth() {
+		return scopes.size();
+	}
+
+	/**
+	 * Checks if the conjunction of all added clauses is satisfiable.
+	 * @return <code>true</code> if the formula is satisfiable;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isSatisfiable() {
+		if(satisfiable == null || !assumptions.isEmpty())
+			solve(new ArrayList<Literal>());
+		return satisfiable;
+	}
+
+	/**
+	 * Checks if the conjunction of all added clauses is satisfiable when all given literals are true.<br>
+	 * The assumptions are not added to the formula.
+	 * If the formula is satisfiable, {@link #getModel()} returns an assignment which satisfies the assumptions,
+	 * otherwise the responsible assumptions are available via {@link #getFailedAssumptions()}.
+	 * @param assumptions Literals which are assumed to be true
+	 * @return <code>true</code> if the formula is satisfiable under the assumptions;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isSatisfiable(Collection<Literal> assumptions) {
+		Validate.notNull(assumptions);
+		solve(new ArrayList<Literal>(assumptions));
+		return satisfiable;
+	}
+
+	/**
+	 * Checks if the conjunction of all added clauses is satisfiable when all given literals are true.
+	 * @param assumptions Literals which are assumed to be true
+	 * @return <code>true</code> if the formula is satisfiable under the assumptions;<br>
+	 * <code>false</code> otherwise.
+	 * @see #isSatisfiable(Collection)
+	 */
+	public boolean isSatisfiable(Literal... assumptions) {
+		Validate.notNull(assumptions);
+		List<Literal> list = new ArrayList<Literal>(assumptions.length);
+		for(Literal assumption: assumptions)
+			list.add(assumption);
+		solve(list);
+		return satisfiable;
+	}
+
+	private void solve(List<Literal> assumptions) {
+		int[] literals = new int[scopes.size() + assumptions.size()];
+		for(int i = 0; i < scopes.size(); i++)
+			literals[i] = scopes.get(i);
+		for(int i = 0; i < assumptions.size(); i++) {
+			Validate.notNull(assumptions.get(i));
+			literals[scopes.size() + i] = literalOf(assumptions.get(i));
+		}
+		satisfiable = solver.solve(literals);
+		this.assumptions = assumptions;
+		failedAssumptions = new ArrayList<Literal>();
+		for(int failed: solver.getFailedAssumptions()) {
+			if(items.get(Math.abs(failed) - 1) == null)
+				continue;
+			Literal literal = new Literal(items.get(Math.abs(failed) - 1), failed > 0);
+			if(!failedAssumptions.contains(literal))
+				failedAssumptions.add(literal);
+		}
+	}
+
+	/**
+	 * Returns the assumptions responsible for the unsatisfiability of the last check under assumptions.<br>
+	 * The formula is unsatisfiable when all returned literals are true.
+	 * @return A subset of the assumptions of the last check;<br>
+	 * an empty list if the last check succeeded or the formula is unsatisfiable without assumptions.
+	 */
+	public List<Literal> getFailedAssumptions() {
+		return new ArrayList<Literal>(failedAssumptions);
+	}
+
+	/**
+	 * Returns a satisfying assignment of all items.<br>
+	 * If the formula has not been changed since the last check under assumptions,
+	 * the assignment satisfies these assumptions.
+	 * @return A map containing the truth value of every item;<br>
+	 * <code>null</code> if the formula is unsatisfiable (under the assumptions).
+	 */
+	public Map<Object, Boolean> getModel() {
+		if(satisfiable == null)
+			isSatisfiable();
+		if(!satisfiable)
+			return null;
+		Map<Object, Boolean> result = new HashMap<Object, Boolean>();
+		for(int variable = 1; variable <= items.size(); variable++)
+			if(items.get(variable - 1) != null)
+				result.put(items.get(variable - 1), solver.getModelValue(variable));
+		return result;
+	}
+
+	/**
+	 * Returns the truth value of the given item within a satisfying assignment.
+	 * @param item The item
+	 * @return The truth value of the item;<br>
+	 * <code>null</code> if the formula is unsatisfiable (under the assumptions of the last check) or the item is unknown.
+	 * @see #getModel()
+	 */
+	public Boolean getValue(Object item) {
+		int variable = variables.get(item);
+		if(variable == 0)
+			return null;
+		if(satisfiable == null)
+			isSatisfiable();
+		if(!satisfiable)
+			return null;
+		return solver.getModelValue(variable);
+	}
+
+}
@@ -312,7 +312,7 @@ public class ArrayUtils {
 		 */
 		@Override
 		public T[] next() {
-			Integer[] next = super.nextPermutation();
+			int[] next = super.nextIndexes();
 			T[] newArr = array.clone();
 			for (int i = 0; i < next.length; i++) {
 				newArr[i] = array[next[i]];
@@ -430,10 +430,14 @@ public class ArrayUtils {
 	/**
 	 * Determines the intersection of the given arrays.<br>
 	 * Note: Only use this method when the given arrays are sorted and contain
-	 * only distinct values.
+	 * only distinct values.<br>
+	 * To avoid allocations, use
+	 * {@link SortedArrays#intersection(short[][], short[])} with a reusable
+	 * buffer.
 	 * 
 	 * @param arrs
-	 * @return
+	 *            Sorted arrays of distinct values
+	 * @return The sorted array of common values
 	 */
 	public static short[] intersectionSorted(short[]... arrs) {
 		if (arrs.length == 0)
@@ -441,61 +445,12 @@ public class ArrayUtils {
 		if (arrs.length == 1)
 			return arrs[0];
 
-		short[][] arrList = new short[arrs.length - 1][];
-		short[] minLengthArray = arrs[0];
-		for (int i = 1; i < arrs.length; i++) {
-			short[] arr = arrs[i];
-			if (arr.length < minLengthArray.length) {
-				arrList[i - 1] = minLengthArray;
-				minLengthArray = arr;
-			} else {
-				arrList[i - 1] = arr;
-			}
-		}
-		//
-		// System.out.println("--");
-		// System.out.println(Arrays.toString(minLengthArray));
-		// for(short[] otherArr: arrList){
-		// System.out.println(Arrays.toString(otherArr));
-		// }
-		// System.out.println("--");
-
-		short[] pointer = ArrayUtils.createArray(arrs.length - 1, (short) 0);
-
-		List<Short> commonIndices = new ArrayList<>(minLengthArray.length);
-		for (short i = 0; i < minLengthArray.length; i++) {
-			short stateIndex = minLengthArray[i];
-			boolean insert = true;
-			for (short j = 0; j < pointer.length; j++) {
-				for (short k = pointer[j]; k < arrList[j].length; k++) {
-					if (stateIndex < arrList[j][k]) {
-						// Array does not contain the state-index
-						break;
-					} else if (stateIndex > arrList[j][k]) {
-						if (k < arrList[j].length - 1) {
-							pointer[j] = (short) (pointer[j] + 1);
-						} else {
-							break;
-						}
-					} else {
-						break;
-					}
-				}
-				if (arrList[j][pointer[j]] != stateIndex) {
-					insert = false;
-					break;
-				}
-			}
-			if (insert) {
-				commonIndices.add(stateIndex);
-			}
-		}
-
-		short[] result = new short[commonIndices.size()];
-		for (int l = 0; l < commonIndices.size(); l++) {
-			result[l] = commonIndices.get(l);
-		}
-		return result;
+		int minLength = arrs[0].length;
+		for (short[] arr : arrs)
+			minLength = Math.min(minLength, arr.length);
+		short[] result = new short[minLength];
+		int count = SortedArrays.intersection(arrs, result);
+		return count == result.length ? result : Arrays.copyOf(result, count);
 	}
 
 	public static byte max(byte[] arr) {
@@ -0,0 +1,411 @@
+package de.invation.code.toval.misc;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import de.invation.code.toval.types.HashList;
+import de.invation.code.toval.types.ObjectIntMap;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Lazy view on the powerset (the set of all subsets) of a set.<br>
+ * In contrast to {@link SetUtils.PowerSet}, subsets are not materialized but
+ * created on demand. Every subset is identified by an index whose bit
+ * <code>j</code> indicates if the j-th element of the underlying set is
+ * contained. Subsets are returned as immutable {@link Subset} views which
+ * only hold this bit mask, so iterating over the powerset needs constant
+ * memory.<br>
+ * <br>
+ * Subsets can be enumerated in index order ({@link #iterator()}), in Gray
+ * code order where consecutive subsets differ in exactly one element
+ * ({@link #grayCodeIterator()}) or restricted to a given size
+ * ({@link #iterator(int)}). The {@link #spliterator()} splits the index range,
+ * so {@link #parallelStream()} processes subsets in parallel without
+ * allocating the whole powerset.
+ *
+ * @param <T>
+ *            Type of set elements
+ *
+ * @author Thomas Stocker
+ */
+public class LazyPowerSet<T> implements Iterable<Set<T>> {
+
+	/**
+	 * Maximum number of elements, such that the number of subsets fits into a
+	 * long value.
+	 */
+	public static final int MAX_ELEMENTS = 62;
+
+	private final Object[] elements;
+	/**
+	 * Mapping from elements to their position+1.
+	 */
+	private final ObjectIntMap<Object> positions;
+
+	/**
+	 * Creates a new lazy powerset of the given elements.<br>
+	 * The order of the elements determines the indexes of the subsets.
+	 *
+	 * @param elements
+	 *            Elements of the underlying set (duplicates are ignored)
+	 */
+	public LazyPowerSet(Collection<T> elements) {
+		Validate.notNull(elements);
+		HashList<T> distinctElements = new HashList<>(elements);
+		if (distinctElements.size() > MAX_ELEMENTS)
+			throw new IllegalArgumentException("Powersets are limited to " + MAX_ELEMENTS + " elements");
+		this.elements = distinctElements.toArray();
+		positions = new ObjectIntMap<>(this.elements.length);
+		for (int i = 0; i < this.elements.length; i++)
+			positions.put(this.elements[i], i + 1);
+	}
+
+	/**
+	 * Returns the number of elements of the underlying set.
+	 *
+	 * @return The number of elements
+	 */
+	public int getElementCount() {
+		return elements.length;
+	}
+
+	/**
+	 * Returns the number of subsets (2^n for n elements).
+	 *
+	 * @return The number of subsets
+	 */
+	public long size() {
+		return 1L << elements.length;
+	}
+
+	/**
+	 * Returns the subset with the given index.
+	 *
+	 * @param index
+	 *            Index of the subset (bit j set iff the j-th element is
+	 *            contained)
+	 * @return The subset with the given index
+	 */
+	public Subset<T> get(long index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		return new Subset<>(this, index);
+	}
+
+	/**
+	 * Returns the index of the given subset.
+	 *
+	 * @param subset
+	 *            A subset of the underlying set
+	 * @return The index of the subset
+	 * @throws IllegalArgumentException
+	 *             if the set contains elements which are not contained in the
+	 *             underlying set
+	 */
+	public long indexOf(Set<?> subset) {
+		Validate.notNull(subset);
+		if (subset instanceof Subset && ((Subset<?>) subset).powerSet == this)
+			return ((Subset<?>) subset).mask;
+		long index = 0;
+		for (Object element : subset) {
+			int position = positions.get(element);
+			if (position == 0)
+				throw new IllegalArgumentException("Element not contained in the underlying set: " + element);
+			index |= 1L << (position - 1);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns an iterator over all subsets in index order.
+	 */
+	@Override
+	public Iterator<Set<T>> iterator() {
+		return new Iterator<Set<T>>() {
+
+			private long next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size();
+			}
+
+			@Override
+			public Set<T> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return new Subset<>(LazyPowerSet.this, next++);
+			}
+
+		};
+	}
+
+	/**
+	 * Returns an iterator over all subsets with the given number of elements.
+	 * Subsets are returned in increasing index order.
+	 *
+	 * @param subsetSize
+	 *            Number of elements of the subsets
+	 * @return An iterator over all subsets with <code>subsetSize</code>
+	 *         elements
+	 */
+	public Iterator<Set<T>> iterator(final int subsetSize) {
+		Validate.notNegative(subsetSize);
+		Validate.isTrue(subsetSize <= elements.length);
+		return new Iterator<Set<T>>() {
+
+			private long next = (1L << subsetSize) - 1;
+
+			@Override
+			public boolean hasNext() {
+				return next < size();
+			}
+
+			@Override
+			public Set<T> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				long result = next;
+				if (result == 0) {
+					next = size();
+				} else {
+					// Next larger number with the same number of set bits
+					long lowest = result & -result;
+					long ripple = result + lowest;
+					next = ripple | (((result ^ ripple) >>> 2) / lowest);
+				}
+				return new Subset<>(LazyPowerSet.this, result);
+			}
+
+		};
+	}
+
+	/**
+	 * Returns an iterator over all subsets in Gray code order.<br>
+	 * Starting with the empty set, every subset differs from its predecessor in
+	 * exactly one element (see {@link GrayCodeIterator#getChangedElement()}).
+	 *
+	 * @return An iterator over all subsets in Gray code order
+	 */
+	public GrayCodeIterator grayCodeIterator() {
+		return new GrayCodeIterator();
+	}
+
+	/**
+	 * Returns a spliterator over all subsets in index order, which splits the
+	 * remaining index range in halves.
+	 */
+	@Override
+	public Spliterator<Set<T>> spliterator() {
+		return new SubsetSpliterator(0, size());
+	}
+
+	/**
+	 * Returns a sequential stream over all subsets in index order.
+	 *
+	 * @return A stream over all subsets
+	 */
+	public Stream<Set<T>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns a parallel stream over all subsets.
+	 *
+	 * @return A parallel stream over all subsets
+	 */
+	public Stream<Set<T>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T element(int position) {
+		return (T) elements[position];
+	}
+
+	/**
+	 * Iterator over all subsets in Gray code order.
+	 */
+	public class GrayCodeIterator implements Iterator<Set<T>> {
+
+		private long next = 0;
+		private int changedPosition = -1;
+		private long mask = 0;
+
+		private GrayCodeIterator() {}
+
+		@Override
+		public boolean hasNext() {
+			return next < size();
+		}
+
+		@Override
+		public Set<T> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			if (next > 0) {
+				changedPosition = Long.numberOfTrailingZeros(next);
+				mask ^= 1L << changedPosition;
+			}
+			next++;
+			return new Subset<>(LazyPowerSet.this, mask);
+		}
+
+		/**
+		 * Returns the element which has been added or removed by the last call
+		 * of {@link #next()}.
+		 *
+		 * @return The changed element;<br>
+		 *         <code>null</code> if the last subset is the first one.
+		 */
+		public T getChangedElement() {
+			return changedPosition < 0 ? null : element(changedPosition);
+		}
+
+		/**
+		 * Checks if the last call of {@link #next()} has added the changed
+		 * element.
+		 *
+		 * @return <code>true</code> if the changed element has been added;<br>
+		 *         <code>false</code> if it has been removed or there is no
+		 *         changed element.
+		 */
+		public boolean isChangedElementAdded() {
+			return changedPosition >= 0 && (mask & (1L << changedPosition)) != 0;
+		}
+
+	}
+
+	private class SubsetSpliterator implements Spliterator<Set<T>> {
+
+		private long next;
+		private final long end;
+
+		private SubsetSpliterator(long start, long end) {
+			this.next = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Set<T>> action) {
+			if (next >= end)
+				return false;
+			action.accept(new Subset<>(LazyPowerSet.this, next++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Set<T>> action) {
+			while (next < end)
+				action.accept(new Subset<>(LazyPowerSet.this, next++));
+		}
+
+		@Override
+		public Spliterator<Set<T>> trySplit() {
+			long middle = next + (end - next) / 2;
+			if (middle <= next)
+				return null;
+			Spliterator<Set<T>> prefix = new SubsetSpliterator(next, middle);
+			next = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - next;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+
+	}
+
+	/**
+	 * Immutable subset of the underlying set of a {@link LazyPowerSet},
+	 * represented by a bit mask over the element positions.
+	 *
+	 * @param <T>
+	 *            Type of set elements
+	 */
+	public static final class Subset<T> extends AbstractSet<T> {
+
+		private final LazyPowerSet<T> powerSet;
+		private final long mask;
+
+		private Subset(LazyPowerSet<T> powerSet, long mask) {
+			this.powerSet = powerSet;
+			this.mask = mask;
+		}
+
+		/**
+		 * Returns the index of this subset within the powerset.
+		 *
+		 * @return The bit mask of contained element positions
+		 */
+		public long getIndex() {
+			return mask;
+		}
+
+		@Override
+		public int size() {
+			return Long.bitCount(mask);
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return mask == 0;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			int position = powerSet.positions.get(o);
+			return position > 0 && (mask & (1L << (position - 1))) != 0;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return new Iterator<T>() {
+
+				private long remaining = mask;
+
+				@Override
+				public boolean hasNext() {
+					return remaining != 0;
+				}
+
+				@Override
+				public T next() {
+					if (remaining == 0)
+						throw new NoSuchElementException();
+					int position = Long.numberOfTrailingZeros(remaining);
+					remaining &= remaining - 1;
+					return powerSet.element(position);
+				}
+
+			};
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof Subset && ((Subset<?>) o).powerSet == powerSet)
+				return ((Subset<?>) o).mask == mask;
+			return super.equals(o);
+		}
+
+		@Override
+		public int hashCode() {
+			return super.hashCode();
+		}
+
+	}
+
+}
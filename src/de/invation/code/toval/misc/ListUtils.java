@@ -394,24 +394,35 @@ public class ListUtils {
 		return new ListPermutations<>(list);
 	}
 
+	/**
+	 * Returns all ordered partitions of the given list, where the i-th subset
+	 * contains exactly <code>elementCounts[i]</code> elements.<br>
+	 * Every partition is contained exactly once. For large lists use
+	 * {@link PartitionGenerator#withBlockSizes(List, int...)} to generate the
+	 * partitions lazily.
+	 * 
+	 * @param <T>
+	 *            Type of list elements
+	 * @param list
+	 *            Basic list for partitioning
+	 * @param elementCounts
+	 *            Number of elements of the subsets
+	 * @return All partitions with the given subset sizes;<br>
+	 *         <code>null</code> if the subset sizes do not sum up to the list
+	 *         size.
+	 */
 	public static <T> List<Partition<T>> getPartitions(List<T> list, Integer... elementCounts) {
 		int totalCount = 0;
-		for (Integer elements : elementCounts)
-			totalCount += elements;
+		int[] blockSizes = new int[elementCounts.length];
+		for (int i = 0; i < elementCounts.length; i++) {
+			blockSizes[i] = elementCounts[i];
+			totalCount += elementCounts[i];
+		}
 		if (totalCount != list.size())
 			return null;
-		Integer[] cuts = new Integer[elementCounts.length - 1];
-		for (int i = 0; i < elementCounts.length - 1; i++)
-			cuts[i] = elementCounts[i] + (i == 0 ? 0 : cuts[i - 1]);
 		List<Partition<T>> result = new ArrayList<>();
-		Iterator<List<T>> permutations = getPermutations(list);
-		while (permutations.hasNext()) {
-			Partition<T> part = new Partition<>(list);
-			List<List<T>> dividedList = divideList(permutations.next(), cuts);
-			for (List<T> l : dividedList)
-				part.addSubset(l);
-			result.add(part);
-		}
+		for (Partition<T> partition : PartitionGenerator.withBlockSizes(list, blockSizes))
+			result.add(partition);
 		return result;
 	}
 
@@ -494,8 +505,8 @@ public class ListUtils {
 		 */
 		@Override
 		public List<T> next() {
-			Integer[] next = super.nextPermutation();
-			List<T> newList = new ArrayList<>();
+			int[] next = super.nextIndexes();
+			List<T> newList = new ArrayList<>(next.length);
 			for (int i = 0; i < next.length; i++) {
 				newList.add(i, list.get(next[i]));
 			}
@@ -514,6 +525,17 @@ public class ListUtils {
 			this.basicSet = basicSet;
 		}
 
+		/**
+		 * Creates a partition from subsets which are known to partition the
+		 * basic set, skipping the containment checks of
+		 * {@link #addSubset(List)}.
+		 */
+		Partition(List<T> basicSet, List<List<T>> subsets) {
+			this.basicSet = basicSet;
+			this.subsets.addAll(subsets);
+			this.elements = basicSet.size();
+		}
+
 		public List<T> getSubset(int index) {
 			return subsets.get(index);
 		}
@@ -566,22 +588,24 @@ public class ListUtils {
 		return result;
 	}
 
+	/**
+	 * Returns all bipartitions of the given list, where the first subset
+	 * contains exactly <code>sizeOfFirstPartition</code> elements.<br>
+	 * For large lists use {@link PartitionGenerator#biPartitions(List, int)}
+	 * to generate the bipartitions lazily.
+	 * 
+	 * @param <T>
+	 *            Type of list elements
+	 * @param input
+	 *            Basic list for partitioning
+	 * @param sizeOfFirstPartition
+	 *            Number of elements of the first subset
+	 * @return All bipartitions with the given size of the first subset
+	 */
 	public static <T> List<Partition<T>> getBiPartitions(List<T> input, int sizeOfFirstPartition) {
 		List<Partition<T>> result = new ArrayList<>();
-		boolean reverse = input.size() - sizeOfFirstPartition < sizeOfFirstPartition;
-		List<List<T>> r = rek(input, 0, input.size() - 1 - sizeOfFirstPartition,
-				Math.min(sizeOfFirstPartition, input.size() - sizeOfFirstPartition) - 1, "");
-		for (List<T> l : r) {
-			Partition<T> part = new Partition<>(input);
-			if (reverse) {
-				part.addSubset(ListUtils.getListWithout(input, l));
-				part.addSubset(l);
-			} else {
-				part.addSubset(l);
-				part.addSubset(ListUtils.getListWithout(input, l));
-			}
-			result.add(part);
-		}
+		for (Partition<T> partition : PartitionGenerator.biPartitions(input, sizeOfFirstPartition))
+			result.add(partition);
 		return result;
 	}
 
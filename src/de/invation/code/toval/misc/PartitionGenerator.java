@@ -0,0 +1,588 @@
+package de.invation.code.toval.misc;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import de.invation.code.toval.math.MathUtils;
+import de.invation.code.toval.misc.ListUtils.Partition;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Lazy generator for partitions of a list.<br>
+ * Every partition is represented by a label array which assigns each element
+ * position the index of the block it belongs to. Labelings are enumerated in
+ * lexicographic order by a depth first search which only visits valid
+ * labelings, so every partition is generated exactly once and nothing is
+ * materialized in advance.<br>
+ * <br>
+ * Supported partition types:
+ * <ul>
+ * <li>Ordered partitions with fixed block sizes
+ * ({@link #withBlockSizes(List, int...)}), counted by the multinomial
+ * coefficient.</li>
+ * <li>Bipartitions with a fixed size of the first block
+ * ({@link #biPartitions(List, int)}), counted by the binomial
+ * coefficient.</li>
+ * <li>Unordered set partitions ({@link #setPartitions(List)}), counted by
+ * the Bell numbers, and set partitions into a fixed number of blocks
+ * ({@link #setPartitions(List, int)}), counted by the Stirling numbers of the
+ * second kind. Labelings are restricted growth strings here, i.e. blocks are
+ * ordered by their first element.</li>
+ * </ul>
+ * The {@link #labelSpliterator()} splits its range by the label of the first
+ * position that is not yet fixed, so parallel streams work on disjoint
+ * prefixes without any coordination.
+ *
+ * @param <T>
+ *            Type of list elements
+ *
+ * @author Thomas Stocker
+ */
+public class PartitionGenerator<T> implements Iterable<Partition<T>> {
+
+	private final List<T> list;
+	private final Constraint prototype;
+	private final BigInteger count;
+
+	private PartitionGenerator(List<T> list, Constraint prototype, BigInteger count) {
+		this.list = list;
+		this.prototype = prototype;
+		this.count = count;
+	}
+
+	/**
+	 * Creates a generator for all ordered partitions of the given list, where
+	 * the i-th block contains exactly <code>blockSizes[i]</code> elements.
+	 *
+	 * @param <T>
+	 *            Type of list elements
+	 * @param list
+	 *            Basic list for partitioning
+	 * @param blockSizes
+	 *            Sizes of the blocks, must sum up to the list size
+	 * @return A generator for the partitions
+	 */
+	public static <T> PartitionGenerator<T> withBlockSizes(List<T> list, int... blockSizes) {
+		Validate.notNull(list);
+		Validate.notNull(blockSizes);
+		int total = 0;
+		for (int size : blockSizes) {
+			Validate.notNegative(size);
+			total += size;
+		}
+		if (total != list.size())
+			throw new IllegalArgumentException("Block sizes sum up to " + total + " instead of " + list.size());
+		return new PartitionGenerator<>(list, new BlockSizeConstraint(blockSizes), multinomial(blockSizes));
+	}
+
+	/**
+	 * Creates a generator for all bipartitions of the given list, where the
+	 * first block contains exactly <code>sizeOfFirstBlock</code> elements.
+	 *
+	 * @param <T>
+	 *            Type of list elements
+	 * @param list
+	 *            Basic list for partitioning
+	 * @param sizeOfFirstBlock
+	 *            Number of elements in the first block
+	 * @return A generator for the bipartitions
+	 */
+	public static <T> PartitionGenerator<T> biPartitions(List<T> list, int sizeOfFirstBlock) {
+		Validate.notNull(list);
+		Validate.notNegative(sizeOfFirstBlock);
+		Validate.isTrue(sizeOfFirstBlock <= list.size());
+		return withBlockSizes(list, sizeOfFirstBlock, list.size() - sizeOfFirstBlock);
+	}
+
+	/**
+	 * Creates a generator for all set partitions of the given list, i.e. all
+	 * ways to divide the list into non-empty blocks regardless of their
+	 * order.
+	 *
+	 * @param <T>
+	 *            Type of list elements
+	 * @param list
+	 *            Basic list for partitioning
+	 * @return A generator for the set partitions
+	 */
+	public static <T> PartitionGenerator<T> setPartitions(List<T> list) {
+		Validate.notNull(list);
+		return new PartitionGenerator<>(list, new GrowthConstraint(list.size(), 0), bellNumber(list.size()));
+	}
+
+	/**
+	 * Creates a generator for all set partitions of the given list into
+	 * exactly <code>blockCount</code> non-empty blocks.
+	 *
+	 * @param <T>
+	 *            Type of list elements
+	 * @param list
+	 *            Basic list for partitioning
+	 * @param blockCount
+	 *            Number of blocks
+	 * @return A generator for the set partitions
+	 */
+	public static <T> PartitionGenerator<T> setPartitions(List<T> list, int blockCount) {
+		Validate.notNull(list);
+		Validate.notNegative(blockCount);
+		if (list.isEmpty() != (blockCount == 0))
+			return new PartitionGenerator<>(list, null, BigInteger.ZERO);
+		return new PartitionGenerator<>(list, new GrowthConstraint(list.size(), blockCount), stirlingNumber(list.size(), blockCount));
+	}
+
+	/**
+	 * Returns the number of partitions generated by this generator.
+	 *
+	 * @return The number of partitions
+	 */
+	public BigInteger getPartitionCount() {
+		return count;
+	}
+
+	/**
+	 * Returns a spliterator over all labelings in lexicographic order.<br>
+	 * The spliterator reuses a single label array, whose entry <code>i</code>
+	 * is the block index of the i-th list element. Consumers must copy the
+	 * array if they want to keep it.
+	 *
+	 * @return A spliterator over all labelings
+	 */
+	public Spliterator<int[]> labelSpliterator() {
+		if (prototype == null)
+			return Spliterators.emptySpliterator();
+		long estimate = count.bitLength() < Long.SIZE ? count.longValue() : Long.MAX_VALUE;
+		return new LabelSpliterator(new int[list.size()], prototype.copy(), 0, 0, Integer.MAX_VALUE, estimate);
+	}
+
+	/**
+	 * Returns an iterator over all partitions.
+	 */
+	@Override
+	public Iterator<Partition<T>> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	/**
+	 * Returns a spliterator over all partitions, which splits by label
+	 * prefixes.
+	 */
+	@Override
+	public Spliterator<Partition<T>> spliterator() {
+		return new PartitionSpliterator(labelSpliterator());
+	}
+
+	/**
+	 * Returns a sequential stream over all partitions.
+	 *
+	 * @return A stream over all partitions
+	 */
+	public Stream<Partition<T>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns a parallel stream over all partitions.
+	 *
+	 * @return A parallel stream over all partitions
+	 */
+	public Stream<Partition<T>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * Creates the partition for the given labeling.
+	 *
+	 * @param labels
+	 *            Block index of every list element
+	 * @return The partition represented by the labeling
+	 */
+	public Partition<T> getPartition(int[] labels) {
+		Validate.notNull(labels);
+		Validate.isTrue(labels.length == list.size());
+		int blockCount = prototype == null ? 0 : prototype.blockCount(labels);
+		List<List<T>> blocks = new ArrayList<>(blockCount);
+		for (int i = 0; i < blockCount; i++)
+			blocks.add(new ArrayList<>());
+		for (int i = 0; i < labels.length; i++)
+			blocks.get(labels[i]).add(list.get(i));
+		return new Partition<>(list, blocks);
+	}
+
+	/**
+	 * Returns the Bell number B(n), i.e. the number of set partitions of a
+	 * set with n elements.
+	 *
+	 * @param n
+	 *            Number of elements
+	 * @return The Bell number B(n)
+	 */
+	public static BigInteger bellNumber(int n) {
+		Validate.notNegative(n);
+		// Bell triangle
+		BigInteger[] row = new BigInteger[] { BigInteger.ONE };
+		for (int i = 1; i <= n; i++) {
+			BigInteger[] next = new BigInteger[i + 1];
+			next[0] = row[i - 1];
+			for (int j = 1; j <= i; j++)
+				next[j] = next[j - 1].add(row[j - 1]);
+			row = next;
+		}
+		return row[0];
+	}
+
+	/**
+	 * Returns the Stirling number of the second kind S(n,k), i.e. the number
+	 * of set partitions of a set with n elements into k non-empty blocks.
+	 *
+	 * @param n
+	 *            Number of elements
+	 * @param k
+	 *            Number of blocks
+	 * @return The Stirling number S(n,k)
+	 */
+	public static BigInteger stirlingNumber(int n, int k) {
+		Validate.notNegative(n);
+		Validate.notNegative(k);
+		if (k > n)
+			return BigInteger.ZERO;
+		// row[j] holds S(i,j)
+		BigInteger[] row = new BigInteger[k + 1];
+		Arrays.fill(row, BigInteger.ZERO);
+		row[0] = BigInteger.ONE;
+		for (int i = 1; i <= n; i++) {
+			for (int j = Math.min(i, k); j > 0; j--)
+				row[j] = row[j].multiply(BigInteger.valueOf(j)).add(row[j - 1]);
+			row[0] = BigInteger.ZERO;
+		}
+		return row[k];
+	}
+
+	/**
+	 * Returns the multinomial coefficient (n; k1,...,km) with n=k1+...+km, i.e.
+	 * the number of ordered partitions with the given block sizes.
+	 *
+	 * @param blockSizes
+	 *            Sizes of the blocks
+	 * @return The multinomial coefficient
+	 */
+	public static BigInteger multinomial(int... blockSizes) {
+		Validate.notNull(blockSizes);
+		BigInteger result = BigInteger.ONE;
+		int total = 0;
+		for (int size : blockSizes) {
+			Validate.notNegative(size);
+			total += size;
+			result = result.multiply(MathUtils.getBinomialCoefficient(total, size));
+		}
+		return result;
+	}
+
+	/**
+	 * Restriction of valid labelings together with the state of the current
+	 * label prefix.
+	 */
+	private static abstract class Constraint {
+
+		/**
+		 * Returns the largest label which may be valid at the given position.
+		 */
+		abstract int maxLabel(int[] labels, int position);
+
+		/**
+		 * Checks if the given label at the given position can be extended to
+		 * a complete valid labeling.
+		 */
+		abstract boolean allows(int[] labels, int position, int label);
+
+		abstract void assign(int[] labels, int position, int label);
+
+		abstract void unassign(int[] labels, int position);
+
+		/**
+		 * Returns the number of blocks of the given complete labeling.
+		 */
+		abstract int blockCount(int[] labels);
+
+		abstract Constraint copy();
+
+	}
+
+	private static class BlockSizeConstraint extends Constraint {
+
+		private final int[] remaining;
+
+		private BlockSizeConstraint(int[] blockSizes) {
+			remaining = blockSizes.clone();
+		}
+
+		@Override
+		int maxLabel(int[] labels, int position) {
+			return remaining.length - 1;
+		}
+
+		@Override
+		boolean allows(int[] labels, int position, int label) {
+			return remaining[label] > 0;
+		}
+
+		@Override
+		void assign(int[] labels, int position, int label) {
+			remaining[label]--;
+		}
+
+		@Override
+		void unassign(int[] labels, int position) {
+			remaining[labels[position]]++;
+		}
+
+		@Override
+		int blockCount(int[] labels) {
+			return remaining.length;
+		}
+
+		@Override
+		Constraint copy() {
+			return new BlockSizeConstraint(remaining);
+		}
+
+	}
+
+	/**
+	 * Restricted growth strings: the label of a position is at most one larger
+	 * than the maximum label of its prefix.
+	 */
+	private static class GrowthConstraint extends Constraint {
+
+		private final int length;
+		/**
+		 * Required number of blocks, 0 if arbitrary.
+		 */
+		private final int blocks;
+		/**
+		 * maxima[i] is the maximum label of positions 0..i.
+		 */
+		private final int[] maxima;
+
+		private GrowthConstraint(int length, int blocks) {
+			this(length, blocks, new int[length]);
+		}
+
+		private GrowthConstraint(int length, int blocks, int[] maxima) {
+			this.length = length;
+			this.blocks = blocks;
+			this.maxima = maxima;
+		}
+
+		private int prefixMaximum(int position) {
+			return position == 0 ? -1 : maxima[position - 1];
+		}
+
+		@Override
+		int maxLabel(int[] labels, int position) {
+			int max = prefixMaximum(position) + 1;
+			return blocks == 0 ? max : Math.min(max, blocks - 1);
+		}
+
+		@Override
+		boolean allows(int[] labels, int position, int label) {
+			int prefixMaximum = prefixMaximum(position);
+			if (label > prefixMaximum + 1)
+				return false;
+			if (blocks == 0)
+				return true;
+			// The remaining positions must be able to open all missing blocks
+			return label < blocks && Math.max(prefixMaximum, label) + length - position >= blocks;
+		}
+
+		@Override
+		void assign(int[] labels, int position, int label) {
+			maxima[position] = Math.max(prefixMaximum(position), label);
+		}
+
+		@Override
+		void unassign(int[] labels, int position) {}
+
+		@Override
+		int blockCount(int[] labels) {
+			int max = -1;
+			for (int label : labels)
+				max = Math.max(max, label);
+			return max + 1;
+		}
+
+		@Override
+		Constraint copy() {
+			return new GrowthConstraint(length, blocks, maxima.clone());
+		}
+
+	}
+
+	/**
+	 * Enumerates all valid labelings that share a fixed prefix of length
+	 * <code>depth</code> and whose label at position <code>depth</code> lies
+	 * within <code>[low, high]</code>.
+	 */
+	private static class LabelSpliterator implements Spliterator<int[]> {
+
+		private final int[] labels;
+		private final Constraint constraint;
+		private int depth;
+		private int low;
+		private int high;
+		private long estimate;
+		private boolean started = false;
+		private boolean exhausted = false;
+
+		private LabelSpliterator(int[] labels, Constraint constraint, int depth, int low, int high, long estimate) {
+			this.labels = labels;
+			this.constraint = constraint;
+			this.depth = depth;
+			this.low = low;
+			this.high = high;
+			this.estimate = estimate;
+		}
+
+		private int nextAllowed(int position, int from, int to) {
+			int max = Math.min(to, constraint.maxLabel(labels, position));
+			for (int label = from; label <= max; label++) {
+				if (constraint.allows(labels, position, label))
+					return label;
+			}
+			return -1;
+		}
+
+		private void assign(int position, int label) {
+			labels[position] = label;
+			constraint.assign(labels, position, label);
+		}
+
+		/**
+		 * Assigns the smallest valid labels to all positions from
+		 * <code>position</code> on.
+		 */
+		private boolean fill(int position, int from) {
+			for (int i = position; i < labels.length; i++) {
+				int label = nextAllowed(i, i == position ? from : 0, i == depth ? high : Integer.MAX_VALUE);
+				if (label < 0)
+					return false;
+				assign(i, label);
+			}
+			return true;
+		}
+
+		/**
+		 * Moves to the lexicographically next labeling within the range.
+		 */
+		private boolean advance() {
+			for (int i = labels.length - 1; i >= depth; i--) {
+				constraint.unassign(labels, i);
+				int label = nextAllowed(i, labels[i] + 1, i == depth ? high : Integer.MAX_VALUE);
+				if (label >= 0) {
+					assign(i, label);
+					// Every allowed label can be completed
+					return fill(i + 1, 0);
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super int[]> action) {
+			if (exhausted)
+				return false;
+			if (!started) {
+				started = true;
+				exhausted = !fill(depth, low);
+			} else {
+				exhausted = !advance();
+			}
+			if (exhausted)
+				return false;
+			action.accept(labels);
+			return true;
+		}
+
+		@Override
+		public Spliterator<int[]> trySplit() {
+			if (started || exhausted)
+				return null;
+			while (depth < labels.length) {
+				int first = nextAllowed(depth, low, high);
+				if (first < 0)
+					return null;
+				int last = first;
+				for (int label = Math.min(high, constraint.maxLabel(labels, depth)); label > first; label--) {
+					if (constraint.allows(labels, depth, label)) {
+						last = label;
+						break;
+					}
+				}
+				if (first == last) {
+					// Only one label possible, fix it and split at the next position
+					assign(depth++, first);
+					low = 0;
+					high = Integer.MAX_VALUE;
+					continue;
+				}
+				int middle = first + (last - first) / 2;
+				LabelSpliterator prefix = new LabelSpliterator(labels.clone(), constraint.copy(), depth, first, middle, estimate / 2);
+				low = middle + 1;
+				high = last;
+				estimate -= prefix.estimate;
+				return prefix;
+			}
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return exhausted ? 0 : estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+
+	}
+
+	private class PartitionSpliterator implements Spliterator<Partition<T>> {
+
+		private final Spliterator<int[]> labels;
+
+		private PartitionSpliterator(Spliterator<int[]> labels) {
+			this.labels = labels;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Partition<T>> action) {
+			return labels.tryAdvance(labeling -> action.accept(getPartition(labeling)));
+		}
+
+		@Override
+		public Spliterator<Partition<T>> trySplit() {
+			Spliterator<int[]> prefix = labels.trySplit();
+			return prefix == null ? null : new PartitionSpliterator(prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return labels.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | NONNULL;
+		}
+
+	}
+
+}
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
+import de.invation.code.toval.types.CompressedBitmap;
 import de.invation.code.toval.types.HashList;
 import de.invation.code.toval.validate.Validate;
 
@@ -90,7 +91,9 @@ public class SetUtils {
 	}
 
 	/**
-	 * Generates a new Powerset out of the given set.
+	 * Generates a new Powerset out of the given set.<br>
+	 * All subsets are materialized, for larger sets use
+	 * {@link #getLazyPowerSet(Set)} instead.
 	 * 
 	 * @param <T>
 	 *            Type of set elements
@@ -104,12 +107,12 @@ public class SetUtils {
 			throw new IllegalArgumentException("set size 0");
 		HashList<T> hashList = new HashList<>(hashSet);
 		PowerSet<T> result = new PowerSet<>(hashList.size());
-		for (int i = 0; i < Math.pow(2, hashList.size()); i++) {
-			int setSize = Integer.bitCount(i);
+		for (long i = 0; i < 1L << hashList.size(); i++) {
+			int setSize = Long.bitCount(i);
 			HashSet<T> newList = new HashSet<>(setSize);
 			result.get(setSize).add(newList);
 			for (int j = 0; j < hashList.size(); j++) {
-				if ((i & (1 << j)) != 0) {
+				if ((i & (1L << j)) != 0) {
 					newList.add(hashList.get(j));
 				}
 			}
@@ -117,6 +120,21 @@ public class SetUtils {
 		return result;
 	}
 
+	/**
+	 * Generates a lazy view on the powerset of the given set, which creates
+	 * subsets on demand.
+	 * 
+	 * @param <T>
+	 *            Type of set elements
+	 * @param set
+	 *            Underlying set of elements
+	 * @return Lazy powerset of <code>set</code>
+	 * @see LazyPowerSet
+	 */
+	public static <T> LazyPowerSet<T> getLazyPowerSet(Set<T> set) {
+		return new LazyPowerSet<>(set);
+	}
+
 	public static synchronized <T> List<List<T>> getKElementarySets(Set<T> set, int k) {
 		return ListUtils.getKElementaryLists(new ArrayList<T>(set), k);
 	}
@@ -266,7 +284,9 @@ public class SetUtils {
 	}
 
 	/**
-	 * Checks if any two of the given sets intersect.
+	 * Checks if any two of the given sets intersect.<br>
+	 * All elements are collected in one pass, so two sets intersect iff an
+	 * element has already been seen in a previous set.
 	 * 
 	 * @param sets
 	 *            Basic collection of sets.
@@ -275,15 +295,75 @@ public class SetUtils {
 	 *         <code>false</code> otherswise.
 	 */
 	public static boolean existPairwiseIntersections(Collection<Set<String>> sets) {
-		// Determine all possible pairs of sets
-		List<List<Set<String>>> setPairs = ListUtils.getKElementaryLists(new ArrayList<Set<String>>(sets), 2);
-		for (Iterator<List<Set<String>>> iter = setPairs.iterator(); iter.hasNext();) {
-			Set<String> intersection = SetUtils.intersection(iter.next());
-			if (!intersection.isEmpty()) {
-				return true;
+		Set<String> seen = new HashSet<>();
+		for (Set<String> set : sets) {
+			for (String element : set) {
+				if (!seen.add(element))
+					return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * Determines the intersection of the given bitmap sets.
+	 * 
+	 * @param sets
+	 *            Basic bitmap sets.
+	 * @return A new bitmap set of common elements of all given sets.
+	 */
+	public static CompressedBitmap intersection(CompressedBitmap... sets) {
+		if (sets.length == 0)
+			return new CompressedBitmap();
+		CompressedBitmap result = new CompressedBitmap(sets[0]);
+		for (int i = 1; i < sets.length && !result.isEmpty(); i++)
+			result.retainAll(sets[i]);
+		return result;
+	}
+
+	/**
+	 * Determines the union of the given bitmap sets.
+	 * 
+	 * @param sets
+	 *            Basic bitmap sets.
+	 * @return A new bitmap set of distinct elements of all given sets.
+	 */
+	public static CompressedBitmap union(CompressedBitmap... sets) {
+		CompressedBitmap result = new CompressedBitmap();
+		for (CompressedBitmap set : sets)
+			result.addAll(set);
+		return result;
+	}
+
+	public static boolean containSameElements(CompressedBitmap... sets) {
+		if (sets.length < 2)
+			return false;
+		for (int i = 1; i < sets.length; i++) {
+			if (!sets[i].equals(sets[0]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if any two of the given bitmap sets intersect.<br>
+	 * The sets are accumulated in one pass, so each set is only compared with
+	 * the union of its predecessors instead of with every other set.
+	 * 
+	 * @param sets
+	 *            Basic bitmap sets.
+	 * @return <code>true</code> if there is an intersection between at least
+	 *         two sets;<br>
+	 *         <code>false</code> otherswise.
+	 */
+	public static boolean existPairwiseIntersections(CompressedBitmap... sets) {
+		CompressedBitmap seen = new CompressedBitmap();
+		for (CompressedBitmap set : sets) {
+			if (seen.intersects(set))
+				return true;
+			seen.addAll(set);
+		}
+		return false;
+	}
+
 }
@@ -0,0 +1,1171 @@
+package de.invation.code.toval.misc;
+
+import java.util.function.IntUnaryOperator;
+
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Set operations on sorted arrays of primitive values, as they are used for
+ * state index sets.<br>
+ * All operations write into a caller supplied buffer and return the number
+ * of written values, so they do not box values or allocate intermediate
+ * collections. Apart from the k-way merge, which keeps duplicates, all
+ * operations expect the input arrays to be sorted ascending and to contain
+ * distinct values.<br>
+ * <br>
+ * If one array is much longer than the other one (see
+ * {@link #GALLOP_RATIO}), the longer array is not scanned linearly but
+ * searched with galloping (exponential) search, so the cost depends on the
+ * length of the shorter array. Otherwise both arrays are merged with a loop
+ * that advances its pointers without data dependent branches, which the JIT
+ * compiles to conditional moves.
+ * 
+ * @author Thomas Stocker
+ */
+public class SortedArrays {
+
+	/**
+	 * Minimum length ratio of two arrays from which on the longer array is
+	 * searched with galloping search instead of a linear merge.
+	 */
+	public static final int GALLOP_RATIO = 32;
+
+	private SortedArrays() {}
+
+	/**
+	 * Determines the intersection of two sorted arrays of distinct values.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param b
+	 *            Second sorted array
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>min(a.length, b.length)</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(short[] a, short[] b, short[] result) {
+		return intersection(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the intersection of the first <code>aLength</code> values of
+	 * <code>a</code> and the first <code>bLength</code> values of
+	 * <code>b</code>.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Second sorted array
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>min(aLength, bLength)</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(short[] a, int aLength, short[] b, int bLength, short[] result) {
+		if (aLength <= bLength)
+			return intersect(a, aLength, b, bLength, result);
+		return intersect(b, bLength, a, aLength, result);
+	}
+
+	/**
+	 * Intersection with <code>smallLength &lt;= largeLength</code>.<br>
+	 * <code>result</code> may be the array <code>small</code>, since no value
+	 * is written before it has been read.
+	 */
+	private static int intersect(short[] small, int smallLength, short[] large, int largeLength, short[] result) {
+		if (smallLength == 0)
+			return 0;
+		int count = 0;
+		if (largeLength / smallLength >= GALLOP_RATIO) {
+			int j = 0;
+			for (int i = 0; i < smallLength; i++) {
+				short value = small[i];
+				j = gallop(large, j, largeLength, value);
+				if (j == largeLength)
+					break;
+				if (large[j] == value) {
+					result[count++] = value;
+					j++;
+				}
+			}
+			return count;
+		}
+		int i = 0;
+		int j = 0;
+		while (i < smallLength && j < largeLength) {
+			short x = small[i];
+			short y = large[j];
+			// Branch-free step, count never exceeds i
+			result[count] = x;
+			count += x == y ? 1 : 0;
+			i += x <= y ? 1 : 0;
+			j += x >= y ? 1 : 0;
+		}
+		return count;
+	}
+
+	/**
+	 * Determines the intersection of the given sorted arrays of distinct
+	 * values.<br>
+	 * The arrays are intersected in order of increasing length, so the
+	 * intermediate result shrinks as fast as possible.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            the shortest array
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(short[][] arrays, short[] result) {
+		Validate.notNull(arrays);
+		if (arrays.length == 0)
+			return 0;
+		int[] order = orderByLength(arrays.length, i -> arrays[i].length);
+		short[] shortest = arrays[order[0]];
+		int count = shortest.length;
+		System.arraycopy(shortest, 0, result, 0, count);
+		for (int k = 1; k < order.length && count > 0; k++) {
+			short[] next = arrays[order[k]];
+			count = intersect(result, count, next, next.length, result);
+		}
+		return count;
+	}
+
+	/**
+	 * Determines the union of two sorted arrays of distinct values.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param b
+	 *            Second sorted array
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>a.length + b.length</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(short[] a, short[] b, short[] result) {
+		return union(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the union of the first <code>aLength</code> values of
+	 * <code>a</code> and the first <code>bLength</code> values of
+	 * <code>b</code>.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Second sorted array
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>aLength + bLength</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(short[] a, int aLength, short[] b, int bLength, short[] result) {
+		if (aLength > bLength)
+			return union(b, bLength, a, aLength, result);
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (aLength > 0 && bLength / aLength >= GALLOP_RATIO) {
+			// Copy the runs of the larger array between the values of the smaller one
+			for (; i < aLength; i++) {
+				short value = a[i];
+				int next = gallop(b, j, bLength, value);
+				System.arraycopy(b, j, result, count, next - j);
+				count += next - j;
+				result[count++] = value;
+				j = next < bLength && b[next] == value ? next + 1 : next;
+			}
+		} else {
+			while (i < aLength && j < bLength) {
+				short x = a[i];
+				short y = b[j];
+				result[count++] = x <= y ? x : y;
+				i += x <= y ? 1 : 0;
+				j += x >= y ? 1 : 0;
+			}
+			System.arraycopy(a, i, result, count, aLength - i);
+			count += aLength - i;
+		}
+		System.arraycopy(b, j, result, count, bLength - j);
+		return count + bLength - j;
+	}
+
+	/**
+	 * Determines the union of the given sorted arrays of distinct values by a
+	 * k-way merge.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            all arrays together
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(short[][] arrays, short[] result) {
+		return merge(arrays, result, true);
+	}
+
+	/**
+	 * Merges the given sorted arrays into one sorted sequence, keeping
+	 * duplicate values.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            all arrays together
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int merge(short[][] arrays, short[] result) {
+		return merge(arrays, result, false);
+	}
+
+	private static int merge(short[][] arrays, short[] result, boolean distinct) {
+		Validate.notNull(arrays);
+		if (arrays.length == 1) {
+			System.arraycopy(arrays[0], 0, result, 0, arrays[0].length);
+			return arrays[0].length;
+		}
+		if (arrays.length == 2) {
+			if (distinct)
+				return union(arrays[0], arrays[1], result);
+			return mergeTwo(arrays[0], arrays[1], result);
+		}
+		// Binary min-heap of array indexes, ordered by their current value
+		int[] positions = new int[arrays.length];
+		int[] heap = new int[arrays.length];
+		int size = 0;
+		for (int k = 0; k < arrays.length; k++) {
+			if (arrays[k].length > 0)
+				heap[size++] = k;
+		}
+		for (int h = size / 2 - 1; h >= 0; h--)
+			siftDown(arrays, positions, heap, size, h);
+		int count = 0;
+		while (size > 0) {
+			int top = heap[0];
+			short value = arrays[top][positions[top]++];
+			if (!distinct || count == 0 || result[count - 1] != value)
+				result[count++] = value;
+			if (positions[top] == arrays[top].length)
+				heap[0] = heap[--size];
+			if (size > 0)
+				siftDown(arrays, positions, heap, size, 0);
+		}
+		return count;
+	}
+
+	private static int mergeTwo(short[] a, short[] b, short[] result) {
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			short x = a[i];
+			short y = b[j];
+			boolean takeFirst = x <= y;
+			result[count++] = takeFirst ? x : y;
+			i += takeFirst ? 1 : 0;
+			j += takeFirst ? 0 : 1;
+		}
+		System.arraycopy(a, i, result, count, a.length - i);
+		count += a.length - i;
+		System.arraycopy(b, j, result, count, b.length - j);
+		return count + b.length - j;
+	}
+
+	private static void siftDown(short[][] arrays, int[] positions, int[] heap, int size, int h) {
+		int element = heap[h];
+		short value = arrays[element][positions[element]];
+		while (true) {
+			int child = 2 * h + 1;
+			if (child >= size)
+				break;
+			short childValue = arrays[heap[child]][positions[heap[child]]];
+			if (child + 1 < size) {
+				short rightValue = arrays[heap[child + 1]][positions[heap[child + 1]]];
+				if (rightValue < childValue) {
+					child++;
+					childValue = rightValue;
+				}
+			}
+			if (value <= childValue)
+				break;
+			heap[h] = heap[child];
+			h = child;
+		}
+		heap[h] = element;
+	}
+
+	/**
+	 * Determines the values of a sorted array which are not contained in
+	 * another sorted array.
+	 * 
+	 * @param a
+	 *            Sorted array of distinct values
+	 * @param b
+	 *            Sorted array of values to remove
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>a.length</code> values; may be <code>a</code> itself
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int difference(short[] a, short[] b, short[] result) {
+		return difference(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the values among the first <code>aLength</code> values of
+	 * <code>a</code>, which are not contained in the first
+	 * <code>bLength</code> values of <code>b</code>.
+	 * 
+	 * @param a
+	 *            Sorted array of distinct values
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Sorted array of values to remove
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>aLength</code> values; may be <code>a</code> itself
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int difference(short[] a, int aLength, short[] b, int bLength, short[] result) {
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (bLength > 0 && aLength / bLength >= GALLOP_RATIO) {
+			// Copy the runs of a between the values to remove
+			for (; j < bLength && i < aLength; j++) {
+				int next = gallop(a, i, aLength, b[j]);
+				System.arraycopy(a, i, result, count, next - i);
+				count += next - i;
+				i = next < aLength && a[next] == b[j] ? next + 1 : next;
+			}
+		} else if (aLength > 0 && bLength / aLength >= GALLOP_RATIO) {
+			for (; i < aLength; i++) {
+				short value = a[i];
+				j = gallop(b, j, bLength, value);
+				if (j == bLength || b[j] != value)
+					result[count++] = value;
+			}
+			return count;
+		} else {
+			while (i < aLength && j < bLength) {
+				short x = a[i];
+				short y = b[j];
+				result[count] = x;
+				count += x < y ? 1 : 0;
+				i += x <= y ? 1 : 0;
+				j += x >= y ? 1 : 0;
+			}
+		}
+		System.arraycopy(a, i, result, count, aLength - i);
+		return count + aLength - i;
+	}
+
+	/**
+	 * Returns the first index within <code>[from, to)</code> whose value is
+	 * not smaller than <code>key</code>, or <code>to</code> if there is no
+	 * such index.<br>
+	 * The search first doubles its step width and then searches the last
+	 * step binary, so it needs O(log d) comparisons for a distance d.
+	 */
+	private static int gallop(short[] arr, int from, int to, short key) {
+		if (from >= to || arr[from] >= key)
+			return from;
+		int low = from;
+		int step = 1;
+		while (low + step < to && arr[low + step] < key) {
+			low += step;
+			step <<= 1;
+		}
+		int high = Math.min(low + step, to);
+		low++;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (arr[middle] < key)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Determines the intersection of two sorted arrays of distinct values.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param b
+	 *            Second sorted array
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>min(a.length, b.length)</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(int[] a, int[] b, int[] result) {
+		return intersection(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the intersection of the first <code>aLength</code> values of
+	 * <code>a</code> and the first <code>bLength</code> values of
+	 * <code>b</code>.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Second sorted array
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>min(aLength, bLength)</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(int[] a, int aLength, int[] b, int bLength, int[] result) {
+		if (aLength <= bLength)
+			return intersect(a, aLength, b, bLength, result);
+		return intersect(b, bLength, a, aLength, result);
+	}
+
+	/**
+	 * Intersection with <code>smallLength &lt;= largeLength</code>.<br>
+	 * <code>result</code> may be the array <code>small</code>, since no value
+	 * is written before it has been read.
+	 */
+	private static int intersect(int[] small, int smallLength, int[] large, int largeLength, int[] result) {
+		if (smallLength == 0)
+			return 0;
+		int count = 0;
+		if (largeLength / smallLength >= GALLOP_RATIO) {
+			int j = 0;
+			for (int i = 0; i < smallLength; i++) {
+				int value = small[i];
+				j = gallop(large, j, largeLength, value);
+				if (j == largeLength)
+					break;
+				if (large[j] == value) {
+					result[count++] = value;
+					j++;
+				}
+			}
+			return count;
+		}
+		int i = 0;
+		int j = 0;
+		while (i < smallLength && j < largeLength) {
+			int x = small[i];
+			int y = large[j];
+			// Branch-free step, count never exceeds i
+			result[count] = x;
+			count += x == y ? 1 : 0;
+			i += x <= y ? 1 : 0;
+			j += x >= y ? 1 : 0;
+		}
+		return count;
+	}
+
+	/**
+	 * Determines the intersection of the given sorted arrays of distinct
+	 * values.<br>
+	 * The arrays are intersected in order of increasing length, so the
+	 * intermediate result shrinks as fast as possible.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            the shortest array
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(int[][] arrays, int[] result) {
+		Validate.notNull(arrays);
+		if (arrays.length == 0)
+			return 0;
+		int[] order = orderByLength(arrays.length, i -> arrays[i].length);
+		int[] shortest = arrays[order[0]];
+		int count = shortest.length;
+		System.arraycopy(shortest, 0, result, 0, count);
+		for (int k = 1; k < order.length && count > 0; k++) {
+			int[] next = arrays[order[k]];
+			count = intersect(result, count, next, next.length, result);
+		}
+		return count;
+	}
+
+	/**
+	 * Determines the union of two sorted arrays of distinct values.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param b
+	 *            Second sorted array
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>a.length + b.length</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(int[] a, int[] b, int[] result) {
+		return union(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the union of the first <code>aLength</code> values of
+	 * <code>a</code> and the first <code>bLength</code> values of
+	 * <code>b</code>.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Second sorted array
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>aLength + bLength</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(int[] a, int aLength, int[] b, int bLength, int[] result) {
+		if (aLength > bLength)
+			return union(b, bLength, a, aLength, result);
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (aLength > 0 && bLength / aLength >= GALLOP_RATIO) {
+			// Copy the runs of the larger array between the values of the smaller one
+			for (; i < aLength; i++) {
+				int value = a[i];
+				int next = gallop(b, j, bLength, value);
+				System.arraycopy(b, j, result, count, next - j);
+				count += next - j;
+				result[count++] = value;
+				j = next < bLength && b[next] == value ? next + 1 : next;
+			}
+		} else {
+			while (i < aLength && j < bLength) {
+				int x = a[i];
+				int y = b[j];
+				result[count++] = x <= y ? x : y;
+				i += x <= y ? 1 : 0;
+				j += x >= y ? 1 : 0;
+			}
+			System.arraycopy(a, i, result, count, aLength - i);
+			count += aLength - i;
+		}
+		System.arraycopy(b, j, result, count, bLength - j);
+		return count + bLength - j;
+	}
+
+	/**
+	 * Determines the union of the given sorted arrays of distinct values by a
+	 * k-way merge.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            all arrays together
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(int[][] arrays, int[] result) {
+		return merge(arrays, result, true);
+	}
+
+	/**
+	 * Merges the given sorted arrays into one sorted sequence, keeping
+	 * duplicate values.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            all arrays together
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int merge(int[][] arrays, int[] result) {
+		return merge(arrays, result, false);
+	}
+
+	private static int merge(int[][] arrays, int[] result, boolean distinct) {
+		Validate.notNull(arrays);
+		if (arrays.length == 1) {
+			System.arraycopy(arrays[0], 0, result, 0, arrays[0].length);
+			return arrays[0].length;
+		}
+		if (arrays.length == 2) {
+			if (distinct)
+				return union(arrays[0], arrays[1], result);
+			return mergeTwo(arrays[0], arrays[1], result);
+		}
+		// Binary min-heap of array indexes, ordered by their current value
+		int[] positions = new int[arrays.length];
+		int[] heap = new int[arrays.length];
+		int size = 0;
+		for (int k = 0; k < arrays.length; k++) {
+			if (arrays[k].length > 0)
+				heap[size++] = k;
+		}
+		for (int h = size / 2 - 1; h >= 0; h--)
+			siftDown(arrays, positions, heap, size, h);
+		int count = 0;
+		while (size > 0) {
+			int top = heap[0];
+			int value = arrays[top][positions[top]++];
+			if (!distinct || count == 0 || result[count - 1] != value)
+				result[count++] = value;
+			if (positions[top] == arrays[top].length)
+				heap[0] = heap[--size];
+			if (size > 0)
+				siftDown(arrays, positions, heap, size, 0);
+		}
+		return count;
+	}
+
+	private static int mergeTwo(int[] a, int[] b, int[] result) {
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			int x = a[i];
+			int y = b[j];
+			boolean takeFirst = x <= y;
+			result[count++] = takeFirst ? x : y;
+			i += takeFirst ? 1 : 0;
+			j += takeFirst ? 0 : 1;
+		}
+		System.arraycopy(a, i, result, count, a.length - i);
+		count += a.length - i;
+		System.arraycopy(b, j, result, count, b.length - j);
+		return count + b.length - j;
+	}
+
+	private static void siftDown(int[][] arrays, int[] positions, int[] heap, int size, int h) {
+		int element = heap[h];
+		int value = arrays[element][positions[element]];
+		while (true) {
+			int child = 2 * h + 1;
+			if (child >= size)
+				break;
+			int childValue = arrays[heap[child]][positions[heap[child]]];
+			if (child + 1 < size) {
+				int rightValue = arrays[heap[child + 1]][positions[heap[child + 1]]];
+				if (rightValue < childValue) {
+					child++;
+					childValue = rightValue;
+				}
+			}
+			if (value <= childValue)
+				break;
+			heap[h] = heap[child];
+			h = child;
+		}
+		heap[h] = element;
+	}
+
+	/**
+	 * Determines the values of a sorted array which are not contained in
+	 * another sorted array.
+	 * 
+	 * @param a
+	 *            Sorted array of distinct values
+	 * @param b
+	 *            Sorted array of values to remove
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>a.length</code> values; may be <code>a</code> itself
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int difference(int[] a, int[] b, int[] result) {
+		return difference(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the values among the first <code>aLength</code> values of
+	 * <code>a</code>, which are not contained in the first
+	 * <code>bLength</code> values of <code>b</code>.
+	 * 
+	 * @param a
+	 *            Sorted array of distinct values
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Sorted array of values to remove
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>aLength</code> values; may be <code>a</code> itself
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int difference(int[] a, int aLength, int[] b, int bLength, int[] result) {
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (bLength > 0 && aLength / bLength >= GALLOP_RATIO) {
+			// Copy the runs of a between the values to remove
+			for (; j < bLength && i < aLength; j++) {
+				int next = gallop(a, i, aLength, b[j]);
+				System.arraycopy(a, i, result, count, next - i);
+				count += next - i;
+				i = next < aLength && a[next] == b[j] ? next + 1 : next;
+			}
+		} else if (aLength > 0 && bLength / aLength >= GALLOP_RATIO) {
+			for (; i < aLength; i++) {
+				int value = a[i];
+				j = gallop(b, j, bLength, value);
+				if (j == bLength || b[j] != value)
+					result[count++] = value;
+			}
+			return count;
+		} else {
+			while (i < aLength && j < bLength) {
+				int x = a[i];
+				int y = b[j];
+				result[count] = x;
+				count += x < y ? 1 : 0;
+				i += x <= y ? 1 : 0;
+				j += x >= y ? 1 : 0;
+			}
+		}
+		System.arraycopy(a, i, result, count, aLength - i);
+		return count + aLength - i;
+	}
+
+	/**
+	 * Returns the first index within <code>[from, to)</code> whose value is
+	 * not smaller than <code>key</code>, or <code>to</code> if there is no
+	 * such index.<br>
+	 * The search first doubles its step width and then searches the last
+	 * step binary, so it needs O(log d) comparisons for a distance d.
+	 */
+	private static int gallop(int[] arr, int from, int to, int key) {
+		if (from >= to || arr[from] >= key)
+			return from;
+		int low = from;
+		int step = 1;
+		while (low + step < to && arr[low + step] < key) {
+			low += step;
+			step <<= 1;
+		}
+		int high = Math.min(low + step, to);
+		low++;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (arr[middle] < key)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Determines the intersection of two sorted arrays of distinct values.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param b
+	 *            Second sorted array
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>min(a.length, b.length)</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(long[] a, long[] b, long[] result) {
+		return intersection(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the intersection of the first <code>aLength</code> values of
+	 * <code>a</code> and the first <code>bLength</code> values of
+	 * <code>b</code>.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Second sorted array
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>min(aLength, bLength)</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(long[] a, int aLength, long[] b, int bLength, long[] result) {
+		if (aLength <= bLength)
+			return intersect(a, aLength, b, bLength, result);
+		return intersect(b, bLength, a, aLength, result);
+	}
+
+	/**
+	 * Intersection with <code>smallLength &lt;= largeLength</code>.<br>
+	 * <code>result</code> may be the array <code>small</code>, since no value
+	 * is written before it has been read.
+	 */
+	private static int intersect(long[] small, int smallLength, long[] large, int largeLength, long[] result) {
+		if (smallLength == 0)
+			return 0;
+		int count = 0;
+		if (largeLength / smallLength >= GALLOP_RATIO) {
+			int j = 0;
+			for (int i = 0; i < smallLength; i++) {
+				long value = small[i];
+				j = gallop(large, j, largeLength, value);
+				if (j == largeLength)
+					break;
+				if (large[j] == value) {
+					result[count++] = value;
+					j++;
+				}
+			}
+			return count;
+		}
+		int i = 0;
+		int j = 0;
+		while (i < smallLength && j < largeLength) {
+			long x = small[i];
+			long y = large[j];
+			// Branch-free step, count never exceeds i
+			result[count] = x;
+			count += x == y ? 1 : 0;
+			i += x <= y ? 1 : 0;
+			j += x >= y ? 1 : 0;
+		}
+		return count;
+	}
+
+	/**
+	 * Determines the intersection of the given sorted arrays of distinct
+	 * values.<br>
+	 * The arrays are intersected in order of increasing length, so the
+	 * intermediate result shrinks as fast as possible.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            the shortest array
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int intersection(long[][] arrays, long[] result) {
+		Validate.notNull(arrays);
+		if (arrays.length == 0)
+			return 0;
+		int[] order = orderByLength(arrays.length, i -> arrays[i].length);
+		long[] shortest = arrays[order[0]];
+		int count = shortest.length;
+		System.arraycopy(shortest, 0, result, 0, count);
+		for (int k = 1; k < order.length && count > 0; k++) {
+			long[] next = arrays[order[k]];
+			count = intersect(result, count, next, next.length, result);
+		}
+		return count;
+	}
+
+	/**
+	 * Determines the union of two sorted arrays of distinct values.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param b
+	 *            Second sorted array
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>a.length + b.length</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(long[] a, long[] b, long[] result) {
+		return union(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the union of the first <code>aLength</code> values of
+	 * <code>a</code> and the first <code>bLength</code> values of
+	 * <code>b</code>.
+	 * 
+	 * @param a
+	 *            First sorted array
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Second sorted array
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>aLength + bLength</code> values
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(long[] a, int aLength, long[] b, int bLength, long[] result) {
+		if (aLength > bLength)
+			return union(b, bLength, a, aLength, result);
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (aLength > 0 && bLength / aLength >= GALLOP_RATIO) {
+			// Copy the runs of the larger array between the values of the smaller one
+			for (; i < aLength; i++) {
+				long value = a[i];
+				int next = gallop(b, j, bLength, value);
+				System.arraycopy(b, j, result, count, next - j);
+				count += next - j;
+				result[count++] = value;
+				j = next < bLength && b[next] == value ? next + 1 : next;
+			}
+		} else {
+			while (i < aLength && j < bLength) {
+				long x = a[i];
+				long y = b[j];
+				result[count++] = x <= y ? x : y;
+				i += x <= y ? 1 : 0;
+				j += x >= y ? 1 : 0;
+			}
+			System.arraycopy(a, i, result, count, aLength - i);
+			count += aLength - i;
+		}
+		System.arraycopy(b, j, result, count, bLength - j);
+		return count + bLength - j;
+	}
+
+	/**
+	 * Determines the union of the given sorted arrays of distinct values by a
+	 * k-way merge.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            all arrays together
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int union(long[][] arrays, long[] result) {
+		return merge(arrays, result, true);
+	}
+
+	/**
+	 * Merges the given sorted arrays into one sorted sequence, keeping
+	 * duplicate values.
+	 * 
+	 * @param arrays
+	 *            Sorted arrays
+	 * @param result
+	 *            Buffer for the result, must hold at least as many values as
+	 *            all arrays together
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int merge(long[][] arrays, long[] result) {
+		return merge(arrays, result, false);
+	}
+
+	private static int merge(long[][] arrays, long[] result, boolean distinct) {
+		Validate.notNull(arrays);
+		if (arrays.length == 1) {
+			System.arraycopy(arrays[0], 0, result, 0, arrays[0].length);
+			return arrays[0].length;
+		}
+		if (arrays.length == 2) {
+			if (distinct)
+				return union(arrays[0], arrays[1], result);
+			return mergeTwo(arrays[0], arrays[1], result);
+		}
+		// Binary min-heap of array indexes, ordered by their current value
+		int[] positions = new int[arrays.length];
+		int[] heap = new int[arrays.length];
+		int size = 0;
+		for (int k = 0; k < arrays.length; k++) {
+			if (arrays[k].length > 0)
+				heap[size++] = k;
+		}
+		for (int h = size / 2 - 1; h >= 0; h--)
+			siftDown(arrays, positions, heap, size, h);
+		int count = 0;
+		while (size > 0) {
+			int top = heap[0];
+			long value = arrays[top][positions[top]++];
+			if (!distinct || count == 0 || result[count - 1] != value)
+				result[count++] = value;
+			if (positions[top] == arrays[top].length)
+				heap[0] = heap[--size];
+			if (size > 0)
+				siftDown(arrays, positions, heap, size, 0);
+		}
+		return count;
+	}
+
+	private static int mergeTwo(long[] a, long[] b, long[] result) {
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			long x = a[i];
+			long y = b[j];
+			boolean takeFirst = x <= y;
+			result[count++] = takeFirst ? x : y;
+			i += takeFirst ? 1 : 0;
+			j += takeFirst ? 0 : 1;
+		}
+		System.arraycopy(a, i, result, count, a.length - i);
+		count += a.length - i;
+		System.arraycopy(b, j, result, count, b.length - j);
+		return count + b.length - j;
+	}
+
+	private static void siftDown(long[][] arrays, int[] positions, int[] heap, int size, int h) {
+		int element = heap[h];
+		long value = arrays[element][positions[element]];
+		while (true) {
+			int child = 2 * h + 1;
+			if (child >= size)
+				break;
+			long childValue = arrays[heap[child]][positions[heap[child]]];
+			if (child + 1 < size) {
+				long rightValue = arrays[heap[child + 1]][positions[heap[child + 1]]];
+				if (rightValue < childValue) {
+					child++;
+					childValue = rightValue;
+				}
+			}
+			if (value <= childValue)
+				break;
+			heap[h] = heap[child];
+			h = child;
+		}
+		heap[h] = element;
+	}
+
+	/**
+	 * Determines the values of a sorted array which are not contained in
+	 * another sorted array.
+	 * 
+	 * @param a
+	 *            Sorted array of distinct values
+	 * @param b
+	 *            Sorted array of values to remove
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>a.length</code> values; may be <code>a</code> itself
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int difference(long[] a, long[] b, long[] result) {
+		return difference(a, a.length, b, b.length, result);
+	}
+
+	/**
+	 * Determines the values among the first <code>aLength</code> values of
+	 * <code>a</code>, which are not contained in the first
+	 * <code>bLength</code> values of <code>b</code>.
+	 * 
+	 * @param a
+	 *            Sorted array of distinct values
+	 * @param aLength
+	 *            Number of values of <code>a</code> to consider
+	 * @param b
+	 *            Sorted array of values to remove
+	 * @param bLength
+	 *            Number of values of <code>b</code> to consider
+	 * @param result
+	 *            Buffer for the result, must hold at least
+	 *            <code>aLength</code> values; may be <code>a</code> itself
+	 * @return The number of values written to <code>result</code>
+	 */
+	public static int difference(long[] a, int aLength, long[] b, int bLength, long[] result) {
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (bLength > 0 && aLength / bLength >= GALLOP_RATIO) {
+			// Copy the runs of a between the values to remove
+			for (; j < bLength && i < aLength; j++) {
+				int next = gallop(a, i, aLength, b[j]);
+				System.arraycopy(a, i, result, count, next - i);
+				count += next - i;
+				i = next < aLength && a[next] == b[j] ? next + 1 : next;
+			}
+		} else if (aLength > 0 && bLength / aLength >= GALLOP_RATIO) {
+			for (; i < aLength; i++) {
+				long value = a[i];
+				j = gallop(b, j, bLength, value);
+				if (j == bLength || b[j] != value)
+					result[count++] = value;
+			}
+			return count;
+		} else {
+			while (i < aLength && j < bLength) {
+				long x = a[i];
+				long y = b[j];
+				result[count] = x;
+				count += x < y ? 1 : 0;
+				i += x <= y ? 1 : 0;
+				j += x >= y ? 1 : 0;
+			}
+		}
+		System.arraycopy(a, i, result, count, aLength - i);
+		return count + aLength - i;
+	}
+
+	/**
+	 * Returns the first index within <code>[from, to)</code> whose value is
+	 * not smaller than <code>key</code>, or <code>to</code> if there is no
+	 * such index.<br>
+	 * The search first doubles its step width and then searches the last
+	 * step binary, so it needs O(log d) comparisons for a distance d.
+	 */
+	private static int gallop(long[] arr, int from, int to, long key) {
+		if (from >= to || arr[from] >= key)
+			return from;
+		int low = from;
+		int step = 1;
+		while (low + step < to && arr[low + step] < key) {
+			low += step;
+			step <<= 1;
+		}
+		int high = Math.min(low + step, to);
+		low++;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (arr[middle] < key)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the indexes <code>0..count-1</code> sorted by the given length
+	 * function.
+	 */
+	private static int[] orderByLength(int count, IntUnaryOperator length) {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			int j = i;
+			while (j > 0 && length.applyAsInt(order[j - 1]) > length.applyAsInt(i)) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+		return order;
+	}
+
+}
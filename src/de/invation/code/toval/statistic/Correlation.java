@@ -6,7 +6,8 @@ import java.util.List;
 /**
  * Class for determining the correlation of two different value distributions in form of observations.
  * It provides methods for the calculating the covariance of the distributions,
- * their standard deviations and the corresponding correlation coefficient.
+ * their standard deviations and the corresponding correlation coefficient.<br>
+ * For primitive values or continuous value streams, see {@link StreamingCorrelation}.
  * 
  * @author Thomas Stocker
  */
@@ -163,6 +164,19 @@ public class Correlation {
 		return covariance;
 	}
 	
+	/**
+	 * Returns a compact summary of the two value distributions,
+	 * which can be merged with summaries of other value pairs.
+	 * @return A mergeable summary of the correlation
+	 * @see CorrelationSummary#merge(CorrelationSummary)
+	 */
+	public CorrelationSummary getSummary() {
+		CorrelationSummary summary = new CorrelationSummary();
+		for(int i=0; i<observationA.getObservationCount(); i++)
+			summary.add(observationA.getValueAt(i), observationB.getValueAt(i));
+		return summary;
+	}
+	
 //	public double getMatchingQuotient() {
 //		if(matchingQuotient == null) {
 //			fillQuadrants();
@@ -0,0 +1,294 @@
+package de.invation.code.toval.statistic;
+import java.io.Serializable;
+import java.nio.DoubleBuffer;
+
+
+/**
+ * Compact, serializable summary of a {@link Correlation}.<br>
+ * Value pairs are not stored. Instead, the count, the means of both distributions,
+ * the sums of squared deviations and the co-moment C = &sum;(a-meanA)(b-meanB)
+ * are updated in O(1) time for every inserted pair.<br>
+ * <br>
+ * Summaries can be merged with {@link #merge(CorrelationSummary)}.
+ * Merging is associative, so partial summaries (e.g. of different threads) can be combined in any grouping.
+ *
+ * @author Thomas Stocker
+ */
+public class CorrelationSummary implements Serializable {
+
+	private static final long serialVersionUID = 2297164622718467069L;
+
+	/**
+	 * Number of inserted value pairs.
+	 */
+	private long count = 0;
+	/**
+	 * Mean of the first value distribution.
+	 */
+	private double meanA = 0.0;
+	/**
+	 * Mean of the second value distribution.
+	 */
+	private double meanB = 0.0;
+	/**
+	 * Sum of squared deviations of the first value distribution.
+	 */
+	private double deviationSumA = 0.0;
+	/**
+	 * Sum of squared deviations of the second value distribution.
+	 */
+	private double deviationSumB = 0.0;
+	/**
+	 * Sum of deviation products (co-moment) of both value distributions.
+	 */
+	private double coMoment = 0.0;
+
+	/**
+	 * Creates a new empty correlation summary.
+	 */
+	public CorrelationSummary() {}
+
+	/**
+	 * Creates a copy of the given correlation summary.
+	 * @param summary The summary to copy
+	 */
+	public CorrelationSummary(CorrelationSummary summary) {
+		count = summary.count;
+		meanA = summary.meanA;
+		meanB = summary.meanB;
+		deviationSumA = summary.deviationSumA;
+		deviationSumB = summary.deviationSumB;
+		coMoment = summary.coMoment;
+	}
+
+	/**
+	 * Creates a summary of the given value distributions.<br>
+	 * The values are processed in two passes (means, then deviations),
+	 * which is faster and more accurate than inserting them pair by pair.
+	 * @param valuesA First value distribution
+	 * @param valuesB Second value distribution
+	 * @return A summary of the given value pairs
+	 */
+	public static CorrelationSummary of(double[] valuesA, double[] valuesB) {
+		if(valuesA == null || valuesB == null)
+			throw new NullPointerException();
+		if(valuesA.length != valuesB.length)
+			throw new IllegalArgumentException("Lengths of value array do not match!");
+		return of(valuesA, 0, valuesB, 0, valuesA.length);
+	}
+
+	/**
+	 * Creates a summary of the given ranges of two value distributions.
+	 * @param valuesA First value distribution
+	 * @param offsetA Index of the first value within <code>valuesA</code>
+	 * @param valuesB Second value distribution
+	 * @param offsetB Index of the first value within <code>valuesB</code>
+	 * @param length Number of value pairs
+	 * @return A summary of the given value pairs
+	 * @see #of(double[], double[])
+	 */
+	public static CorrelationSummary of(double[] valuesA, int offsetA, double[] valuesB, int offsetB, int length) {
+		if(offsetA < 0 || offsetB < 0 || length < 0 || offsetA + length > valuesA.length || offsetB + length > valuesB.length)
+			throw new IndexOutOfBoundsException();
+		CorrelationSummary result = new CorrelationSummary();
+		if(length == 0)
+			return result;
+		double sumA = 0.0;
+		double sumB = 0.0;
+		for(int i = 0; i < length; i++) {
+			sumA += valuesA[offsetA + i];
+			sumB += valuesB[offsetB + i];
+		}
+		result.count = length;
+		result.meanA = sumA / length;
+		result.meanB = sumB / length;
+		for(int i = 0; i < length; i++) {
+			double deltaA = valuesA[offsetA + i] - result.meanA;
+			double deltaB = valuesB[offsetB + i] - result.meanB;
+			result.deviationSumA += deltaA * deltaA;
+			result.deviationSumB += deltaB * deltaB;
+			result.coMoment += deltaA * deltaB;
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a summary of the remaining values of the given buffers.<br>
+	 * The buffer positions are not changed.
+	 * @param valuesA First value distribution
+	 * @param valuesB Second value distribution
+	 * @return A summary of the given value pairs
+	 * @see #of(double[], double[])
+	 */
+	public static CorrelationSummary of(DoubleBuffer valuesA, DoubleBuffer valuesB) {
+		if(valuesA == null || valuesB == null)
+			throw new NullPointerException();
+		if(valuesA.remaining() != valuesB.remaining())
+			throw new IllegalArgumentException("Lengths of value buffers do not match!");
+		if(valuesA.hasArray() && valuesB.hasArray())
+			return of(valuesA.array(), valuesA.arrayOffset() + valuesA.position(), valuesB.array(), valuesB.arrayOffset() + valuesB.position(), valuesA.remaining());
+		int length = valuesA.remaining();
+		int positionA = valuesA.position();
+		int positionB = valuesB.position();
+		CorrelationSummary result = new CorrelationSummary();
+		if(length == 0)
+			return result;
+		double sumA = 0.0;
+		double sumB = 0.0;
+		for(int i = 0; i < length; i++) {
+			sumA += valuesA.get(positionA + i);
+			sumB += valuesB.get(positionB + i);
+		}
+		result.count = length;
+		result.meanA = sumA / length;
+		result.meanB = sumB / length;
+		for(int i = 0; i < length; i++) {
+			double deltaA = valuesA.get(positionA + i) - result.meanA;
+			double deltaB = valuesB.get(positionB + i) - result.meanB;
+			result.deviationSumA += deltaA * deltaA;
+			result.deviationSumB += deltaB * deltaB;
+			result.coMoment += deltaA * deltaB;
+		}
+		return result;
+	}
+
+	//-----GETTER--------------------------------------------------------------------------
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMeanA() {
+		return meanA;
+	}
+
+	public double getMeanB() {
+		return meanB;
+	}
+
+	/**
+	 * Returns the (population) covariance of the two value distributions.
+	 * @return The covariance of the two value distributions;<br>
+	 * <code>NaN</code> if no value pairs have been inserted.
+	 */
+	public double getCovariance() {
+		return count == 0 ? Double.NaN : coMoment / count;
+	}
+
+	/**
+	 * Returns the (population) standard deviation of the first value distribution.
+	 * @return The standard deviation of the first value distribution
+	 */
+	public double getStandardDeviationA() {
+		return count == 0 ? Double.NaN : Math.sqrt(deviationSumA / count);
+	}
+
+	/**
+	 * Returns the (population) standard deviation of the second value distribution.
+	 * @return The standard deviation of the second value distribution
+	 */
+	public double getStandardDeviationB() {
+		return count == 0 ? Double.NaN : Math.sqrt(deviationSumB / count);
+	}
+
+	/**
+	 * Returns the correlation coefficient of the two distributions.<br>
+	 * This value between -1 and 1 is a correlation measure indicating complete negative/positive correlation.<br>
+	 * @return The correlation coefficient of the two distributions
+	 */
+	public double getCorrelationCoefficient() {
+		return coMoment / Math.sqrt(deviationSumA * deviationSumB);
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds a new value pair to the summary.
+	 * @param valueA Value of the first distribution
+	 * @param valueB Value of the second distribution
+	 */
+	public void add(double valueA, double valueB) {
+		count++;
+		double deltaA = valueA - meanA;
+		meanA += deltaA / count;
+		double deltaB = valueB - meanB;
+		meanB += deltaB / count;
+		deviationSumA += deltaA * (valueA - meanA);
+		deviationSumB += deltaB * (valueB - meanB);
+		coMoment += deltaA * (valueB - meanB);
+	}
+
+	/**
+	 * Removes a previously inserted value pair from the summary (inverse of {@link #add(double, double)}).<br>
+	 * Removing pairs that have not been inserted leads to meaningless results.
+	 * @param valueA Value of the first distribution
+	 * @param valueB Value of the second distribution
+	 */
+	public void remove(double valueA, double valueB) {
+		if(count == 0)
+			throw new IllegalStateException("Cannot remove values from an empty summary");
+		if(count == 1) {
+			clear();
+			return;
+		}
+		double oldMeanA = meanA;
+		double oldMeanB = meanB;
+		count--;
+		meanA -= (valueA - meanA) / count;
+		meanB -= (valueB - meanB) / count;
+		deviationSumA = Math.max(0.0, deviationSumA - (valueA - meanA) * (valueA - oldMeanA));
+		deviationSumB = Math.max(0.0, deviationSumB - (valueB - meanB) * (valueB - oldMeanB));
+		coMoment -= (valueA - meanA) * (valueB - oldMeanB);
+	}
+
+	/**
+	 * Merges the given summary into this summary.<br>
+	 * Afterwards, this summary has the same state as if all value pairs of both summaries
+	 * had been inserted into it (up to floating point rounding).<br>
+	 * The given summary is not changed.
+	 * @param other The summary to merge
+	 * @return This summary
+	 */
+	public CorrelationSummary merge(CorrelationSummary other) {
+		if(other.count == 0)
+			return this;
+		if(count == 0) {
+			count = other.count;
+			meanA = other.meanA;
+			meanB = other.meanB;
+			deviationSumA = other.deviationSumA;
+			deviationSumB = other.deviationSumB;
+			coMoment = other.coMoment;
+			return this;
+		}
+		double newCount = (double) count + other.count;
+		double deltaA = other.meanA - meanA;
+		double deltaB = other.meanB - meanB;
+		double weight = (double) count * other.count / newCount;
+		deviationSumA += other.deviationSumA + deltaA * deltaA * weight;
+		deviationSumB += other.deviationSumB + deltaB * deltaB * weight;
+		coMoment += other.coMoment + deltaA * deltaB * weight;
+		meanA += deltaA * other.count / newCount;
+		meanB += deltaB * other.count / newCount;
+		count += other.count;
+		return this;
+	}
+
+	/**
+	 * Resets the summary to its initial state.
+	 */
+	public void clear() {
+		count = 0;
+		meanA = 0.0;
+		meanB = 0.0;
+		deviationSumA = 0.0;
+		deviationSumB = 0.0;
+		coMoment = 0.0;
+	}
+
+	@Override
+	public String toString() {
+		return "[Correlation] count=" + count + ", cov=" + getCovariance() + ", r=" + getCorrelationCoefficient();
+	}
+
+}
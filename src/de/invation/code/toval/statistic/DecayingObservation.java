@@ -0,0 +1,283 @@
+package de.invation.code.toval.statistic;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Extended observation whose characteristics are exponentially decayed,
+ * intended for long-running monitoring.<br>
+ * Every inserted value has a weight which halves after <code>halfLife</code> further insertions,
+ * so expectation and moments reflect the recent behavior of the observed values.
+ * Inserted values are not stored, the expectation and moment progress is kept in bounded {@link HistoryBuffer}s.
+ * Memory consumption is therefore constant, independent of the number of inserted values and updates.<br>
+ * <br>
+ * Minimum, maximum and quantiles (see {@link #setQuantileSketch(QuantileSketch)}) are not decayed.
+ * Methods relying on the complete value sequence or value statistic are not supported.
+ *
+ * @author Thomas Stocker
+ */
+public class DecayingObservation extends ExtendedObservation {
+
+	private static final long serialVersionUID = -1508276405937271846L;
+
+	/**
+	 * Default number of retained steps of the expectation and moment progress.
+	 */
+	public static final int DEFAULT_HISTORY_CAPACITY = 1000;
+
+	/**
+	 * Factor by which the weights of all previous values are multiplied on insertion.
+	 */
+	private final double decayFactor;
+	/**
+	 * Sum of all (decayed) weights.
+	 */
+	private double weight = 0.0;
+	/**
+	 * Weighted mean of the inserted values.
+	 */
+	private double mean = 0.0;
+	/**
+	 * Weighted sums of powered deviations from the mean, indexed by degree.
+	 */
+	private final double[] deviationSums;
+	private transient long[][] binomials = null;
+	private double minimum = Double.MAX_VALUE;
+	private double maximum = Double.MIN_VALUE;
+	private double lastValue = Double.NaN;
+
+	/**
+	 * Creates a new decaying observation with a ring buffer history
+	 * of {@value #DEFAULT_HISTORY_CAPACITY} steps.
+	 * @param name The observations' name
+	 * @param halfLife Number of insertions after which the weight of a value is halved
+	 */
+	public DecayingObservation(String name, double halfLife) {
+		this(name, halfLife, HistoryBuffer.Mode.RING, DEFAULT_HISTORY_CAPACITY);
+	}
+
+	/**
+	 * Creates a new decaying observation.
+	 * @param name The observations' name
+	 * @param halfLife Number of insertions after which the weight of a value is halved
+	 * @param historyMode Mode of the expectation and moment history
+	 * @param historyCapacity Maximum number of retained steps per history
+	 */
+	public DecayingObservation(String name, double halfLife, HistoryBuffer.Mode historyMode, int historyCapacity) {
+		super(name, historyMode, historyCapacity);
+		if(historyMode == null)
+			throw new NullPointerException();
+		if(!(halfLife > 0))
+			throw new IllegalArgumentException("Half-life must be positive");
+		decayFactor = Math.pow(0.5, 1.0 / halfLife);
+		int maxDegree = MomentAccumulator.DEFAULT_MAX_DEGREE;
+		for(Integer degree: momentDegrees)
+			maxDegree = Math.max(maxDegree, degree);
+		deviationSums = new double[maxDegree + 1];
+	}
+
+	//-----GETTER + SETTER--------------------------------------------------------------------------
+
+	public double getDecayFactor() {
+		return decayFactor;
+	}
+
+	/**
+	 * Returns the number of insertions after which the weight of a value is halved.
+	 * @return The half-life of inserted values
+	 */
+	public double getHalfLife() {
+		return Math.log(0.5) / Math.log(decayFactor);
+	}
+
+	/**
+	 * Returns the sum of the (decayed) weights of all inserted values.<br>
+	 * For a large number of insertions, this converges to 1/(1-decayFactor).
+	 * @return The effective number of observations
+	 */
+	public double getEffectiveCount() {
+		return weight;
+	}
+
+	/**
+	 * Sets the degrees of the moments that are calculated.<br>
+	 * All degrees must not exceed the maximum degree determined on creation.
+	 * @param degrees The degrees of the moments that are calculated.
+	 * @throws IllegalArgumentException if a degree is not tracked
+	 */
+	@Override
+	public void setMomentDegrees(Collection<Integer> degrees) {
+		for(Integer degree: degrees)
+			if(degree >= deviationSums.length)
+				throw new IllegalArgumentException("Moment degree exceeds the maximum degree of this decaying observation (" + (deviationSums.length - 1) + ")");
+		super.setMomentDegrees(degrees);
+	}
+
+	@Override
+	public double getMinimum() {
+		return minimum;
+	}
+
+	@Override
+	public double getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * Returns the exponentially weighted average of all inserted values.
+	 * @return The weighted average
+	 */
+	@Override
+	public double getAverage() {
+		return mean;
+	}
+
+	@Override
+	public double getLastValue() {
+		if(weight == 0.0)
+			throw new IndexOutOfBoundsException();
+		return lastValue;
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public double getValueAt(int index) {
+		throw new UnsupportedOperationException("Decaying observations do not store inserted values");
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public List<Double> getValues() {
+		throw new UnsupportedOperationException("Decaying observations do not store inserted values");
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public Integer getOccurrencesOf(Double value) {
+		throw new UnsupportedOperationException("Decaying observations do not store inserted values");
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public Set<Double> getDistinctValues() {
+		throw new UnsupportedOperationException("Decaying observations do not store inserted values");
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public Map<Double, Integer> getValueStatistic() {
+		throw new UnsupportedOperationException("Decaying observations do not store inserted values");
+	}
+
+	/**
+	 * Returns an estimate for the quantile of the given rank (not decayed).<br>
+	 * Requires a quantile sketch, since inserted values are not stored.
+	 * @param rank Normalized rank (0 &lt;= rank &lt;= 1)
+	 * @return The estimated quantile of the given rank
+	 * @throws UnsupportedOperationException if no quantile sketch is set
+	 */
+	@Override
+	public double getQuantile(double rank) {
+		if(quantileSketch == null)
+			throw new UnsupportedOperationException("Decaying observations require a quantile sketch for quantile estimation");
+		return quantileSketch.getQuantile(rank);
+	}
+
+	/**
+	 * Not supported, since decayed characteristics cannot be merged with {@link ObservationSummary}s.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public ObservationSummary getSummary() {
+		throw new UnsupportedOperationException("Decaying observations cannot be summarized");
+	}
+
+	@Override
+	public double getVariance() {
+		return weight == 0.0 ? 0.0 : deviationSums[2] / weight;
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds a new value to the observation.<br>
+	 * The weights of all previous values are multiplied by the decay factor,
+	 * the new value is inserted with weight 1.
+	 * @param value New value to be inserted
+	 */
+	@Override
+	public void addValue(double value) {
+		if(weight == 0.0) {
+			mean = value;
+			weight = 1.0;
+		} else {
+			weight *= decayFactor;
+			for(int p = 2; p < deviationSums.length; p++)
+				deviationSums[p] *= decayFactor;
+			double delta = value - mean;
+			if(binomials == null)
+				binomials = MomentAccumulator.binomials(deviationSums.length - 1);
+			MomentAccumulator.addDeviation(deviationSums, weight, delta, binomials);
+			mean += delta / (weight + 1);
+			weight += 1;
+		}
+		if(value < minimum)
+			minimum = value;
+		if(value > maximum)
+			maximum = value;
+		lastValue = value;
+		addToComponents(value);
+		observationCount++;
+
+		if(isAlwaysUpToDate())
+			update();
+	}
+
+	@Override
+	protected void setExpectation() {
+		expectation = mean;
+		recordExpectation(expectation);
+	}
+
+	@Override
+	protected void setMoments() {
+		moments.clear();
+		for(Integer degree: momentDegrees)
+			moments.put(degree, weight == 0.0 || degree < 2 ? 0.0 : deviationSums[degree] / weight);
+		recordMoments();
+	}
+
+	/**
+	 * Resets the observation to the initial state after creation.<br>
+	 * Potential changed values for update behavior or moment degrees are kept.
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+		weight = 0.0;
+		mean = 0.0;
+		for(int p = 0; p < deviationSums.length; p++)
+			deviationSums[p] = 0.0;
+		minimum = Double.MAX_VALUE;
+		maximum = Double.MIN_VALUE;
+		lastValue = Double.NaN;
+	}
+
+}
@@ -6,7 +6,13 @@ import java.util.List;
 /**
  * Extension of the class {@link Observation}, that adds additional information.<br>
  * By using Observations for the expectation value and the moments,<br>
- * it is possible to analyze their progress along the insertion steps.
+ * it is possible to analyze their progress along the insertion steps.<br>
+ * <br>
+ * By default, the progress is kept in observations which store every single step,
+ * so memory grows with the number of updates. Alternatively, the progress can be kept in bounded
+ * {@link HistoryBuffer}s (ring buffer or exponential downsampling) of primitive values.
+ * In this case, the expectation and moment observations are {@link StreamingObservation}s
+ * which only maintain their characteristics.
  * 
  * @author Thomas Stocker
  */
@@ -17,7 +23,7 @@ public class ExtendedObservation extends Observation {
 	 * @see Observation#expectation
 	 * @see Observation#getExpectation()
 	 */
-	private Observation expectations = new Observation("expectation", true);
+	private Observation expectations;
 	
 	/**
 	 * Observations for moments.
@@ -26,16 +32,81 @@ public class ExtendedObservation extends Observation {
 	 */
 	private HashMap<Integer, Observation> momentObservation = new HashMap<Integer, Observation>(DEFAULT_MOMENTS.size());
 	
+	/**
+	 * Mode of the bounded progress histories;<br>
+	 * <code>null</code> if the progress is stored completely.
+	 */
+	private final HistoryBuffer.Mode historyMode;
+	/**
+	 * Maximum number of retained steps of bounded progress histories.
+	 */
+	private final int historyCapacity;
+	/**
+	 * Bounded expectation progress (<code>null</code> for unbounded histories).
+	 */
+	private HistoryBuffer expectationHistory = null;
+	/**
+	 * Bounded moment progress (empty for unbounded histories).
+	 */
+	private HashMap<Integer, HistoryBuffer> momentHistories = new HashMap<Integer, HistoryBuffer>(DEFAULT_MOMENTS.size());
+	
 	
 	public ExtendedObservation() {
 		this(DEFAULT_NAME);
 	}
 	
 	public ExtendedObservation(String name) {
+		this(name, null, 0);
+	}
+	
+	/**
+	 * Creates a new extended observation whose expectation and moment progress
+	 * is kept in bounded history buffers.
+	 * @param name The observations' name
+	 * @param historyMode Mode of the history buffers, or <code>null</code> for unbounded histories
+	 * @param historyCapacity Maximum number of retained steps per history
+	 */
+	public ExtendedObservation(String name, HistoryBuffer.Mode historyMode, int historyCapacity) {
 		super(name, true);
+		this.historyMode = historyMode;
+		this.historyCapacity = historyCapacity;
+		if(historyMode == null) {
+			expectations = new Observation("expectation", true);
+		} else {
+			expectationHistory = new HistoryBuffer(historyMode, historyCapacity);
+			expectations = new StreamingObservation("expectation");
+		}
 		resetMomentObservation();
 	}
 	
+	/**
+	 * Checks if the expectation and moment progress is kept in bounded history buffers.
+	 * @return <code>true</code> if histories are bounded;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean hasBoundedHistory() {
+		return historyMode != null;
+	}
+	
+	/**
+	 * Returns the bounded expectation history.
+	 * @return The expectation history;<br>
+	 * <code>null</code> if histories are not bounded.
+	 */
+	public HistoryBuffer getExpectationHistory() {
+		return expectationHistory;
+	}
+	
+	/**
+	 * Returns the bounded history of the moment with the given degree.
+	 * @param degree The moment degree
+	 * @return The moment history;<br>
+	 * <code>null</code> if histories are not bounded or there is no history for the given degree.
+	 */
+	public HistoryBuffer getMomentHistory(int degree) {
+		return momentHistories.get(degree);
+	}
+	
 	/**
 	 * Returns the expectations for every insertion step in form of an observation.
 	 * @return The expectation observation
@@ -45,10 +116,13 @@ public class ExtendedObservation extends Observation {
 	}
 
 	/**
-	 * Returns the expectations for every insertion step in form of a list.
+	 * Returns the expectations for every insertion step in form of a list.<br>
+	 * For bounded histories, only the retained steps are contained.
 	 * @return The expectation progress
 	 */
 	public List<Double> getExpectations(){
+		if(expectationHistory != null)
+			return Collections.unmodifiableList(expectationHistory.toList());
 		return Collections.unmodifiableList(expectations.getValues());
 	}
 	
@@ -56,10 +130,13 @@ public class ExtendedObservation extends Observation {
 	 * Returns the expectation for a certain insertion step specified by the given index.
 	 * @param index Index of the desired insertion step
 	 * @return The expectation for the specified insertion step
+	 * @see HistoryBuffer#getValueForStep(long)
 	 */
 	public double getExpectationAt(int index){
 		if(index <0 || index>=expectations.getObservationCount())
 			throw new IndexOutOfBoundsException();
+		if(expectationHistory != null)
+			return expectationHistory.getValueForStep(index);
 		return expectations.getValueAt(index);
 	}
 	
@@ -72,6 +149,14 @@ public class ExtendedObservation extends Observation {
 		if(index <0 || index>=getObservationCount())
 			throw new IndexOutOfBoundsException();
 		HashMap<Integer, Double> ret = new HashMap<Integer, Double>();
+		if(historyMode != null) {
+			for(Integer m: momentHistories.keySet()) {
+				HistoryBuffer history = momentHistories.get(m);
+				if(index < history.getTotalCount())
+					ret.put(m, history.getValueForStep(index));
+			}
+			return ret;
+		}
 		for(Integer m: momentObservation.keySet()) {
 			Double value = momentObservation.get(m).getValueAt(index);
 			if(value != null)
@@ -80,6 +165,19 @@ public class ExtendedObservation extends Observation {
 		return ret;
 	}
 	
+	/**
+	 * Returns a compact summary of this extended observation, containing summaries
+	 * of the inserted values, the expectation progress and the moment progress.
+	 * @return A mergeable summary of this extended observation
+	 * @see ExtendedObservationSummary#merge(ExtendedObservationSummary)
+	 */
+	public ExtendedObservationSummary getExtendedSummary() {
+		HashMap<Integer, ObservationSummary> momentSummaries = new HashMap<Integer, ObservationSummary>();
+		for(Integer degree: momentObservation.keySet())
+			momentSummaries.put(degree, momentObservation.get(degree).getSummary());
+		return new ExtendedObservationSummary(getSummary(), expectations.getSummary(), momentSummaries);
+	}
+	
 	/**
 	 * Determines the expectation which is a probabilistic measure,<br>
 	 * estimating the next inserted value based on all values inserted so far.
@@ -89,7 +187,17 @@ public class ExtendedObservation extends Observation {
 	@Override
 	protected void setExpectation() {
 		super.setExpectation();
+		recordExpectation(expectation);
+	}
+	
+	/**
+	 * Adds the given expectation to the expectation progress.
+	 * @param expectation The current expectation
+	 */
+	protected void recordExpectation(double expectation) {
 		expectations.addValue(expectation);
+		if(expectationHistory != null)
+			expectationHistory.add(expectation);
 	}
 
 	/**
@@ -108,8 +216,23 @@ public class ExtendedObservation extends Observation {
 	@Override
 	protected void setMoments() {
 		super.setMoments();
+		recordMoments();
+	}
+	
+	/**
+	 * Adds the current values of all {@link #moments} to the moment progress.
+	 */
+	protected void recordMoments() {
 		for(Integer degree: momentDegrees) {
 			momentObservation.get(degree).addValue(moments.get(degree));
+			if(historyMode != null) {
+				HistoryBuffer history = momentHistories.get(degree);
+				if(history == null) {
+					history = new HistoryBuffer(historyMode, historyCapacity);
+					momentHistories.put(degree, history);
+				}
+				history.add(moments.get(degree));
+			}
 		}
 	}
 	
@@ -123,6 +246,8 @@ public class ExtendedObservation extends Observation {
 		super.reset();
 		resetMomentObservation();
 		expectations.reset();
+		if(expectationHistory != null)
+			expectationHistory.clear();
 	}
 	
 	/**
@@ -134,7 +259,7 @@ public class ExtendedObservation extends Observation {
 		if (momentObservation.isEmpty()) {
 			Observation o;
 			for (int i : momentDegrees) {
-				o = new Observation("moment "+i, true);
+				o = historyMode == null ? new Observation("moment "+i, true) : new StreamingObservation("moment "+i);
 				o.setStandardPrecision(momentPrecision);
 				momentObservation.put(i, o);
 			}
@@ -142,6 +267,8 @@ public class ExtendedObservation extends Observation {
 			for (Observation o : momentObservation.values())
 				o.reset();
 		}
+		for (HistoryBuffer history : momentHistories.values())
+			history.clear();
 	}
 	
 	/**
@@ -0,0 +1,105 @@
+package de.invation.code.toval.statistic;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Compact, serializable summary of an {@link ExtendedObservation}.<br>
+ * Next to the summary of the inserted values, it contains summaries of the expectation progress
+ * and the progress of all moments along the insertion steps.<br>
+ * <br>
+ * Merging is done componentwise via {@link ObservationSummary#merge(ObservationSummary)}.
+ * Progress summaries of moment degrees which are contained in only one of the merged summaries are kept.
+ *
+ * @author Thomas Stocker
+ */
+public class ExtendedObservationSummary implements Serializable {
+
+	private static final long serialVersionUID = -6041735237460262718L;
+
+	/**
+	 * Summary of the inserted values.
+	 */
+	private final ObservationSummary valueSummary;
+	/**
+	 * Summary of the expectations of all insertion steps.
+	 */
+	private final ObservationSummary expectationSummary;
+	/**
+	 * Summaries of the moments of all insertion steps, accessible by their degree.
+	 */
+	private final Map<Integer, ObservationSummary> momentSummaries;
+
+	/**
+	 * Creates a new extended summary out of the given component summaries.
+	 * @param valueSummary Summary of the inserted values
+	 * @param expectationSummary Summary of the expectation progress
+	 * @param momentSummaries Summaries of the moment progress, accessible by their degree
+	 */
+	public ExtendedObservationSummary(ObservationSummary valueSummary, ObservationSummary expectationSummary, Map<Integer, ObservationSummary> momentSummaries) {
+		if(valueSummary == null || expectationSummary == null || momentSummaries == null)
+			throw new NullPointerException();
+		this.valueSummary = valueSummary;
+		this.expectationSummary = expectationSummary;
+		this.momentSummaries = new HashMap<Integer, ObservationSummary>(momentSummaries);
+	}
+
+	public String getName() {
+		return valueSummary.getName();
+	}
+
+	/**
+	 * Returns the summary of the inserted values.
+	 * @return The value summary
+	 */
+	public ObservationSummary getValueSummary() {
+		return valueSummary;
+	}
+
+	/**
+	 * Returns the summary of the expectations of all insertion steps.
+	 * @return The expectation progress summary
+	 */
+	public ObservationSummary getExpectationSummary() {
+		return expectationSummary;
+	}
+
+	/**
+	 * Returns the summaries of the moments of all insertion steps.
+	 * @return The moment progress summaries, accessible by their degree
+	 */
+	public Map<Integer, ObservationSummary> getMomentSummaries() {
+		return Collections.unmodifiableMap(momentSummaries);
+	}
+
+	/**
+	 * Returns a new summary which combines this summary and the given summary componentwise.<br>
+	 * Both summaries are not changed.
+	 * @param other The summary to merge with
+	 * @return The merged summary
+	 */
+	public ExtendedObservationSummary merge(ExtendedObservationSummary other) {
+		Map<Integer, ObservationSummary> mergedMoments = new HashMap<Integer, ObservationSummary>(momentSummaries);
+		for(Integer degree: other.momentSummaries.keySet()) {
+			ObservationSummary summary = mergedMoments.get(degree);
+			mergedMoments.put(degree, summary == null ? other.momentSummaries.get(degree) : summary.merge(other.momentSummaries.get(degree)));
+		}
+		return new ExtendedObservationSummary(valueSummary.merge(other.valueSummary), expectationSummary.merge(other.expectationSummary), mergedMoments);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(valueSummary);
+		builder.append('\n');
+		builder.append(expectationSummary);
+		for(ObservationSummary summary: momentSummaries.values()) {
+			builder.append('\n');
+			builder.append(summary);
+		}
+		return builder.toString();
+	}
+
+}
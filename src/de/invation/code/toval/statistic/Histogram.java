@@ -0,0 +1,292 @@
+package de.invation.code.toval.statistic;
+import java.io.Serializable;
+import java.util.Arrays;
+
+
+/**
+ * Histogram with a fixed number of bins between a lower and an upper bound.<br>
+ * Bins are either of equal width ({@link BinScale#LINEAR}) or of equal width on a logarithmic scale
+ * ({@link BinScale#LOGARITHMIC}), which keeps the relative error constant over several orders of magnitude
+ * (e.g. for latencies).<br>
+ * Values below the lower bound or at/above the upper bound are counted as underflow/overflow.<br>
+ * <br>
+ * Memory consumption is determined by the number of bins only.
+ * Histograms with the same bin layout can be merged with {@link #merge(Histogram)}.
+ *
+ * @author Thomas Stocker
+ */
+public class Histogram implements Serializable {
+
+	private static final long serialVersionUID = 8107620917396384911L;
+
+	private final BinScale scale;
+	private final double lowerBound;
+	private final double upperBound;
+	/**
+	 * Bin width (in logarithmic units for logarithmic scale).
+	 */
+	private final double binWidth;
+	private final long[] frequencies;
+	private long underflow = 0;
+	private long overflow = 0;
+	private long count = 0;
+
+	/**
+	 * Creates a new empty histogram with linear bins.
+	 * @param lowerBound Lower bound of the first bin
+	 * @param upperBound Upper bound of the last bin
+	 * @param bins Number of bins
+	 */
+	public Histogram(double lowerBound, double upperBound, int bins) {
+		this(BinScale.LINEAR, lowerBound, upperBound, bins);
+	}
+
+	/**
+	 * Creates a new empty histogram.
+	 * @param scale Scale of the bins
+	 * @param lowerBound Lower bound of the first bin (&gt;0 for logarithmic scale)
+	 * @param upperBound Upper bound of the last bin
+	 * @param bins Number of bins
+	 */
+	public Histogram(BinScale scale, double lowerBound, double upperBound, int bins) {
+		if(scale == null)
+			throw new NullPointerException();
+		if(bins < 1)
+			throw new IllegalArgumentException("Number of bins must be positive");
+		if(!(lowerBound < upperBound))
+			throw new IllegalArgumentException("Lower bound must be smaller than upper bound");
+		if(scale == BinScale.LOGARITHMIC && lowerBound <= 0)
+			throw new IllegalArgumentException("Lower bound of logarithmic bins must be positive");
+		this.scale = scale;
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+		this.binWidth = (transform(upperBound) - transform(lowerBound)) / bins;
+		this.frequencies = new long[bins];
+	}
+
+	/**
+	 * Creates a copy of the given histogram.
+	 * @param histogram The histogram to copy
+	 */
+	public Histogram(Histogram histogram) {
+		scale = histogram.scale;
+		lowerBound = histogram.lowerBound;
+		upperBound = histogram.upperBound;
+		binWidth = histogram.binWidth;
+		frequencies = histogram.frequencies.clone();
+		underflow = histogram.underflow;
+		overflow = histogram.overflow;
+		count = histogram.count;
+	}
+
+	private double transform(double value) {
+		return scale == BinScale.LOGARITHMIC ? Math.log(value) : value;
+	}
+
+	private double inverseTransform(double value) {
+		return scale == BinScale.LOGARITHMIC ? Math.exp(value) : value;
+	}
+
+	//-----GETTER--------------------------------------------------------------------------
+
+	public BinScale getScale() {
+		return scale;
+	}
+
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	public int getBinCount() {
+		return frequencies.length;
+	}
+
+	/**
+	 * Returns the number of inserted values, including underflow and overflow.
+	 * @return The number of inserted values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public long getUnderflow() {
+		return underflow;
+	}
+
+	public long getOverflow() {
+		return overflow;
+	}
+
+	/**
+	 * Returns the number of inserted values within the given bin.
+	 * @param bin Bin index
+	 * @return The frequency of the bin
+	 */
+	public long getFrequency(int bin) {
+		return frequencies[bin];
+	}
+
+	/**
+	 * Returns the frequencies of all bins.
+	 * @return A copy of the bin frequencies
+	 */
+	public long[] getFrequencies() {
+		return frequencies.clone();
+	}
+
+	/**
+	 * Returns the (inclusive) lower bound of the given bin.
+	 * @param bin Bin index
+	 * @return The lower bound of the bin
+	 */
+	public double getBinLowerBound(int bin) {
+		if(bin < 0 || bin > frequencies.length)
+			throw new IndexOutOfBoundsException();
+		if(bin == 0)
+			return lowerBound;
+		return inverseTransform(transform(lowerBound) + bin * binWidth);
+	}
+
+	/**
+	 * Returns the (exclusive) upper bound of the given bin.
+	 * @param bin Bin index
+	 * @return The upper bound of the bin
+	 */
+	public double getBinUpperBound(int bin) {
+		if(bin == frequencies.length - 1)
+			return upperBound;
+		return getBinLowerBound(bin + 1);
+	}
+
+	/**
+	 * Returns the index of the bin the given value belongs to.
+	 * @param value The value
+	 * @return The bin index;<br>
+	 * -1 for underflow values and {@link #getBinCount()} for overflow values.
+	 */
+	public int getBinIndex(double value) {
+		if(!(value >= lowerBound))
+			return -1;
+		if(value >= upperBound)
+			return frequencies.length;
+		int bin = (int) ((transform(value) - transform(lowerBound)) / binWidth);
+		return Math.min(bin, frequencies.length - 1);
+	}
+
+	/**
+	 * Returns an estimate for the quantile of the given rank.<br>
+	 * Values are assumed to be uniformly distributed within a bin (on the scale of the histogram),
+	 * so the error is bounded by the bin width. Underflow and overflow values are mapped
+	 * to the lower and upper bound.
+	 * @param rank Normalized rank (0 &lt;= rank &lt;= 1)
+	 * @return The estimated quantile;<br>
+	 * <code>NaN</code> if no values have been inserted.
+	 */
+	public double getQuantile(double rank) {
+		if(rank < 0 || rank > 1)
+			throw new IllegalArgumentException("Rank must be in [0,1]");
+		if(count == 0)
+			return Double.NaN;
+		double target = rank * count;
+		double cumulative = underflow;
+		if(target <= cumulative && underflow > 0)
+			return lowerBound;
+		for(int bin = 0; bin < frequencies.length; bin++) {
+			if(frequencies[bin] > 0 && cumulative + frequencies[bin] >= target) {
+				double fraction = (target - cumulative) / frequencies[bin];
+				return inverseTransform(transform(lowerBound) + (bin + fraction) * binWidth);
+			}
+			cumulative += frequencies[bin];
+		}
+		return upperBound;
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds a new value to the histogram.
+	 * @param value New value to be inserted
+	 */
+	public void add(double value) {
+		int bin = getBinIndex(value);
+		if(bin < 0) {
+			underflow++;
+		} else if(bin == frequencies.length) {
+			overflow++;
+		} else {
+			frequencies[bin]++;
+		}
+		count++;
+	}
+
+	/**
+	 * Merges the given histogram into this histogram.<br>
+	 * The given histogram is not changed.
+	 * @param other The histogram to merge
+	 * @return This histogram
+	 * @throws IllegalArgumentException if the bin layouts of both histograms differ
+	 */
+	public Histogram merge(Histogram other) {
+		if(!hasSameLayout(other))
+			throw new IllegalArgumentException("Cannot merge histograms with different bin layouts");
+		for(int bin = 0; bin < frequencies.length; bin++)
+			frequencies[bin] += other.frequencies[bin];
+		underflow += other.underflow;
+		overflow += other.overflow;
+		count += other.count;
+		return this;
+	}
+
+	/**
+	 * Checks if the given histogram has the same scale, bounds and number of bins.
+	 * @param other The histogram to compare with
+	 * @return <code>true</code> if both histograms have the same bin layout;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean hasSameLayout(Histogram other) {
+		return scale == other.scale && lowerBound == other.lowerBound && upperBound == other.upperBound && frequencies.length == other.frequencies.length;
+	}
+
+	/**
+	 * Resets all frequencies to 0.
+	 */
+	public void clear() {
+		Arrays.fill(frequencies, 0);
+		underflow = 0;
+		overflow = 0;
+		count = 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[Histogram] ");
+		builder.append(scale);
+		builder.append(" count=");
+		builder.append(count);
+		builder.append('\n');
+		if(underflow > 0) {
+			builder.append("  < ").append(lowerBound).append(": ").append(underflow).append('\n');
+		}
+		for(int bin = 0; bin < frequencies.length; bin++) {
+			builder.append("  [").append(getBinLowerBound(bin)).append(", ").append(getBinUpperBound(bin)).append("): ");
+			builder.append(frequencies[bin]).append('\n');
+		}
+		if(overflow > 0) {
+			builder.append(" >= ").append(upperBound).append(": ").append(overflow).append('\n');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Scales of histogram bins.
+	 */
+	public enum BinScale {
+		LINEAR, LOGARITHMIC;
+	}
+
+}
@@ -0,0 +1,213 @@
+package de.invation.code.toval.statistic;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Bounded history of primitive values, which are added in successive steps.<br>
+ * The memory consumption is determined by the capacity only:
+ * <ul>
+ * <li>{@link Mode#RING}: keeps the values of the last <code>capacity</code> steps.</li>
+ * <li>{@link Mode#DOWNSAMPLED}: keeps at most <code>capacity</code> values covering all steps.
+ * Whenever the buffer is full, every second value is discarded and the sampling stride is doubled,
+ * so the resolution decreases exponentially with the number of steps.</li>
+ * </ul>
+ *
+ * @author Thomas Stocker
+ */
+public class HistoryBuffer implements Serializable {
+
+	private static final long serialVersionUID = 3948572098377417160L;
+
+	private final Mode mode;
+	private final double[] values;
+	/**
+	 * Number of retained values.
+	 */
+	private int size = 0;
+	/**
+	 * Array position of the oldest retained value (ring mode only).
+	 */
+	private int start = 0;
+	/**
+	 * Number of steps between two retained values (downsampled mode only).
+	 */
+	private long stride = 1;
+	/**
+	 * Number of added values.
+	 */
+	private long totalCount = 0;
+
+	/**
+	 * Creates a new empty history buffer.
+	 * @param mode History mode
+	 * @param capacity Maximum number of retained values (&gt;= 2)
+	 */
+	public HistoryBuffer(Mode mode, int capacity) {
+		if(mode == null)
+			throw new NullPointerException();
+		if(capacity < 2)
+			throw new IllegalArgumentException("Capacity must be at least 2");
+		this.mode = mode;
+		this.values = new double[capacity];
+	}
+
+	//-----GETTER--------------------------------------------------------------------------
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public int getCapacity() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the number of retained values.
+	 * @return The number of retained values
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of added values (steps), including discarded values.
+	 * @return The number of steps
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Returns the number of steps between two retained values.
+	 * @return The sampling stride (always 1 in ring mode)
+	 */
+	public long getStride() {
+		return stride;
+	}
+
+	/**
+	 * Returns the retained value at the given position (ordered from oldest to newest).
+	 * @param index Position of the retained value
+	 * @return The retained value at the given position
+	 */
+	public double getValue(int index) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		if(mode == Mode.RING)
+			return values[(start + index) % values.length];
+		return values[index];
+	}
+
+	/**
+	 * Returns the step of the retained value at the given position.
+	 * @param index Position of the retained value
+	 * @return The step in which the value has been added
+	 */
+	public long getStep(int index) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		if(mode == Mode.RING)
+			return totalCount - size + index;
+		return index * stride;
+	}
+
+	/**
+	 * Returns the value of the given step.<br>
+	 * In downsampled mode, this is the value of the latest retained step &lt;= <code>step</code>.
+	 * @param step The step
+	 * @return The value of the given step
+	 * @throws IndexOutOfBoundsException if the step has not been reached yet or has been discarded (ring mode)
+	 */
+	public double getValueForStep(long step) {
+		if(step < 0 || step >= totalCount)
+			throw new IndexOutOfBoundsException("Step: " + step + ", Steps: " + totalCount);
+		if(mode == Mode.RING) {
+			long first = totalCount - size;
+			if(step < first)
+				throw new IndexOutOfBoundsException("Step " + step + " has been discarded (oldest retained step: " + first + ")");
+			return getValue((int) (step - first));
+		}
+		return values[(int) Math.min(step / stride, size - 1)];
+	}
+
+	/**
+	 * Returns all retained values, ordered from oldest to newest.
+	 * @return An array containing the retained values
+	 */
+	public double[] toArray() {
+		double[] result = new double[size];
+		for(int i = 0; i < size; i++)
+			result[i] = getValue(i);
+		return result;
+	}
+
+	/**
+	 * Returns all retained values, ordered from oldest to newest.
+	 * @return A list containing the retained values
+	 */
+	public List<Double> toList() {
+		List<Double> result = new ArrayList<>(size);
+		for(int i = 0; i < size; i++)
+			result.add(getValue(i));
+		return result;
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds the value of the next step.
+	 * @param value The value to add
+	 */
+	public void add(double value) {
+		if(mode == Mode.RING) {
+			if(size < values.length) {
+				values[(start + size++) % values.length] = value;
+			} else {
+				values[start] = value;
+				start = (start + 1) % values.length;
+			}
+		} else if(totalCount % stride == 0) {
+			if(size == values.length) {
+				// Keep the values of all steps which are multiples of the new stride.
+				size = (size + 1) / 2;
+				for(int i = 1; i < size; i++)
+					values[i] = values[2 * i];
+				stride *= 2;
+			}
+			if(totalCount % stride == 0)
+				values[size++] = value;
+		}
+		totalCount++;
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		Arrays.fill(values, 0.0);
+		size = 0;
+		start = 0;
+		stride = 1;
+		totalCount = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "[History] " + mode + " steps=" + totalCount + " retained=" + size + " stride=" + stride;
+	}
+
+	/**
+	 * Modes of history buffers.
+	 */
+	public enum Mode {
+		RING, DOWNSAMPLED;
+	}
+
+}
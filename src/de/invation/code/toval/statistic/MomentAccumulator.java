@@ -0,0 +1,358 @@
+package de.invation.code.toval.statistic;
+import java.io.Serializable;
+
+
+/**
+ * Online accumulator for the count, minimum, maximum, mean and central moments of a value stream.<br>
+ * Values are not stored. For every inserted value, the sums of powered deviations from the mean<br>
+ * M<sub>p</sub> = &sum;(x-mean)<sup>p</sup> are updated in O(1) time using the one-pass formulas<br>
+ * of Welford (degree 2) and Pebay (arbitrary degrees), which avoid the cancellation errors<br>
+ * of naive power sums.<br>
+ * <br>
+ * The central moments as used by {@link Observation} are M<sub>p</sub>/count.
+ *
+ * @author Thomas Stocker
+ */
+public class MomentAccumulator implements Serializable {
+
+	private static final long serialVersionUID = -2869513592412264744L;
+
+	/**
+	 * Default maximum moment degree (kurtosis).
+	 */
+	public static final int DEFAULT_MAX_DEGREE = 4;
+
+	/**
+	 * Number of inserted values.
+	 */
+	private long count = 0;
+	/**
+	 * Minimum inserted value.
+	 */
+	private double minimum = Double.NaN;
+	/**
+	 * Maximum inserted value.
+	 */
+	private double maximum = Double.NaN;
+	/**
+	 * Arithmetic mean of the inserted values.
+	 */
+	private double mean = 0.0;
+	/**
+	 * Sums of powered deviations from the mean, indexed by degree (indexes 0 and 1 are unused).
+	 */
+	private final double[] deviationSums;
+	/**
+	 * Binomial coefficients up to the maximum degree.
+	 */
+	private transient long[][] binomials;
+
+	/**
+	 * Creates a new accumulator for moments up to degree {@value #DEFAULT_MAX_DEGREE}.
+	 */
+	public MomentAccumulator() {
+		this(DEFAULT_MAX_DEGREE);
+	}
+
+	/**
+	 * Creates a new accumulator for moments up to the given degree.
+	 * @param maxDegree Maximum moment degree (&gt;= 2)
+	 */
+	public MomentAccumulator(int maxDegree) {
+		if(maxDegree < 2)
+			throw new IllegalArgumentException("Maximum moment degree must be at least 2");
+		deviationSums = new double[maxDegree + 1];
+	}
+
+	/**
+	 * Creates a copy of the given accumulator.
+	 * @param accumulator The accumulator to copy
+	 */
+	public MomentAccumulator(MomentAccumulator accumulator) {
+		count = accumulator.count;
+		minimum = accumulator.minimum;
+		maximum = accumulator.maximum;
+		mean = accumulator.mean;
+		deviationSums = accumulator.deviationSums.clone();
+	}
+
+	/**
+	 * Creates an accumulator with the given state.
+	 * @param count Number of values
+	 * @param minimum Minimum value
+	 * @param maximum Maximum value
+	 * @param mean Arithmetic mean of the values
+	 * @param deviationSums Sums of powered deviations from the mean, indexed by degree
+	 */
+	MomentAccumulator(long count, double minimum, double maximum, double mean, double[] deviationSums) {
+		this(deviationSums.length - 1);
+		this.count = count;
+		this.minimum = minimum;
+		this.maximum = maximum;
+		this.mean = mean;
+		System.arraycopy(deviationSums, 2, this.deviationSums, 2, deviationSums.length - 2);
+	}
+
+	//-----GETTER--------------------------------------------------------------------------
+
+	public int getMaxDegree() {
+		return deviationSums.length - 1;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the minimum inserted value.
+	 * @return The minimum inserted value;<br>
+	 * <code>NaN</code> if no values have been inserted.
+	 */
+	public double getMinimum() {
+		return minimum;
+	}
+
+	/**
+	 * Returns the maximum inserted value.
+	 * @return The maximum inserted value;<br>
+	 * <code>NaN</code> if no values have been inserted.
+	 */
+	public double getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * Returns the arithmetic mean (expectation) of all inserted values.
+	 * @return The mean of all inserted values
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Returns the sum of powered deviations from the mean &sum;(x-mean)<sup>degree</sup>.
+	 * @param degree Moment degree (2 &lt;= degree &lt;= maximum degree)
+	 * @return The sum of powered deviations
+	 */
+	public double getDeviationSum(int degree) {
+		checkDegree(degree);
+		return deviationSums[degree];
+	}
+
+	/**
+	 * Returns the central moment of the given degree (population form, i.e. divided by count).
+	 * @param degree Moment degree (1 &lt;= degree &lt;= maximum degree)
+	 * @return The central moment of the given degree;<br>
+	 * <code>NaN</code> if no values have been inserted.
+	 */
+	public double getMoment(int degree) {
+		if(degree == 1)
+			return count == 0 ? Double.NaN : 0.0;
+		checkDegree(degree);
+		if(count == 0)
+			return Double.NaN;
+		return deviationSums[degree] / count;
+	}
+
+	/**
+	 * Returns the population variance (2nd central moment).
+	 * @return The variance of all inserted values
+	 */
+	public double getVariance() {
+		return getMoment(2);
+	}
+
+	/**
+	 * Returns the sample variance (sum of squared deviations divided by count-1).
+	 * @return The sample variance of all inserted values
+	 */
+	public double getSampleVariance() {
+		if(count < 2)
+			return Double.NaN;
+		return deviationSums[2] / (count - 1);
+	}
+
+	/**
+	 * Returns the (population) skewness, i.e. the standardized 3rd central moment.<br>
+	 * Requires a maximum degree &gt;= 3.
+	 * @return The skewness of all inserted values
+	 */
+	public double getSkewness() {
+		checkDegree(3);
+		return Math.sqrt(count) * deviationSums[3] / Math.pow(deviationSums[2], 1.5);
+	}
+
+	/**
+	 * Returns the (population) kurtosis, i.e. the standardized 4th central moment.<br>
+	 * The kurtosis of a normal distribution is 3.<br>
+	 * Requires a maximum degree &gt;= 4.
+	 * @return The kurtosis of all inserted values
+	 */
+	public double getKurtosis() {
+		checkDegree(4);
+		return count * deviationSums[4] / (deviationSums[2] * deviationSums[2]);
+	}
+
+	private void checkDegree(int degree) {
+		if(degree < 2 || degree >= deviationSums.length)
+			throw new IllegalArgumentException("Moment degree " + degree + " is not tracked (maximum degree: " + getMaxDegree() + ")");
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds a new value to the accumulator.
+	 * @param value New value to be inserted
+	 */
+	public void add(double value) {
+		if(count == 0) {
+			count = 1;
+			mean = value;
+			minimum = value;
+			maximum = value;
+			return;
+		}
+		if(value < minimum)
+			minimum = value;
+		if(value > maximum)
+			maximum = value;
+
+		double delta = value - mean;
+		addDeviation(deviationSums, count, delta, binomials());
+		mean += delta / (count + 1);
+		count++;
+	}
+
+	/**
+	 * Updates the given sums of powered deviations for one additional value with weight 1.<br>
+	 * The weight of the previous values does not need to be integral,
+	 * which allows to use the update for exponentially weighted values.
+	 * @param deviationSums Sums of powered deviations from the mean, indexed by degree
+	 * @param oldWeight Total weight of the previous values (&gt;0)
+	 * @param delta Difference between the new value and the previous mean
+	 * @param binomials Binomial coefficients up to the maximum degree
+	 */
+	static void addDeviation(double[] deviationSums, double oldWeight, double delta, long[][] binomials) {
+		double newWeight = oldWeight + 1;
+		double negDeltaByN = -delta / newWeight;
+		double deltaTerm = oldWeight * delta / newWeight;
+		// Higher degrees depend on the old values of lower degrees.
+		for(int p = deviationSums.length - 1; p >= 2; p--) {
+			double sum = deviationSums[p];
+			double factor = 1.0;
+			for(int k = 1; k <= p - 2; k++) {
+				factor *= negDeltaByN;
+				sum += binomials[p][k] * factor * deviationSums[p - k];
+			}
+			sum += pow(deltaTerm, p) * (1.0 - pow(-1.0 / oldWeight, p - 1));
+			deviationSums[p] = sum;
+		}
+	}
+
+	/**
+	 * Merges the given accumulator into this accumulator.<br>
+	 * Afterwards, this accumulator has the same state as if all values of both accumulators
+	 * had been inserted into it (up to floating point rounding). The operation is associative,
+	 * so partial accumulators (e.g. of different threads) can be merged in any grouping.<br>
+	 * The given accumulator is not changed.
+	 * @param other The accumulator to merge
+	 * @return This accumulator
+	 * @throws IllegalArgumentException if the other accumulator tracks fewer moment degrees
+	 */
+	public MomentAccumulator merge(MomentAccumulator other) {
+		if(other.getMaxDegree() < getMaxDegree())
+			throw new IllegalArgumentException("Cannot merge accumulator with maximum degree " + other.getMaxDegree() + " into accumulator with maximum degree " + getMaxDegree());
+		if(other.count == 0)
+			return this;
+		if(count == 0) {
+			count = other.count;
+			minimum = other.minimum;
+			maximum = other.maximum;
+			mean = other.mean;
+			System.arraycopy(other.deviationSums, 2, deviationSums, 2, deviationSums.length - 2);
+			return this;
+		}
+		double countA = count;
+		double countB = other.count;
+		double newCount = countA + countB;
+		double delta = other.mean - mean;
+		double factorA = -countB / newCount * delta;
+		double factorB = countA / newCount * delta;
+		double deltaTerm = countA * countB / newCount * delta;
+		long[][] binomials = binomials();
+		// Higher degrees depend on the old values of lower degrees.
+		for(int p = deviationSums.length - 1; p >= 2; p--) {
+			double sum = deviationSums[p] + other.deviationSums[p];
+			double powA = 1.0;
+			double powB = 1.0;
+			for(int k = 1; k <= p - 2; k++) {
+				powA *= factorA;
+				powB *= factorB;
+				sum += binomials[p][k] * (powA * deviationSums[p - k] + powB * other.deviationSums[p - k]);
+			}
+			sum += pow(deltaTerm, p) * (1.0 / pow(countB, p - 1) - pow(-1.0 / countA, p - 1));
+			deviationSums[p] = sum;
+		}
+		mean += delta * countB / newCount;
+		count += other.count;
+		minimum = Math.min(minimum, other.minimum);
+		maximum = Math.max(maximum, other.maximum);
+		return this;
+	}
+
+	/**
+	 * Resets the accumulator to its initial state.
+	 */
+	public void clear() {
+		count = 0;
+		minimum = Double.NaN;
+		maximum = Double.NaN;
+		mean = 0.0;
+		for(int i = 0; i < deviationSums.length; i++)
+			deviationSums[i] = 0.0;
+	}
+
+	private long[][] binomials() {
+		if(binomials == null)
+			binomials = binomials(getMaxDegree());
+		return binomials;
+	}
+
+	/**
+	 * Returns the binomial coefficients (n over k) for all 0 &lt;= k &lt;= n &lt;= maxDegree.
+	 * @param maxDegree Maximum n
+	 * @return Binomial coefficients, indexed by n and k
+	 */
+	static long[][] binomials(int maxDegree) {
+		long[][] result = new long[maxDegree + 1][];
+		for(int n = 0; n <= maxDegree; n++) {
+			result[n] = new long[n + 1];
+			result[n][0] = 1;
+			result[n][n] = 1;
+			for(int k = 1; k < n; k++)
+				result[n][k] = result[n - 1][k - 1] + result[n - 1][k];
+		}
+		return result;
+	}
+
+	private static double pow(double base, int exponent) {
+		double result = 1.0;
+		for(int i = 0; i < exponent; i++)
+			result *= base;
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[count=").append(count);
+		builder.append(", min=").append(minimum);
+		builder.append(", max=").append(maximum);
+		builder.append(", mean=").append(mean);
+		for(int p = 2; p < deviationSums.length; p++)
+			builder.append(", m").append(p).append('=').append(getMoment(p));
+		builder.append(']');
+		return builder.toString();
+	}
+
+}
@@ -101,6 +101,16 @@ public class Observation implements Serializable {
 	 * In case of a reset, all values having a higher index are deleted.
 	 */
 	private int resetIndex = -1;
+	/**
+	 * Optional sketch for streaming quantile estimation.<br>
+	 * If set, all inserted values are additionally passed to the sketch.
+	 */
+	protected QuantileSketch quantileSketch = null;
+	/**
+	 * Optional histogram of inserted values.<br>
+	 * If set, all inserted values are additionally passed to the histogram.
+	 */
+	protected Histogram histogram = null;
 	
 	
 	//-----CONSTRUCTORS--------------------------------------------------------------------------
@@ -408,6 +418,99 @@ public class Observation implements Serializable {
 		return moments.get(2);
 	}
 	
+	/**
+	 * Returns the quantile sketch of this observation.
+	 * @return The quantile sketch;<br>
+	 * <code>null</code> if no sketch is set.
+	 */
+	public QuantileSketch getQuantileSketch() {
+		return quantileSketch;
+	}
+	
+	/**
+	 * Sets the quantile sketch of this observation.<br>
+	 * All values inserted so far are passed to the sketch.<br>
+	 * Once a sketch is set, {@link #getQuantile(double)} uses the sketch instead of the inserted values.
+	 * @param quantileSketch The quantile sketch, or <code>null</code> to remove the sketch
+	 */
+	public void setQuantileSketch(QuantileSketch quantileSketch) {
+		this.quantileSketch = quantileSketch;
+		if(quantileSketch != null)
+			for(Double value: insertSeq)
+				quantileSketch.add(value);
+	}
+	
+	/**
+	 * Returns the histogram of this observation.
+	 * @return The histogram;<br>
+	 * <code>null</code> if no histogram is set.
+	 */
+	public Histogram getHistogram() {
+		return histogram;
+	}
+	
+	/**
+	 * Sets the histogram of this observation.<br>
+	 * All values inserted so far are passed to the histogram.
+	 * @param histogram The histogram, or <code>null</code> to remove the histogram
+	 */
+	public void setHistogram(Histogram histogram) {
+		this.histogram = histogram;
+		if(histogram != null)
+			for(Double value: insertSeq)
+				histogram.add(value);
+	}
+	
+	/**
+	 * Returns the quantile of the given rank, i.e. the smallest inserted value v
+	 * such that at least <code>rank*count</code> inserted values are &lt;= v.<br>
+	 * If a quantile sketch is set, the quantile is estimated by the sketch.
+	 * Otherwise it is determined exactly from the value statistic.
+	 * @param rank Normalized rank (0 &lt;= rank &lt;= 1), e.g. 0.99 for the 99th percentile
+	 * @return The quantile of the given rank;<br>
+	 * <code>NaN</code> if no values have been inserted.
+	 * @see #setQuantileSketch(QuantileSketch)
+	 */
+	public double getQuantile(double rank) {
+		if(quantileSketch != null)
+			return quantileSketch.getQuantile(rank);
+		if(rank < 0 || rank > 1)
+			throw new IllegalArgumentException("Rank must be in [0,1]");
+		if(insertStat.isEmpty())
+			return Double.NaN;
+		double[] values = new double[insertStat.size()];
+		int i = 0;
+		for(Double value: insertStat.keySet())
+			values[i++] = value;
+		Arrays.sort(values);
+		double target = rank * observationCount;
+		double cumulative = 0;
+		for(double value: values) {
+			cumulative += insertStat.get(value);
+			if(cumulative >= target)
+				return value;
+		}
+		return values[values.length-1];
+	}
+	
+	/**
+	 * Returns a compact summary of this observation, which can be merged with summaries of other observations.<br>
+	 * The summary tracks moments up to degree {@value MomentAccumulator#DEFAULT_MAX_DEGREE}
+	 * or the highest degree of {@link #momentDegrees}, if greater.
+	 * If a quantile sketch is set, a copy of it is included.
+	 * @return A summary of all inserted values
+	 * @see ObservationSummary#merge(ObservationSummary)
+	 */
+	public ObservationSummary getSummary() {
+		int maxDegree = MomentAccumulator.DEFAULT_MAX_DEGREE;
+		for(Integer degree: momentDegrees)
+			maxDegree = Math.max(maxDegree, degree);
+		MomentAccumulator accumulator = new MomentAccumulator(maxDegree);
+		for(Double value: insertSeq)
+			accumulator.add(value);
+		return new ObservationSummary(name, accumulator, quantileSketch);
+	}
+	
 	//-----FUNCTIONALITY--------------------------------------------------------------------------
 	
 	/**
@@ -432,12 +535,24 @@ public class Observation implements Serializable {
 		if(c == null)
 			c = 0;
 		insertStat.put(value, ++c);
+		addToComponents(value);
 		observationCount++;
 		
 		if(alwaysUpToDate)
 			update();
 	}
 	
+	/**
+	 * Passes the given value to the optional quantile sketch and histogram.
+	 * @param value New value to be inserted
+	 */
+	protected void addToComponents(double value) {
+		if(quantileSketch != null)
+			quantileSketch.add(value);
+		if(histogram != null)
+			histogram.add(value);
+	}
+	
 	/**
 	 * Determines the expectation which is a probabilistic measure,<br>
 	 * estimating the next inserted value based on all values inserted so far.
@@ -493,12 +608,23 @@ public class Observation implements Serializable {
 		maximum = Double.MIN_VALUE;
 		expectation = null;
 		moments.clear();
+		clearComponents();
 		if(init != null)
 			for(Double value: init) {
 				addValue(value);
 			}
 	}
 	
+	/**
+	 * Resets the optional quantile sketch and histogram.
+	 */
+	protected void clearComponents() {
+		if(quantileSketch != null)
+			quantileSketch.clear();
+		if(histogram != null)
+			histogram.clear();
+	}
+	
 	/**
 	 * Returns a String representation of the observation containing all values and characteristics<br>
 	 * using identation which is specified by <code>identation</code> as the number of spaces.
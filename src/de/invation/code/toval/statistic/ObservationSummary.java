@@ -0,0 +1,204 @@
+package de.invation.code.toval.statistic;
+import java.io.Serializable;
+import java.util.stream.Collector;
+import java.util.stream.Collector.Characteristics;
+
+
+/**
+ * Compact, serializable summary of an {@link Observation}.<br>
+ * A summary consists of the observation name and a {@link MomentAccumulator}
+ * (count, minimum, maximum, mean and central deviation sums), but no inserted values.
+ * Optionally, it contains a {@link QuantileSketch}.<br>
+ * <br>
+ * Summaries can be merged with {@link #merge(ObservationSummary)}. Merging is associative,
+ * so observations of different threads or JVMs can be combined in any grouping
+ * (e.g. within fork/join tasks or via {@link #collector(String)}) without re-adding values.
+ *
+ * @author Thomas Stocker
+ */
+public class ObservationSummary implements Serializable {
+
+	private static final long serialVersionUID = 4416716591582468707L;
+
+	/**
+	 * Name of the summarized observation.
+	 */
+	private final String name;
+	/**
+	 * Accumulated characteristics of the summarized observation.
+	 */
+	private final MomentAccumulator accumulator;
+	/**
+	 * Optional quantile sketch of the summarized observation.
+	 */
+	private final QuantileSketch quantileSketch;
+
+	/**
+	 * Creates a new empty summary for moments up to degree {@value MomentAccumulator#DEFAULT_MAX_DEGREE}.
+	 * @param name The summary name
+	 */
+	public ObservationSummary(String name) {
+		this(name, new MomentAccumulator());
+	}
+
+	/**
+	 * Creates a new summary using the given accumulator.<br>
+	 * The accumulator is copied.
+	 * @param name The summary name
+	 * @param accumulator The accumulated characteristics
+	 */
+	public ObservationSummary(String name, MomentAccumulator accumulator) {
+		this(name, accumulator, null);
+	}
+
+	/**
+	 * Creates a new summary using the given accumulator and quantile sketch.<br>
+	 * Accumulator and sketch are copied.
+	 * @param name The summary name
+	 * @param accumulator The accumulated characteristics
+	 * @param quantileSketch The quantile sketch, or <code>null</code>
+	 */
+	public ObservationSummary(String name, MomentAccumulator accumulator, QuantileSketch quantileSketch) {
+		if(accumulator == null)
+			throw new NullPointerException();
+		this.name = name;
+		this.accumulator = new MomentAccumulator(accumulator);
+		this.quantileSketch = quantileSketch == null ? null : new QuantileSketch(quantileSketch);
+	}
+
+	/**
+	 * Creates a summary of the given values.
+	 * @param name The summary name
+	 * @param values The values to summarize
+	 * @return A summary of the given values
+	 */
+	public static ObservationSummary of(String name, double... values) {
+		MomentAccumulator accumulator = new MomentAccumulator();
+		for(double value: values)
+			accumulator.add(value);
+		return new ObservationSummary(name, accumulator);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns a copy of the accumulated characteristics.
+	 * @return The moment accumulator of this summary
+	 */
+	public MomentAccumulator getAccumulator() {
+		return new MomentAccumulator(accumulator);
+	}
+
+	public long getCount() {
+		return accumulator.getCount();
+	}
+
+	public double getMinimum() {
+		return accumulator.getMinimum();
+	}
+
+	public double getMaximum() {
+		return accumulator.getMaximum();
+	}
+
+	public double getExpectation() {
+		return accumulator.getMean();
+	}
+
+	public double getMoment(int degree) {
+		return accumulator.getMoment(degree);
+	}
+
+	public double getVariance() {
+		return accumulator.getVariance();
+	}
+
+	public boolean hasQuantileSketch() {
+		return quantileSketch != null;
+	}
+
+	/**
+	 * Returns a copy of the quantile sketch.
+	 * @return The quantile sketch of this summary;<br>
+	 * <code>null</code> if the summary contains no sketch.
+	 */
+	public QuantileSketch getQuantileSketch() {
+		return quantileSketch == null ? null : new QuantileSketch(quantileSketch);
+	}
+
+	/**
+	 * Returns an estimate for the quantile of the given rank.
+	 * @param rank Normalized rank (0 &lt;= rank &lt;= 1)
+	 * @return The estimated quantile
+	 * @throws IllegalStateException if the summary contains no quantile sketch
+	 */
+	public double getQuantile(double rank) {
+		if(quantileSketch == null)
+			throw new IllegalStateException("Summary does not contain a quantile sketch");
+		return quantileSketch.getQuantile(rank);
+	}
+
+	/**
+	 * Returns a new summary which combines this summary and the given summary.<br>
+	 * Both summaries are not changed.
+	 * The merged summary only contains a quantile sketch if both summaries contain one.
+	 * @param other The summary to merge with
+	 * @return The merged summary
+	 * @see MomentAccumulator#merge(MomentAccumulator)
+	 */
+	public ObservationSummary merge(ObservationSummary other) {
+		MomentAccumulator merged = new MomentAccumulator(accumulator);
+		if(other.accumulator.getMaxDegree() < merged.getMaxDegree()) {
+			merged = new MomentAccumulator(other.accumulator);
+			merged.merge(accumulator);
+		} else {
+			merged.merge(other.accumulator);
+		}
+		QuantileSketch mergedSketch = null;
+		if(quantileSketch != null && other.quantileSketch != null)
+			mergedSketch = new QuantileSketch(quantileSketch).merge(other.quantileSketch);
+		return new ObservationSummary(name, merged, mergedSketch);
+	}
+
+	/**
+	 * Creates a streaming observation which continues from the state of this summary.
+	 * @return A new streaming observation with the characteristics of this summary
+	 */
+	public StreamingObservation toObservation() {
+		StreamingObservation result = new StreamingObservation(name, 0, accumulator.getMaxDegree());
+		result.accumulator.merge(accumulator);
+		result.observationCount = accumulator.getCount();
+		if(quantileSketch != null)
+			result.quantileSketch = new QuantileSketch(quantileSketch);
+		return result;
+	}
+
+	/**
+	 * Returns a collector which summarizes a stream of values.<br>
+	 * Partial results of parallel streams are combined via {@link MomentAccumulator#merge(MomentAccumulator)}.
+	 * @param name The summary name
+	 * @return A collector for value summaries
+	 */
+	public static Collector<Double, MomentAccumulator, ObservationSummary> collector(String name) {
+		return Collector.of(MomentAccumulator::new, MomentAccumulator::add, MomentAccumulator::merge,
+				accumulator -> new ObservationSummary(name, accumulator), Characteristics.UNORDERED);
+	}
+
+	/**
+	 * Returns a collector which combines a stream of summaries (e.g. of different threads) into one summary.
+	 * @param name The name of the combined summary
+	 * @return A collector for combining summaries
+	 */
+	public static Collector<ObservationSummary, MomentAccumulator, ObservationSummary> merging(String name) {
+		return Collector.of(MomentAccumulator::new, (accumulator, summary) -> accumulator.merge(summary.accumulator), MomentAccumulator::merge,
+				accumulator -> new ObservationSummary(name, accumulator), Characteristics.UNORDERED);
+	}
+
+	@Override
+	public String toString() {
+		return "[Summary] " + name + " " + accumulator + (quantileSketch == null ? "" : " " + quantileSketch);
+	}
+
+}
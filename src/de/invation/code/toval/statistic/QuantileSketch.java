@@ -0,0 +1,412 @@
+package de.invation.code.toval.statistic;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Streaming quantile estimator with bounded memory (KLL sketch).<br>
+ * Values are kept in a hierarchy of compactors. Values on level h represent 2<sup>h</sup> inserted values.
+ * Whenever a level exceeds its capacity, it is sorted and every second value (random offset) is
+ * promoted to the next level, while the others are discarded. Level capacities decrease geometrically
+ * towards the lower levels, so the number of retained values is O(k) independent of the number of inserted values.<br>
+ * <br>
+ * The parameter k controls the trade-off between memory and accuracy:
+ * the normalized rank error is approximately {@link #getNormalizedRankError(int)}
+ * (about 1.3% for the default k={@value #DEFAULT_K}).<br>
+ * Sketches can be merged with {@link #merge(QuantileSketch)}.
+ *
+ * @author Thomas Stocker
+ */
+public class QuantileSketch implements Serializable {
+
+	private static final long serialVersionUID = -3071457735432512381L;
+
+	/**
+	 * Default accuracy parameter.
+	 */
+	public static final int DEFAULT_K = 200;
+	/**
+	 * Minimum accuracy parameter.
+	 */
+	public static final int MIN_K = 8;
+	/**
+	 * Ratio between the capacities of two adjacent levels.
+	 */
+	private static final double CAPACITY_RATIO = 2.0 / 3.0;
+	/**
+	 * Minimum capacity of a level.
+	 */
+	private static final int MIN_LEVEL_CAPACITY = 2;
+
+	/**
+	 * Accuracy parameter (capacity of the top level).
+	 */
+	private final int k;
+	/**
+	 * Retained values per level.
+	 */
+	private double[][] levels = new double[0][];
+	/**
+	 * Number of retained values per level.
+	 */
+	private int[] levelSizes = new int[0];
+	/**
+	 * Total number of retained values.
+	 */
+	private int retained = 0;
+	/**
+	 * Number of inserted values.
+	 */
+	private long count = 0;
+	private double minimum = Double.NaN;
+	private double maximum = Double.NaN;
+	/**
+	 * Retained values in ascending order (cached for queries).
+	 */
+	private transient double[] sortedValues = null;
+	/**
+	 * Cumulative weights of {@link #sortedValues}.
+	 */
+	private transient long[] cumulativeWeights = null;
+	/**
+	 * Random number generator for compaction offsets.
+	 */
+	private transient Random random = null;
+
+	/**
+	 * Creates a new empty sketch with accuracy parameter {@value #DEFAULT_K}.
+	 */
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * Creates a new empty sketch with the given accuracy parameter.
+	 * @param k Accuracy parameter (&gt;= {@value #MIN_K})
+	 * @see #getNormalizedRankError(int)
+	 */
+	public QuantileSketch(int k) {
+		if(k < MIN_K)
+			throw new IllegalArgumentException("Accuracy parameter k must be at least " + MIN_K);
+		this.k = k;
+		addLevel();
+	}
+
+	/**
+	 * Creates a copy of the given sketch.
+	 * @param sketch The sketch to copy
+	 */
+	public QuantileSketch(QuantileSketch sketch) {
+		k = sketch.k;
+		levels = new double[sketch.levels.length][];
+		for(int h = 0; h < levels.length; h++)
+			levels[h] = sketch.levels[h].clone();
+		levelSizes = sketch.levelSizes.clone();
+		retained = sketch.retained;
+		count = sketch.count;
+		minimum = sketch.minimum;
+		maximum = sketch.maximum;
+	}
+
+	/**
+	 * Creates a new empty sketch whose normalized rank error does not exceed the given value.
+	 * @param rankError Maximum normalized rank error (0 &lt; rankError &lt; 1)
+	 * @return A new quantile sketch
+	 */
+	public static QuantileSketch forRankError(double rankError) {
+		if(rankError <= 0 || rankError >= 1)
+			throw new IllegalArgumentException("Rank error must be in (0,1)");
+		int k = MIN_K;
+		while(getNormalizedRankError(k) > rankError)
+			k++;
+		return new QuantileSketch(k);
+	}
+
+	/**
+	 * Returns the approximate normalized rank error of sketches with the given accuracy parameter,
+	 * i.e. the maximum deviation of estimated ranks (relative to the number of inserted values)
+	 * which is not exceeded with high probability.
+	 * @param k Accuracy parameter
+	 * @return The normalized rank error
+	 */
+	public static double getNormalizedRankError(int k) {
+		return 2.296 / Math.pow(k, 0.9723);
+	}
+
+	//-----GETTER--------------------------------------------------------------------------
+
+	public int getK() {
+		return k;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Returns the number of values which are currently retained by the sketch.
+	 * @return The number of retained values
+	 */
+	public int getRetainedCount() {
+		return retained;
+	}
+
+	public double getMinimum() {
+		return minimum;
+	}
+
+	public double getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * Returns an estimate for the quantile of the given rank,
+	 * i.e. the smallest value v such that at least <code>rank*count</code> inserted values are &lt;= v.
+	 * @param rank Normalized rank (0 &lt;= rank &lt;= 1)
+	 * @return The estimated quantile;<br>
+	 * <code>NaN</code> if no values have been inserted.
+	 */
+	public double getQuantile(double rank) {
+		if(rank < 0 || rank > 1)
+			throw new IllegalArgumentException("Rank must be in [0,1]");
+		if(count == 0)
+			return Double.NaN;
+		if(rank == 0)
+			return minimum;
+		if(rank == 1)
+			return maximum;
+		prepareQuery();
+		long totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+		double target = rank * totalWeight;
+		int low = 0;
+		int high = cumulativeWeights.length - 1;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(cumulativeWeights[mid] < target) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return sortedValues[low];
+	}
+
+	/**
+	 * Returns estimates for the quantiles of the given ranks.
+	 * @param ranks Normalized ranks (0 &lt;= rank &lt;= 1)
+	 * @return The estimated quantiles
+	 * @see #getQuantile(double)
+	 */
+	public double[] getQuantiles(double... ranks) {
+		double[] result = new double[ranks.length];
+		for(int i = 0; i < ranks.length; i++)
+			result[i] = getQuantile(ranks[i]);
+		return result;
+	}
+
+	/**
+	 * Returns an estimate for the normalized rank of the given value,
+	 * i.e. the fraction of inserted values which are &lt;= value.
+	 * @param value The value
+	 * @return The estimated normalized rank;<br>
+	 * <code>NaN</code> if no values have been inserted.
+	 */
+	public double getRank(double value) {
+		if(count == 0)
+			return Double.NaN;
+		prepareQuery();
+		int index = Arrays.binarySearch(sortedValues, value);
+		if(index >= 0) {
+			while(index + 1 < sortedValues.length && sortedValues[index + 1] == value)
+				index++;
+		} else {
+			index = -index - 2;
+		}
+		if(index < 0)
+			return 0.0;
+		return cumulativeWeights[index] / (double) cumulativeWeights[cumulativeWeights.length - 1];
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds a new value to the sketch.
+	 * @param value New value to be inserted
+	 */
+	public void add(double value) {
+		if(Double.isNaN(value))
+			return;
+		if(count == 0) {
+			minimum = value;
+			maximum = value;
+		} else {
+			if(value < minimum)
+				minimum = value;
+			if(value > maximum)
+				maximum = value;
+		}
+		count++;
+		append(0, value);
+		if(retained >= totalCapacity())
+			compress();
+		sortedValues = null;
+	}
+
+	/**
+	 * Merges the given sketch into this sketch.<br>
+	 * The accuracy parameter of this sketch is kept, the given sketch is not changed.
+	 * Merging a sketch into itself counts every value twice.
+	 * @param other The sketch to merge
+	 * @return This sketch
+	 */
+	public QuantileSketch merge(QuantileSketch other) {
+		if(other.count == 0)
+			return this;
+		if(other == this)
+			other = new QuantileSketch(this);
+		while(levels.length < other.levels.length)
+			addLevel();
+		for(int h = 0; h < other.levels.length; h++) {
+			for(int i = 0; i < other.levelSizes[h]; i++)
+				append(h, other.levels[h][i]);
+		}
+		if(count == 0) {
+			minimum = other.minimum;
+			maximum = other.maximum;
+		} else {
+			minimum = Math.min(minimum, other.minimum);
+			maximum = Math.max(maximum, other.maximum);
+		}
+		count += other.count;
+		compress();
+		sortedValues = null;
+		return this;
+	}
+
+	/**
+	 * Resets the sketch to its initial state.
+	 */
+	public void clear() {
+		levels = new double[0][];
+		levelSizes = new int[0];
+		addLevel();
+		retained = 0;
+		count = 0;
+		minimum = Double.NaN;
+		maximum = Double.NaN;
+		sortedValues = null;
+	}
+
+	private void append(int level, double value) {
+		double[] values = levels[level];
+		if(levelSizes[level] == values.length)
+			levels[level] = values = Arrays.copyOf(values, values.length * 2);
+		values[levelSizes[level]++] = value;
+		retained++;
+	}
+
+	private void addLevel() {
+		int height = levels.length;
+		levels = Arrays.copyOf(levels, height + 1);
+		levelSizes = Arrays.copyOf(levelSizes, height + 1);
+		levels[height] = new double[Math.max(MIN_LEVEL_CAPACITY, k)];
+	}
+
+	private int levelCapacity(int level) {
+		int depth = levels.length - level - 1;
+		return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+	}
+
+	private int totalCapacity() {
+		int capacity = 0;
+		for(int h = 0; h < levels.length; h++)
+			capacity += levelCapacity(h);
+		return capacity;
+	}
+
+	/**
+	 * Compacts the lowest full level until the retained values fit into the total capacity.
+	 */
+	private void compress() {
+		while(retained >= totalCapacity()) {
+			int level = 0;
+			while(levelSizes[level] < levelCapacity(level))
+				level++;
+			if(level == levels.length - 1)
+				addLevel();
+			compact(level);
+		}
+	}
+
+	/**
+	 * Promotes every second value of the given level to the next level.<br>
+	 * In case of an odd number of values, the largest value stays on the level.
+	 * @param level The level to compact
+	 */
+	private void compact(int level) {
+		double[] values = levels[level];
+		int size = levelSizes[level];
+		Arrays.sort(values, 0, size);
+		int pairs = size / 2;
+		int offset = random().nextBoolean() ? 1 : 0;
+		for(int i = 0; i < pairs; i++)
+			append(level + 1, values[2 * i + offset]);
+		if(size % 2 == 1) {
+			values[0] = values[size - 1];
+			levelSizes[level] = 1;
+		} else {
+			levelSizes[level] = 0;
+		}
+		retained -= 2 * pairs;
+	}
+
+	private Random random() {
+		if(random == null)
+			random = new Random();
+		return random;
+	}
+
+	/**
+	 * Sorts all retained values and determines their cumulative weights.
+	 */
+	private void prepareQuery() {
+		if(sortedValues != null)
+			return;
+		double[] values = new double[0];
+		long[] weights = new long[0];
+		for(int h = 0; h < levels.length; h++) {
+			double[] levelValues = Arrays.copyOf(levels[h], levelSizes[h]);
+			Arrays.sort(levelValues);
+			double[] mergedValues = new double[values.length + levelValues.length];
+			long[] mergedWeights = new long[mergedValues.length];
+			long weight = 1L << h;
+			int i = 0, j = 0, n = 0;
+			while(i < values.length || j < levelValues.length) {
+				if(j == levelValues.length || (i < values.length && values[i] <= levelValues[j])) {
+					mergedValues[n] = values[i];
+					mergedWeights[n++] = weights[i++];
+				} else {
+					mergedValues[n] = levelValues[j++];
+					mergedWeights[n++] = weight;
+				}
+			}
+			values = mergedValues;
+			weights = mergedWeights;
+		}
+		for(int i = 1; i < weights.length; i++)
+			weights[i] += weights[i - 1];
+		sortedValues = values;
+		cumulativeWeights = weights;
+	}
+
+	@Override
+	public String toString() {
+		return "[QuantileSketch] k=" + k + ", count=" + count + ", retained=" + retained + ", levels=" + levels.length;
+	}
+
+}
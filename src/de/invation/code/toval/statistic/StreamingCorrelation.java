@@ -0,0 +1,250 @@
+package de.invation.code.toval.statistic;
+import java.nio.DoubleBuffer;
+
+
+/**
+ * Incremental correlation of two value distributions which are inserted pairwise as primitive values.<br>
+ * In contrast to {@link Correlation}, value pairs are not stored in observations.
+ * Running co-moments are maintained by a {@link CorrelationSummary}, so every insertion takes O(1) time.<br>
+ * <br>
+ * Depending on the {@link WindowMode}, the characteristics relate to
+ * <ul>
+ * <li>{@link WindowMode#CUMULATIVE}: all inserted value pairs,</li>
+ * <li>{@link WindowMode#SLIDING}: the last <code>windowSize</code> inserted value pairs,</li>
+ * <li>{@link WindowMode#TUMBLING}: the last completed block of <code>windowSize</code> value pairs.</li>
+ * </ul>
+ * Sliding windows keep the values of the window in primitive ring buffers and remove the oldest pair
+ * when a new pair is inserted. To prevent the accumulation of rounding errors,
+ * the window summary is recalculated exactly once per window length (amortized O(1)).
+ *
+ * @author Thomas Stocker
+ */
+public class StreamingCorrelation {
+
+	private final WindowMode windowMode;
+	private final int windowSize;
+	/**
+	 * Summary of all value pairs within the current window.
+	 */
+	private CorrelationSummary summary = new CorrelationSummary();
+	/**
+	 * Summary of the last completed window (tumbling windows only).
+	 */
+	private CorrelationSummary lastWindow = null;
+	/**
+	 * Ring buffers of window values (sliding windows only).
+	 */
+	private double[] windowA = null;
+	private double[] windowB = null;
+	/**
+	 * Position of the next value within the ring buffers.
+	 */
+	private int windowPosition = 0;
+	/**
+	 * Number of removals since the last exact recalculation.
+	 */
+	private int removalsSinceRecalculation = 0;
+	/**
+	 * Number of completed tumbling windows.
+	 */
+	private long completedWindows = 0;
+
+	/**
+	 * Creates a new correlation over all inserted value pairs.
+	 */
+	public StreamingCorrelation() {
+		this(WindowMode.CUMULATIVE, 0);
+	}
+
+	/**
+	 * Creates a new windowed correlation.
+	 * @param windowMode Window mode
+	 * @param windowSize Number of value pairs per window (ignored for cumulative mode)
+	 */
+	public StreamingCorrelation(WindowMode windowMode, int windowSize) {
+		if(windowMode == null)
+			throw new NullPointerException();
+		if(windowMode != WindowMode.CUMULATIVE && windowSize < 2)
+			throw new IllegalArgumentException("Window size must be at least 2");
+		this.windowMode = windowMode;
+		this.windowSize = windowSize;
+		if(windowMode == WindowMode.SLIDING) {
+			windowA = new double[windowSize];
+			windowB = new double[windowSize];
+		}
+	}
+
+	//-----GETTER--------------------------------------------------------------------------
+
+	public WindowMode getWindowMode() {
+		return windowMode;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * Returns the number of completed tumbling windows.
+	 * @return The number of completed windows
+	 */
+	public long getCompletedWindows() {
+		return completedWindows;
+	}
+
+	/**
+	 * Returns a copy of the summary the characteristics of this correlation relate to.<br>
+	 * For tumbling windows, this is the last completed window.
+	 * @return The current summary;<br>
+	 * an empty summary if no tumbling window has been completed yet.
+	 */
+	public CorrelationSummary getSummary() {
+		return new CorrelationSummary(relevantSummary());
+	}
+
+	/**
+	 * Returns a copy of the summary of the (incomplete) current tumbling window.
+	 * @return The summary of the current window
+	 */
+	public CorrelationSummary getCurrentWindow() {
+		return new CorrelationSummary(summary);
+	}
+
+	private CorrelationSummary relevantSummary() {
+		if(windowMode == WindowMode.TUMBLING)
+			return lastWindow == null ? new CorrelationSummary() : lastWindow;
+		return summary;
+	}
+
+	public long getCount() {
+		return relevantSummary().getCount();
+	}
+
+	/**
+	 * Returns the covariance of the two value distributions.
+	 * @return The covariance of the two value distributions
+	 * @see CorrelationSummary#getCovariance()
+	 */
+	public double getCovariance() {
+		return relevantSummary().getCovariance();
+	}
+
+	public double getStandardDeviationA() {
+		return relevantSummary().getStandardDeviationA();
+	}
+
+	public double getStandardDeviationB() {
+		return relevantSummary().getStandardDeviationB();
+	}
+
+	/**
+	 * Returns the correlation coefficient of the two distributions.<br>
+	 * This value between -1 and 1 is a correlation measure indicating complete negative/positive correlation.<br>
+	 * @return The correlation coefficient of the two distributions
+	 */
+	public double getCorrelationCoefficient() {
+		return relevantSummary().getCorrelationCoefficient();
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds a new value pair.
+	 * @param valueA Value of the first distribution
+	 * @param valueB Value of the second distribution
+	 */
+	public void add(double valueA, double valueB) {
+		switch(windowMode) {
+		case CUMULATIVE:
+			summary.add(valueA, valueB);
+			break;
+		case SLIDING:
+			if(summary.getCount() == windowSize) {
+				summary.remove(windowA[windowPosition], windowB[windowPosition]);
+				removalsSinceRecalculation++;
+			}
+			windowA[windowPosition] = valueA;
+			windowB[windowPosition] = valueB;
+			windowPosition = (windowPosition + 1) % windowSize;
+			if(removalsSinceRecalculation >= windowSize) {
+				summary = CorrelationSummary.of(windowA, windowB);
+				removalsSinceRecalculation = 0;
+			} else {
+				summary.add(valueA, valueB);
+			}
+			break;
+		case TUMBLING:
+			summary.add(valueA, valueB);
+			if(summary.getCount() == windowSize) {
+				lastWindow = summary;
+				summary = new CorrelationSummary();
+				completedWindows++;
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Adds all value pairs of the given arrays.<br>
+	 * In cumulative mode, the arrays are summarized in one batch and merged.
+	 * @param valuesA Values of the first distribution
+	 * @param valuesB Values of the second distribution
+	 */
+	public void addAll(double[] valuesA, double[] valuesB) {
+		if(valuesA == null || valuesB == null)
+			throw new NullPointerException();
+		if(valuesA.length != valuesB.length)
+			throw new IllegalArgumentException("Lengths of value array do not match!");
+		if(windowMode == WindowMode.CUMULATIVE) {
+			summary.merge(CorrelationSummary.of(valuesA, valuesB));
+		} else {
+			for(int i = 0; i < valuesA.length; i++)
+				add(valuesA[i], valuesB[i]);
+		}
+	}
+
+	/**
+	 * Adds all remaining value pairs of the given buffers.<br>
+	 * Afterwards, both buffers have no remaining values.
+	 * @param valuesA Values of the first distribution
+	 * @param valuesB Values of the second distribution
+	 */
+	public void addAll(DoubleBuffer valuesA, DoubleBuffer valuesB) {
+		if(valuesA == null || valuesB == null)
+			throw new NullPointerException();
+		if(valuesA.remaining() != valuesB.remaining())
+			throw new IllegalArgumentException("Lengths of value buffers do not match!");
+		if(windowMode == WindowMode.CUMULATIVE) {
+			summary.merge(CorrelationSummary.of(valuesA, valuesB));
+			valuesA.position(valuesA.limit());
+			valuesB.position(valuesB.limit());
+		} else {
+			while(valuesA.hasRemaining())
+				add(valuesA.get(), valuesB.get());
+		}
+	}
+
+	/**
+	 * Resets the correlation to the initial state after creation.
+	 */
+	public void reset() {
+		summary = new CorrelationSummary();
+		lastWindow = null;
+		windowPosition = 0;
+		removalsSinceRecalculation = 0;
+		completedWindows = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "[StreamingCorrelation] " + windowMode + (windowMode == WindowMode.CUMULATIVE ? "" : "(" + windowSize + ")") + " " + relevantSummary();
+	}
+
+	/**
+	 * Window modes for streaming correlations.
+	 */
+	public enum WindowMode {
+		CUMULATIVE, SLIDING, TUMBLING;
+	}
+
+}
@@ -0,0 +1,371 @@
+package de.invation.code.toval.statistic;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import de.invation.code.toval.misc.CollectionUtils;
+import de.invation.code.toval.misc.FormatUtils;
+
+
+/**
+ * Observation which does not store inserted values.<br>
+ * Instead of keeping a sequential list and a value statistic, the average, minimum, maximum,
+ * expectation and moments are maintained by a {@link MomentAccumulator}.<br>
+ * Memory consumption is therefore constant and the update cost per inserted value is O(1),
+ * independent of the update behavior.<br>
+ * <br>
+ * Optionally, a bounded reservoir keeps a uniform random sample of the inserted values
+ * (reservoir sampling), which is returned by {@link #getValues()}.
+ * Methods relying on the complete value sequence or value statistic
+ * ({@link #getValueAt(int)}, {@link #getValueStatistic()}, ...) are not supported.<br>
+ * <br>
+ * Moments can only be calculated up to the maximum degree of the accumulator,
+ * which is determined on creation. Quantiles require a {@link QuantileSketch},
+ * which only considers values inserted after it has been set.
+ *
+ * @author Thomas Stocker
+ */
+public class StreamingObservation extends Observation {
+
+	private static final long serialVersionUID = -3725472306813522958L;
+
+	/**
+	 * Accumulator for count, minimum, maximum, mean and moments.
+	 */
+	protected MomentAccumulator accumulator;
+	/**
+	 * Reservoir of sampled values.
+	 */
+	private double[] reservoir;
+	/**
+	 * Random number generator for reservoir sampling.
+	 */
+	private Random random = new Random();
+	/**
+	 * The last inserted value.
+	 */
+	private double lastValue = Double.NaN;
+
+
+	//-----CONSTRUCTORS--------------------------------------------------------------------------
+
+	/**
+	 * Creates a new empty streaming observation without reservoir.<br>
+	 * @see #StreamingObservation(String, int, int)
+	 */
+	public StreamingObservation() {
+		this(DEFAULT_NAME);
+	}
+
+	/**
+	 * Creates a new empty streaming observation without reservoir using the given name.<br>
+	 * @param name The observations' name
+	 * @see #StreamingObservation(String, int, int)
+	 */
+	public StreamingObservation(String name) {
+		this(name, 0);
+	}
+
+	/**
+	 * Creates a new empty streaming observation using the given name and reservoir capacity.<br>
+	 * @param name The observations' name
+	 * @param reservoirCapacity Maximum number of sampled values to keep (0 for no reservoir)
+	 * @see #StreamingObservation(String, int, int)
+	 */
+	public StreamingObservation(String name, int reservoirCapacity) {
+		this(name, reservoirCapacity, MomentAccumulator.DEFAULT_MAX_DEGREE);
+	}
+
+	/**
+	 * Creates a new empty streaming observation using the given name, reservoir capacity
+	 * and maximum moment degree.<br>
+	 * @param name The observations' name
+	 * @param reservoirCapacity Maximum number of sampled values to keep (0 for no reservoir)
+	 * @param maxMomentDegree Maximum degree of moments that can be calculated
+	 */
+	public StreamingObservation(String name, int reservoirCapacity, int maxMomentDegree) {
+		super(name);
+		if(reservoirCapacity < 0)
+			throw new IllegalArgumentException("Reservoir capacity cannot be <0");
+		accumulator = new MomentAccumulator(Math.max(maxMomentDegree, maxDegree(momentDegrees)));
+		reservoir = new double[reservoirCapacity];
+	}
+
+	private static int maxDegree(Collection<Integer> degrees) {
+		int max = 2;
+		for(Integer degree: degrees)
+			max = Math.max(max, degree);
+		return max;
+	}
+
+	//-----GETTER + SETTER--------------------------------------------------------------------------
+
+	/**
+	 * Returns the accumulator which maintains the characteristics of this observation.
+	 * @return The moment accumulator
+	 */
+	public MomentAccumulator getAccumulator() {
+		return accumulator;
+	}
+
+	/**
+	 * Sets the seed of the random number generator used for reservoir sampling.
+	 * @param seed Random seed
+	 */
+	public void setReservoirSeed(long seed) {
+		random = new Random(seed);
+	}
+
+	public int getReservoirCapacity() {
+		return reservoir.length;
+	}
+
+	/**
+	 * Sets the degrees of the moments that are calculated.<br>
+	 * All degrees must not exceed the maximum degree of the accumulator.
+	 * @param degrees The degrees of the moments that are calculated.
+	 * @throws IllegalArgumentException if a degree is not tracked by the accumulator
+	 */
+	@Override
+	public void setMomentDegrees(Collection<Integer> degrees) {
+		if(maxDegree(degrees) > accumulator.getMaxDegree())
+			throw new IllegalArgumentException("Moment degree exceeds the maximum degree of this streaming observation (" + accumulator.getMaxDegree() + ")");
+		super.setMomentDegrees(degrees);
+	}
+
+	@Override
+	public double getMinimum() {
+		return accumulator.getCount() == 0 ? Double.MAX_VALUE : accumulator.getMinimum();
+	}
+
+	@Override
+	public double getMaximum() {
+		return accumulator.getCount() == 0 ? Double.MIN_VALUE : accumulator.getMaximum();
+	}
+
+	@Override
+	public double getAverage() {
+		return accumulator.getMean();
+	}
+
+	@Override
+	public double getLastValue() {
+		if(accumulator.getCount() == 0)
+			throw new IndexOutOfBoundsException();
+		return lastValue;
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public double getValueAt(int index) {
+		throw new UnsupportedOperationException("Streaming observations do not store inserted values");
+	}
+
+	/**
+	 * Returns the values within the reservoir.<br>
+	 * In case the number of inserted values exceeds the reservoir capacity,
+	 * this is a uniform random sample of all inserted values.
+	 * @return A list containing the sampled values
+	 */
+	@Override
+	public List<Double> getValues() {
+		int size = (int) Math.min(reservoir.length, accumulator.getCount());
+		List<Double> result = new ArrayList<>(size);
+		for(int i = 0; i < size; i++)
+			result.add(reservoir[i]);
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public Integer getOccurrencesOf(Double value) {
+		throw new UnsupportedOperationException("Streaming observations do not store inserted values");
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public Set<Double> getDistinctValues() {
+		throw new UnsupportedOperationException("Streaming observations do not store inserted values");
+	}
+
+	/**
+	 * Not supported, since inserted values are not stored.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public Map<Double, Integer> getValueStatistic() {
+		throw new UnsupportedOperationException("Streaming observations do not store inserted values");
+	}
+
+	/**
+	 * Returns the expected value (probabilistic measure).<br>
+	 * The value is always up to date.
+	 * @return The expected value (probabilistic measure)
+	 */
+	@Override
+	public double getExpectation() {
+		setExpectation();
+		return expectation;
+	}
+
+	/**
+	 * Returns a map containing all calculated moments, accessible by their degree.<br>
+	 * The values are always up to date.
+	 * @return The calculated moments (probabilistic measure)
+	 */
+	@Override
+	public Map<Integer, Double> getMoments() {
+		setMoments();
+		return moments;
+	}
+
+	/**
+	 * Returns an estimate for the quantile of the given rank.<br>
+	 * Requires a quantile sketch, since inserted values are not stored.
+	 * @param rank Normalized rank (0 &lt;= rank &lt;= 1)
+	 * @return The estimated quantile of the given rank
+	 * @throws UnsupportedOperationException if no quantile sketch is set
+	 * @see #setQuantileSketch(QuantileSketch)
+	 */
+	@Override
+	public double getQuantile(double rank) {
+		if(quantileSketch == null)
+			throw new UnsupportedOperationException("Streaming observations require a quantile sketch for quantile estimation");
+		return quantileSketch.getQuantile(rank);
+	}
+
+	@Override
+	public double getVariance() {
+		return accumulator.getCount() == 0 ? 0.0 : accumulator.getVariance();
+	}
+
+	/**
+	 * Returns a compact summary of this observation.<br>
+	 * The summary is a copy of the current accumulator state.
+	 * @return A summary of all inserted values
+	 */
+	@Override
+	public ObservationSummary getSummary() {
+		return new ObservationSummary(name, accumulator, quantileSketch);
+	}
+
+	//-----FUNCTIONALITY--------------------------------------------------------------------------
+
+	/**
+	 * Adds a new value to the observation.<br>
+	 * The value is passed to the accumulator and, if the reservoir is enabled,
+	 * sampled into the reservoir.
+	 * @param value New value to be inserted
+	 */
+	@Override
+	public void addValue(double value) {
+		long count = accumulator.getCount();
+		if(count < reservoir.length) {
+			reservoir[(int) count] = value;
+		} else if(reservoir.length > 0) {
+			long position = (long) (random.nextDouble() * (count + 1));
+			if(position < reservoir.length)
+				reservoir[(int) position] = value;
+		}
+		accumulator.add(value);
+		addToComponents(value);
+		lastValue = value;
+		observationCount++;
+
+		if(isAlwaysUpToDate())
+			update();
+	}
+
+	@Override
+	protected void setExpectation() {
+		expectation = accumulator.getMean();
+	}
+
+	@Override
+	protected void setMoments() {
+		moments.clear();
+		for(Integer degree: momentDegrees)
+			moments.put(degree, accumulator.getCount() == 0 ? 0.0 : accumulator.getMoment(degree));
+	}
+
+	/**
+	 * Resets the observation to the initial state after creation.<br>
+	 * Potential changed values for update behavior or moment degrees are kept.
+	 */
+	@Override
+	public void reset() {
+		accumulator.clear();
+		observationCount = 0.0;
+		expectation = null;
+		moments.clear();
+		clearComponents();
+		lastValue = Double.NaN;
+	}
+
+	/**
+	 * Returns a String representation of the observation containing all characteristics<br>
+	 * using identation which is specified by <code>identation</code> as the number of spaces.
+	 * @param identation The number of spaces used for identation
+	 * @return A String representation of the observation with identation
+	 */
+	@Override
+	public String toString(int identation) {
+		if(identation <0)
+			throw new IllegalArgumentException("identation cannot be <0");
+		String header;
+		if(identation ==0) header="";
+		  else header = String.format(String.format("%%%ss", identation), "");
+		StringBuilder builder = new StringBuilder();
+		builder.append(header);
+		builder.append("[Obs] ");
+		builder.append(name);
+		builder.append("\n");
+		if(reservoir.length > 0) {
+			builder.append(header);
+			builder.append(" reservoir: ");
+			builder.append(CollectionUtils.toString(getValues(), standardPrecision));
+			builder.append("\n");
+		}
+		builder.append(header);
+		builder.append("     count: ");
+		builder.append((int) getObservationCount());
+		builder.append("\n");
+		builder.append(header);
+		builder.append("    expect: ");
+		builder.append(FormatUtils.format(getExpectation()));
+		builder.append("\n");
+		builder.append(header);
+		builder.append("   moments: ");
+		Map<Integer, Double> m = new HashMap<>(getMoments());
+		if(m.isEmpty()) {
+			builder.append("- \n");
+		} else {
+			for(Integer i: m.keySet()) {
+				builder.append(i);
+				builder.append("=");
+				builder.append(FormatUtils.format(m.get(i), momentPrecision));
+				builder.append(" ");
+			}
+			builder.append("\n");
+		}
+		builder.append(header);
+		builder.append("   updates: streaming");
+		builder.append("\n");
+		return builder.toString();
+	}
+
+}
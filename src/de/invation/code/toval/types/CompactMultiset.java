@@ -0,0 +1,501 @@
+package de.invation.code.toval.types;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import de.invation.code.toval.validate.ParameterException;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Multiset implementation which stores multiplicities as primitive
+ * <code>int</code> values in an open-addressing hash table
+ * ({@link ObjectIntMap}).<br>
+ * <br>
+ * In contrast to {@link Multiset}, changing a multiplicity does not create
+ * <code>Integer</code> objects and requires only one table operation. The
+ * total number of elements is cached, so {@link #size()} runs in constant
+ * time. Set operations (union, intersection, difference, subset checks)
+ * traverse the table slots directly.<br>
+ * <br>
+ * Information about the distribution of multiplicities
+ * ({@link #equalMultiplicities()}, {@link #getEqualMultiplicity()}) is
+ * computed on demand instead of being maintained on every update.<br>
+ * <br>
+ * Compact multisets are equal to other multisets with the same multiplicities
+ * and use the same hash code.
+ *
+ * @author Thomas Stocker
+ * @param <O>
+ */
+public class CompactMultiset<O extends Object> extends Multiset<O> {
+
+	/**
+	 * Table for managing the multiplicity of objects.
+	 */
+	protected ObjectIntMap<O> counts;
+
+	/**
+	 * Sum of all multiplicities.
+	 */
+	protected int size = 0;
+
+	public CompactMultiset() {
+		super(false);
+		counts = new ObjectIntMap<>();
+	}
+
+	/**
+	 * Creates a new multiset whose table can hold the given number of
+	 * distinct objects without resizing.
+	 *
+	 * @param expectedSupportSize The expected number of distinct objects.
+	 */
+	public CompactMultiset(int expectedSupportSize) {
+		super(false);
+		counts = new ObjectIntMap<>(expectedSupportSize);
+	}
+
+	public CompactMultiset(Collection<O> objects) {
+		this();
+		Validate.notNull(objects);
+		for (O o : objects) {
+			incMultiplicity(o);
+		}
+	}
+
+	@SafeVarargs
+	public CompactMultiset(O... objects) {
+		this();
+		Validate.notNull(objects);
+		for (O o : objects) {
+			incMultiplicity(o);
+		}
+	}
+
+	/**
+	 * Creates a copy of the given multiset.
+	 *
+	 * @param multiset The multiset to copy.
+	 */
+	public CompactMultiset(Multiset<O> multiset) {
+		super(false);
+		Validate.notNull(multiset);
+		if (multiset instanceof CompactMultiset) {
+			CompactMultiset<O> compact = (CompactMultiset<O>) multiset;
+			counts = new ObjectIntMap<>(compact.counts);
+			size = compact.size;
+		} else {
+			counts = new ObjectIntMap<>(multiset.support().size());
+			for (O o : multiset.support()) {
+				setMultiplicity(o, multiset.multiplicity(o));
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<O> support() {
+		return Collections.unmodifiableSet(counts.keySet());
+	}
+
+	@Override
+	public boolean equalMultiplicities() {
+		int multiplicity = -1;
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (counts.keyAt(slot) != null) {
+				if (multiplicity == -1) {
+					multiplicity = counts.valueAt(slot);
+				} else if (counts.valueAt(slot) != multiplicity) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int getEqualMultiplicity() {
+		if (isEmpty() || !equalMultiplicities()) {
+			return -1;
+		}
+		return power();
+	}
+
+	@Override
+	public void reduceToSet() {
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (counts.keyAt(slot) != null) {
+				counts.setValueAt(slot, 1);
+			}
+		}
+		size = counts.size();
+	}
+
+	@Override
+	public int add(O object) throws ParameterException {
+		return incMultiplicity(object);
+	}
+
+	@Override
+	@SafeVarargs
+	public final void addAll(O... objects) throws ParameterException {
+		Validate.notNull(objects);
+		for (O o : objects) {
+			incMultiplicity(o);
+		}
+	}
+
+	@Override
+	public boolean remove(O object) {
+		if (!counts.containsKey(object)) {
+			return false;
+		}
+		size -= counts.remove(object);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		counts.clear();
+		size = 0;
+	}
+
+	@Override
+	public void printMultiplicityCount() {
+		Map<Integer, Integer> multiplicityCount = new TreeMap<>();
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (counts.keyAt(slot) != null) {
+				Integer count = multiplicityCount.get(counts.valueAt(slot));
+				multiplicityCount.put(counts.valueAt(slot), count == null ? 1 : count + 1);
+			}
+		}
+		System.out.println(multiplicityCount);
+	}
+
+	@Override
+	@SafeVarargs
+	public final boolean contains(O... objects) {
+		for (O o : objects) {
+			if (!counts.containsKey(o)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean contains(Collection<O> objects) {
+		for (O o : objects) {
+			if (!counts.containsKey(o)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean contains(O object) {
+		return counts.containsKey(object);
+	}
+
+	@Override
+	public void setMultiplicity(O object, int multiplicity) {
+		if (multiplicity < 1) {
+			remove(object);
+			return;
+		}
+		size += multiplicity - counts.put(object, multiplicity);
+	}
+
+	@Override
+	public int incMultiplicity(O object) throws ParameterException {
+		Validate.notNull(object);
+		size++;
+		return counts.addTo(object, 1);
+	}
+
+	@Override
+	public int decMultiplicity(O object) throws ParameterException {
+		Validate.notNull(object);
+		int multiplicity = counts.get(object);
+		if (multiplicity == 0) {
+			return 0;
+		}
+		size--;
+		if (multiplicity > 1) {
+			return counts.addTo(object, -1);
+		}
+		counts.remove(object);
+		return 0;
+	}
+
+	@Override
+	public int multiplicity(O object) {
+		return counts.get(object);
+	}
+
+	@Override
+	public int minMultiplicity() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}
+		int min = Integer.MAX_VALUE;
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (counts.keyAt(slot) != null && counts.valueAt(slot) < min) {
+				min = counts.valueAt(slot);
+			}
+		}
+		return min;
+	}
+
+	@Override
+	public Integer power() {
+		if (isEmpty()) {
+			return null;
+		}
+		return maxMultiplicity();
+	}
+
+	private int maxMultiplicity() {
+		int max = 0;
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (counts.keyAt(slot) != null && counts.valueAt(slot) > max) {
+				max = counts.valueAt(slot);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return counts.isEmpty();
+	}
+
+	@Override
+	public boolean isKBounded(int k) {
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (counts.keyAt(slot) != null && counts.valueAt(slot) > k) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void addScalar(int k) {
+		size = 0;
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (counts.keyAt(slot) != null) {
+				int multiplicity = counts.valueAt(slot) + k;
+				counts.setValueAt(slot, multiplicity);
+				if (multiplicity > 0) {
+					size += multiplicity;
+				}
+			}
+		}
+		counts.removeNonPositive();
+	}
+
+	@Override
+	public void multiplyScalar(int k) {
+		size = 0;
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (counts.keyAt(slot) != null) {
+				int multiplicity = counts.valueAt(slot) * k;
+				counts.setValueAt(slot, multiplicity);
+				if (multiplicity > 0) {
+					size += multiplicity;
+				}
+			}
+		}
+		counts.removeNonPositive();
+	}
+
+	@Override
+	public boolean isSubsetOf(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		if (size > multiset.size()) {
+			return false;
+		}
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			O o = counts.keyAt(slot);
+			if (o != null && counts.valueAt(slot) > multiset.multiplicity(o)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public CompactMultiset<O> union(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		CompactMultiset<O> result = new CompactMultiset<>(this);
+		result.unionWith(multiset);
+		return result;
+	}
+
+	@Override
+	public void unionWith(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		if (multiset instanceof CompactMultiset) {
+			ObjectIntMap<O> otherCounts = ((CompactMultiset<O>) multiset).counts;
+			for (int slot = 0; slot < otherCounts.capacity(); slot++) {
+				O o = otherCounts.keyAt(slot);
+				if (o != null) {
+					maxMultiplicity(o, otherCounts.valueAt(slot));
+				}
+			}
+		} else {
+			for (O o : multiset.support()) {
+				maxMultiplicity(o, multiset.multiplicity(o));
+			}
+		}
+	}
+
+	private void maxMultiplicity(O object, int multiplicity) {
+		int oldMultiplicity = counts.get(object);
+		if (multiplicity > oldMultiplicity) {
+			counts.put(object, multiplicity);
+			size += multiplicity - oldMultiplicity;
+		}
+	}
+
+	@Override
+	public CompactMultiset<O> intersection(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		CompactMultiset<O> result = new CompactMultiset<>(Math.min(counts.size(), multiset.support().size()));
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			O o = counts.keyAt(slot);
+			if (o != null) {
+				int multiplicity = Math.min(counts.valueAt(slot), multiset.multiplicity(o));
+				if (multiplicity > 0) {
+					result.counts.put(o, multiplicity);
+					result.size += multiplicity;
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void intersectionWith(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		size = 0;
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			O o = counts.keyAt(slot);
+			if (o != null) {
+				int multiplicity = Math.min(counts.valueAt(slot), multiset.multiplicity(o));
+				counts.setValueAt(slot, multiplicity);
+				size += multiplicity;
+			}
+		}
+		counts.removeNonPositive();
+	}
+
+	@Override
+	public CompactMultiset<O> difference(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		CompactMultiset<O> result = new CompactMultiset<>(counts.size());
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			O o = counts.keyAt(slot);
+			if (o != null) {
+				int multiplicity = counts.valueAt(slot) - multiset.multiplicity(o);
+				if (multiplicity > 0) {
+					result.counts.put(o, multiplicity);
+					result.size += multiplicity;
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void differenceWith(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		size = 0;
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			O o = counts.keyAt(slot);
+			if (o != null) {
+				int multiplicity = Math.max(0, counts.valueAt(slot) - multiset.multiplicity(o));
+				counts.setValueAt(slot, multiplicity);
+				size += multiplicity;
+			}
+		}
+		counts.removeNonPositive();
+	}
+
+	@Override
+	public CompactMultiset<O> sum(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		CompactMultiset<O> result = new CompactMultiset<>(this);
+		if (multiset instanceof CompactMultiset) {
+			ObjectIntMap<O> otherCounts = ((CompactMultiset<O>) multiset).counts;
+			for (int slot = 0; slot < otherCounts.capacity(); slot++) {
+				O o = otherCounts.keyAt(slot);
+				if (o != null) {
+					result.counts.addTo(o, otherCounts.valueAt(slot));
+				}
+			}
+		} else {
+			for (O o : multiset.support()) {
+				result.counts.addTo(o, multiset.multiplicity(o));
+			}
+		}
+		result.size += multiset.size();
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		// Same value as Multiset.hashCode() for equal multiplicities.
+		return 31 + counts.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof CompactMultiset) {
+			CompactMultiset<?> other = (CompactMultiset<?>) obj;
+			return size == other.size && counts.equals(other.counts);
+		}
+		return super.equals(obj);
+	}
+
+	@Override
+	public CompactMultiset<O> clone() {
+		return new CompactMultiset<>(this);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append('{');
+		int count = 0;
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			O object = counts.keyAt(slot);
+			if (object != null) {
+				int mult = counts.valueAt(slot);
+				builder.append(object);
+				if (mult > 1) {
+					builder.append("(").append(mult).append(")");
+				}
+				if (++count < counts.size()) {
+					builder.append(", ");
+				}
+			}
+		}
+		builder.append('}');
+		return builder.toString();
+	}
+
+}
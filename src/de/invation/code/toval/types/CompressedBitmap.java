@@ -0,0 +1,879 @@
+package de.invation.code.toval.types;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+import de.invation.code.toval.misc.SortedArrays;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Compressed bitmap set of non-negative <code>int</code> values.<br>
+ * Values are grouped into chunks of 2^16 consecutive values, where the high
+ * 16 bits of a value determine its chunk. Every non-empty chunk is stored in
+ * a container that depends on its density:
+ * <ul>
+ * <li>Sparse chunks with at most {@value #ARRAY_LIMIT} values are stored as
+ * sorted arrays of the low 16 bits.</li>
+ * <li>Dense chunks are stored as uncompressed bitmaps of 1024 words.</li>
+ * </ul>
+ * So a set never needs more than about 2 bytes per value, and set
+ * operations process whole words or merge sorted arrays instead of hashing
+ * single elements.<br>
+ * <br>
+ * Besides the in-place operations {@link #addAll(CompressedBitmap)},
+ * {@link #retainAll(CompressedBitmap)} and
+ * {@link #removeAll(CompressedBitmap)}, the static methods
+ * {@link #and(CompressedBitmap, CompressedBitmap)},
+ * {@link #or(CompressedBitmap, CompressedBitmap)} and
+ * {@link #andNot(CompressedBitmap, CompressedBitmap)} create new sets.
+ * {@link #intersects(CompressedBitmap)} and
+ * {@link #andCardinality(CompressedBitmap)} do not create any result set.
+ *
+ * @author Thomas Stocker
+ */
+public class CompressedBitmap implements Iterable<Integer> {
+
+	/**
+	 * Maximum number of values of a chunk stored as sorted array.
+	 */
+	public static final int ARRAY_LIMIT = 4096;
+
+	private static final int WORDS = 1024;
+
+	/**
+	 * Sorted chunk keys (high 16 bits of the values).
+	 */
+	private int[] keys;
+	private Container[] containers;
+	private int size = 0;
+
+	/**
+	 * Creates a new empty set.
+	 */
+	public CompressedBitmap() {
+		keys = new int[4];
+		containers = new Container[4];
+	}
+
+	/**
+	 * Creates a copy of the given set.
+	 *
+	 * @param bitmap
+	 *            The set to copy
+	 */
+	public CompressedBitmap(CompressedBitmap bitmap) {
+		Validate.notNull(bitmap);
+		keys = Arrays.copyOf(bitmap.keys, Math.max(4, bitmap.size));
+		containers = new Container[keys.length];
+		size = bitmap.size;
+		for (int i = 0; i < size; i++)
+			containers[i] = bitmap.containers[i].copy();
+	}
+
+	/**
+	 * Creates a new set containing the given values.
+	 *
+	 * @param values
+	 *            Non-negative values
+	 * @return A set containing all given values
+	 */
+	public static CompressedBitmap of(int... values) {
+		Validate.notNull(values);
+		CompressedBitmap result = new CompressedBitmap();
+		for (int value : values)
+			result.add(value);
+		return result;
+	}
+
+	/**
+	 * Adds the given value to the set.
+	 *
+	 * @param value
+	 *            Non-negative value
+	 * @return <code>true</code> if the set did not contain the value before;<br>
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean add(int value) {
+		Validate.notNegative(value);
+		int index = indexOf(value >>> 16);
+		if (index < 0) {
+			index = -index - 1;
+			insert(index, value >>> 16, new ArrayContainer());
+		}
+		Container container = containers[index];
+		int cardinality = container.cardinality;
+		containers[index] = container.add(value & 0xFFFF);
+		return containers[index].cardinality != cardinality;
+	}
+
+	/**
+	 * Removes the given value from the set.
+	 *
+	 * @param value
+	 *            The value to remove
+	 * @return <code>true</code> if the set contained the value;<br>
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean remove(int value) {
+		if (value < 0)
+			return false;
+		int index = indexOf(value >>> 16);
+		if (index < 0)
+			return false;
+		Container container = containers[index];
+		int cardinality = container.cardinality;
+		container = container.remove(value & 0xFFFF);
+		if (container.cardinality == 0) {
+			delete(index);
+		} else {
+			containers[index] = container;
+		}
+		return container.cardinality != cardinality;
+	}
+
+	/**
+	 * Checks if the set contains the given value.
+	 *
+	 * @param value
+	 *            The value to check
+	 * @return <code>true</code> if the set contains the value;<br>
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean contains(int value) {
+		if (value < 0)
+			return false;
+		int index = indexOf(value >>> 16);
+		return index >= 0 && containers[index].contains(value & 0xFFFF);
+	}
+
+	/**
+	 * Returns the number of values in the set.
+	 *
+	 * @return The number of values
+	 */
+	public long getCardinality() {
+		long cardinality = 0;
+		for (int i = 0; i < size; i++)
+			cardinality += containers[i].cardinality;
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(containers, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Adds all values of the given set to this set.
+	 *
+	 * @param other
+	 *            The set whose values are added
+	 */
+	public void addAll(CompressedBitmap other) {
+		Validate.notNull(other);
+		if (other.size == 0)
+			return;
+		int[] mergedKeys = new int[Math.max(4, size + other.size)];
+		Container[] mergedContainers = new Container[mergedKeys.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < size || j < other.size) {
+			if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+				mergedKeys[count] = keys[i];
+				mergedContainers[count++] = containers[i++];
+			} else if (i == size || other.keys[j] < keys[i]) {
+				mergedKeys[count] = other.keys[j];
+				mergedContainers[count++] = other.containers[j++].copy();
+			} else {
+				mergedKeys[count] = keys[i];
+				mergedContainers[count++] = containers[i++].or(other.containers[j++]);
+			}
+		}
+		keys = mergedKeys;
+		containers = mergedContainers;
+		size = count;
+	}
+
+	/**
+	 * Removes all values from this set which are not contained in the given
+	 * set.
+	 *
+	 * @param other
+	 *            The set whose values are retained
+	 */
+	public void retainAll(CompressedBitmap other) {
+		Validate.notNull(other);
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				Container container = containers[i].and(other.containers[j]);
+				if (container.cardinality > 0) {
+					keys[count] = keys[i];
+					containers[count++] = container;
+				}
+				i++;
+				j++;
+			}
+		}
+		Arrays.fill(containers, count, size, null);
+		size = count;
+	}
+
+	/**
+	 * Removes all values of the given set from this set.
+	 *
+	 * @param other
+	 *            The set whose values are removed
+	 */
+	public void removeAll(CompressedBitmap other) {
+		Validate.notNull(other);
+		int count = 0;
+		int j = 0;
+		for (int i = 0; i < size; i++) {
+			while (j < other.size && other.keys[j] < keys[i])
+				j++;
+			Container container = containers[i];
+			if (j < other.size && other.keys[j] == keys[i])
+				container = container.andNot(other.containers[j]);
+			if (container.cardinality > 0) {
+				keys[count] = keys[i];
+				containers[count++] = container;
+			}
+		}
+		Arrays.fill(containers, count, size, null);
+		size = count;
+	}
+
+	/**
+	 * Creates the intersection of two sets.
+	 *
+	 * @param a
+	 *            First set
+	 * @param b
+	 *            Second set
+	 * @return A new set containing all values contained in both sets
+	 */
+	public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+		Validate.notNull(a);
+		// Intersected containers are always new, so the containers of a can be shared
+		CompressedBitmap result = new CompressedBitmap();
+		result.keys = Arrays.copyOf(a.keys, Math.max(4, a.size));
+		result.containers = Arrays.copyOf(a.containers, result.keys.length);
+		result.size = a.size;
+		result.retainAll(b);
+		return result;
+	}
+
+	/**
+	 * Creates the union of two sets.
+	 *
+	 * @param a
+	 *            First set
+	 * @param b
+	 *            Second set
+	 * @return A new set containing all values contained in any of the sets
+	 */
+	public static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) {
+		CompressedBitmap result = new CompressedBitmap(a);
+		result.addAll(b);
+		return result;
+	}
+
+	/**
+	 * Creates the difference of two sets.
+	 *
+	 * @param a
+	 *            First set
+	 * @param b
+	 *            Set of values to remove
+	 * @return A new set containing all values of <code>a</code> which are not
+	 *         contained in <code>b</code>
+	 */
+	public static CompressedBitmap andNot(CompressedBitmap a, CompressedBitmap b) {
+		Validate.notNull(a);
+		CompressedBitmap result = new CompressedBitmap(a);
+		result.removeAll(b);
+		return result;
+	}
+
+	/**
+	 * Checks if this set and the given set have common values.
+	 *
+	 * @param other
+	 *            The set to check
+	 * @return <code>true</code> if there is at least one common value;<br>
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean intersects(CompressedBitmap other) {
+		Validate.notNull(other);
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else if (containers[i++].intersects(other.containers[j++])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of common values of this set and the given set
+	 * without creating the intersection.
+	 *
+	 * @param other
+	 *            The set to intersect with
+	 * @return The cardinality of the intersection
+	 */
+	public long andCardinality(CompressedBitmap other) {
+		Validate.notNull(other);
+		long cardinality = 0;
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				cardinality += containers[i++].andCardinality(other.containers[j++]);
+			}
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Passes all values in ascending order to the given consumer.
+	 *
+	 * @param action
+	 *            The consumer for the values
+	 */
+	public void forEachInt(IntConsumer action) {
+		Validate.notNull(action);
+		for (int i = 0; i < size; i++)
+			containers[i].forEach(keys[i] << 16, action);
+	}
+
+	/**
+	 * Returns all values in ascending order.
+	 *
+	 * @return A sorted array of all values
+	 */
+	public int[] toArray() {
+		long cardinality = getCardinality();
+		if (cardinality > Integer.MAX_VALUE)
+			throw new IllegalStateException("Too many values for an array: " + cardinality);
+		int[] result = new int[(int) cardinality];
+		int position = 0;
+		for (int i = 0; i < size; i++) {
+			Container container = containers[i];
+			int high = keys[i] << 16;
+			if (container instanceof ArrayContainer) {
+				short[] values = ((ArrayContainer) container).values;
+				for (int k = 0; k < container.cardinality; k++)
+					result[position++] = high | unbias(values[k]);
+			} else {
+				long[] words = ((BitmapContainer) container).words;
+				for (int w = 0; w < WORDS; w++) {
+					for (long word = words[w]; word != 0; word &= word - 1)
+						result[position++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an iterator over all values in ascending order.
+	 */
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+
+			private int container = 0;
+			private int position = 0;
+			private long word = 0;
+
+			{
+				if (size > 0)
+					load();
+			}
+
+			/**
+			 * Prepares the first value of the current container.
+			 */
+			private void load() {
+				position = 0;
+				word = 0;
+				if (containers[container] instanceof BitmapContainer)
+					advanceWord();
+			}
+
+			private void advanceWord() {
+				long[] words = ((BitmapContainer) containers[container]).words;
+				while (word == 0 && position < WORDS)
+					word = words[position++];
+			}
+
+			@Override
+			public boolean hasNext() {
+				return container < size;
+			}
+
+			@Override
+			public int nextInt() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				int high = keys[container] << 16;
+				int result;
+				boolean exhausted;
+				if (containers[container] instanceof ArrayContainer) {
+					ArrayContainer array = (ArrayContainer) containers[container];
+					result = high | unbias(array.values[position++]);
+					exhausted = position == array.cardinality;
+				} else {
+					result = high | ((position - 1) << 6) | Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+					advanceWord();
+					exhausted = word == 0;
+				}
+				if (exhausted && ++container < size)
+					load();
+				return result;
+			}
+
+		};
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 1;
+		for (int i = 0; i < size; i++)
+			result = 31 * result + keys[i] * 31 + containers[i].hash();
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CompressedBitmap))
+			return false;
+		CompressedBitmap other = (CompressedBitmap) obj;
+		if (size != other.size)
+			return false;
+		for (int i = 0; i < size; i++) {
+			if (keys[i] != other.keys[i] || !containers[i].isEqual(other.containers[i]))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		forEachInt(value -> {
+			if (builder.length() > 1)
+				builder.append(", ");
+			builder.append(value);
+		});
+		return builder.append(']').toString();
+	}
+
+	private int indexOf(int key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	private void insert(int index, int key, Container container) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		keys[index] = key;
+		containers[index] = container;
+		size++;
+	}
+
+	private void delete(int index) {
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+		containers[--size] = null;
+	}
+
+	/**
+	 * Maps the low 16 bits of a value to a short whose signed order equals
+	 * the unsigned order of the low bits, so array containers can use the
+	 * operations of {@link SortedArrays}.
+	 */
+	private static short bias(int low) {
+		return (short) (low ^ 0x8000);
+	}
+
+	private static int unbias(short value) {
+		return (value ^ 0x8000) & 0xFFFF;
+	}
+
+	/**
+	 * Container for the values of one chunk.<br>
+	 * Operations return the container holding the result, which may be of a
+	 * different type than the operands. Containers are only modified by
+	 * {@link #add(int)} and {@link #remove(int)}.
+	 */
+	private static abstract class Container {
+
+		int cardinality = 0;
+
+		abstract Container add(int low);
+
+		abstract Container remove(int low);
+
+		abstract boolean contains(int low);
+
+		abstract Container and(Container other);
+
+		abstract Container or(Container other);
+
+		abstract Container andNot(Container other);
+
+		abstract boolean intersects(Container other);
+
+		abstract int andCardinality(Container other);
+
+		abstract void forEach(int high, IntConsumer action);
+
+		abstract Container copy();
+
+		abstract BitmapContainer toBitmap();
+
+		int hash() {
+			int[] hash = { 1 };
+			forEach(0, low -> hash[0] = 31 * hash[0] + low);
+			return hash[0];
+		}
+
+		boolean isEqual(Container other) {
+			return cardinality == other.cardinality && andCardinality(other) == cardinality;
+		}
+
+	}
+
+	private static final class ArrayContainer extends Container {
+
+		private short[] values;
+
+		private ArrayContainer() {
+			values = new short[4];
+		}
+
+		private ArrayContainer(short[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container add(int low) {
+			short value = bias(low);
+			int index = Arrays.binarySearch(values, 0, cardinality, value);
+			if (index >= 0)
+				return this;
+			if (cardinality == ARRAY_LIMIT)
+				return toBitmap().add(low);
+			index = -index - 1;
+			if (cardinality == values.length)
+				values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+			System.arraycopy(values, index, values, index + 1, cardinality - index);
+			values[index] = value;
+			cardinality++;
+			return this;
+		}
+
+		@Override
+		Container remove(int low) {
+			int index = Arrays.binarySearch(values, 0, cardinality, bias(low));
+			if (index >= 0) {
+				System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+				cardinality--;
+			}
+			return this;
+		}
+
+		@Override
+		boolean contains(int low) {
+			return Arrays.binarySearch(values, 0, cardinality, bias(low)) >= 0;
+		}
+
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				short[] result = new short[Math.min(cardinality, array.cardinality)];
+				int count = SortedArrays.intersection(values, cardinality, array.values, array.cardinality, result);
+				return new ArrayContainer(result, count);
+			}
+			return other.and(this);
+		}
+
+		@Override
+		Container or(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				short[] result = new short[cardinality + array.cardinality];
+				int count = SortedArrays.union(values, cardinality, array.values, array.cardinality, result);
+				ArrayContainer union = new ArrayContainer(result, count);
+				return count > ARRAY_LIMIT ? union.toBitmap() : union;
+			}
+			return other.or(this);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			short[] result = new short[cardinality];
+			int count = 0;
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				count = SortedArrays.difference(values, cardinality, array.values, array.cardinality, result);
+			} else {
+				for (int i = 0; i < cardinality; i++) {
+					if (!other.contains(unbias(values[i])))
+						result[count++] = values[i];
+				}
+			}
+			return new ArrayContainer(result, count);
+		}
+
+		@Override
+		boolean intersects(Container other) {
+			if (other instanceof BitmapContainer)
+				return other.intersects(this);
+			ArrayContainer array = (ArrayContainer) other;
+			int i = 0;
+			int j = 0;
+			while (i < cardinality && j < array.cardinality) {
+				if (values[i] < array.values[j]) {
+					i++;
+				} else if (values[i] > array.values[j]) {
+					j++;
+				} else {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		int andCardinality(Container other) {
+			if (other instanceof BitmapContainer)
+				return other.andCardinality(this);
+			ArrayContainer array = (ArrayContainer) other;
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < cardinality && j < array.cardinality) {
+				short x = values[i];
+				short y = array.values[j];
+				count += x == y ? 1 : 0;
+				i += x <= y ? 1 : 0;
+				j += x >= y ? 1 : 0;
+			}
+			return count;
+		}
+
+		@Override
+		void forEach(int high, IntConsumer action) {
+			for (int i = 0; i < cardinality; i++)
+				action.accept(high | unbias(values[i]));
+		}
+
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, Math.max(4, cardinality)), cardinality);
+		}
+
+		@Override
+		BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer(new long[WORDS]);
+			for (int i = 0; i < cardinality; i++) {
+				int low = unbias(values[i]);
+				bitmap.words[low >>> 6] |= 1L << low;
+			}
+			bitmap.cardinality = cardinality;
+			return bitmap;
+		}
+
+	}
+
+	private static final class BitmapContainer extends Container {
+
+		private final long[] words;
+
+		private BitmapContainer(long[] words) {
+			this.words = words;
+		}
+
+		private BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * Returns a container of suitable type for the given words.
+		 */
+		private static Container of(long[] words) {
+			int cardinality = 0;
+			for (long word : words)
+				cardinality += Long.bitCount(word);
+			if (cardinality > ARRAY_LIMIT)
+				return new BitmapContainer(words, cardinality);
+			short[] values = new short[Math.max(4, cardinality)];
+			int count = 0;
+			for (int w = 0; w < WORDS; w++) {
+				for (long word = words[w]; word != 0; word &= word - 1)
+					values[count++] = bias((w << 6) | Long.numberOfTrailingZeros(word));
+			}
+			return new ArrayContainer(values, cardinality);
+		}
+
+		@Override
+		Container add(int low) {
+			long before = words[low >>> 6];
+			words[low >>> 6] |= 1L << low;
+			cardinality += before == words[low >>> 6] ? 0 : 1;
+			return this;
+		}
+
+		@Override
+		Container remove(int low) {
+			long before = words[low >>> 6];
+			words[low >>> 6] &= ~(1L << low);
+			if (before == words[low >>> 6])
+				return this;
+			cardinality--;
+			return cardinality <= ARRAY_LIMIT ? of(words) : this;
+		}
+
+		@Override
+		boolean contains(int low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				short[] result = new short[array.cardinality];
+				int count = 0;
+				for (int i = 0; i < array.cardinality; i++) {
+					short value = array.values[i];
+					result[count] = value;
+					count += contains(unbias(value)) ? 1 : 0;
+				}
+				return new ArrayContainer(result, count);
+			}
+			long[] otherWords = ((BitmapContainer) other).words;
+			long[] result = new long[WORDS];
+			for (int w = 0; w < WORDS; w++)
+				result[w] = words[w] & otherWords[w];
+			return of(result);
+		}
+
+		@Override
+		Container or(Container other) {
+			BitmapContainer bitmap = other.toBitmap();
+			long[] result = new long[WORDS];
+			int cardinality = 0;
+			for (int w = 0; w < WORDS; w++) {
+				result[w] = words[w] | bitmap.words[w];
+				cardinality += Long.bitCount(result[w]);
+			}
+			return new BitmapContainer(result, cardinality);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			long[] result = words.clone();
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				for (int i = 0; i < array.cardinality; i++) {
+					int low = unbias(array.values[i]);
+					result[low >>> 6] &= ~(1L << low);
+				}
+			} else {
+				long[] otherWords = ((BitmapContainer) other).words;
+				for (int w = 0; w < WORDS; w++)
+					result[w] &= ~otherWords[w];
+			}
+			return of(result);
+		}
+
+		@Override
+		boolean intersects(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				for (int i = 0; i < array.cardinality; i++) {
+					if (contains(unbias(array.values[i])))
+						return true;
+				}
+				return false;
+			}
+			long[] otherWords = ((BitmapContainer) other).words;
+			for (int w = 0; w < WORDS; w++) {
+				if ((words[w] & otherWords[w]) != 0)
+					return true;
+			}
+			return false;
+		}
+
+		@Override
+		int andCardinality(Container other) {
+			int count = 0;
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				for (int i = 0; i < array.cardinality; i++)
+					count += contains(unbias(array.values[i])) ? 1 : 0;
+				return count;
+			}
+			long[] otherWords = ((BitmapContainer) other).words;
+			for (int w = 0; w < WORDS; w++)
+				count += Long.bitCount(words[w] & otherWords[w]);
+			return count;
+		}
+
+		@Override
+		void forEach(int high, IntConsumer action) {
+			for (int w = 0; w < WORDS; w++) {
+				for (long word = words[w]; word != 0; word &= word - 1)
+					action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+			}
+		}
+
+		@Override
+		Container copy() {
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+
+		@Override
+		BitmapContainer toBitmap() {
+			return this;
+		}
+
+	}
+
+}
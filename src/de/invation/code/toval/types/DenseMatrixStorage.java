@@ -0,0 +1,150 @@
+package de.invation.code.toval.types;
+
+import java.util.Arrays;
+
+/**
+ * Matrix storage which keeps all entries in one row-major <code>double</code> array.<br>
+ * The array grows geometrically in both dimensions when rows or cols are added.
+ *
+ * @author Thomas Stocker
+ */
+public class DenseMatrixStorage implements MatrixStorage {
+
+	private double[] data = new double[0];
+	private int rowCapacity = 0;
+	private int colCapacity = 0;
+	private long nonZeroCount = 0;
+
+	public DenseMatrixStorage() {}
+
+	public DenseMatrixStorage(int rows, int cols) {
+		ensureCapacity(rows, cols);
+	}
+
+	@Override
+	public double get(int row, int col) {
+		checkIndexes(row, col);
+		if (row >= rowCapacity || col >= colCapacity) {
+			return 0;
+		}
+		return data[row * colCapacity + col];
+	}
+
+	@Override
+	public void set(int row, int col, double value) {
+		checkIndexes(row, col);
+		ensureCapacity(row + 1, col + 1);
+		int pos = row * colCapacity + col;
+		updateNonZeroCount(data[pos], value);
+		data[pos] = value;
+	}
+
+	@Override
+	public double add(int row, int col, double delta) {
+		checkIndexes(row, col);
+		ensureCapacity(row + 1, col + 1);
+		int pos = row * colCapacity + col;
+		double value = data[pos] + delta;
+		updateNonZeroCount(data[pos], value);
+		data[pos] = value;
+		return value;
+	}
+
+	private static void checkIndexes(int row, int col) {
+		if (row < 0 || col < 0) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", Col: " + col);
+		}
+	}
+
+	private void updateNonZeroCount(double oldValue, double newValue) {
+		if (oldValue == 0 && newValue != 0) {
+			nonZeroCount++;
+		} else if (oldValue != 0 && newValue == 0) {
+			nonZeroCount--;
+		}
+	}
+
+	@Override
+	public void ensureCapacity(int rows, int cols) {
+		if (rows <= rowCapacity && cols <= colCapacity) {
+			return;
+		}
+		int newRowCapacity = grow(rowCapacity, rows);
+		int newColCapacity = grow(colCapacity, cols);
+		if ((long) newRowCapacity * newColCapacity > Integer.MAX_VALUE - 8) {
+			throw new OutOfMemoryError("Dense matrix storage exceeds maximum array size");
+		}
+		double[] newData = new double[newRowCapacity * newColCapacity];
+		if (newColCapacity == colCapacity) {
+			System.arraycopy(data, 0, newData, 0, data.length);
+		} else {
+			for (int row = 0; row < rowCapacity; row++) {
+				System.arraycopy(data, row * colCapacity, newData, row * newColCapacity, colCapacity);
+			}
+		}
+		data = newData;
+		rowCapacity = newRowCapacity;
+		colCapacity = newColCapacity;
+	}
+
+	private static int grow(int capacity, int required) {
+		if (required <= capacity) {
+			return capacity;
+		}
+		return Math.max(required, Math.max(4, capacity + (capacity >> 1)));
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return nonZeroCount;
+	}
+
+	@Override
+	public void forEachNonZeroInRow(int row, int cols, CellVisitor visitor) {
+		if (row >= rowCapacity) {
+			return;
+		}
+		int offset = row * colCapacity;
+		int end = Math.min(cols, colCapacity);
+		for (int col = 0; col < end; col++) {
+			if (data[offset + col] != 0) {
+				visitor.visit(col, data[offset + col]);
+			}
+		}
+	}
+
+	@Override
+	public void forEachNonZeroInCol(int col, int rows, CellVisitor visitor) {
+		if (col >= colCapacity) {
+			return;
+		}
+		int end = Math.min(rows, rowCapacity);
+		for (int row = 0, pos = col; row < end; row++, pos += colCapacity) {
+			if (data[pos] != 0) {
+				visitor.visit(row, data[pos]);
+			}
+		}
+	}
+
+	/**
+	 * Copies the given row into the given array.
+	 *
+	 * @param row Row index
+	 * @param target Array of length &gt;= number of cols
+	 * @param cols Number of cols to copy
+	 */
+	public void copyRow(int row, double[] target, int cols) {
+		int available = row < rowCapacity ? Math.min(cols, colCapacity) : 0;
+		if (available > 0) {
+			System.arraycopy(data, row * colCapacity, target, 0, available);
+		}
+		Arrays.fill(target, available, cols, 0);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(data, 0);
+		nonZeroCount = 0;
+	}
+
+}
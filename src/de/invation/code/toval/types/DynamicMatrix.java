@@ -1,4 +1,7 @@
 package de.invation.code.toval.types;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -6,10 +9,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 
+import de.invation.code.toval.validate.Validate;
+
 /**
  * Matrix representation where any type can be used for indexing cols and rows.<br>
  * Internally values are put in a 2-dimensional list, represented by an ArrayList of ArrayLists.
- * Indexing values are mapped onto integers that serve as indexes for retrieving the appropriate values out of the list.
+ * Indexing values are mapped onto integers that serve as indexes for retrieving the appropriate values out of the list.<br>
+ * For numeric entries, {@link NumericMatrix} provides dense and sparse primitive storage.
  * @param <E> Indexing type for rows and cols
  * @param <T> Value type for matrix entries
  * 
@@ -61,16 +67,16 @@ public class DynamicMatrix<E, T> extends ArrayList<ArrayList<T>> {
 	 * @return Value at matrix position [row,col]
 	 */
 	public T getValue(E row, E col) {
-		if(!rowKeys.containsKey(row))
+		Integer rowIndex = rowKeys.get(row);
+		if(rowIndex == null)
 			return null;
-		if(!colKeys.containsKey(col))
+		Integer colIndex = colKeys.get(col);
+		if(colIndex == null)
 			return null;
-		try{
-			get(rowKeys.get(row)).get(colKeys.get(col));
-		} catch(IndexOutOfBoundsException e){
+		ArrayList<T> rowList = get(rowIndex);
+		if(colIndex >= rowList.size())
 			return null;
-		}
-		return get(rowKeys.get(row)).get(colKeys.get(col));
+		return rowList.get(colIndex);
 	}
 	
 	/**
@@ -209,27 +215,49 @@ public class DynamicMatrix<E, T> extends ArrayList<ArrayList<T>> {
 	}
 	
 	public String toCSV(char separator){
+		StringWriter writer = new StringWriter();
+		try {
+			toCSV(writer, separator);
+		} catch (IOException e) {
+			// Cannot happen for StringWriter
+			throw new RuntimeException(e);
+		}
+		return writer.toString();
+	}
+	
+	/**
+	 * Writes a CSV representation of the matrix to the given writer.<br>
+	 * Rows and cols are sorted by the String representation of their keys.
+	 * @param writer Writer for CSV output
+	 * @param separator Value separator
+	 * @throws IOException If writing fails
+	 */
+	public void toCSV(Writer writer, char separator) throws IOException {
+		Validate.notNull(writer);
 		List<E> rowKeys = new ArrayList<E>(rowKeys());
 		Collections.sort(rowKeys, new ToStringComparator<E>());
 		List<E> colKeys = new ArrayList<E>(colKeys());
 		Collections.sort(colKeys, new ToStringComparator<E>());
-		StringBuilder builder = new StringBuilder();
-		builder.append(separator);
+		int[] colOrder = new int[colKeys.size()];
+		for(int i=0; i<colOrder.length; i++)
+			colOrder[i] = this.colKeys.get(colKeys.get(i));
+		writer.write(separator);
 		for(E colKey: colKeys){
-			builder.append(colKey);
-			builder.append(separator);
+			writer.write(String.valueOf(colKey));
+			writer.write(separator);
 		}
-		builder.append('\n');
+		writer.write('\n');
 		for(E rowKey: rowKeys){
-			builder.append(rowKey);
-			builder.append(separator);
-			for(E colKey: colKeys){
-				builder.append(getValue(rowKey, colKey));
-				builder.append(separator);
+			ArrayList<T> rowList = get(this.rowKeys.get(rowKey));
+			writer.write(String.valueOf(rowKey));
+			writer.write(separator);
+			for(int col: colOrder){
+				writer.write(String.valueOf(col < rowList.size() ? rowList.get(col) : null));
+				writer.write(separator);
 			}
-			builder.append('\n');
+			writer.write('\n');
 		}
-		return builder.toString();
+		writer.flush();
 	}
 
 }
@@ -1,26 +1,48 @@
 package de.invation.code.toval.types;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Set implementation that allows random access by extending <code>ArrayList</code>.<br>
- * It extends <code>ArrayList</code> with the set feature, that it contains no two equal elements.
+ * It extends <code>ArrayList</code> with the set feature, that it contains no two equal elements.<br>
+ * <br>
+ * Membership is tracked in an internal hash index, so <code>contains()</code> and
+ * insertion run in constant time. The index is updated by all mutators of this class.
+ * Modifications that bypass them (iterator removal, bulk removal) are detected via the
+ * list modification count and lead to a rebuild of the index on the next lookup.<br>
+ * As for other hash based collections, elements must not be changed in a way that
+ * affects their hash code while they are contained in the list.
  * @param <E> Type of elements
- * 
+ *
  * @author Thomas Stocker
  */
 public class HashList<E> extends ArrayList<E> implements Set<E> {
 
 	private static final long serialVersionUID = 1L;
-	
+
+	/**
+	 * Hash index of all list elements.
+	 */
+	private transient HashSet<E> index = null;
+
+	/**
+	 * Modification count of the list when the index was last synchronized.
+	 */
+	private transient int indexModCount = -1;
+
 	/**
 	 * Set implementation that allows random access by extending <code>ArrayList</code>.<br>
      * It extends <code>ArrayList</code> with the set feature, that it contains no two equal elements.
 	 */
 	public HashList() {}
-	
+
 	/**
 	 * Set implementation that allows random access by extending <code>ArrayList</code>.<br>
      * It extends <code>ArrayList</code> with the set feature, that it contains no two equal elements.
@@ -30,7 +52,65 @@ public class HashList<E> extends ArrayList<E> implements Set<E> {
 		super();
 		addAll(c);
 	}
-	
+
+	/**
+	 * Returns the hash index, rebuilding it in case the list was modified
+	 * without updating the index.
+	 */
+	private HashSet<E> index() {
+		if (index == null || indexModCount != modCount) {
+			if (index == null) {
+				index = new HashSet<>(Math.max(16, (int) (size() / .75f) + 1));
+			} else {
+				index.clear();
+			}
+			for (int i = 0; i < size(); i++) {
+				index.add(get(i));
+			}
+			indexModCount = modCount;
+		}
+		return index;
+	}
+
+	/**
+	 * Marks the index as consistent with the current list state.<br>
+	 * Must only be called by mutators which updated the index themselves.
+	 */
+	private void indexUpdated() {
+		indexModCount = modCount;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (o == null) {
+			return false;
+		}
+		return index().contains(o);
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		for (Object o : c) {
+			if (!contains(o)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		if (!contains(o)) {
+			return -1;
+		}
+		return super.indexOf(o);
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+
     /**
      * Replaces the element at the specified position in this list with
      * the specified element.
@@ -44,11 +124,14 @@ public class HashList<E> extends ArrayList<E> implements Set<E> {
 	@Override
     public E set(int index, E element) {
     	if(element!=null && !contains(element)){
-    		return super.set(index, element);
+    		E oldElement = super.set(index, element);
+    		this.index.remove(oldElement);
+    		this.index.add(element);
+    		return oldElement;
     	}
     	return get(index);
     }
-    
+
     /**
      * Appends the specified element to the end of this list.
      *
@@ -57,24 +140,25 @@ public class HashList<E> extends ArrayList<E> implements Set<E> {
      */
     public boolean add(E o) {
     	if(o!=null && !contains(o)){
-    		return super.add(o);
+    		super.add(o);
+    		index.add(o);
+    		indexUpdated();
+    		return true;
     	}
     	return false;
     }
-    
+
     public boolean add(E[] arr) {
     	if(arr != null && arr.length>0) {
     		boolean modified = false;
     		for(int i=0; i<arr.length; i++) {
-    			if(arr[i]!=null && !contains(arr[i])) {
-    				modified = add(arr[i]);
-    			}
+    			modified |= add(arr[i]);
     		}
     		return modified;
     	}
     	return false;
     }
-    
+
     /**
      * Inserts the specified element at the specified position in this
      * list. Shifts the element currently at that position (if any) and
@@ -88,9 +172,11 @@ public class HashList<E> extends ArrayList<E> implements Set<E> {
     public void add(int index, E element) {
     	if(element!=null && !contains(element)){
     		super.add(index, element);
+    		this.index.add(element);
+    		indexUpdated();
     	}
     }
-    
+
     /**
      * Appends all of the elements in the specified Collection to the end of
      * this list, in the order that they are returned by the
@@ -105,11 +191,10 @@ public class HashList<E> extends ArrayList<E> implements Set<E> {
      * @throws    NullPointerException if the specified collection is null.
      */
     public boolean addAll(Collection<? extends E> c) {
+    	ensureCapacity(size() + c.size());
     	boolean modified = false;
     	for(E object: c) {
-    		if(object!=null && !contains(object)) {
-    			modified = add(object);
-    		}
+    		modified |= add(object);
     	}
     	return modified;
     }
@@ -120,7 +205,9 @@ public class HashList<E> extends ArrayList<E> implements Set<E> {
      * currently at that position (if any) and any subsequent elements to
      * the right (increases their indices).  The new elements will appear
      * in the list in the order that they are returned by the
-     * specified Collection's iterator.
+     * specified Collection's iterator.<br>
+     * <code>null</code> elements and elements already contained in this list
+     * are skipped. The given collection is not modified.
      *
      * @param index index at which to insert first element
      *		    from the specified collection.
@@ -131,27 +218,153 @@ public class HashList<E> extends ArrayList<E> implements Set<E> {
      * @throws    NullPointerException if the specified Collection is null.
      */
     public boolean addAll(int index, Collection<? extends E> c) {
-    	removeNulls(c);
-    	c.removeAll(this);
-    	return super.addAll(index, c);
-    }
-    
-    private void removeNulls(Collection<? extends E> c){
-    	while(c.contains(null)){
-    		c.remove(null);
+    	if(index < 0 || index > size())
+    		throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    	HashSet<E> currentIndex = index();
+    	List<E> newElements = new ArrayList<>(c.size());
+    	for(E object: c) {
+    		if(object!=null && !currentIndex.contains(object)) {
+    			currentIndex.add(object);
+    			newElements.add(object);
+    		}
     	}
+    	if(newElements.isEmpty())
+    		return false;
+    	super.addAll(index, newElements);
+    	indexUpdated();
+    	return true;
     }
-    
+
+    @Override
+    public E remove(int index) {
+    	HashSet<E> currentIndex = index();
+    	E oldElement = super.remove(index);
+    	currentIndex.remove(oldElement);
+    	indexUpdated();
+    	return oldElement;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+    	if(!contains(o))
+    		return false;
+    	super.remove(o);
+    	index.remove(o);
+    	indexUpdated();
+    	return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+    	// super.removeAll() bypasses remove(), the index is rebuilt lazily.
+    	return super.removeAll(c instanceof Set ? c : new HashSet<>(c));
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+    	return super.retainAll(c instanceof Set ? c : new HashSet<>(c));
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+    	boolean indexValid = index != null && indexModCount == modCount;
+    	super.sort(c);
+    	if(indexValid)
+    		indexUpdated();
+    }
+
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+    	return new SubList(fromIndex, toIndex);
+    }
+
     @Override
     public void clear() {
         super.clear();
+        if(index != null)
+        	index.clear();
+        indexUpdated();
     }
-    
+
     public HashList<E> clone(){
     	HashList<E> result = new HashList<E>();
+    	result.ensureCapacity(size());
     	for(E e: this)
     		result.add(e);
     	return result;
     }
 
+    /**
+     * Sublist view which routes all modifications through the methods of the
+     * enclosing list, so that the set property and the hash index are maintained.
+     */
+    private class SubList extends AbstractList<E> {
+
+    	private final int offset;
+    	private int size;
+    	private int expectedModCount;
+
+    	SubList(int fromIndex, int toIndex) {
+    		if(fromIndex < 0 || toIndex > HashList.this.size() || fromIndex > toIndex)
+    			throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex);
+    		this.offset = fromIndex;
+    		this.size = toIndex - fromIndex;
+    		this.expectedModCount = HashList.this.modCount;
+    	}
+
+    	private void checkForComodification() {
+    		if(HashList.this.modCount != expectedModCount)
+    			throw new ConcurrentModificationException();
+    	}
+
+    	private void checkIndex(int index, int bound) {
+    		if(index < 0 || index >= bound)
+    			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    	}
+
+		@Override
+		public E get(int index) {
+			checkIndex(index, size);
+			checkForComodification();
+			return HashList.this.get(offset + index);
+		}
+
+		@Override
+		public int size() {
+			checkForComodification();
+			return size;
+		}
+
+		@Override
+		public E set(int index, E element) {
+			checkIndex(index, size);
+			checkForComodification();
+			return HashList.this.set(offset + index, element);
+		}
+
+		@Override
+		public void add(int index, E element) {
+			checkIndex(index, size + 1);
+			checkForComodification();
+			int oldSize = HashList.this.size();
+			HashList.this.add(offset + index, element);
+			expectedModCount = HashList.this.modCount;
+			if(HashList.this.size() > oldSize) {
+				size++;
+				modCount++;
+			}
+		}
+
+		@Override
+		public E remove(int index) {
+			checkIndex(index, size);
+			checkForComodification();
+			E result = HashList.this.remove(offset + index);
+			expectedModCount = HashList.this.modCount;
+			size--;
+			modCount++;
+			return result;
+		}
+    }
+
 }
@@ -0,0 +1,625 @@
+package de.invation.code.toval.types;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import de.invation.code.toval.validate.ParameterException;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Multiset over a fixed {@link MultisetUniverse}.<br>
+ * Multiplicities are stored in a dense <code>int</code> array which is
+ * indexed by the element indexes of the universe. Only elements of the
+ * universe can be added.<br>
+ * <br>
+ * Operations with other indexed multisets over the same universe instance
+ * (sum, difference, subset checks, ...) are plain array loops.
+ * Such multisets are compared and hashed by array content, which makes them
+ * cheap keys for state sets (e.g. markings in a reachability graph).<br>
+ * Indexed multisets are equal to other multisets with the same multiplicities
+ * and use the same hash code as {@link Multiset}.
+ *
+ * @author Thomas Stocker
+ * @param <O>
+ */
+public class IndexedMultiset<O extends Object> extends Multiset<O> {
+
+	private final MultisetUniverse<O> universe;
+
+	/**
+	 * Multiplicities indexed by universe element index.
+	 */
+	private final int[] counts;
+
+	/**
+	 * Sum of all multiplicities.
+	 */
+	private int size = 0;
+
+	/**
+	 * Number of elements with multiplicity &gt; 0.
+	 */
+	private int supportSize = 0;
+
+	public IndexedMultiset(MultisetUniverse<O> universe) {
+		super(false);
+		Validate.notNull(universe);
+		this.universe = universe;
+		this.counts = new int[universe.size()];
+	}
+
+	public IndexedMultiset(MultisetUniverse<O> universe, Collection<O> objects) {
+		this(universe);
+		Validate.notNull(objects);
+		for (O o : objects) {
+			incMultiplicity(o);
+		}
+	}
+
+	/**
+	 * Creates a new multiset over the given universe with the given
+	 * multiplicities.
+	 *
+	 * @param universe The universe of the multiset.
+	 * @param multiplicities Multiplicities indexed by universe element index.
+	 */
+	public IndexedMultiset(MultisetUniverse<O> universe, int[] multiplicities) {
+		this(universe);
+		Validate.notNull(multiplicities);
+		if (multiplicities.length != counts.length) {
+			throw new ParameterException("Number of multiplicities does not match universe size");
+		}
+		for (int i = 0; i < counts.length; i++) {
+			setMultiplicityAt(i, multiplicities[i]);
+		}
+	}
+
+	/**
+	 * Creates a new multiset over the given universe with the multiplicities
+	 * of the given multiset.
+	 *
+	 * @param universe The universe of the multiset.
+	 * @param multiset The multiset to copy.
+	 */
+	public IndexedMultiset(MultisetUniverse<O> universe, Multiset<O> multiset) {
+		this(universe);
+		Validate.notNull(multiset);
+		for (O o : multiset.support()) {
+			setMultiplicity(o, multiset.multiplicity(o));
+		}
+	}
+
+	private IndexedMultiset(IndexedMultiset<O> multiset) {
+		super(false);
+		this.universe = multiset.universe;
+		this.counts = multiset.counts.clone();
+		this.size = multiset.size;
+		this.supportSize = multiset.supportSize;
+	}
+
+	public MultisetUniverse<O> getUniverse() {
+		return universe;
+	}
+
+	/**
+	 * Returns the multiplicity of the universe element with the given index.
+	 *
+	 * @param index The element index.
+	 * @return The multiplicity of the element.
+	 */
+	public int multiplicityAt(int index) {
+		return counts[index];
+	}
+
+	/**
+	 * Returns a copy of the multiplicity array, indexed by universe element
+	 * index.
+	 *
+	 * @return The multiplicities of all universe elements.
+	 */
+	public int[] getMultiplicities() {
+		return counts.clone();
+	}
+
+	/**
+	 * Sets the multiplicity of the universe element with the given index.<br>
+	 * Negative values are treated as 0.
+	 *
+	 * @param index The element index.
+	 * @param multiplicity The multiplicity to set.
+	 */
+	public void setMultiplicityAt(int index, int multiplicity) {
+		int newMultiplicity = Math.max(0, multiplicity);
+		int oldMultiplicity = counts[index];
+		counts[index] = newMultiplicity;
+		size += newMultiplicity - oldMultiplicity;
+		if (oldMultiplicity == 0 && newMultiplicity > 0) {
+			supportSize++;
+		} else if (oldMultiplicity > 0 && newMultiplicity == 0) {
+			supportSize--;
+		}
+	}
+
+	private int checkedIndexOf(O object) {
+		Validate.notNull(object);
+		int index = universe.indexOf(object);
+		if (index < 0) {
+			throw new ParameterException("Object is not part of the multiset universe: " + object);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the multiplicity array of the given multiset if it is an
+	 * indexed multiset over the same universe.
+	 */
+	private int[] sameUniverseCounts(Multiset<O> multiset) {
+		if (multiset instanceof IndexedMultiset && ((IndexedMultiset<O>) multiset).universe == universe) {
+			return ((IndexedMultiset<O>) multiset).counts;
+		}
+		return null;
+	}
+
+	/**
+	 * Recomputes size and support size after a bulk array operation.
+	 */
+	private void updateSizes() {
+		int newSize = 0;
+		int newSupportSize = 0;
+		for (int i = 0; i < counts.length; i++) {
+			newSize += counts[i];
+			if (counts[i] > 0) {
+				newSupportSize++;
+			}
+		}
+		size = newSize;
+		supportSize = newSupportSize;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<O> support() {
+		return new Support();
+	}
+
+	@Override
+	public boolean equalMultiplicities() {
+		return getEqualMultiplicity() != -1 || isEmpty();
+	}
+
+	@Override
+	public int getEqualMultiplicity() {
+		int multiplicity = -1;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				if (multiplicity == -1) {
+					multiplicity = counts[i];
+				} else if (counts[i] != multiplicity) {
+					return -1;
+				}
+			}
+		}
+		return multiplicity;
+	}
+
+	@Override
+	public void reduceToSet() {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 1) {
+				counts[i] = 1;
+			}
+		}
+		size = supportSize;
+	}
+
+	@Override
+	public int add(O object) throws ParameterException {
+		return incMultiplicity(object);
+	}
+
+	@Override
+	@SafeVarargs
+	public final void addAll(O... objects) throws ParameterException {
+		Validate.notNull(objects);
+		for (O o : objects) {
+			incMultiplicity(o);
+		}
+	}
+
+	@Override
+	public boolean remove(O object) {
+		int index = universe.indexOf(object);
+		if (index < 0 || counts[index] == 0) {
+			return false;
+		}
+		setMultiplicityAt(index, 0);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(counts, 0);
+		size = 0;
+		supportSize = 0;
+	}
+
+	@Override
+	public void printMultiplicityCount() {
+		Map<Integer, Integer> multiplicityCount = new TreeMap<>();
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				Integer count = multiplicityCount.get(counts[i]);
+				multiplicityCount.put(counts[i], count == null ? 1 : count + 1);
+			}
+		}
+		System.out.println(multiplicityCount);
+	}
+
+	@Override
+	@SafeVarargs
+	public final boolean contains(O... objects) {
+		for (O o : objects) {
+			if (!contains(o)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean contains(Collection<O> objects) {
+		for (O o : objects) {
+			if (!contains(o)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean contains(O object) {
+		int index = universe.indexOf(object);
+		return index >= 0 && counts[index] > 0;
+	}
+
+	@Override
+	public void setMultiplicity(O object, int multiplicity) {
+		if (multiplicity < 1) {
+			remove(object);
+			return;
+		}
+		setMultiplicityAt(checkedIndexOf(object), multiplicity);
+	}
+
+	@Override
+	public int incMultiplicity(O object) throws ParameterException {
+		int index = checkedIndexOf(object);
+		if (counts[index]++ == 0) {
+			supportSize++;
+		}
+		size++;
+		return counts[index];
+	}
+
+	@Override
+	public int decMultiplicity(O object) throws ParameterException {
+		Validate.notNull(object);
+		int index = universe.indexOf(object);
+		if (index < 0 || counts[index] == 0) {
+			return 0;
+		}
+		if (--counts[index] == 0) {
+			supportSize--;
+		}
+		size--;
+		return counts[index];
+	}
+
+	@Override
+	public int multiplicity(O object) {
+		int index = universe.indexOf(object);
+		return index < 0 ? 0 : counts[index];
+	}
+
+	@Override
+	public int minMultiplicity() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}
+		int min = Integer.MAX_VALUE;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0 && counts[i] < min) {
+				min = counts[i];
+			}
+		}
+		return min;
+	}
+
+	@Override
+	public Integer power() {
+		if (isEmpty()) {
+			return null;
+		}
+		int max = 0;
+		for (int i = 0; i < counts.length; i++) {
+			max = Math.max(max, counts[i]);
+		}
+		return max;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return supportSize == 0;
+	}
+
+	@Override
+	public boolean isKBounded(int k) {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > k) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void addScalar(int k) {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				counts[i] = Math.max(0, counts[i] + k);
+			}
+		}
+		updateSizes();
+	}
+
+	@Override
+	public void multiplyScalar(int k) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = Math.max(0, counts[i] * k);
+		}
+		updateSizes();
+	}
+
+	@Override
+	public boolean isSubsetOf(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		int[] otherCounts = sameUniverseCounts(multiset);
+		if (otherCounts != null) {
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > otherCounts[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0 && counts[i] > multiset.multiplicity(universe.elementAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * Objects of the given multiset which are not part of the universe of this
+	 * multiset cause a {@link ParameterException}.
+	 */
+	@Override
+	public IndexedMultiset<O> union(Multiset<O> multiset) throws ParameterException {
+		IndexedMultiset<O> result = clone();
+		result.unionWith(multiset);
+		return result;
+	}
+
+	@Override
+	public void unionWith(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		int[] otherCounts = sameUniverseCounts(multiset);
+		if (otherCounts != null) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = Math.max(counts[i], otherCounts[i]);
+			}
+			updateSizes();
+		} else {
+			for (O o : multiset.support()) {
+				int index = checkedIndexOf(o);
+				setMultiplicityAt(index, Math.max(counts[index], multiset.multiplicity(o)));
+			}
+		}
+	}
+
+	@Override
+	public IndexedMultiset<O> intersection(Multiset<O> multiset) throws ParameterException {
+		IndexedMultiset<O> result = clone();
+		result.intersectionWith(multiset);
+		return result;
+	}
+
+	@Override
+	public void intersectionWith(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		int[] otherCounts = sameUniverseCounts(multiset);
+		if (otherCounts != null) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = Math.min(counts[i], otherCounts[i]);
+			}
+		} else {
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) {
+					counts[i] = Math.min(counts[i], multiset.multiplicity(universe.elementAt(i)));
+				}
+			}
+		}
+		updateSizes();
+	}
+
+	@Override
+	public IndexedMultiset<O> difference(Multiset<O> multiset) throws ParameterException {
+		IndexedMultiset<O> result = clone();
+		result.differenceWith(multiset);
+		return result;
+	}
+
+	@Override
+	public void differenceWith(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		int[] otherCounts = sameUniverseCounts(multiset);
+		if (otherCounts != null) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = Math.max(0, counts[i] - otherCounts[i]);
+			}
+		} else {
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) {
+					counts[i] = Math.max(0, counts[i] - multiset.multiplicity(universe.elementAt(i)));
+				}
+			}
+		}
+		updateSizes();
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * Objects of the given multiset which are not part of the universe of this
+	 * multiset cause a {@link ParameterException}.
+	 */
+	@Override
+	public IndexedMultiset<O> sum(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		IndexedMultiset<O> result = clone();
+		result.sumWith(multiset);
+		return result;
+	}
+
+	/**
+	 * Adds the given multiset to this multiset.<br>
+	 * This operation changes only this multiset, not the given one.
+	 *
+	 * @param multiset The multiset to add.
+	 * @throws ParameterException
+	 */
+	public void sumWith(Multiset<O> multiset) throws ParameterException {
+		Validate.notNull(multiset);
+		int[] otherCounts = sameUniverseCounts(multiset);
+		if (otherCounts != null) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += otherCounts[i];
+			}
+			updateSizes();
+		} else {
+			for (O o : multiset.support()) {
+				int index = checkedIndexOf(o);
+				setMultiplicityAt(index, counts[index] + multiset.multiplicity(o));
+			}
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		// Same value as Multiset.hashCode() for equal multiplicities.
+		int result = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				result += universe.elementHash(i) ^ counts[i];
+			}
+		}
+		return 31 + result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof IndexedMultiset && ((IndexedMultiset<?>) obj).universe == universe) {
+			IndexedMultiset<?> other = (IndexedMultiset<?>) obj;
+			return size == other.size && Arrays.equals(counts, other.counts);
+		}
+		return super.equals(obj);
+	}
+
+	@Override
+	public IndexedMultiset<O> clone() {
+		return new IndexedMultiset<>(this);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append('{');
+		int count = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				builder.append(universe.elementAt(i));
+				if (counts[i] > 1) {
+					builder.append("(").append(counts[i]).append(")");
+				}
+				if (++count < supportSize) {
+					builder.append(", ");
+				}
+			}
+		}
+		builder.append('}');
+		return builder.toString();
+	}
+
+	/**
+	 * Unmodifiable view on the universe elements with multiplicity &gt; 0.
+	 */
+	private class Support extends AbstractSet<O> {
+
+		@Override
+		public Iterator<O> iterator() {
+			return new Iterator<O>() {
+
+				private int next = advance(0);
+
+				private int advance(int from) {
+					int index = from;
+					while (index < counts.length && counts[index] == 0) {
+						index++;
+					}
+					return index;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next < counts.length;
+				}
+
+				@Override
+				public O next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					O result = universe.elementAt(next);
+					next = advance(next + 1);
+					return result;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return supportSize;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			int index = universe.indexOf(o);
+			return index >= 0 && counts[index] > 0;
+		}
+	}
+
+}
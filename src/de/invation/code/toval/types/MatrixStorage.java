@@ -0,0 +1,98 @@
+package de.invation.code.toval.types;
+
+/**
+ * Storage backend for matrices with primitive <code>double</code> entries.<br>
+ * Entries are addressed by non-negative row and column indexes, negative
+ * indexes cause an {@link IndexOutOfBoundsException}.
+ * Entries which have never been set have value 0.
+ *
+ * @author Thomas Stocker
+ * @see DenseMatrixStorage
+ * @see SparseMatrixStorage
+ * @see NumericMatrix
+ */
+public interface MatrixStorage {
+
+	/**
+	 * Returns the entry at the given position.
+	 *
+	 * @param row Row index
+	 * @param col Col index
+	 * @return The entry at position [row,col]
+	 */
+	public double get(int row, int col);
+
+	/**
+	 * Sets the entry at the given position.
+	 *
+	 * @param row Row index
+	 * @param col Col index
+	 * @param value Value to set
+	 */
+	public void set(int row, int col, double value);
+
+	/**
+	 * Adds the given value to the entry at the given position.
+	 *
+	 * @param row Row index
+	 * @param col Col index
+	 * @param delta Value to add
+	 * @return The new entry at position [row,col]
+	 */
+	public double add(int row, int col, double delta);
+
+	/**
+	 * Makes sure the storage can hold entries for the given number of rows
+	 * and cols.
+	 *
+	 * @param rows Number of rows
+	 * @param cols Number of cols
+	 */
+	public void ensureCapacity(int rows, int cols);
+
+	/**
+	 * Returns the number of entries which are not 0.
+	 *
+	 * @return The number of non-zero entries
+	 */
+	public long nonZeroCount();
+
+	/**
+	 * Calls the given visitor for all non-zero entries of the given row.<br>
+	 * The order of visited entries depends on the implementation.
+	 *
+	 * @param row Row index
+	 * @param cols Number of cols of the matrix
+	 * @param visitor Visitor which is called with col index and value
+	 */
+	public void forEachNonZeroInRow(int row, int cols, CellVisitor visitor);
+
+	/**
+	 * Calls the given visitor for all non-zero entries of the given col.<br>
+	 * The order of visited entries depends on the implementation.
+	 *
+	 * @param col Col index
+	 * @param rows Number of rows of the matrix
+	 * @param visitor Visitor which is called with row index and value
+	 */
+	public void forEachNonZeroInCol(int col, int rows, CellVisitor visitor);
+
+	/**
+	 * Sets all entries to 0.
+	 */
+	public void clear();
+
+	/**
+	 * Callback for visiting matrix entries without boxing.
+	 */
+	public interface CellVisitor {
+
+		/**
+		 * @param index Col index (for row traversal) or row index (for col traversal)
+		 * @param value Entry value
+		 */
+		public void visit(int index, double value);
+
+	}
+
+}
@@ -32,14 +32,31 @@ public class Multiset<O extends Object> implements Comparable<Multiset<O>> {
 	/**
 	 * Map for managing the multiplicity of objects.
 	 */
-	protected Map<O, Integer> multiplicities = new HashMap<>();
+	protected Map<O, Integer> multiplicities;
 
-	protected Map<Integer, Integer> multiplicityCount = new HashMap<>();
+	protected Map<Integer, Integer> multiplicityCount;
 
 	public Multiset() {
+		this(true);
+	}
+
+	/**
+	 * Creates a new multiset, optionally without the maps of this class.<br>
+	 * Subclasses which store multiplicities in other data structures pass
+	 * <code>false</code> and have to override all methods accessing
+	 * {@link #multiplicities} and {@link #multiplicityCount}.
+	 *
+	 * @param allocateMaps <code>true</code> to create the maps.
+	 */
+	protected Multiset(boolean allocateMaps) {
+		if (allocateMaps) {
+			multiplicities = new HashMap<>();
+			multiplicityCount = new HashMap<>();
+		}
 	}
 
 	public Multiset(Collection<O> objects) {
+		this();
 		Validate.notNull(objects);
 		for (O o : objects) {
 			incMultiplicity(o);
@@ -47,6 +64,7 @@ public class Multiset<O extends Object> implements Comparable<Multiset<O>> {
 	}
 
 	public Multiset(O... objects) {
+		this();
 		Validate.notNull(objects);
 		for (O o : objects) {
 			incMultiplicity(o);
@@ -240,7 +258,7 @@ public class Multiset<O extends Object> implements Comparable<Multiset<O>> {
 	 * @return
 	 * @throws ParameterException
 	 */
-	public final int incMultiplicity(O object) throws ParameterException {
+	public int incMultiplicity(O object) throws ParameterException {
 		Validate.notNull(object);
 		if (!multiplicities.containsKey(object)) {
 			multiplicities.put(object, 1);
@@ -553,14 +571,17 @@ public class Multiset<O extends Object> implements Comparable<Multiset<O>> {
 		if (!(obj instanceof Multiset)) {
 			return false;
 		}
-		@SuppressWarnings("rawtypes")
-		Multiset other = (Multiset) obj;
-		if (multiplicities == null) {
-			if (other.multiplicities != null) {
+		@SuppressWarnings("unchecked")
+		Multiset<O> other = (Multiset<O>) obj;
+		// Compare via support() and multiplicity(), since subclasses may
+		// store multiplicities in other data structures.
+		if (support().size() != other.support().size()) {
+			return false;
+		}
+		for (O o : support()) {
+			if (multiplicity(o) != other.multiplicity(o)) {
 				return false;
 			}
-		} else if (!multiplicities.equals(other.multiplicities)) {
-			return false;
 		}
 		return true;
 	}
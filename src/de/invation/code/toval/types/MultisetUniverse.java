@@ -0,0 +1,130 @@
+package de.invation.code.toval.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import de.invation.code.toval.validate.ParameterException;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Fixed set of elements with a dense index for each element.<br>
+ * A universe can be shared by any number of {@link IndexedMultiset}s, which
+ * then store their multiplicities in plain <code>int</code> arrays indexed by
+ * element position (e.g. the places of a Petri net or the activities of a
+ * SOABase).<br>
+ * <br>
+ * The index of an element is its position within the collection/array the
+ * universe is created with. Duplicate and <code>null</code> elements are not
+ * allowed. Universes are immutable.
+ *
+ * @param <O> Type of elements
+ *
+ * @author Thomas Stocker
+ */
+public class MultisetUniverse<O extends Object> {
+
+	private final List<O> elements;
+	private final ObjectIntMap<O> indexes;
+	private final int[] elementHashes;
+
+	public MultisetUniverse(Collection<O> elements) {
+		Validate.notNull(elements);
+		Validate.noNullElements(elements);
+		this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+		indexes = new ObjectIntMap<>(elements.size());
+		elementHashes = new int[elements.size()];
+		int index = 0;
+		for (O element : this.elements) {
+			// Indexes are stored with offset 1, since the map reports 0 for absent keys.
+			if (indexes.put(element, index + 1) != 0) {
+				throw new ParameterException("Duplicate universe element: " + element);
+			}
+			elementHashes[index++] = element.hashCode();
+		}
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public MultisetUniverse(O... elements) {
+		this(Arrays.asList(elements));
+	}
+
+	/**
+	 * Returns the number of elements of this universe.
+	 *
+	 * @return The number of elements.
+	 */
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * Returns the index of the given element.
+	 *
+	 * @param element The element whose index is requested.
+	 * @return The index of the element;<br>
+	 * -1 if the element is not part of this universe.
+	 */
+	public int indexOf(Object element) {
+		return indexes.get(element) - 1;
+	}
+
+	/**
+	 * Checks if the given element is part of this universe.
+	 *
+	 * @param element The element to check.
+	 * @return <code>true</code> if the element is part of this universe;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean contains(Object element) {
+		return indexes.containsKey(element);
+	}
+
+	/**
+	 * Returns the element with the given index.
+	 *
+	 * @param index The element index.
+	 * @return The element at the given index.
+	 */
+	public O elementAt(int index) {
+		return elements.get(index);
+	}
+
+	/**
+	 * Returns all elements of this universe in index order.
+	 *
+	 * @return An unmodifiable list of all elements.
+	 */
+	public List<O> getElements() {
+		return elements;
+	}
+
+	/**
+	 * Returns the hash code of the element with the given index.<br>
+	 * Hash codes are computed once on universe creation.
+	 *
+	 * @param index The element index.
+	 * @return The hash code of the element at the given index.
+	 */
+	int elementHash(int index) {
+		return elementHashes[index];
+	}
+
+	/**
+	 * Creates a new empty multiset over this universe.
+	 *
+	 * @return A new empty indexed multiset.
+	 */
+	public IndexedMultiset<O> createMultiset() {
+		return new IndexedMultiset<>(this);
+	}
+
+	@Override
+	public String toString() {
+		return elements.toString();
+	}
+
+}
@@ -0,0 +1,463 @@
+package de.invation.code.toval.types;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.invation.code.toval.types.MatrixStorage.CellVisitor;
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Matrix with primitive <code>double</code> entries where any type can be used for indexing cols and rows.<br>
+ * In contrast to {@link DynamicMatrix}, entries are not kept in nested lists of objects,
+ * but in a pluggable {@link MatrixStorage}:
+ * <ul>
+ * <li>{@link StorageMode#DENSE}: all entries in one <code>double</code> array.</li>
+ * <li>{@link StorageMode#SPARSE}: only non-zero entries in a hash table with <code>long</code> keys.</li>
+ * <li>{@link StorageMode#AUTOMATIC}: starts sparse and switches between both representations
+ * depending on the ratio of non-zero entries.</li>
+ * </ul>
+ * Entries which have not been set have value 0.<br>
+ * Indexing values are mapped onto integers in the order of their insertion.
+ * @param <E> Indexing type for rows and cols
+ *
+ * @author Thomas Stocker
+ */
+public class NumericMatrix<E> {
+
+	/**
+	 * Fill ratio above which automatic storage switches to dense storage.
+	 */
+	public static final double DENSE_FILL_RATIO = 0.25;
+	/**
+	 * Fill ratio below which automatic storage switches back to sparse storage.
+	 */
+	public static final double SPARSE_FILL_RATIO = 0.05;
+	/**
+	 * Minimum number of cells before automatic storage considers dense storage.
+	 */
+	private static final long MIN_DENSE_CELLS = 64;
+
+	private final StorageMode storageMode;
+	private MatrixStorage storage;
+
+	private final List<E> rowKeys = new ArrayList<E>();
+	private final List<E> colKeys = new ArrayList<E>();
+	/**
+	 * Key-mappings (index + 1, since absent keys are mapped to 0).
+	 */
+	private final ObjectIntMap<E> rowIndexes = new ObjectIntMap<E>();
+	private final ObjectIntMap<E> colIndexes = new ObjectIntMap<E>();
+
+	/**
+	 * Creates a new NumericMatrix with automatic storage selection.
+	 */
+	public NumericMatrix() {
+		this(StorageMode.AUTOMATIC);
+	}
+
+	/**
+	 * Creates a new NumericMatrix with the given storage mode.
+	 * @param storageMode Storage mode for matrix entries
+	 */
+	public NumericMatrix(StorageMode storageMode) {
+		Validate.notNull(storageMode);
+		this.storageMode = storageMode;
+		this.storage = storageMode == StorageMode.DENSE ? new DenseMatrixStorage() : new SparseMatrixStorage();
+	}
+
+	public StorageMode getStorageMode() {
+		return storageMode;
+	}
+
+	/**
+	 * Checks if entries are currently kept in dense storage.<br>
+	 * For automatic storage mode, this can change when entries are set.
+	 * @return <code>true</code> if dense storage is used;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isDense() {
+		return storage instanceof DenseMatrixStorage;
+	}
+
+	/**
+	 * Sets the matrix entry specified by the given row and col keys.<br>
+	 * This method sets the following content: Matrix[row,col]=value
+	 * @param row Row-value of indexing type
+	 * @param col Col-value of indexing type
+	 * @param value Value that has to be inserted
+	 */
+	public void putValue(E row, E col, double value) {
+		int rowIndex = ensureRowKey(row);
+		int colIndex = ensureColKey(col);
+		storage.set(rowIndex, colIndex, value);
+		checkStorage();
+	}
+
+	/**
+	 * Adds the given value to the matrix entry specified by the given row and col keys.<br>
+	 * This method sets the following content: Matrix[row,col]=Matrix[row,col]+delta
+	 * @param row Row-value of indexing type
+	 * @param col Col-value of indexing type
+	 * @param delta Value that has to be added
+	 * @return The new value at matrix position [row,col]
+	 */
+	public double addToValue(E row, E col, double delta) {
+		int rowIndex = ensureRowKey(row);
+		int colIndex = ensureColKey(col);
+		double result = storage.add(rowIndex, colIndex, delta);
+		checkStorage();
+		return result;
+	}
+
+	/**
+	 * Returns the matrix entry specified by the given row and col keys (Matrix[row,col]).
+	 * @param row Row-value of indexing type
+	 * @param col Col-value of indexing type
+	 * @return Value at matrix position [row,col];<br>
+	 * 0 if there is no such row or col.
+	 */
+	public double getValue(E row, E col) {
+		int rowIndex = rowIndex(row);
+		if (rowIndex < 0)
+			return 0;
+		int colIndex = colIndex(col);
+		if (colIndex < 0)
+			return 0;
+		return storage.get(rowIndex, colIndex);
+	}
+
+	/**
+	 * Returns the matrix entry specified by the given row and col indexes.
+	 * @param rowIndex Index of the row key
+	 * @param colIndex Index of the col key
+	 * @return Value at matrix position [rowIndex,colIndex]
+	 * @see #rowIndex(Object)
+	 * @see #colIndex(Object)
+	 */
+	public double getValueAt(int rowIndex, int colIndex) {
+		checkIndex(rowIndex, rowKeys.size());
+		checkIndex(colIndex, colKeys.size());
+		return storage.get(rowIndex, colIndex);
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	/**
+	 * Returns the index of the given row key.
+	 * @param row Row-value of indexing type
+	 * @return The row index;<br>
+	 * -1 if there is no such row.
+	 */
+	public int rowIndex(E row) {
+		return rowIndexes.get(row) - 1;
+	}
+
+	/**
+	 * Returns the index of the given col key.
+	 * @param col Col-value of indexing type
+	 * @return The col index;<br>
+	 * -1 if there is no such col.
+	 */
+	public int colIndex(E col) {
+		return colIndexes.get(col) - 1;
+	}
+
+	public E rowKey(int rowIndex) {
+		return rowKeys.get(rowIndex);
+	}
+
+	public E colKey(int colIndex) {
+		return colKeys.get(colIndex);
+	}
+
+	/**
+	 * Returns all row keys in the order of their index.
+	 * @return An unmodifiable list of row keys.
+	 */
+	public List<E> rowKeys() {
+		return Collections.unmodifiableList(rowKeys);
+	}
+
+	/**
+	 * Returns all col keys in the order of their index.
+	 * @return An unmodifiable list of col keys.
+	 */
+	public List<E> colKeys() {
+		return Collections.unmodifiableList(colKeys);
+	}
+
+	public int rowCount() {
+		return rowKeys.size();
+	}
+
+	public int colCount() {
+		return colKeys.size();
+	}
+
+	/**
+	 * Returns the number of matrix entries which are not 0.
+	 * @return The number of non-zero entries.
+	 */
+	public long nonZeroCount() {
+		return storage.nonZeroCount();
+	}
+
+	/**
+	 * Copies all entries of the given row into the given array, ordered by col index.
+	 * @param row Row-value of indexing type
+	 * @param target Array of length &gt;= {@link #colCount()}, or <code>null</code>
+	 * @return The array containing the row entries.
+	 */
+	public double[] getRow(E row, double[] target) {
+		final double[] result = target != null ? target : new double[colKeys.size()];
+		Validate.isTrue(result.length >= colKeys.size(), "Target array too small");
+		int rowIndex = rowIndex(row);
+		if (rowIndex < 0) {
+			Arrays.fill(result, 0, colKeys.size(), 0);
+		} else if (storage instanceof DenseMatrixStorage) {
+			((DenseMatrixStorage) storage).copyRow(rowIndex, result, colKeys.size());
+		} else {
+			Arrays.fill(result, 0, colKeys.size(), 0);
+			storage.forEachNonZeroInRow(rowIndex, colKeys.size(), new CellVisitor() {
+				@Override
+				public void visit(int index, double value) {
+					result[index] = value;
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Copies all entries of the given col into the given array, ordered by row index.
+	 * @param col Col-value of indexing type
+	 * @param target Array of length &gt;= {@link #rowCount()}, or <code>null</code>
+	 * @return The array containing the col entries.
+	 */
+	public double[] getCol(E col, double[] target) {
+		final double[] result = target != null ? target : new double[rowKeys.size()];
+		Validate.isTrue(result.length >= rowKeys.size(), "Target array too small");
+		Arrays.fill(result, 0, rowKeys.size(), 0);
+		int colIndex = colIndex(col);
+		if (colIndex >= 0) {
+			storage.forEachNonZeroInCol(colIndex, rowKeys.size(), new CellVisitor() {
+				@Override
+				public void visit(int index, double value) {
+					result[index] = value;
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Calls the given visitor for all non-zero entries of the given row.<br>
+	 * The visitor is called with the col index (see {@link #colKey(int)}) and the entry value.
+	 * @param row Row-value of indexing type
+	 * @param visitor Visitor for row entries
+	 */
+	public void forEachInRow(E row, CellVisitor visitor) {
+		Validate.notNull(visitor);
+		int rowIndex = rowIndex(row);
+		if (rowIndex >= 0)
+			storage.forEachNonZeroInRow(rowIndex, colKeys.size(), visitor);
+	}
+
+	/**
+	 * Calls the given visitor for all non-zero entries of the given col.<br>
+	 * The visitor is called with the row index (see {@link #rowKey(int)}) and the entry value.
+	 * @param col Col-value of indexing type
+	 * @param visitor Visitor for col entries
+	 */
+	public void forEachInCol(E col, CellVisitor visitor) {
+		Validate.notNull(visitor);
+		int colIndex = colIndex(col);
+		if (colIndex >= 0)
+			storage.forEachNonZeroInCol(colIndex, rowKeys.size(), visitor);
+	}
+
+	/**
+	 * Sets all matrix entries to 0, keeping row and col keys.
+	 */
+	public void clearValues() {
+		storage.clear();
+	}
+
+	/**
+	 * Checks if the given row-key is already known and optionally generates a new key mapping.<br>
+	 * @param key Row-value of indexing type
+	 * @return The row index of the key
+	 */
+	protected int ensureRowKey(E key) {
+		Validate.notNull(key);
+		int index = rowIndexes.get(key) - 1;
+		if (index < 0) {
+			index = rowKeys.size();
+			rowKeys.add(key);
+			rowIndexes.put(key, index + 1);
+			storage.ensureCapacity(rowKeys.size(), colKeys.size());
+		}
+		return index;
+	}
+
+	/**
+	 * Checks if the given col-key is already known and optionally generates a new key mapping.<br>
+	 * @param key Col-value of indexing type
+	 * @return The col index of the key
+	 */
+	protected int ensureColKey(E key) {
+		Validate.notNull(key);
+		int index = colIndexes.get(key) - 1;
+		if (index < 0) {
+			index = colKeys.size();
+			colKeys.add(key);
+			colIndexes.put(key, index + 1);
+			storage.ensureCapacity(rowKeys.size(), colKeys.size());
+		}
+		return index;
+	}
+
+	/**
+	 * Switches between sparse and dense storage in automatic mode,
+	 * depending on the current fill ratio.
+	 */
+	private void checkStorage() {
+		if (storageMode != StorageMode.AUTOMATIC)
+			return;
+		long cells = (long) rowKeys.size() * colKeys.size();
+		if (cells < MIN_DENSE_CELLS)
+			return;
+		double fillRatio = storage.nonZeroCount() / (double) cells;
+		if (!isDense() && fillRatio > DENSE_FILL_RATIO && cells < Integer.MAX_VALUE / 2) {
+			convertStorage(new DenseMatrixStorage(rowKeys.size(), colKeys.size()));
+		} else if (isDense() && fillRatio < SPARSE_FILL_RATIO) {
+			convertStorage(new SparseMatrixStorage((int) storage.nonZeroCount()));
+		}
+	}
+
+	private void convertStorage(final MatrixStorage newStorage) {
+		for (int row = 0; row < rowKeys.size(); row++) {
+			final int rowIndex = row;
+			storage.forEachNonZeroInRow(row, colKeys.size(), new CellVisitor() {
+				@Override
+				public void visit(int index, double value) {
+					newStorage.set(rowIndex, index, value);
+				}
+			});
+		}
+		storage = newStorage;
+	}
+
+	/**
+	 * Returns a String representation of the matrix.
+	 * @return String representation of the matrix
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("  ");
+		builder.append(colKeys);
+		builder.append('\n');
+		for (int row = 0; row < rowKeys.size(); row++) {
+			builder.append(rowKeys.get(row));
+			builder.append(" ");
+			for (int col = 0; col < colKeys.size(); col++) {
+				builder.append(storage.get(row, col));
+				builder.append(" ");
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+
+	public String toCSV(char separator) {
+		StringWriter writer = new StringWriter();
+		try {
+			toCSV(writer, separator);
+		} catch (IOException e) {
+			// Cannot happen for StringWriter
+			throw new RuntimeException(e);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Writes a CSV representation of the matrix to the given writer.<br>
+	 * Rows and cols are sorted by the String representation of their keys.
+	 * Row values are copied into one reusable buffer, no intermediate String
+	 * representation of the whole matrix is created.
+	 * @param writer Writer for CSV output
+	 * @param separator Value separator
+	 * @throws IOException If writing fails
+	 */
+	public void toCSV(Writer writer, char separator) throws IOException {
+		Validate.notNull(writer);
+		List<E> sortedRowKeys = new ArrayList<E>(rowKeys);
+		Collections.sort(sortedRowKeys, new ToStringComparator<E>());
+		List<E> sortedColKeys = new ArrayList<E>(colKeys);
+		Collections.sort(sortedColKeys, new ToStringComparator<E>());
+		int[] colOrder = new int[sortedColKeys.size()];
+		for (int i = 0; i < colOrder.length; i++)
+			colOrder[i] = colIndex(sortedColKeys.get(i));
+
+		writer.write(separator);
+		for (E colKey : sortedColKeys) {
+			writer.write(String.valueOf(colKey));
+			writer.write(separator);
+		}
+		writer.write('\n');
+		double[] rowValues = new double[colKeys.size()];
+		for (E rowKey : sortedRowKeys) {
+			getRow(rowKey, rowValues);
+			writer.write(String.valueOf(rowKey));
+			writer.write(separator);
+			for (int col : colOrder) {
+				writer.write(Double.toString(rowValues[col]));
+				writer.write(separator);
+			}
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Storage modes for matrix entries.
+	 */
+	public enum StorageMode {
+		DENSE, SPARSE, AUTOMATIC;
+	}
+
+	/**
+	 * Creates a numeric matrix from the given object matrix.<br>
+	 * <code>null</code> entries are mapped to 0.
+	 * @param <E> Indexing type for rows and cols
+	 * @param matrix Matrix with number entries
+	 * @param storageMode Storage mode of the new matrix
+	 * @return A numeric matrix with the same entries
+	 */
+	public static <E> NumericMatrix<E> fromDynamicMatrix(DynamicMatrix<E, ? extends Number> matrix, StorageMode storageMode) {
+		Validate.notNull(matrix);
+		NumericMatrix<E> result = new NumericMatrix<E>(storageMode);
+		for (E row : matrix.rowKeys())
+			result.ensureRowKey(row);
+		for (E col : matrix.colKeys())
+			result.ensureColKey(col);
+		for (E row : matrix.rowKeys()) {
+			for (E col : matrix.colKeys()) {
+				Number value = matrix.getValue(row, col);
+				if (value != null && value.doubleValue() != 0)
+					result.putValue(row, col, value.doubleValue());
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,502 @@
+package de.invation.code.toval.types;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import de.invation.code.toval.validate.Validate;
+
+/**
+ * Hash map from objects to primitive <code>int</code> values.<br>
+ * Keys and values are stored in two parallel arrays using open addressing
+ * with linear probing, so reading or updating a value does not create any
+ * <code>Integer</code> objects.<br>
+ * <br>
+ * Absent keys are reported with value 0. <code>null</code> keys are not
+ * allowed.<br>
+ * <br>
+ * For allocation-free traversal, the table slots can be accessed directly
+ * via {@link #capacity()}, {@link #keyAt(int)} and {@link #valueAt(int)}:
+ * <pre>
+ * for(int slot = 0; slot &lt; map.capacity(); slot++){
+ *     if(map.keyAt(slot) != null){
+ *         ... map.valueAt(slot) ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <K> Type of keys
+ *
+ * @author Thomas Stocker
+ */
+public class ObjectIntMap<K> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private Object[] keys;
+	private int[] values;
+	private int size = 0;
+	private int threshold;
+	private int mask;
+	private int modCount = 0;
+
+	public ObjectIntMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new map which can hold the given number of keys without
+	 * resizing.
+	 *
+	 * @param expectedSize The expected number of keys.
+	 */
+	public ObjectIntMap(int expectedSize) {
+		Validate.notNegative(expectedSize);
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	public ObjectIntMap(ObjectIntMap<? extends K> map) {
+		Validate.notNull(map);
+		keys = map.keys.clone();
+		values = map.values.clone();
+		size = map.size;
+		threshold = map.threshold;
+		mask = map.mask;
+	}
+
+	private static int tableSizeFor(int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the slot of the given key or <code>-1</code> if the map does
+	 * not contain the key.
+	 */
+	private int slotOf(Object key) {
+		int slot = hash(key) & mask;
+		Object k;
+		while ((k = keys[slot]) != null) {
+			if (k == key || k.equals(key)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of keys within this map.
+	 *
+	 * @return The number of keys.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(Object key) {
+		if (key == null) {
+			return false;
+		}
+		return slotOf(key) >= 0;
+	}
+
+	/**
+	 * Returns the value for the given key.
+	 *
+	 * @param key The key whose value is requested.
+	 * @return The value for the given key;<br>
+	 * 0 if the map does not contain the key.
+	 */
+	public int get(Object key) {
+		if (key == null) {
+			return 0;
+		}
+		int slot = slotOf(key);
+		return slot < 0 ? 0 : values[slot];
+	}
+
+	/**
+	 * Sets the value of the given key.
+	 *
+	 * @param key The key whose value is set.
+	 * @param value The value to set.
+	 * @return The previous value of the key;<br>
+	 * 0 if the map did not contain the key.
+	 */
+	public int put(K key, int value) {
+		Validate.notNull(key);
+		int slot = hash(key) & mask;
+		Object k;
+		while ((k = keys[slot]) != null) {
+			if (k == key || k.equals(key)) {
+				int oldValue = values[slot];
+				values[slot] = value;
+				return oldValue;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		modCount++;
+		if (++size > threshold) {
+			rehash(keys.length << 1);
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds the given delta to the value of the given key.<br>
+	 * Keys which are not contained in the map are inserted with value
+	 * <code>delta</code>.
+	 *
+	 * @param key The key whose value is adjusted.
+	 * @param delta The value to add.
+	 * @return The new value of the key.
+	 */
+	public int addTo(K key, int delta) {
+		Validate.notNull(key);
+		int slot = hash(key) & mask;
+		Object k;
+		while ((k = keys[slot]) != null) {
+			if (k == key || k.equals(key)) {
+				return values[slot] += delta;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = delta;
+		modCount++;
+		if (++size > threshold) {
+			rehash(keys.length << 1);
+		}
+		return delta;
+	}
+
+	/**
+	 * Removes the given key from this map.
+	 *
+	 * @param key The key to remove.
+	 * @return The value of the removed key;<br>
+	 * 0 if the map did not contain the key.
+	 */
+	public int remove(Object key) {
+		if (key == null) {
+			return 0;
+		}
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return 0;
+		}
+		int oldValue = values[slot];
+		removeSlot(slot, null);
+		return oldValue;
+	}
+
+	/**
+	 * Removes the entry at the given slot and shifts back following entries
+	 * of the same probe sequence, so no tombstones are needed.<br>
+	 * Iterators traverse the table from the last slot downwards. Entries
+	 * which wrap around the table end and are shifted from the not yet
+	 * visited area into the visited area are added to <code>wrapped</code>
+	 * (if not <code>null</code>).
+	 */
+	private void removeSlot(int slot, List<Object> wrapped) {
+		int gap = slot;
+		int current = (gap + 1) & mask;
+		Object k;
+		while ((k = keys[current]) != null) {
+			int home = hash(k) & mask;
+			// Move the entry to the gap if the gap lies cyclically within [home, current).
+			if (((current - home) & mask) >= ((current - gap) & mask)) {
+				if (wrapped != null && current < slot && gap >= slot) {
+					wrapped.add(k);
+				}
+				keys[gap] = k;
+				values[gap] = values[current];
+				gap = current;
+			}
+			current = (current + 1) & mask;
+		}
+		keys[gap] = null;
+		values[gap] = 0;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Removes all keys whose value is smaller than 1.
+	 *
+	 * @return <code>true</code> if at least one key was removed;<br>
+	 * <code>false</code> otherwise.
+	 */
+	public boolean removeNonPositive() {
+		int remaining = 0;
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != null && values[slot] > 0) {
+				remaining++;
+			}
+		}
+		if (remaining == size) {
+			return false;
+		}
+		Object[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(keys.length);
+		size = 0;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldKeys[slot] != null && oldValues[slot] > 0) {
+				insertNew(oldKeys[slot], oldValues[slot]);
+			}
+		}
+		modCount++;
+		return true;
+	}
+
+	public void clear() {
+		if (size == 0) {
+			return;
+		}
+		Arrays.fill(keys, null);
+		Arrays.fill(values, 0);
+		size = 0;
+		modCount++;
+	}
+
+	private void rehash(int newCapacity) {
+		Object[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(newCapacity);
+		size = 0;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldKeys[slot] != null) {
+				insertNew(oldKeys[slot], oldValues[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Inserts a key which is known not to be contained in the table.
+	 */
+	private void insertNew(Object key, int value) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+	}
+
+	/**
+	 * Returns the number of slots of the underlying table.
+	 *
+	 * @return The table capacity.
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the key stored at the given slot.
+	 *
+	 * @param slot The table slot.
+	 * @return The key at the given slot;<br>
+	 * <code>null</code> if the slot is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public K keyAt(int slot) {
+		return (K) keys[slot];
+	}
+
+	/**
+	 * Returns the value stored at the given slot.
+	 *
+	 * @param slot The table slot.
+	 * @return The value at the given slot;<br>
+	 * 0 if the slot is empty.
+	 */
+	public int valueAt(int slot) {
+		return values[slot];
+	}
+
+	/**
+	 * Sets the value at the given (non-empty) slot.
+	 *
+	 * @param slot The table slot.
+	 * @param value The value to set.
+	 */
+	public void setValueAt(int slot, int value) {
+		if (keys[slot] == null) {
+			throw new IllegalStateException("Slot " + slot + " is empty");
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * Returns a set view of the keys of this map.<br>
+	 * The view supports removal via its iterator.
+	 *
+	 * @return A set view of the keys.
+	 */
+	public Set<K> keySet() {
+		return new KeySet();
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != null) {
+				result += keys[slot].hashCode() ^ values[slot];
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ObjectIntMap)) {
+			return false;
+		}
+		ObjectIntMap<?> other = (ObjectIntMap<?>) obj;
+		if (size != other.size) {
+			return false;
+		}
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != null) {
+				int otherSlot = other.slotOf(keys[slot]);
+				if (otherSlot < 0 || other.values[otherSlot] != values[slot]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append('{');
+		int count = 0;
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != null) {
+				builder.append(keys[slot]).append('=').append(values[slot]);
+				if (++count < size) {
+					builder.append(", ");
+				}
+			}
+		}
+		builder.append('}');
+		return builder.toString();
+	}
+
+	private class KeySet extends AbstractSet<K> {
+
+		@Override
+		public Iterator<K> iterator() {
+			return new KeyIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return containsKey(o);
+		}
+	}
+
+	private class KeyIterator implements Iterator<K> {
+
+		private int position = keys.length;
+		private int lastSlot = -1;
+		private K lastKey = null;
+		private int remaining = size;
+		private int expectedModCount = modCount;
+		private List<Object> wrapped = null;
+		private int wrappedPosition = 0;
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@Override
+		public K next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (remaining == 0) {
+				throw new NoSuchElementException();
+			}
+			remaining--;
+			while (--position >= 0) {
+				if (keys[position] != null) {
+					lastSlot = position;
+					lastKey = keyAt(position);
+					return lastKey;
+				}
+			}
+			lastSlot = -1;
+			lastKey = castKey(wrapped.get(wrappedPosition++));
+			return lastKey;
+		}
+
+		@SuppressWarnings("unchecked")
+		private K castKey(Object key) {
+			return (K) key;
+		}
+
+		@Override
+		public void remove() {
+			if (lastKey == null) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (lastSlot >= 0) {
+				if (wrapped == null) {
+					wrapped = new ArrayList<>(2);
+				}
+				removeSlot(lastSlot, wrapped);
+			} else {
+				ObjectIntMap.this.remove(lastKey);
+			}
+			expectedModCount = modCount;
+			lastKey = null;
+		}
+	}
+
+}
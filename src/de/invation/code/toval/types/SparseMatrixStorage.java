@@ -0,0 +1,239 @@
+package de.invation.code.toval.types;
+
+import java.util.Arrays;
+
+/**
+ * Matrix storage which keeps only non-zero entries.<br>
+ * Entries are stored in an open-addressing hash table with primitive
+ * <code>long</code> keys (row index in the upper, col index in the lower 32 bits)
+ * and primitive <code>double</code> values.
+ *
+ * @author Thomas Stocker
+ */
+public class SparseMatrixStorage implements MatrixStorage {
+
+	private static final long EMPTY = -1L;
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] keys;
+	private double[] values;
+	private int size = 0;
+	private int mask;
+
+	public SparseMatrixStorage() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new storage which can hold the given number of non-zero
+	 * entries without resizing.
+	 *
+	 * @param expectedEntries Expected number of non-zero entries
+	 */
+	public SparseMatrixStorage(int expectedEntries) {
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expectedEntries) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new double[capacity];
+		mask = capacity - 1;
+	}
+
+	private static void checkIndexes(int row, int col) {
+		if (row < 0 || col < 0) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", Col: " + col);
+		}
+	}
+
+	/**
+	 * Returns the key of the given position.<br>
+	 * Indexes have to be non-negative, since the key of [-1,-1] marks empty slots.
+	 */
+	private static long key(int row, int col) {
+		return ((long) row << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int slotOf(long key) {
+		int slot = hash(key) & mask;
+		long k;
+		while ((k = keys[slot]) != EMPTY) {
+			if (k == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1 - slot;
+	}
+
+	@Override
+	public double get(int row, int col) {
+		checkIndexes(row, col);
+		int slot = slotOf(key(row, col));
+		return slot < 0 ? 0 : values[slot];
+	}
+
+	@Override
+	public void set(int row, int col, double value) {
+		checkIndexes(row, col);
+		long key = key(row, col);
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			if (value == 0) {
+				removeSlot(slot);
+			} else {
+				values[slot] = value;
+			}
+		} else if (value != 0) {
+			insert(-1 - slot, key, value);
+		}
+	}
+
+	@Override
+	public double add(int row, int col, double delta) {
+		checkIndexes(row, col);
+		long key = key(row, col);
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			double value = values[slot] + delta;
+			if (value == 0) {
+				removeSlot(slot);
+			} else {
+				values[slot] = value;
+			}
+			return value;
+		}
+		if (delta != 0) {
+			insert(-1 - slot, key, delta);
+		}
+		return delta;
+	}
+
+	private void insert(int slot, long key, double value) {
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > keys.length * LOAD_FACTOR) {
+			rehash(keys.length << 1);
+		}
+	}
+
+	private void removeSlot(int slot) {
+		int gap = slot;
+		int current = (gap + 1) & mask;
+		long k;
+		while ((k = keys[current]) != EMPTY) {
+			int home = hash(k) & mask;
+			if (((current - home) & mask) >= ((current - gap) & mask)) {
+				keys[gap] = k;
+				values[gap] = values[current];
+				gap = current;
+			}
+			current = (current + 1) & mask;
+		}
+		keys[gap] = EMPTY;
+		values[gap] = 0;
+		size--;
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		allocate(newCapacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	@Override
+	public void ensureCapacity(int rows, int cols) {
+		// Sparse storage does not depend on matrix dimensions.
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return size;
+	}
+
+	@Override
+	public void forEachNonZeroInRow(int row, int cols, CellVisitor visitor) {
+		if (cols < keys.length) {
+			for (int col = 0; col < cols; col++) {
+				int slot = slotOf(key(row, col));
+				if (slot >= 0) {
+					visitor.visit(col, values[slot]);
+				}
+			}
+		} else {
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (keys[slot] != EMPTY && (int) (keys[slot] >>> 32) == row) {
+					visitor.visit((int) keys[slot], values[slot]);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void forEachNonZeroInCol(int col, int rows, CellVisitor visitor) {
+		if (rows < keys.length) {
+			for (int row = 0; row < rows; row++) {
+				int slot = slotOf(key(row, col));
+				if (slot >= 0) {
+					visitor.visit(row, values[slot]);
+				}
+			}
+		} else {
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (keys[slot] != EMPTY && (int) keys[slot] == col) {
+					visitor.visit((int) (keys[slot] >>> 32), values[slot]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calls the given visitor for all non-zero entries.
+	 *
+	 * @param visitor Visitor which is called with row index, col index and value
+	 */
+	public void forEachNonZero(EntryVisitor visitor) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY) {
+				visitor.visit((int) (keys[slot] >>> 32), (int) keys[slot], values[slot]);
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(values, 0);
+		size = 0;
+	}
+
+	/**
+	 * Callback for visiting all non-zero entries without boxing.
+	 */
+	public interface EntryVisitor {
+
+		public void visit(int row, int col, double value);
+
+	}
+
+}